@@ -32,6 +32,8 @@ package org.wowtools.giscat.vector.rocksrtree;
 
 import com.google.protobuf.InvalidProtocolBufferException;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
@@ -46,16 +48,55 @@ final class Branch extends Node {
 
     private final TreeBuilder builder;
 
-    private final String[] child;
+    private final long[] child;
+
+    /**
+     * 子节点的外接矩形，剪枝和选择插入位置时不需要读取子节点。旧版本写入的节点中没有此信息，用到时再读取子节点补齐
+     */
+    private final RectNd[] childMbr;
+
+    /**
+     * 子节点中的数据总数，统计时完全被覆盖的子节点不需要读取。旧版本写入的节点中没有此信息，用到时再读取子节点补齐，未知时为-1
+     */
+    private final int[] childCount;
 
     private RectNd mbr;
 
     private int size;
 
-    public Branch(TreeBuilder builder, String id) {
+    public Branch(TreeBuilder builder, long id) {
         super(builder, id);
         this.builder = builder;
-        this.child = new String[builder.mMax];
+        this.child = new long[builder.mMax];
+        this.childMbr = new RectNd[builder.mMax];
+        this.childCount = new int[builder.mMax];
+    }
+
+    @Override
+    protected Branch copy() {
+        Branch branch = new Branch(builder, id);
+        System.arraycopy(child, 0, branch.child, 0, size);
+        System.arraycopy(childMbr, 0, branch.childMbr, 0, size);
+        System.arraycopy(childCount, 0, branch.childCount, 0, size);
+        branch.mbr = mbr;
+        branch.size = size;
+        return copyState(branch);
+    }
+
+    @Override
+    protected int estimateHeapSize() {
+        // Branch对象48，子节点id、子节点Rect、子节点数据总数三个长度为mMax的数组
+        int n = 48 + (16 + 8 * child.length) + (16 + 4 * childMbr.length) + (16 + 4 * childCount.length);
+        if (null != mbr) {
+            n += RectNd.heapSize(mbr.getNDim());
+        }
+        for (int i = 0; i < size; i++) {
+            // 旧格式的节点中子节点Rect在首次使用时才计算
+            if (null != childMbr[i]) {
+                n += RectNd.heapSize(childMbr[i].getNDim());
+            }
+        }
+        return n;
     }
 
     @Override
@@ -66,37 +107,101 @@ final class Branch extends Node {
         } catch (InvalidProtocolBufferException e) {
             throw new RuntimeException(e);
         }
-        List<String> childIdsList = branchPb.getChildIdsList();
-        if (childIdsList.size() > 0) {
+        if (builder.formatVersion >= 1) {
+            size = branchPb.getChildNodeIdsCount();
+            for (int i = 0; i < size; i++) {
+                child[i] = branchPb.getChildNodeIds(i);
+            }
+            ByteBuffer mbrBuffer = branchPb.getPackedMbr().asReadOnlyByteBuffer().order(ByteOrder.LITTLE_ENDIAN);
+            if (mbrBuffer.hasRemaining()) {
+                int nDim = mbrBuffer.remaining() / RectNd.packedBytesPerDim;
+                mbr = RectNd.readPacked(mbrBuffer, nDim);
+                ByteBuffer childMbrBuffer = branchPb.getPackedChildMbrs().asReadOnlyByteBuffer().order(ByteOrder.LITTLE_ENDIAN);
+                if (childMbrBuffer.hasRemaining()) {
+                    for (int i = 0; i < size; i++) {
+                        childMbr[i] = RectNd.readPacked(childMbrBuffer, nDim);
+                    }
+                }
+            }
+        } else {
+            List<String> childIdsList = branchPb.getChildIdsList();
             int i = 0;
             for (String l : childIdsList) {
-                child[i] = l;
+                child[i] = NodeId.fromLegacy(l);
                 i++;
             }
             size = childIdsList.size();
+            if (branchPb.hasMbr()) {
+                mbr = new RectNd(branchPb.getMbr());
+            }
+            if (branchPb.getChildMbrsCount() == size) {
+                for (int j = 0; j < size; j++) {
+                    childMbr[j] = new RectNd(branchPb.getChildMbrs(j));
+                }
+            }
         }
-        if (branchPb.hasMbr()) {
-            mbr = new RectNd(branchPb.getMbr());
+        boolean hasCount = branchPb.getChildEntryCountsCount() == size;
+        for (int i = 0; i < size; i++) {
+            childCount[i] = hasCount ? branchPb.getChildEntryCounts(i) : -1;
         }
     }
 
+    /**
+     * @return 是否所有子节点的外接矩形都已知，未知时不写入子节点外接矩形
+     */
+    private boolean isChildMbrComplete() {
+        for (int i = 0; i < size; i++) {
+            if (null == childMbr[i]) {
+                return false;
+            }
+        }
+        return size > 0;
+    }
 
+    /**
+     * @return 是否所有子节点的数据总数都已知，未知时不写入子节点数据总数
+     */
+    private boolean isChildCountComplete() {
+        for (int i = 0; i < size; i++) {
+            if (childCount[i] < 0) {
+                return false;
+            }
+        }
+        return size > 0;
+    }
 
     @Override
     protected byte[] toBytes() {
         RocksRtreePb.BranchPb.Builder branchBuilder = RocksRtreePb.BranchPb.newBuilder();
-        if (null != child) {
+        if (builder.formatVersion >= 1) {
+            for (int i = 0; i < size; i++) {
+                branchBuilder.addChildNodeIds(child[i]);
+            }
+            if (null != mbr) {
+                branchBuilder.setPackedMbr(RectNd.pack(new RectNd[]{mbr}, 1));
+            }
+            if (isChildMbrComplete()) {
+                branchBuilder.setPackedChildMbrs(RectNd.pack(childMbr, size));
+            }
+        } else {
             List<String> list = new ArrayList<>(size);
-            for (String l : child) {
-                if (l == null) {
-                    break;
-                }
-                list.add(l);
+            for (int i = 0; i < size; i++) {
+                list.add(NodeId.toLegacy(child[i]));
             }
             branchBuilder.addAllChildIds(list);
+            if (null != mbr) {
+                branchBuilder.setMbr(mbr.toBuilder());
+            }
+            if (isChildMbrComplete()) {
+                for (int i = 0; i < size; i++) {
+                    branchBuilder.addChildMbrs(childMbr[i].toBuilder());
+                }
+            }
         }
-        if (null != mbr) {
-            branchBuilder.setMbr(mbr.toBuilder());
+        if (isChildCountComplete()) {
+            for (int i = 0; i < size; i++) {
+                branchBuilder.addChildEntryCounts(childCount[i]);
+            }
         }
         return branchBuilder.build().toByteArray();
     }
@@ -107,15 +212,30 @@ final class Branch extends Node {
      * @param n node to be added (can be leaf or branch)
      * @return position of the added node
      */
-    protected int addChild(final Node n) {
+    protected int addChild(final Node n, TreeTransaction tx) {
+        return addChild(n.id, n.getBound(), n.totalSize(tx));
+    }
+
+    /**
+     * Add a new node to this branch's list of children
+     *
+     * @param childId    id of the node to be added
+     * @param childBound bound of the node to be added
+     * @param count      number of entries in the node to be added
+     * @return position of the added node
+     */
+    protected int addChild(final long childId, final RectNd childBound, final int count) {
         if (size < builder.mMax) {
-            child[size] = n.id;
+            markDirty();
+            child[size] = childId;
+            childMbr[size] = childBound;
+            childCount[size] = count;
             size++;
 
             if (mbr != null) {
-                mbr = mbr.getMbr(n.getBound());
+                mbr = mbr.getMbr(childBound);
             } else {
-                mbr = n.getBound();
+                mbr = childBound;
             }
 
             return size - 1;
@@ -134,10 +254,70 @@ final class Branch extends Node {
         return mbr;
     }
 
+    long getChildId(int i) {
+        return child[i];
+    }
+
     private Node getChild(int i, TreeTransaction tx) {
         return builder.getNode(child[i], tx);
     }
 
+    /**
+     * 获取子节点的外接矩形，旧版本写入的节点中没有时读取子节点补齐
+     *
+     * @param i  子节点位置
+     * @param tx 事务
+     * @return 外接矩形
+     */
+    RectNd getChildBound(int i, TreeTransaction tx) {
+        RectNd b = childMbr[i];
+        if (null == b) {
+            // 补齐的值与子节点一致，多线程同时补齐无妨
+            b = getChild(i, tx).getBound();
+            childMbr[i] = b;
+        }
+        return b;
+    }
+
+    /**
+     * 获取子节点中的数据总数，旧版本写入的节点中没有时读取子节点补齐
+     *
+     * @param i  子节点位置
+     * @param tx 事务
+     * @return 数据总数
+     */
+    int getChildCount(int i, TreeTransaction tx) {
+        int c = childCount[i];
+        if (c < 0) {
+            c = getChild(i, tx).totalSize(tx);
+            childCount[i] = c;
+        }
+        return c;
+    }
+
+    /**
+     * 子节点变化后更新其外接矩形和数据总数
+     *
+     * @param i 子节点位置
+     * @param c 子节点
+     */
+    void updateChild(int i, Node c, TreeTransaction tx) {
+        markDirty();
+        childMbr[i] = c.getBound();
+        childCount[i] = c.totalSize(tx);
+    }
+
+    /**
+     * 把数据加入子节点，子节点分裂时替换为分裂出的新节点
+     */
+    private void addToChild(int i, RectNd t, TreeTransaction tx) {
+        Node c = getChild(i, tx).add(t, tx);
+        child[i] = c.id;
+        // R*策略下子节点可能取出了部分数据重新插入，数据总数按子节点重新取
+        updateChild(i, c, tx);
+        mbr = mbr.getMbr(childMbr[i]);
+    }
+
     /**
      * Adds a data entry to one of the child nodes of this branch
      *
@@ -149,9 +329,8 @@ final class Branch extends Node {
         final RectNd tRect = builder.getBBox(t);
         if (size < builder.mMin) {
             for (int i = 0; i < size; i++) {
-                if (getChild(i, tx).getBound().contains(tRect)) {
-                    child[i] = getChild(i, tx).add(t, tx).id;
-                    mbr = mbr.getMbr(getChild(i, tx).getBound());
+                if (getChildBound(i, tx).contains(tRect)) {
+                    addToChild(i, t, tx);
                     tx.put(id, this);
                     return this;
                 }
@@ -159,82 +338,66 @@ final class Branch extends Node {
             // no overlapping node - grow
             final Node nextLeaf = builder.newLeaf(tx);
             nextLeaf.add(t, tx);
-            final int nextChild = addChild(nextLeaf);
-            mbr = mbr.getMbr(getChild(nextChild, tx).getBound());
+            addChild(nextLeaf, tx);
             tx.put(id, this);
             return this;
 
         } else {
             final int bestLeaf = chooseLeaf(t, tRect, tx);
-            Node c = getChild(bestLeaf, tx);
-            child[bestLeaf] = c.add(t, tx).id;
-            mbr = mbr.getMbr(c.getBound());
+            addToChild(bestLeaf, t, tx);
             tx.put(id, this);
             return this;
         }
     }
 
-    @Override
-    Node remove(final RectNd t, TreeTransaction tx) {
-        //TODO 用tx.remove "GC" 掉没有被引用的node
-        final RectNd tRect = builder.getBBox(t);
-
+    /**
+     * 查找子节点位置
+     *
+     * @param childId 子节点id
+     * @return 位置，不存在时返回-1
+     */
+    int indexOfChild(long childId) {
         for (int i = 0; i < size; i++) {
-            if (getChild(i, tx).getBound().intersects(tRect)) {
-                child[i] = getChild(i, tx).remove(t, tx).id;
-
-                if (getChild(i, tx) == null) {
-                    System.arraycopy(child, i + 1, child, i, size - i - 1);
-                    size--;
-                    child[size] = null;
-                    if (size > 0) i--;
-                }
+            if (child[i] == childId) {
+                return i;
             }
         }
+        return -1;
+    }
 
-        if (size == 0) {
-            tx.put(id, this);
-            return null;
-        } else if (size == 1) {
-            // unsplit branch
-            tx.put(id, this);
-            Node c = getChild(0, tx);
-            return c;
-        }
-
-        mbr = getChild(0, tx).getBound();
-        for (int i = 1; i < size; i++) {
-            mbr = mbr.getMbr(getChild(i, tx).getBound());
-        }
-        tx.put(id, this);
-        return this;
+    /**
+     * 移除一个子节点，调用方需随后调用resetBound重新计算外接矩形
+     *
+     * @param i 子节点位置
+     */
+    void removeChild(int i) {
+        markDirty();
+        System.arraycopy(child, i + 1, child, i, size - i - 1);
+        System.arraycopy(childMbr, i + 1, childMbr, i, size - i - 1);
+        System.arraycopy(childCount, i + 1, childCount, i, size - i - 1);
+        size--;
+        child[size] = NodeId.none;
+        childMbr[size] = null;
+        childCount[size] = 0;
     }
 
-    @Override
-    Node update(final RectNd told, final RectNd tnew, TreeTransaction tx) {
-        //TODO 用tx.remove "GC" 掉没有被引用的node
-        final RectNd tRect = builder.getBBox(told);
+    /**
+     * 根据子节点重新计算外接矩形
+     */
+    void resetBound(TreeTransaction tx) {
+        markDirty();
+        mbr = null;
         for (int i = 0; i < size; i++) {
-            if (tRect.intersects(getChild(i, tx).getBound())) {
-                child[i] = getChild(i, tx).update(told, tnew, tx).id;
-            }
-            if (i == 0) {
-                mbr = getChild(i, tx).getBound();
-            } else {
-                mbr = mbr.getMbr(getChild(i, tx).getBound());
-            }
+            RectNd b = getChildBound(i, tx);
+            mbr = null == mbr ? b : mbr.getMbr(b);
         }
-        tx.put(id, this);
-        return this;
     }
 
-
     @Override
     public boolean intersects(RectNd rect, FeatureConsumer consumer, TreeTransaction tx) {
         for (int i = 0; i < size; i++) {
-            Node ci = getChild(i, tx);
-            if (rect.intersects(ci.getBound())) {
-                if (!ci.intersects(rect, consumer, tx)) {
+            if (rect.intersects(getChildBound(i, tx))) {
+                if (!getChild(i, tx).intersects(rect, consumer, tx)) {
                     return false;
                 }
             }
@@ -245,9 +408,8 @@ final class Branch extends Node {
     @Override
     public boolean contains(RectNd rect, FeatureConsumer consumer, TreeTransaction tx) {
         for (int i = 0; i < size; i++) {
-            Node ci = getChild(i, tx);
-            if (rect.intersects(ci.getBound())) {
-                if (!ci.contains(rect, consumer, tx)) {
+            if (rect.intersects(getChildBound(i, tx))) {
+                if (!getChild(i, tx).contains(rect, consumer, tx)) {
                     return false;
                 }
             }
@@ -268,28 +430,32 @@ final class Branch extends Node {
     public int totalSize(TreeTransaction tx) {
         int s = 0;
         for (int i = 0; i < size; i++) {
-            s += getChild(i, tx).totalSize(tx);
+            s += getChildCount(i, tx);
         }
         return s;
     }
 
     private int chooseLeaf(final RectNd t, final RectNd tRect, TreeTransaction tx) {
+        if (size > 0 && builder.splitType == SplitType.RSTAR && isChildrenLeaf()) {
+            return chooseLeafByOverlap(tRect, tx);
+        }
         if (size > 0) {
             int bestNode = 0;
-            RectNd childMbr = getChild(0, tx).getBound().getMbr(tRect);
-            double leastEnlargement = childMbr.cost() - (getChild(0, tx).getBound().cost() + tRect.cost());
-            double leastPerimeter = childMbr.perimeter();
+            RectNd cRect = getChildBound(0, tx);
+            RectNd enlargedMbr = cRect.getMbr(tRect);
+            double leastEnlargement = enlargedMbr.cost() - (cRect.cost() + tRect.cost());
+            double leastPerimeter = builder.perimeter(enlargedMbr);
 
             for (int i = 1; i < size; i++) {
-                RectNd cRect = getChild(i, tx).getBound();
-                childMbr = tRect.getMbr(cRect);
-                final double nodeEnlargement = childMbr.cost() - (getChild(i, tx).getBound().cost() + tRect.cost());
+                cRect = getChildBound(i, tx);
+                enlargedMbr = tRect.getMbr(cRect);
+                final double nodeEnlargement = enlargedMbr.cost() - (cRect.cost() + tRect.cost());
                 if (nodeEnlargement < leastEnlargement) {
                     leastEnlargement = nodeEnlargement;
-                    leastPerimeter = childMbr.perimeter();
+                    leastPerimeter = builder.perimeter(enlargedMbr);
                     bestNode = i;
                 } else if (RTree.isEqual(nodeEnlargement, leastEnlargement)) {
-                    final double childPerimeter = childMbr.perimeter();
+                    final double childPerimeter = builder.perimeter(enlargedMbr);
                     if (childPerimeter < leastPerimeter) {
                         leastEnlargement = nodeEnlargement;
                         leastPerimeter = childPerimeter;
@@ -302,17 +468,62 @@ final class Branch extends Node {
         } else {
             final Node n = builder.newLeaf(tx);
             n.add(t, tx);
-            child[size] = n.id;
-            size++;
+            return addChild(n, tx);
+        }
+    }
 
-            if (mbr == null) {
-                mbr = n.getBound();
-            } else {
-                mbr = mbr.getMbr(n.getBound());
+    /**
+     * @return 子节点是否都是叶子节点
+     */
+    private boolean isChildrenLeaf() {
+        for (int i = 0; i < size; i++) {
+            if (!NodeId.isLeaf(child[i])) {
+                return false;
             }
+        }
+        return true;
+    }
 
-            return size - 1;
+    /**
+     * R*树规则：子节点为叶子节点时，选择加入数据后与其它子节点重叠面积增加最少的，相同时选面积增加最少的，再相同时选面积最小的
+     */
+    private int chooseLeafByOverlap(final RectNd tRect, TreeTransaction tx) {
+        RectNd[] bounds = new RectNd[size];
+        for (int i = 0; i < size; i++) {
+            bounds[i] = getChildBound(i, tx);
+        }
+        int bestNode = 0;
+        double leastOverlapInc = Double.POSITIVE_INFINITY;
+        double leastCostInc = Double.POSITIVE_INFINITY;
+        double leastCost = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            RectNd enlarged = bounds[i].getMbr(tRect);
+            double overlapInc = 0;
+            for (int j = 0; j < size; j++) {
+                if (j != i) {
+                    overlapInc += enlarged.overlap(bounds[j]) - bounds[i].overlap(bounds[j]);
+                }
+            }
+            double costInc = enlarged.cost() - bounds[i].cost();
+            double cost = bounds[i].cost();
+            boolean better;
+            if (i == 0) {
+                better = true;
+            } else if (!RTree.isEqual(overlapInc, leastOverlapInc)) {
+                better = overlapInc < leastOverlapInc;
+            } else if (!RTree.isEqual(costInc, leastCostInc)) {
+                better = costInc < leastCostInc;
+            } else {
+                better = cost < leastCost;
+            }
+            if (better) {
+                bestNode = i;
+                leastOverlapInc = overlapInc;
+                leastCostInc = costInc;
+                leastCost = cost;
+            }
         }
+        return bestNode;
     }
 
     /**
@@ -338,7 +549,7 @@ final class Branch extends Node {
     @Override
     public boolean contains(RectNd rect, RectNd t, TreeTransaction tx) {
         for (int i = 0; i < size; i++) {
-            if (rect.intersects(getChild(i, tx).getBound())) {
+            if (rect.intersects(getChildBound(i, tx))) {
                 getChild(i, tx).contains(rect, t, tx);
             }
         }
@@ -350,6 +561,14 @@ final class Branch extends Node {
         for (int i = 0; i < size; i++) {
             getChild(i, tx).collectStats(stats, depth + 1, tx);
         }
+        double overlap = 0;
+        for (int i = 0; i < size; i++) {
+            RectNd b = getChildBound(i, tx);
+            for (int j = i + 1; j < size; j++) {
+                overlap += b.overlap(getChildBound(j, tx));
+            }
+        }
+        stats.countBranchChildren(size, overlap, null == mbr ? 0 : mbr.cost());
         stats.countBranchAtDepth(depth);
     }
 
@@ -0,0 +1,274 @@
+/*
+ *
+ *  * Copyright (c) 2022- "giscat (https://github.com/codingmiao/giscat)"
+ *  *
+ *  * 本项目采用自定义版权协议，在不同行业使用时有不同约束，详情参阅：
+ *  *
+ *  * https://github.com/codingmiao/giscat/blob/main/LICENSE
+ *
+ */
+
+package org.wowtools.giscat.vector.rocksrtree;
+
+import org.jetbrains.annotations.Nullable;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+import org.wowtools.giscat.vector.pojo.converter.ProtoFeatureConverter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.wowtools.giscat.vector.rocksrtree.RTree.TreeDbKey;
+
+/**
+ * 批量装载器，自底向上地把已排好序的数据打包成叶子节点和非叶子节点，节点直接写入WriteBatch，不经过事务和缓存
+ *
+ * @author liuyu
+ * @date 2023/4/10
+ */
+class BulkLoader {
+
+    /**
+     * 每积累多少个节点写一次rocksdb
+     */
+    private static final int batchNodeNum = 1024;
+
+    private final TreeBuilder builder;
+
+    private final RocksDB db;
+
+    private final int mMin;
+
+    private final int mMax;
+
+    private int batchSize;
+
+    /**
+     * 已装载数据的featureKey，用于发现重复的featureKey
+     */
+    private final HashSet<String> featureKeys = new HashSet<>();
+
+    BulkLoader(TreeBuilder builder, RocksDB db) {
+        this.builder = builder;
+        this.db = db;
+        mMin = builder.mMin;
+        mMax = builder.mMax;
+    }
+
+    /**
+     * 节点引用，节点写入磁盘后只保留id、外接矩形和数据总数参与上层的构建
+     */
+    private static final class NodeRef {
+        private final long id;
+        private final RectNd mbr;
+        private final int count;
+
+        private NodeRef(long id, RectNd mbr, int count) {
+            this.id = id;
+            this.mbr = mbr;
+            this.count = count;
+        }
+    }
+
+    /**
+     * 按Sort-Tile-Recursive规则对数组的[from,to)区间排序，排序后按顺序每mMax个元素即为一个节点
+     *
+     * @param arr        待排序数组
+     * @param from       起始位置(含)
+     * @param to         结束位置(不含)
+     * @param dim        当前排序的维度
+     * @param nDim       总维度
+     * @param nodeSize   每个节点的元素数
+     * @param rectGetter 获取元素的外接矩形
+     */
+    static <T> void strSort(T[] arr, int from, int to, int dim, int nDim, int nodeSize, Function<T, RectNd> rectGetter) {
+        final int d = dim;
+        // 比较中心点时省略除以2
+        Arrays.sort(arr, from, to, Comparator.comparingDouble((T o) -> {
+            RectNd r = rectGetter.apply(o);
+            return r.min.xs[d] + r.max.xs[d];
+        }));
+        if (dim == nDim - 1) {
+            return;
+        }
+        int n = to - from;
+        int nodeNum = (n + nodeSize - 1) / nodeSize;
+        if (nodeNum <= 1) {
+            return;
+        }
+        int sliceNum = (int) Math.ceil(Math.pow(nodeNum, 1.0 / (nDim - dim)));
+        // 每个切片的元素数是nodeSize的整数倍，保证切片内的节点是满的
+        int sliceSize = nodeSize * ((nodeNum + sliceNum - 1) / sliceNum);
+        for (int i = from; i < to; i += sliceSize) {
+            strSort(arr, i, Math.min(i + sliceSize, to), dim + 1, nDim, nodeSize, rectGetter);
+        }
+    }
+
+    /**
+     * 把数据装载为一棵树
+     *
+     * @param rects 按空间顺序排好序的数据
+     * @param str   上层节点是否也按STR排序
+     * @return 根节点id，没有数据时返回NodeId.none
+     */
+    long load(Iterator<RectNd> rects, boolean str) {
+        long rootId = build(rects, str, null);
+        if (NodeId.none == rootId) {
+            return NodeId.none;
+        }
+        try (WriteOptions writeOpt = new WriteOptions().setDisableWAL(builder.isLoadMode())) {
+            builder.rootId = rootId;
+            RocksRtreePb.RTreePb treePb = builder.getRTree().toPb(rootId);
+            db.put(builder.getNodeColumnFamily(), writeOpt, TreeDbKey, treePb.toByteArray());
+            builder.onTreeSaved(treePb);
+            return rootId;
+        } catch (RocksDBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 把数据打包成节点写入rocksdb，不修改树信息，写入的节点在根节点被切换过来之前不会被访问到
+     *
+     * @param rects      按空间顺序排好序的数据
+     * @param str        上层节点是否也按STR排序
+     * @param indexBatch featureKey索引写入的WriteBatch，由调用者与根节点的切换一起写入；为null时随节点一起写入
+     * @return 根节点id，没有数据时返回NodeId.none
+     */
+    long build(Iterator<RectNd> rects, boolean str, @Nullable WriteBatch indexBatch) {
+        try (WriteOptions writeOpt = new WriteOptions().setDisableWAL(builder.isLoadMode()); WriteBatch batch = new WriteBatch()) {
+            List<NodeRef> level = packLeaves(rects, batch, null == indexBatch ? batch : indexBatch, writeOpt);
+            if (level.isEmpty()) {
+                return NodeId.none;
+            }
+            while (level.size() > 1) {
+                if (str) {
+                    NodeRef[] arr = level.toArray(new NodeRef[0]);
+                    strSort(arr, 0, arr.length, 0, arr[0].mbr.getNDim(), mMax, (r) -> r.mbr);
+                    level = Arrays.asList(arr);
+                }
+                level = packBranches(level, batch, writeOpt);
+            }
+            db.write(writeOpt, batch);
+            return level.get(0).id;
+        } catch (RocksDBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private List<NodeRef> packLeaves(Iterator<RectNd> rects, WriteBatch batch, WriteBatch indexBatch, WriteOptions writeOpt) throws RocksDBException {
+        List<NodeRef> refs = new ArrayList<>();
+        // 缓冲两个节点的数据，以便最后一个节点过小时和前一个节点均分
+        RectNd[] buffer = new RectNd[mMax * 2];
+        int n = 0;
+        while (rects.hasNext()) {
+            buffer[n] = rects.next();
+            n++;
+            if (n == buffer.length) {
+                refs.add(writeLeaf(buffer, 0, mMax, batch, indexBatch, writeOpt));
+                System.arraycopy(buffer, mMax, buffer, 0, mMax);
+                Arrays.fill(buffer, mMax, buffer.length, null);
+                n = mMax;
+            }
+        }
+        int[] cut = tailCut(n);
+        if (cut[0] > 0) {
+            refs.add(writeLeaf(buffer, 0, cut[0], batch, indexBatch, writeOpt));
+        }
+        if (cut[1] > 0) {
+            refs.add(writeLeaf(buffer, cut[0], cut[0] + cut[1], batch, indexBatch, writeOpt));
+        }
+        return refs;
+    }
+
+    private List<NodeRef> packBranches(List<NodeRef> children, WriteBatch batch, WriteOptions writeOpt) throws RocksDBException {
+        int total = children.size();
+        List<NodeRef> refs = new ArrayList<>(total / mMax + 1);
+        // 留下(mMax,2*mMax]个元素交给tailCut处理
+        int fullEnd = total - mMax - total % mMax;
+        int i = 0;
+        for (; i < fullEnd; i += mMax) {
+            refs.add(writeBranch(children, i, i + mMax, batch, writeOpt));
+        }
+        int[] cut = tailCut(total - i);
+        if (cut[0] > 0) {
+            refs.add(writeBranch(children, i, i + cut[0], batch, writeOpt));
+        }
+        if (cut[1] > 0) {
+            refs.add(writeBranch(children, i + cut[0], i + cut[0] + cut[1], batch, writeOpt));
+        }
+        return refs;
+    }
+
+    /**
+     * 对最后剩余的不超过2*mMax个元素进行切分，尽量保证每个节点不少于mMin个元素
+     *
+     * @param n 剩余元素数
+     * @return 两个节点的元素数，为0表示不需要该节点
+     */
+    private int[] tailCut(int n) {
+        if (n <= mMax) {
+            return new int[]{n, 0};
+        }
+        int rest = n - mMax;
+        if (rest >= mMin) {
+            return new int[]{mMax, rest};
+        }
+        int half = (n + 1) / 2;
+        return new int[]{half, n - half};
+    }
+
+    private NodeRef writeLeaf(RectNd[] rects, int from, int to, WriteBatch batch, WriteBatch indexBatch, WriteOptions writeOpt) throws RocksDBException {
+        Leaf leaf = new Leaf(builder, builder.nextLeafId());
+        for (int i = from; i < to; i++) {
+            // 重新打包已有的树时，已分配实体id的要素已在features列族中
+            if (builder.separateFeatures && 0 == rects[i].entryId) {
+                rects[i].entryId = builder.nextEntryId();
+                batch.put(builder.getFeatureColumnFamily(), TreeBuilder.entryKey(rects[i].entryId), ProtoFeatureConverter.feature2Proto(rects[i].getFeature()));
+            }
+            if (builder.hasFeatureKey()) {
+                if (null == rects[i].featureKey) {
+                    // 重新打包时旧版本写入的数据未记录featureKey，此时已读取要素并替换为复制出的对象
+                    rects[i].featureKey = builder.getFeatureKey(rects[i].getFeature());
+                }
+                if (!featureKeys.add(rects[i].featureKey)) {
+                    throw new RuntimeException("批量装载的数据中featureKey重复 " + rects[i].featureKey);
+                }
+                indexBatch.put(builder.getNodeColumnFamily(), TreeBuilder.featureIndexKey(rects[i].featureKey), builder.nodeKey(leaf.id));
+            }
+            leaf.addEntry(rects[i]);
+        }
+        write(leaf, batch, writeOpt);
+        return new NodeRef(leaf.id, leaf.getBound(), leaf.size());
+    }
+
+    private NodeRef writeBranch(List<NodeRef> children, int from, int to, WriteBatch batch, WriteOptions writeOpt) throws RocksDBException {
+        Branch branch = new Branch(builder, builder.nextBranchId());
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            NodeRef c = children.get(i);
+            branch.addChild(c.id, c.mbr, c.count);
+            count += c.count;
+        }
+        write(branch, batch, writeOpt);
+        return new NodeRef(branch.id, branch.getBound(), count);
+    }
+
+    private void write(ProtoAble node, WriteBatch batch, WriteOptions writeOpt) throws RocksDBException {
+        batch.put(builder.getNodeColumnFamily(), builder.nodeKey(node.id), node.toBytes());
+        batchSize++;
+        if (batchSize >= batchNodeNum) {
+            db.write(writeOpt, batch);
+            batch.clear();
+            batchSize = 0;
+        }
+    }
+
+}
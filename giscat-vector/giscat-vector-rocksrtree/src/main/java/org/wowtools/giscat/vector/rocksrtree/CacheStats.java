@@ -0,0 +1,120 @@
+/*
+ *
+ *  * Copyright (c) 2022- "giscat (https://github.com/codingmiao/giscat)"
+ *  *
+ *  * 本项目采用自定义版权协议，在不同行业使用时有不同约束，详情参阅：
+ *  *
+ *  * https://github.com/codingmiao/giscat/blob/main/LICENSE
+ *
+ */
+
+package org.wowtools.giscat.vector.rocksrtree;
+
+/**
+ * 缓存统计信息，包括堆内节点缓存和rocksdb块缓存(堆外)两部分，通过TreeBuilder.getCacheStats获得。
+ * 计数从TreeBuilder创建时开始累计
+ *
+ * @author liuyu
+ * @date 2023/4/22
+ */
+public class CacheStats {
+
+    private final long nodeHitCount;
+    private final long nodeMissCount;
+    private final long nodeEvictionCount;
+    private final long nodeEntryCount;
+    private final long nodeByteSize;
+    private final long blockCacheHitCount;
+    private final long blockCacheMissCount;
+    private final long blockCacheUsage;
+
+    CacheStats(long nodeHitCount, long nodeMissCount, long nodeEvictionCount, long nodeEntryCount, long nodeByteSize,
+               long blockCacheHitCount, long blockCacheMissCount, long blockCacheUsage) {
+        this.nodeHitCount = nodeHitCount;
+        this.nodeMissCount = nodeMissCount;
+        this.nodeEvictionCount = nodeEvictionCount;
+        this.nodeEntryCount = nodeEntryCount;
+        this.nodeByteSize = nodeByteSize;
+        this.blockCacheHitCount = blockCacheHitCount;
+        this.blockCacheMissCount = blockCacheMissCount;
+        this.blockCacheUsage = blockCacheUsage;
+    }
+
+    /**
+     * @return 节点缓存命中次数，事务内一级缓存的命中不计入
+     */
+    public long getNodeHitCount() {
+        return nodeHitCount;
+    }
+
+    /**
+     * @return 节点缓存未命中(需要从rocksdb读取)的次数
+     */
+    public long getNodeMissCount() {
+        return nodeMissCount;
+    }
+
+    /**
+     * @return 节点缓存因超出节点数或字节数上限而淘汰的次数
+     */
+    public long getNodeEvictionCount() {
+        return nodeEvictionCount;
+    }
+
+    /**
+     * @return 节点缓存中的节点数
+     */
+    public long getNodeEntryCount() {
+        return nodeEntryCount;
+    }
+
+    /**
+     * @return 节点缓存估算占用的堆内存字节数
+     */
+    public long getNodeByteSize() {
+        return nodeByteSize;
+    }
+
+    /**
+     * @return 节点缓存命中率，没有访问时为0
+     */
+    public double getNodeHitRate() {
+        long n = nodeHitCount + nodeMissCount;
+        return n == 0 ? 0 : nodeHitCount * 1.0 / n;
+    }
+
+    /**
+     * @return rocksdb块缓存命中次数，rocksdb未配置Statistics时为-1
+     */
+    public long getBlockCacheHitCount() {
+        return blockCacheHitCount;
+    }
+
+    /**
+     * @return rocksdb块缓存未命中次数，rocksdb未配置Statistics时为-1
+     */
+    public long getBlockCacheMissCount() {
+        return blockCacheMissCount;
+    }
+
+    /**
+     * @return rocksdb块缓存占用的字节数，取不到时为-1
+     */
+    public long getBlockCacheUsage() {
+        return blockCacheUsage;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "nodeHitCount=" + nodeHitCount +
+                ", nodeMissCount=" + nodeMissCount +
+                ", nodeEvictionCount=" + nodeEvictionCount +
+                ", nodeEntryCount=" + nodeEntryCount +
+                ", nodeByteSize=" + nodeByteSize +
+                ", blockCacheHitCount=" + blockCacheHitCount +
+                ", blockCacheMissCount=" + blockCacheMissCount +
+                ", blockCacheUsage=" + blockCacheUsage +
+                '}';
+    }
+}
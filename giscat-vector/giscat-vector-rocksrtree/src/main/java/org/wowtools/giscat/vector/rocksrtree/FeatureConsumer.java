@@ -23,6 +23,6 @@ public interface FeatureConsumer {
     boolean accept(Feature feature);
 
     default boolean accept(RectNd rectNd) {
-        return accept(rectNd.feature);
+        return accept(rectNd.getFeature());
     }
 }
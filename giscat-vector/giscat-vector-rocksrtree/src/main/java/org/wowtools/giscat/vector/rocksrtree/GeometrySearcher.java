@@ -0,0 +1,155 @@
+/*
+ *
+ *  * Copyright (c) 2022- "giscat (https://github.com/codingmiao/giscat)"
+ *  *
+ *  * 本项目采用自定义版权协议，在不同行业使用时有不同约束，详情参阅：
+ *  *
+ *  * https://github.com/codingmiao/giscat/blob/main/LICENSE
+ *
+ */
+
+package org.wowtools.giscat.vector.rocksrtree;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.wowtools.giscat.vector.pojo.Feature;
+
+import java.util.Arrays;
+
+/**
+ * 按几何查询，先用几何的外接矩形遍历树，再用预处理过的几何精确判断候选数据。
+ * 外接矩形被几何覆盖的节点和数据不需要精确判断，节点被覆盖时其中的数据全部命中
+ *
+ * @author liuyu
+ * @date 2023/4/19
+ */
+class GeometrySearcher {
+
+    private static final GeometryFactory gf = new GeometryFactory();
+
+    private final TreeBuilder builder;
+
+    private final PreparedGeometry prepared;
+
+    /**
+     * 几何的外接矩形，只有前两个维度
+     */
+    private final RectNd rect;
+
+    /**
+     * 几何本身是与坐标轴平行的矩形时，覆盖关系直接用外接矩形判断
+     */
+    private final boolean rectangle;
+
+    GeometrySearcher(TreeBuilder builder, Geometry geometry) {
+        this.builder = builder;
+        prepared = PreparedGeometryFactory.prepare(geometry);
+        Envelope envelope = geometry.getEnvelopeInternal();
+        rect = envelope.isNull() ? null : new RectNd(new double[]{envelope.getMinX(), envelope.getMinY()}, new double[]{envelope.getMaxX(), envelope.getMaxY()});
+        rectangle = geometry.isRectangle();
+    }
+
+    /**
+     * 判断外接矩形是否被查询几何覆盖，被覆盖时其中的数据一定与查询几何相交
+     */
+    private boolean covers(RectNd r) {
+        if (rectangle) {
+            return rect.contains(r);
+        }
+        Envelope envelope = new Envelope(r.min.xs[0], r.max.xs[0], r.min.xs[1], r.max.xs[1]);
+        return prepared.covers(gf.toGeometry(envelope));
+    }
+
+    /**
+     * 查询
+     *
+     * @param rootId   根节点id
+     * @param consumer 结果消费者
+     * @param tx       事务
+     */
+    void search(long rootId, FeatureConsumer consumer, TreeTransaction tx) {
+        if (null == rect) {
+            return;
+        }
+        long[] level = new long[]{rootId};
+        // 节点是否已被查询几何覆盖
+        boolean[] levelCovered = new boolean[]{false};
+        int levelSize = 1;
+        while (levelSize > 0) {
+            long[] next = new long[Math.max(levelSize * 4, 16)];
+            boolean[] nextCovered = new boolean[next.length];
+            int nextSize = 0;
+            for (int from = 0; from < levelSize; from += RTree.prefetchNodeNum) {
+                Node[] nodes = tx.getNodes(level, from, Math.min(RTree.prefetchNodeNum, levelSize - from));
+                for (int j = 0; j < nodes.length; j++) {
+                    Node node = nodes[j];
+                    if (null == node || null == node.getBound() || !rect.intersects(node.getBound())) {
+                        continue;
+                    }
+                    boolean covered = levelCovered[from + j];
+                    if (node.isLeaf()) {
+                        if (!visitLeaf((Leaf) node, covered, consumer, tx)) {
+                            return;
+                        }
+                        continue;
+                    }
+                    Branch branch = (Branch) node;
+                    for (int i = 0; i < branch.size(); i++) {
+                        boolean childCovered = covered;
+                        if (!childCovered) {
+                            RectNd childBound = branch.getChildBound(i, tx);
+                            if (!rect.intersects(childBound)) {
+                                continue;
+                            }
+                            childCovered = covers(childBound);
+                        }
+                        if (nextSize == next.length) {
+                            next = Arrays.copyOf(next, nextSize * 2);
+                            nextCovered = Arrays.copyOf(nextCovered, nextSize * 2);
+                        }
+                        next[nextSize] = branch.getChildId(i);
+                        nextCovered[nextSize] = childCovered;
+                        nextSize++;
+                    }
+                }
+            }
+            level = next;
+            levelCovered = nextCovered;
+            levelSize = nextSize;
+        }
+    }
+
+    private boolean visitLeaf(Leaf leaf, boolean covered, FeatureConsumer consumer, TreeTransaction tx) {
+        RectNd[] hits = new RectNd[leaf.size()];
+        // 命中的数据是否需要精确判断
+        boolean[] needTest = new boolean[leaf.size()];
+        int n = 0;
+        for (int i = 0; i < leaf.size(); i++) {
+            RectNd r = leaf.entryRects[i];
+            if (covered) {
+                hits[n] = leaf.entry[i];
+                n++;
+            } else if (rect.intersects(r)) {
+                hits[n] = leaf.entry[i];
+                needTest[n] = !covers(r);
+                n++;
+            }
+        }
+        tx.loadFeatures(hits, n);
+        for (int i = 0; i < n; i++) {
+            if (needTest[i]) {
+                Feature feature = hits[i].getFeature();
+                if (null == feature.getGeometry() || !prepared.intersects(feature.getGeometry())) {
+                    continue;
+                }
+            }
+            if (!consumer.accept(hits[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ *
+ *  * Copyright (c) 2022- "giscat (https://github.com/codingmiao/giscat)"
+ *  *
+ *  * 本项目采用自定义版权协议，在不同行业使用时有不同约束，详情参阅：
+ *  *
+ *  * https://github.com/codingmiao/giscat/blob/main/LICENSE
+ *
+ */
+
+package org.wowtools.giscat.vector.rocksrtree;
+
+import lombok.extern.slf4j.Slf4j;
+import org.wowtools.giscat.vector.pojo.Feature;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 组提交写入器，多个线程提交的写操作进入队列，由一个写入线程按批次在同一个事务中执行并提交。
+ * 同一批次中被多次修改的节点只序列化和写入一次，整批数据通过一个WriteBatch写入rocksdb，适合多线程持续写入的场景。
+ * 通过TreeBuilder.newGroupCommitWriter获得，用完后需要close，且需要在TreeBuilder关闭之前close
+ *
+ * @author liuyu
+ * @date 2023/4/21
+ */
+@Slf4j
+public class GroupCommitWriter implements AutoCloseable {
+
+    private static final int typeAdd = 0;
+    private static final int typeUpdate = 1;
+    private static final int typeRemove = 2;
+
+    private static final class Op {
+        private final int type;
+        private final Feature feature;
+        private final String featureKey;
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        private Op(int type, Feature feature, String featureKey) {
+            this.type = type;
+            this.feature = feature;
+            this.featureKey = featureKey;
+        }
+    }
+
+    private final TreeBuilder builder;
+
+    private final int maxBatchSize;
+
+    private final long maxDelayNanos;
+
+    private final LinkedBlockingQueue<Op> queue;
+
+    private final Thread thread;
+
+    private volatile boolean closed;
+
+    /**
+     * @param builder        TreeBuilder
+     * @param maxBatchSize   一个批次最多包含几个写操作
+     * @param maxDelayMillis 批次中第一个写操作最多等待多少毫秒后提交
+     */
+    protected GroupCommitWriter(TreeBuilder builder, int maxBatchSize, long maxDelayMillis) {
+        if (maxBatchSize < 1) {
+            throw new RuntimeException("maxBatchSize必须大于0");
+        }
+        this.builder = builder;
+        this.maxBatchSize = maxBatchSize;
+        maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxDelayMillis));
+        // 队列满时提交操作的线程阻塞，避免写入跟不上时占满内存
+        queue = new LinkedBlockingQueue<>(maxBatchSize * 4);
+        thread = new Thread(this::run, "rocksrtree-group-commit");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 添加一个feature
+     *
+     * @param feature feature
+     * @return 提交后完成，值为true；写入失败时以异常完成。回调在写入线程中执行，不要在回调中做耗时操作
+     */
+    public CompletableFuture<Boolean> add(Feature feature) {
+        return submit(new Op(typeAdd, feature, null));
+    }
+
+    /**
+     * 修改一个feature，需配置TreeBuilderConfig.featureKeyFunction
+     *
+     * @param feature 新的feature
+     * @return 提交后完成，值为true
+     * @see RTree#update(Feature, TreeTransaction)
+     */
+    public CompletableFuture<Boolean> update(Feature feature) {
+        return submit(new Op(typeUpdate, feature, null));
+    }
+
+    /**
+     * 按featureKey删除一个feature，需配置TreeBuilderConfig.featureKeyFunction
+     *
+     * @param featureKey featureKey
+     * @return 提交后完成，值为是否删除了数据
+     */
+    public CompletableFuture<Boolean> remove(String featureKey) {
+        return submit(new Op(typeRemove, null, featureKey));
+    }
+
+    /**
+     * 队列满时等待，不持有锁，等待期间每隔一段时间检查是否已关闭，避免阻塞close
+     */
+    private CompletableFuture<Boolean> submit(Op op) {
+        try {
+            while (true) {
+                if (closed) {
+                    op.future.completeExceptionally(new RuntimeException("GroupCommitWriter已关闭"));
+                    return op.future;
+                }
+                if (queue.offer(op, 100, TimeUnit.MILLISECONDS)) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        // 放入队列时已关闭，写入线程可能已经退出，还没被取走时撤回；已被取走的由写入线程执行或由close以异常完成
+        if (closed && queue.remove(op)) {
+            op.future.completeExceptionally(new RuntimeException("GroupCommitWriter已关闭"));
+        }
+        return op.future;
+    }
+
+    private void run() {
+        ArrayList<Op> ops = new ArrayList<>(maxBatchSize);
+        try {
+            while (true) {
+                Op first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (null == first) {
+                    if (closed && queue.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                ops.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (ops.size() < maxBatchSize) {
+                    long wait = deadline - System.nanoTime();
+                    Op op = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (null == op) {
+                        break;
+                    }
+                    ops.add(op);
+                }
+                try {
+                    commit(ops);
+                } catch (Throwable e) {
+                    // 一个批次出错不能让写入线程退出，否则之后提交的写操作永远不会完成
+                    log.error("GroupCommitWriter写入批次失败", e);
+                    for (Op op : ops) {
+                        op.future.completeExceptionally(e);
+                    }
+                }
+                ops.clear();
+            }
+        } catch (InterruptedException e) {
+            log.warn("GroupCommitWriter写入线程被中断", e);
+            for (Op op : ops) {
+                op.future.completeExceptionally(e);
+            }
+            Op op;
+            while (null != (op = queue.poll())) {
+                op.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 在一个事务中执行一批写操作并提交，与其它读写事务冲突时整批在新的事务中重做，失败时回滚，再逐个在独立的事务中执行，使失败只影响出错的操作。
+     * 回滚或重试本身出错时由run把整批中尚未完成的操作以异常完成
+     */
+    private void commit(ArrayList<Op> ops) {
+        boolean[] results = new boolean[ops.size()];
+        Throwable error = null;
+        boolean conflict;
+        do {
+            conflict = false;
+            try (TreeTransaction tx = builder.newTx()) {
+                try {
+                    for (int i = 0; i < ops.size(); i++) {
+                        results[i] = apply(ops.get(i), tx);
+                    }
+                    tx.commit();
+                } catch (TransactionConflictException e) {
+                    // 其它读写事务先提交了修改，整批在新的事务中重做
+                    conflict = true;
+                } catch (Throwable e) {
+                    tx.rollback();
+                    error = e;
+                }
+            }
+        } while (conflict);
+        if (null == error) {
+            for (int i = 0; i < ops.size(); i++) {
+                ops.get(i).future.complete(results[i]);
+            }
+        } else if (ops.size() == 1) {
+            ops.get(0).future.completeExceptionally(error);
+        } else {
+            // 事务关闭后才能开启新的事务提交，否则持有读锁时无法获取写锁
+            log.debug("批量写入失败，逐个重试", error);
+            for (Op op : ops) {
+                ArrayList<Op> single = new ArrayList<>(1);
+                single.add(op);
+                commit(single);
+            }
+        }
+    }
+
+    private boolean apply(Op op, TreeTransaction tx) {
+        RTree rTree = builder.getRTree();
+        switch (op.type) {
+            case typeAdd:
+                rTree.add(op.feature, tx);
+                return true;
+            case typeUpdate:
+                rTree.update(op.feature, tx);
+                return true;
+            case typeRemove:
+                return rTree.remove(op.featureKey, tx);
+            default:
+                throw new RuntimeException("未知类型 " + op.type);
+        }
+    }
+
+    /**
+     * 等待队列中已提交的写操作全部执行完后停止写入线程，之后提交的写操作会以异常完成
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        // 写入线程退出后才放入队列的写操作
+        Op op;
+        while (null != (op = queue.poll())) {
+            op.future.completeExceptionally(new RuntimeException("GroupCommitWriter已关闭"));
+        }
+    }
+}
@@ -33,11 +33,14 @@ package org.wowtools.giscat.vector.rocksrtree;
 
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnsafeByteOperations;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.wowtools.giscat.vector.pojo.Feature;
 import org.wowtools.giscat.vector.pojo.FeatureCollection;
 import org.wowtools.giscat.vector.pojo.converter.ProtoFeatureConverter;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -53,6 +56,11 @@ import java.util.function.Consumer;
 final class Leaf extends Node {
 
     private static final GeometryFactory gf = new GeometryFactory();
+
+    /**
+     * R*树强制重新插入时取出数据的比例
+     */
+    private static final double reinsertRate = 0.3;
     protected final TreeBuilder builder;
 
 
@@ -64,13 +72,66 @@ final class Leaf extends Node {
 
     protected int size;
 
-    public  Leaf(final TreeBuilder builder, String id) {
+    /**
+     * 格式版本1之前整个叶子节点的要素序列化为一个featureCollection，第一次访问其中任一要素时整体解析
+     */
+    static final class EntryCollection {
+        private final ByteString bytes;
+
+        private EntryCollection(ByteString bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * 解析整个featureCollection，结果不在此保留(节点缓存中的对象不持有解析结果)
+         *
+         * @return 要素
+         */
+        List<Feature> decode() {
+            return ProtoFeatureConverter.proto2featureCollection(bytes.toByteArray(), gf).getFeatures();
+        }
+    }
+
+    public  Leaf(final TreeBuilder builder, long id) {
         super(builder, id);
         this.builder = builder;
         this.entryRects = new RectNd[builder.mMax];
         this.entry = new RectNd[builder.mMax];
     }
 
+    @Override
+    protected Leaf copy() {
+        Leaf leaf = new Leaf(builder, id);
+        System.arraycopy(entryRects, 0, leaf.entryRects, 0, size);
+        System.arraycopy(entry, 0, leaf.entry, 0, size);
+        leaf.mbr = mbr;
+        leaf.size = size;
+        return copyState(leaf);
+    }
+
+    @Override
+    protected int estimateHeapSize() {
+        // Leaf对象48，entryRects、entry两个长度为mMax的引用数组
+        int n = 48 + 2 * (16 + 4 * entry.length);
+        if (null != mbr) {
+            n += RectNd.heapSize(mbr.getNDim());
+        }
+        EntryCollection counted = null;
+        for (int i = 0; i < size; i++) {
+            n += entry[i].estimateHeapSize();
+            if (entryRects[i] != entry[i]) {
+                n += RectNd.heapSize(entryRects[i].getNDim());
+            }
+            // 同一featureCollection中的数据是连续读入的，只计一次
+            EntryCollection collection = entry[i].getEntryCollection();
+            if (null != collection && collection != counted) {
+                n += 48 + collection.bytes.size();
+                counted = collection;
+            }
+        }
+        return n;
+    }
+
     @Override
     public void fill(byte[] bytes) {
         RocksRtreePb.LeafPb leafPb;
@@ -80,12 +141,23 @@ final class Leaf extends Node {
             throw new RuntimeException(e);
         }
 
-        if (leafPb.hasMbr()) {
-            mbr = new RectNd(leafPb.getMbr());
-        }
-
-        List<RocksRtreePb.RectNdPb> entryRectPbs = leafPb.getEntryRectsList();
-        if (entryRectPbs.size() > 0) {
+        if (builder.formatVersion >= 1) {
+            ByteBuffer mbrBuffer = leafPb.getPackedMbr().asReadOnlyByteBuffer().order(ByteOrder.LITTLE_ENDIAN);
+            if (mbrBuffer.hasRemaining()) {
+                int nDim = mbrBuffer.remaining() / RectNd.packedBytesPerDim;
+                mbr = RectNd.readPacked(mbrBuffer, nDim);
+                ByteBuffer rectBuffer = leafPb.getPackedEntryRects().asReadOnlyByteBuffer().order(ByteOrder.LITTLE_ENDIAN);
+                size = rectBuffer.remaining() / (RectNd.packedBytesPerDim * nDim);
+                for (int i = 0; i < size; i++) {
+                    entryRects[i] = RectNd.readPacked(rectBuffer, nDim);
+                    entry[i] = entryRects[i];
+                }
+            }
+        } else {
+            if (leafPb.hasMbr()) {
+                mbr = new RectNd(leafPb.getMbr());
+            }
+            List<RocksRtreePb.RectNdPb> entryRectPbs = leafPb.getEntryRectsList();
             int i = 0;
             for (RocksRtreePb.RectNdPb entryRectPb : entryRectPbs) {
                 entryRects[i] = new RectNd(entryRectPb);
@@ -93,15 +165,27 @@ final class Leaf extends Node {
                 i++;
             }
             size = entryRectPbs.size();
+        }
 
-            i = 0;
-            byte[] fcBytes = leafPb.getEntries().toByteArray();
-            FeatureCollection fc = ProtoFeatureConverter.proto2featureCollection(fcBytes, gf);
-            for (Feature feature : fc.getFeatures()) {
-                entry[i].feature = feature;
-                i++;
+        // 要素在查询命中时才解析
+        if (leafPb.getEntryIdsCount() > 0) {
+            for (int i = 0; i < size; i++) {
+                entry[i].entryId = leafPb.getEntryIds(i);
+            }
+        } else if (leafPb.getEntryFeaturesCount() > 0) {
+            for (int i = 0; i < size; i++) {
+                entry[i].setFeatureBytes(leafPb.getEntryFeatures(i));
+            }
+        } else if (size > 0) {
+            EntryCollection collection = new EntryCollection(leafPb.getEntries());
+            for (int i = 0; i < size; i++) {
+                entry[i].setFeatureBytes(collection, i);
+            }
+        }
+        if (size > 0 && leafPb.getEntryKeysCount() == size) {
+            for (int i = 0; i < size; i++) {
+                entry[i].featureKey = leafPb.getEntryKeys(i);
             }
-
         }
 
     }
@@ -109,137 +193,223 @@ final class Leaf extends Node {
     @Override
     public byte[] toBytes() {
         RocksRtreePb.LeafPb.Builder leafBuilder = RocksRtreePb.LeafPb.newBuilder();
-        if (null != mbr) {
-            leafBuilder.setMbr(mbr.toBuilder());
+        if (builder.formatVersion >= 1) {
+            if (null != mbr) {
+                leafBuilder.setPackedMbr(RectNd.pack(new RectNd[]{mbr}, 1));
+            }
+            if (size > 0) {
+                leafBuilder.setPackedEntryRects(RectNd.pack(entryRects, size));
+            }
+        } else {
+            if (null != mbr) {
+                leafBuilder.setMbr(mbr.toBuilder());
+            }
+            if (size > 0) {
+                ArrayList<RocksRtreePb.RectNdPb> rectList = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    rectList.add(entryRects[i].toBuilder().build());
+                }
+                leafBuilder.addAllEntryRects(rectList);
+            }
         }
         if (size > 0) {
-            ArrayList<RocksRtreePb.RectNdPb> rectList = new ArrayList<>(size);
-            for (int i = 0; i < size; i++) {
-                rectList.add(entryRects[i].toBuilder().build());
+            if (builder.separateFeatures) {
+                for (int i = 0; i < size; i++) {
+                    leafBuilder.addEntryIds(entry[i].entryId);
+                    // 新数据的要素已先于节点写入features列族
+                    entry[i].releaseFeature();
+                }
+            } else if (builder.formatVersion >= 1) {
+                for (int i = 0; i < size; i++) {
+                    // 读取或序列化过的要素直接写回已有的字节，每个要素只序列化一次
+                    ByteString featureBytes = entry[i].getFeatureBytes();
+                    if (null == featureBytes) {
+                        featureBytes = UnsafeByteOperations.unsafeWrap(ProtoFeatureConverter.feature2Proto(entry[i].getFeature()));
+                        entry[i].setFeatureBytes(featureBytes);
+                    }
+                    leafBuilder.addEntryFeatures(featureBytes);
+                }
+            } else {
+                RectNd[] rects = Arrays.copyOf(entry, size);
+                RectNd.detachFeatures(rects, size);
+                List<Feature> features = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    features.add(rects[i].getFeature());
+                }
+                FeatureCollection fc = new FeatureCollection();
+                fc.setFeatures(features);
+                ByteString bytes = UnsafeByteOperations.unsafeWrap(ProtoFeatureConverter.featureCollection2Proto(fc));
+                leafBuilder.setEntries(bytes);
+                // 新数据改为引用序列化结果，不再持有解析后的要素
+                EntryCollection collection = new EntryCollection(bytes);
+                for (int i = 0; i < size; i++) {
+                    if (!entry[i].hasFeatureSource()) {
+                        entry[i].setFeatureBytes(collection, i);
+                    }
+                }
             }
-            leafBuilder.addAllEntryRects(rectList);
-
-            List<Feature> features = new ArrayList<>(size);
-            for (int i = 0; i < size; i++) {
-                features.add(entryRects[i].feature);
+            // 只有全部数据都有featureKey时才记录，否则读取时无法与数据一一对应
+            if (builder.hasFeatureKey() && hasAllFeatureKeys()) {
+                for (int i = 0; i < size; i++) {
+                    leafBuilder.addEntryKeys(entry[i].featureKey);
+                }
             }
-            FeatureCollection fc = new FeatureCollection();
-            fc.setFeatures(features);
-            byte[] bytes = ProtoFeatureConverter.featureCollection2Proto(fc);
-            leafBuilder.setEntries(ByteString.copyFrom(bytes));
         }
 
         return leafBuilder.build().toByteArray();
     }
 
+    /**
+     * 直接向叶子节点追加一个数据，调用方需保证叶子节点未满
+     *
+     * @param t 数据
+     */
+    void addEntry(final RectNd t) {
+        markDirty();
+        final RectNd tRect = builder.getBBox(t);
+        if (mbr != null) {
+            mbr = mbr.getMbr(tRect);
+        } else {
+            mbr = tRect;
+        }
+
+        entryRects[size] = tRect;
+        entry[size] = t;
+        size++;
+    }
+
     @Override
     Node add(final RectNd t, TreeTransaction tx) {
         if (size < builder.mMax) {
-            final RectNd tRect = builder.getBBox(t);
-            if (mbr != null) {
-                mbr = mbr.getMbr(tRect);
-            } else {
-                mbr = tRect;
-            }
-
-            entryRects[size] = tRect;
-            entry[size] = t;
-            t.leafId = this.id;
-            size++;
+            addEntry(t);
+            tx.putFeatureIndex(t, id);
+        } else if (builder.splitType == SplitType.RSTAR && id != tx.rootId() && tx.tryReinsert()) {
+            reinsert(t, tx);
         } else {
             Node sp = split(t, tx);
-            tx.put(id, this);
+            // 数据已全部移到分裂出的新节点中，原节点不再被引用
+            tx.remove(id);
             return sp;
         }
         tx.put(id, this);
         return this;
     }
 
-    @Override
-    Node remove(final RectNd t, TreeTransaction tx) {
-
-        int i = 0;
-        int j;
-
-        while (i < size && (entry[i] != t) && (!entry[i].featureEquals(t, builder))) {
-            i++;
-        }
-
-        j = i;
-
-        while (j < size && ((entry[j] == t) || entry[j].featureEquals(t, builder))) {
-            j++;
-        }
-
-        if (i < j) {
-            final int nRemoved = j - i;
-            if (j < size) {
-                final int nRemaining = size - j;
-                System.arraycopy(entryRects, j, entryRects, i, nRemaining);
-                System.arraycopy(entry, j, entry, i, nRemaining);
-                for (int k = size - nRemoved; k < size; k++) {
-                    entryRects[k] = null;
-                    entry[k].leafId = null;
-                    entry[k] = null;
-                }
-            } else {
-                if (i == 0) {
-                    // clean sweep
-                    return null;
-                }
-                for (int k = i; k < size; k++) {
-                    entryRects[k] = null;
-                    entry[k].leafId = null;
-                    entry[k] = null;
+    /**
+     * 查找featureKey对应的数据所在位置
+     *
+     * @param featureKey featureKey
+     * @param tx         事务
+     * @return 位置，不存在时返回-1
+     */
+    int indexOf(String featureKey, TreeTransaction tx) {
+        // 先比较节点中记录的featureKey，未记录的数据再批量读取要素计算
+        RectNd[] missing = null;
+        int[] positions = null;
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (null == entry[i].featureKey) {
+                if (null == missing) {
+                    missing = new RectNd[size];
+                    positions = new int[size];
                 }
+                missing[n] = entry[i];
+                positions[n] = i;
+                n++;
+            } else if (featureKey.equals(entry[i].featureKey)) {
+                return i;
             }
-
-            size -= nRemoved;
-
-            for (int k = 0; k < size; k++) {
-                if (k == 0) {
-                    mbr = entryRects[k];
-                } else {
-                    mbr = mbr.getMbr(entryRects[k]);
+        }
+        if (n > 0) {
+            tx.loadFeatures(missing, n);
+            for (int k = 0; k < n; k++) {
+                if (featureKey.equals(builder.getFeatureKey(missing[k].getFeature()))) {
+                    return positions[k];
                 }
             }
-
         }
-
-        return this;
-
+        return -1;
     }
 
-    @Override
-    Node update(final RectNd told, final RectNd tnew, TreeTransaction tx) {
-        final RectNd bbox = builder.getBBox(tnew);
-
+    /**
+     * @return 是否全部数据都记录了featureKey
+     */
+    private boolean hasAllFeatureKeys() {
         for (int i = 0; i < size; i++) {
-            if (entry[i].featureEquals(told, builder)) {
-                entryRects[i] = bbox;
-                tnew.leafId = this.id;
-                entry[i].leafId = null;
-                entry[i] = tnew;
+            if (null == entry[i].featureKey) {
+                return false;
             }
+        }
+        return true;
+    }
 
-            if (i == 0) {
-                mbr = entryRects[i];
-            } else {
-                mbr = mbr.getMbr(entryRects[i]);
+    /**
+     * 为未记录featureKey的数据(旧版本写入的数据)批量读取要素计算featureKey，叶子节点写回时一并记录，之后不必再读取要素。
+     * 数据替换为复制出的对象，不修改节点中被共享的对象
+     *
+     * @param tx 事务
+     */
+    void loadFeatureKeys(TreeTransaction tx) {
+        if (hasAllFeatureKeys()) {
+            return;
+        }
+        RectNd[] missing = new RectNd[size];
+        int[] positions = new int[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (null == entry[i].featureKey) {
+                missing[n] = entry[i];
+                positions[n] = i;
+                n++;
             }
         }
-
-        return this;
+        tx.loadFeatures(missing, n);
+        for (int k = 0; k < n; k++) {
+            int i = positions[k];
+            entry[i] = entry[i].withFeatureKey(builder.getFeatureKey(missing[k].getFeature()));
+        }
     }
 
+    /**
+     * 移除一个数据并重新计算外接矩形
+     *
+     * @param i 数据位置
+     */
+    void removeEntry(int i) {
+        markDirty();
+        int nRemaining = size - i - 1;
+        System.arraycopy(entryRects, i + 1, entryRects, i, nRemaining);
+        System.arraycopy(entry, i + 1, entry, i, nRemaining);
+        size--;
+        entryRects[size] = null;
+        entry[size] = null;
+        mbr = null;
+        for (int k = 0; k < size; k++) {
+            mbr = null == mbr ? entryRects[k] : mbr.getMbr(entryRects[k]);
+        }
+    }
 
     @Override
     public boolean intersects(RectNd rect, FeatureConsumer consumer, TreeTransaction tx) {
+        RectNd[] hits = new RectNd[size];
+        int n = 0;
         for (int i = 0; i < size; i++) {
             if (rect.intersects(entryRects[i])) {
-                if (!consumer.accept(entry[i])) {
-                    return false;
-                }
+                hits[n] = entry[i];
+                n++;
+            }
+        }
+        return accept(hits, n, consumer, tx);
+    }
+
+    /**
+     * 命中的数据交给consumer，要素独立存储时先批量读取命中数据的要素
+     */
+    private static boolean accept(RectNd[] hits, int n, FeatureConsumer consumer, TreeTransaction tx) {
+        tx.loadFeatures(hits, n);
+        for (int i = 0; i < n; i++) {
+            if (!consumer.accept(hits[i])) {
+                return false;
             }
         }
         return true;
@@ -247,14 +417,15 @@ final class Leaf extends Node {
 
     @Override
     public boolean contains(RectNd rect, FeatureConsumer consumer, TreeTransaction tx) {
+        RectNd[] hits = new RectNd[size];
+        int n = 0;
         for (int i = 0; i < size; i++) {
             if (rect.contains(entryRects[i])) {
-                if (!consumer.accept(entry[i])) {
-                    return false;
-                }
+                hits[n] = entry[i];
+                n++;
             }
         }
-        return true;
+        return accept(hits, n, consumer, tx);
     }
 
     @Override
@@ -289,6 +460,9 @@ final class Leaf extends Node {
      * @return newly created node storing half the entries of this node
      */
     protected Node split(final RectNd t, TreeTransaction tx) {
+        if (builder.splitType == SplitType.RSTAR) {
+            return rStarSplit(t, tx);
+        }
         final Branch pNode = builder.newBranch(tx);
         final Node l1Node = builder.newLeaf(tx);
         final Node l2Node = builder.newLeaf(tx);
@@ -296,10 +470,10 @@ final class Leaf extends Node {
 
         // choose axis to split
         int axis = 0;
-        double rangeD = mbr.getRange(0);
+        double rangeD = mbr.getRange(0) / builder.getDimensionScale(0);
         for (int d = 1; d < nD; d++) {
             // split along the greatest range extent
-            final double dr = mbr.getRange(d);
+            final double dr = mbr.getRange(d) / builder.getDimensionScale(d);
             if (dr > rangeD) {
                 axis = d;
                 rangeD = dr;
@@ -308,44 +482,27 @@ final class Leaf extends Node {
 
         final int splitDimension = axis;
 
-        // sort along split dimension
-        final RectNd[] sortedMbr = Arrays.copyOf(entryRects, entryRects.length);
-
-        Arrays.sort(sortedMbr, new Comparator<RectNd>() {
-            @Override
-            public int compare(final RectNd o1, final RectNd o2) {
-                final PointNd p1 = o1.getCentroid();
-                final PointNd p2 = o2.getCentroid();
-
-                return Double.compare(p1.getCoord(splitDimension), p2.getCoord(splitDimension));
-            }
-        });
+        // sort along split dimension, 排序位置而不是Rect，省去按Rect反查数据
+        final Integer[] sorted = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = i;
+        }
+        // 比较中心点时省略除以2
+        Arrays.sort(sorted, Comparator.comparingDouble((Integer i) -> entryRects[i].min.xs[splitDimension] + entryRects[i].max.xs[splitDimension]));
 
         // divide sorted leafs
         for (int i = 0; i < size / 2; i++) {
-            outerLoop:
-            for (int j = 0; j < size; j++) {
-                if (entryRects[j] == sortedMbr[i]) {
-                    l1Node.add(entry[j], tx);
-                    break outerLoop;
-                }
-            }
+            l1Node.add(entry[sorted[i]], tx);
         }
 
         for (int i = size / 2; i < size; i++) {
-            outerLoop:
-            for (int j = 0; j < size; j++) {
-                if (entryRects[j] == sortedMbr[i]) {
-                    l2Node.add(entry[j], tx);
-                    break outerLoop;
-                }
-            }
+            l2Node.add(entry[sorted[i]], tx);
         }
 
         classify(l1Node, l2Node, t, tx);
 
-        pNode.addChild(l1Node);
-        pNode.addChild(l2Node);
+        pNode.addChild(l1Node, tx);
+        pNode.addChild(l2Node, tx);
 
         tx.put(pNode.id, pNode);
         return pNode;
@@ -379,6 +536,146 @@ final class Leaf extends Node {
         stats.countEntriesAtDepth(size, depth);
     }
 
+    /**
+     * 按R*树规则分裂：对每个轴分别按下边界、上边界排序，枚举所有合法的切分位置，
+     * 选边长之和最小的轴，再在该轴上选两侧重叠面积最小(相同时面积之和最小)的切分位置
+     *
+     * @param t 导致溢出的数据
+     * @return 分裂后的新节点
+     */
+    private Node rStarSplit(final RectNd t, TreeTransaction tx) {
+        final int n = size + 1;
+        final RectNd[] all = Arrays.copyOf(entry, n);
+        all[size] = t;
+        // 每侧至少m个数据
+        final int m = Math.max(1, Math.min(builder.mMin, n / 2));
+        final int nD = builder.getBBox(t).getNDim();
+
+        int bestAxis = 0;
+        double bestMarginSum = Double.POSITIVE_INFINITY;
+        for (int d = 0; d < nD; d++) {
+            double marginSum = 0;
+            for (int byMax = 0; byMax < 2; byMax++) {
+                Arrays.sort(all, splitComparator(d, byMax == 1));
+                RectNd[] lower = lowerMbrs(all);
+                RectNd[] upper = upperMbrs(all);
+                for (int k = m; k <= n - m; k++) {
+                    marginSum += builder.perimeter(lower[k - 1]) + builder.perimeter(upper[k]);
+                }
+            }
+            if (marginSum < bestMarginSum) {
+                bestMarginSum = marginSum;
+                bestAxis = d;
+            }
+        }
+
+        boolean bestByMax = false;
+        int bestK = m;
+        double bestOverlap = Double.POSITIVE_INFINITY;
+        double bestArea = Double.POSITIVE_INFINITY;
+        for (int byMax = 0; byMax < 2; byMax++) {
+            Arrays.sort(all, splitComparator(bestAxis, byMax == 1));
+            RectNd[] lower = lowerMbrs(all);
+            RectNd[] upper = upperMbrs(all);
+            for (int k = m; k <= n - m; k++) {
+                double overlap = lower[k - 1].overlap(upper[k]);
+                double area = lower[k - 1].cost() + upper[k].cost();
+                if (overlap < bestOverlap || (RTree.isEqual(overlap, bestOverlap) && area < bestArea)) {
+                    bestOverlap = overlap;
+                    bestArea = area;
+                    bestByMax = byMax == 1;
+                    bestK = k;
+                }
+            }
+        }
+
+        Arrays.sort(all, splitComparator(bestAxis, bestByMax));
+        final Branch pNode = builder.newBranch(tx);
+        final Node l1Node = builder.newLeaf(tx);
+        final Node l2Node = builder.newLeaf(tx);
+        for (int i = 0; i < bestK; i++) {
+            l1Node.add(all[i], tx);
+        }
+        for (int i = bestK; i < n; i++) {
+            l2Node.add(all[i], tx);
+        }
+        pNode.addChild(l1Node, tx);
+        pNode.addChild(l2Node, tx);
+        tx.put(pNode.id, pNode);
+        return pNode;
+    }
+
+    private Comparator<RectNd> splitComparator(int d, boolean byMax) {
+        if (byMax) {
+            return Comparator.comparingDouble((RectNd r) -> builder.getBBox(r).max.xs[d]).thenComparingDouble(r -> builder.getBBox(r).min.xs[d]);
+        } else {
+            return Comparator.comparingDouble((RectNd r) -> builder.getBBox(r).min.xs[d]).thenComparingDouble(r -> builder.getBBox(r).max.xs[d]);
+        }
+    }
+
+    /**
+     * @return 第i个元素为前i+1个数据的外接矩形
+     */
+    private RectNd[] lowerMbrs(RectNd[] sorted) {
+        RectNd[] res = new RectNd[sorted.length];
+        res[0] = builder.getBBox(sorted[0]);
+        for (int i = 1; i < sorted.length; i++) {
+            res[i] = res[i - 1].getMbr(builder.getBBox(sorted[i]));
+        }
+        return res;
+    }
+
+    /**
+     * @return 第i个元素为第i个及之后数据的外接矩形
+     */
+    private RectNd[] upperMbrs(RectNd[] sorted) {
+        RectNd[] res = new RectNd[sorted.length];
+        int last = sorted.length - 1;
+        res[last] = builder.getBBox(sorted[last]);
+        for (int i = last - 1; i >= 0; i--) {
+            res[i] = res[i + 1].getMbr(builder.getBBox(sorted[i]));
+        }
+        return res;
+    }
+
+    /**
+     * R*树的强制重新插入：把新数据加入后，取出离节点中心最远的30%交给事务，本次插入结束后从根节点重新插入
+     *
+     * @param t 导致溢出的数据
+     */
+    private void reinsert(final RectNd t, TreeTransaction tx) {
+        final int n = size + 1;
+        final RectNd[] all = Arrays.copyOf(entry, n);
+        all[size] = t;
+        final PointNd center = mbr.getMbr(builder.getBBox(t)).getCentroid();
+        Arrays.sort(all, Comparator.comparingDouble((RectNd r) -> -distanceSq(builder.getBBox(r).getCentroid(), center)));
+        final int p = Math.max(1, (int) (n * reinsertRate));
+
+        markDirty();
+        Arrays.fill(entryRects, null);
+        Arrays.fill(entry, null);
+        size = 0;
+        mbr = null;
+        for (int i = p; i < n; i++) {
+            addEntry(all[i]);
+            if (all[i] == t) {
+                tx.putFeatureIndex(t, id);
+            }
+        }
+        for (int i = 0; i < p; i++) {
+            tx.addReinsertEntry(all[i]);
+        }
+    }
+
+    private static double distanceSq(PointNd p1, PointNd p2) {
+        double ds = 0;
+        for (int i = 0; i < p1.xs.length; i++) {
+            double d = p1.xs[i] - p2.xs[i];
+            ds += d * d;
+        }
+        return ds;
+    }
+
     /**
      * Figures out which newly made leaf node (see split method) to add a data entry to.
      *
@@ -400,8 +697,8 @@ final class Leaf extends Node {
             if (l1MbrCost < l2MbrCost) {
                 l1Node.add(t, tx);
             } else if (RTree.isEqual(l1MbrCost, l2MbrCost)) {
-                final double l1MbrMargin = l1Mbr.perimeter();
-                final double l2MbrMargin = l2Mbr.perimeter();
+                final double l1MbrMargin = builder.perimeter(l1Mbr);
+                final double l2MbrMargin = builder.perimeter(l2Mbr);
                 if (l1MbrMargin < l2MbrMargin) {
                     l1Node.add(t, tx);
                 } else if (RTree.isEqual(l1MbrMargin, l2MbrMargin)) {
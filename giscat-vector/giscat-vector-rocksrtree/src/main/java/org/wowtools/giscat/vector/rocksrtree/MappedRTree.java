@@ -0,0 +1,271 @@
+/*
+ *
+ *  * Copyright (c) 2022- "giscat (https://github.com/codingmiao/giscat)"
+ *  *
+ *  * 本项目采用自定义版权协议，在不同行业使用时有不同约束，详情参阅：
+ *  *
+ *  * https://github.com/codingmiao/giscat/blob/main/LICENSE
+ *
+ */
+
+package org.wowtools.giscat.vector.rocksrtree;
+
+import org.jetbrains.annotations.NotNull;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.wowtools.giscat.vector.pojo.Feature;
+import org.wowtools.giscat.vector.pojo.converter.ProtoFeatureConverter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 只读的内存映射R树，读取由MappedRTree.export导出的文件，不依赖rocksdb。
+ * 文件通过FileChannel.map映射，打开时不读取数据，查询时直接在映射的字节上遍历索引，只有命中的要素才会被复制出来解析；
+ * 多个进程打开同一文件时共用操作系统的页缓存。对象不可变，可以多线程并发查询。
+ * <p>
+ * 文件结构(小端)：
+ * <pre>
+ *  文件头  magic(int) version(int) nDim(int) nodeSize(int) featureCount(long) featureOffset(long)
+ *  索引    按层存储的packed Hilbert R树，从根节点所在层开始，每项为 min[nDim](double) max[nDim](double) offset(long)，
+ *          叶子层的offset为要素在要素区中的位置，其余层的offset为第一个子项的序号
+ *  要素区  每个要素为 length(int) ProtoFeature字节，一个要素不会跨越1GB的映射块边界
+ * </pre>
+ *
+ * @author liuyu
+ * @date 2023/4/25
+ */
+public class MappedRTree {
+
+    static final int magic = 0x47435254;
+
+    static final int version = 1;
+
+    static final int headerSize = 32;
+
+    /**
+     * 每个节点的子项数
+     */
+    static final int defaultNodeSize = 16;
+
+    /**
+     * 每个映射块的最大字节数，MappedByteBuffer的容量不能超过2GB，大文件分块映射
+     */
+    static final long chunkSize = 1L << 30;
+
+    private final int nDim;
+
+    private final int nodeSize;
+
+    private final long featureCount;
+
+    /**
+     * 各层的起止序号，下标0为根节点所在层
+     */
+    private final long[] levelStart;
+    private final long[] levelEnd;
+
+    private final int itemSize;
+
+    private final long itemsPerChunk;
+
+    private final ByteBuffer[] indexChunks;
+
+    private final ByteBuffer[] featureChunks;
+
+    private final GeometryFactory gf = new GeometryFactory();
+
+    /**
+     * 把树的当前快照导出为一个只读文件，已存在的文件会被覆盖
+     *
+     * @param builder TreeBuilder
+     * @param file    导出的文件路径
+     */
+    public static void export(@NotNull TreeBuilder builder, @NotNull String file) {
+        new MappedRTreeWriter(builder, defaultNodeSize).write(file);
+    }
+
+    /**
+     * 打开一个导出的文件
+     *
+     * @param file 文件路径
+     */
+    public MappedRTree(@NotNull String file) {
+        // 映射建立后即使关闭channel也一直有效
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < headerSize) {
+                throw new RuntimeException("文件格式错误 " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, headerSize).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != magic) {
+                throw new RuntimeException("文件格式错误 " + file);
+            }
+            if (header.getInt(4) != version) {
+                throw new RuntimeException("不支持的文件版本 " + header.getInt(4));
+            }
+            nDim = header.getInt(8);
+            nodeSize = header.getInt(12);
+            featureCount = header.getLong(16);
+            long featureOffset = header.getLong(24);
+
+            long[][] levels = levelBounds(featureCount, nodeSize);
+            levelStart = levels[0];
+            levelEnd = levels[1];
+            itemSize = itemSize(nDim);
+            itemsPerChunk = chunkSize / itemSize;
+            long itemNum = levelStart.length == 0 ? 0 : levelEnd[levelEnd.length - 1];
+            indexChunks = map(channel, headerSize, itemNum * itemSize, itemsPerChunk * itemSize);
+            featureChunks = map(channel, featureOffset, fileSize - featureOffset, chunkSize);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static ByteBuffer[] map(FileChannel channel, long offset, long length, long blockSize) throws IOException {
+        int n = (int) ((length + blockSize - 1) / blockSize);
+        ByteBuffer[] chunks = new ByteBuffer[n];
+        for (int i = 0; i < n; i++) {
+            long start = i * blockSize;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start, Math.min(blockSize, length - start))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return chunks;
+    }
+
+    /**
+     * @param nDim 维度
+     * @return 索引中每项的字节数
+     */
+    static int itemSize(int nDim) {
+        return nDim * 16 + 8;
+    }
+
+    /**
+     * 计算各层的起止序号
+     *
+     * @param n        数据量
+     * @param nodeSize 每个节点的子项数
+     * @return [起始序号数组, 结束序号数组]，下标0为根节点所在层，没有数据时数组为空
+     */
+    static long[][] levelBounds(long n, int nodeSize) {
+        if (n == 0) {
+            return new long[][]{new long[0], new long[0]};
+        }
+        // 自底向上计算每层的项数
+        int levelNum = 1;
+        for (long c = n; c > 1; c = (c + nodeSize - 1) / nodeSize) {
+            levelNum++;
+        }
+        long[] sizes = new long[levelNum];
+        long c = n;
+        for (int i = levelNum - 1; i >= 0; i--) {
+            sizes[i] = c;
+            c = (c + nodeSize - 1) / nodeSize;
+        }
+        long[] start = new long[levelNum];
+        long[] end = new long[levelNum];
+        long s = 0;
+        for (int i = 0; i < levelNum; i++) {
+            start[i] = s;
+            s += sizes[i];
+            end[i] = s;
+        }
+        return new long[][]{start, end};
+    }
+
+    /**
+     * 查询与矩形相交的要素
+     *
+     * @param rect     查询范围
+     * @param consumer 结果消费者，返回false时停止查询
+     */
+    public void intersects(@NotNull RectNd rect, @NotNull FeatureConsumer consumer) {
+        if (levelStart.length > 0) {
+            search(0, levelStart[0], levelEnd[0], rect, consumer, null);
+        }
+    }
+
+    /**
+     * 统计与矩形相交的要素数，不读取要素
+     *
+     * @param rect 查询范围
+     * @return 要素数
+     */
+    public long count(@NotNull RectNd rect) {
+        long[] count = new long[1];
+        if (levelStart.length > 0) {
+            search(0, levelStart[0], levelEnd[0], rect, null, count);
+        }
+        return count[0];
+    }
+
+    /**
+     * @return 要素总数
+     */
+    public long getFeatureCount() {
+        return featureCount;
+    }
+
+    /**
+     * @return 维度
+     */
+    public int getNDim() {
+        return nDim;
+    }
+
+    /**
+     * 遍历一层中[from,to)的项
+     *
+     * @param consumer 结果消费者，为null时只计数
+     * @param count    计数结果
+     * @return 是否继续查询
+     */
+    private boolean search(int level, long from, long to, RectNd rect, FeatureConsumer consumer, long[] count) {
+        boolean leafLevel = level == levelStart.length - 1;
+        for (long i = from; i < to; i++) {
+            ByteBuffer chunk = indexChunks[(int) (i / itemsPerChunk)];
+            int pos = (int) (i % itemsPerChunk) * itemSize;
+            if (!intersects(chunk, pos, rect)) {
+                continue;
+            }
+            long offset = chunk.getLong(pos + nDim * 16);
+            if (leafLevel) {
+                if (null == consumer) {
+                    count[0]++;
+                } else if (!consumer.accept(readFeature(offset))) {
+                    return false;
+                }
+            } else {
+                long end = Math.min(offset + nodeSize, levelEnd[level + 1]);
+                if (!search(level + 1, offset, end, rect, consumer, count)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean intersects(ByteBuffer chunk, int pos, RectNd rect) {
+        for (int d = 0; d < nDim; d++) {
+            if (chunk.getDouble(pos + d * 8) > rect.max.xs[d] || chunk.getDouble(pos + (nDim + d) * 8) < rect.min.xs[d]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Feature readFeature(long offset) {
+        ByteBuffer chunk = featureChunks[(int) (offset / chunkSize)];
+        int pos = (int) (offset % chunkSize);
+        byte[] bytes = new byte[chunk.getInt(pos)];
+        // duplicate出的对象有独立的position，多线程读取互不影响
+        ByteBuffer buffer = chunk.duplicate();
+        buffer.position(pos + 4);
+        buffer.get(bytes);
+        return ProtoFeatureConverter.proto2feature(bytes, gf);
+    }
+}
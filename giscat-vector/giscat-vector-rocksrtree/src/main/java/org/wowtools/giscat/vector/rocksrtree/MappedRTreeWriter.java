@@ -0,0 +1,369 @@
+/*
+ *
+ *  * Copyright (c) 2022- "giscat (https://github.com/codingmiao/giscat)"
+ *  *
+ *  * 本项目采用自定义版权协议，在不同行业使用时有不同约束，详情参阅：
+ *  *
+ *  * https://github.com/codingmiao/giscat/blob/main/LICENSE
+ *
+ */
+
+package org.wowtools.giscat.vector.rocksrtree;
+
+import com.google.protobuf.ByteString;
+import org.wowtools.giscat.vector.pojo.converter.ProtoFeatureConverter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 把树导出为MappedRTree文件。
+ * 要素按树的遍历顺序流式写入要素区，内存中只保留各要素的外接矩形和位置，写完后按Hilbert顺序排序构建索引，写在文件头之后
+ *
+ * @author liuyu
+ * @date 2023/4/25
+ * @see MappedRTree
+ */
+class MappedRTreeWriter {
+
+    /**
+     * 每次从features列族批量读取的要素数
+     */
+    private static final int loadBatchSize = 1024;
+
+    private final TreeBuilder builder;
+
+    private final int nodeSize;
+
+    private int nDim;
+
+    /**
+     * 各要素的外接矩形，每个要素依次为min[nDim]、max[nDim]
+     */
+    private double[] bounds;
+
+    /**
+     * 各要素在要素区中的位置
+     */
+    private long[] offsets;
+
+    private int n;
+
+    MappedRTreeWriter(TreeBuilder builder, int nodeSize) {
+        this.builder = builder;
+        this.nodeSize = nodeSize;
+    }
+
+    void write(String file) {
+        try (TreeTransaction tx = builder.newReadOnlyTx();
+             FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                     StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+            RTree rTree = builder.getRTree();
+            int count = rTree.getEntryCount(tx);
+            nDim = count == 0 ? 2 : rTree.getRoot(tx).getBound().getNDim();
+            bounds = new double[count * nDim * 2];
+            offsets = new long[count];
+            long[][] levels = MappedRTree.levelBounds(count, nodeSize);
+            long itemNum = levels[0].length == 0 ? 0 : levels[1][levels[1].length - 1];
+            long indexSize = itemNum * MappedRTree.itemSize(nDim);
+            long featureOffset = MappedRTree.headerSize + indexSize;
+
+            // 先写要素区，同时记录外接矩形和位置
+            FeatureOutput out = new FeatureOutput(channel, featureOffset);
+            RectNd[] batch = new RectNd[loadBatchSize];
+            int[] batchSize = new int[1];
+            rTree.forEach((r) -> {
+                batch[batchSize[0]] = r;
+                batchSize[0]++;
+                if (batchSize[0] == batch.length) {
+                    writeFeatures(batch, batchSize[0], out, tx);
+                    batchSize[0] = 0;
+                }
+            }, tx);
+            writeFeatures(batch, batchSize[0], out, tx);
+            out.flush();
+            if (n != count) {
+                throw new RuntimeException("要素数与树中记录的不一致 " + n + " " + count);
+            }
+
+            writeIndex(channel, levels);
+
+            ByteBuffer header = ByteBuffer.allocate(MappedRTree.headerSize).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MappedRTree.magic)
+                    .putInt(MappedRTree.version)
+                    .putInt(nDim)
+                    .putInt(nodeSize)
+                    .putLong(count)
+                    .putLong(featureOffset);
+            header.flip();
+            writeFully(channel, header, 0);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void writeFeatures(RectNd[] batch, int size, FeatureOutput out, TreeTransaction tx) {
+        tx.loadFeatures(batch, size);
+        for (int i = 0; i < size; i++) {
+            RectNd r = batch[i];
+            ByteString bytes = r.getFeatureBytes();
+            byte[] featureBytes = null == bytes ? ProtoFeatureConverter.feature2Proto(r.getFeature()) : bytes.toByteArray();
+            int p = n * nDim * 2;
+            for (int d = 0; d < nDim; d++) {
+                bounds[p + d] = r.min.xs[d];
+                bounds[p + nDim + d] = r.max.xs[d];
+            }
+            offsets[n] = out.write(featureBytes);
+            n++;
+            batch[i] = null;
+        }
+    }
+
+    /**
+     * 按Hilbert顺序排序后自底向上构建各层，从根节点所在层开始写入
+     */
+    private void writeIndex(FileChannel channel, long[][] levels) throws IOException {
+        if (n == 0) {
+            return;
+        }
+        int[] order = hilbertOrder();
+        int levelNum = levels[0].length;
+        List<double[]> levelBounds = new ArrayList<>(levelNum);
+        List<long[]> levelOffsets = new ArrayList<>(levelNum);
+        // 叶子层
+        double[] lb = new double[n * nDim * 2];
+        long[] lo = new long[n];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(bounds, order[i] * nDim * 2, lb, i * nDim * 2, nDim * 2);
+            lo[i] = offsets[order[i]];
+        }
+        bounds = null;
+        offsets = null;
+        levelBounds.add(lb);
+        levelOffsets.add(lo);
+        // 上层，每nodeSize个子项合并为一项，offset为第一个子项的全局序号
+        for (int level = levelNum - 2; level >= 0; level--) {
+            double[] childBounds = lb;
+            int childNum = lo.length;
+            int num = (childNum + nodeSize - 1) / nodeSize;
+            long childStart = levels[0][level + 1];
+            lb = new double[num * nDim * 2];
+            lo = new long[num];
+            for (int i = 0; i < num; i++) {
+                int from = i * nodeSize;
+                int to = Math.min(from + nodeSize, childNum);
+                int p = i * nDim * 2;
+                System.arraycopy(childBounds, from * nDim * 2, lb, p, nDim * 2);
+                for (int c = from + 1; c < to; c++) {
+                    int cp = c * nDim * 2;
+                    for (int d = 0; d < nDim; d++) {
+                        lb[p + d] = Math.min(lb[p + d], childBounds[cp + d]);
+                        lb[p + nDim + d] = Math.max(lb[p + nDim + d], childBounds[cp + nDim + d]);
+                    }
+                }
+                lo[i] = childStart + from;
+            }
+            levelBounds.add(lb);
+            levelOffsets.add(lo);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        int itemSize = MappedRTree.itemSize(nDim);
+        long position = MappedRTree.headerSize;
+        for (int l = levelBounds.size() - 1; l >= 0; l--) {
+            double[] b = levelBounds.get(l);
+            long[] o = levelOffsets.get(l);
+            for (int i = 0; i < o.length; i++) {
+                if (buffer.remaining() < itemSize) {
+                    buffer.flip();
+                    position += writeFully(channel, buffer, position);
+                    buffer.clear();
+                }
+                for (int k = 0; k < nDim * 2; k++) {
+                    buffer.putDouble(b[i * nDim * 2 + k]);
+                }
+                buffer.putLong(o[i]);
+            }
+        }
+        buffer.flip();
+        writeFully(channel, buffer, position);
+    }
+
+    /**
+     * @return 按外接矩形中心点的Hilbert编码排序后的要素下标
+     */
+    private int[] hilbertOrder() {
+        double[] min = new double[nDim];
+        double[] max = new double[nDim];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        for (int i = 0; i < n; i++) {
+            int p = i * nDim * 2;
+            for (int d = 0; d < nDim; d++) {
+                double c = (bounds[p + d] + bounds[p + nDim + d]) / 2;
+                min[d] = Math.min(min[d], c);
+                max[d] = Math.max(max[d], c);
+            }
+        }
+        // 下标占低位，其余位数均分给各维度作为Hilbert编码的精度，排序后取低位即为下标
+        int indexBits = 64 - Long.numberOfLeadingZeros(Math.max(n - 1, 1));
+        int bits = Math.min(31, (63 - indexBits) / nDim);
+        long cells = (1L << bits) - 1;
+        long[] keys = new long[n];
+        int[] axes = new int[nDim];
+        for (int i = 0; i < n; i++) {
+            int p = i * nDim * 2;
+            for (int d = 0; d < nDim; d++) {
+                double range = max[d] - min[d];
+                double c = (bounds[p + d] + bounds[p + nDim + d]) / 2;
+                axes[d] = range > 0 ? (int) ((c - min[d]) / range * cells) : 0;
+            }
+            keys[i] = (hilbert(axes, bits) << indexBits) | i;
+        }
+        Arrays.sort(keys);
+        long mask = (1L << indexBits) - 1;
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = (int) (keys[i] & mask);
+        }
+        return order;
+    }
+
+    /**
+     * 计算n维Hilbert编码(Skilling, Programming the Hilbert curve, 2004)
+     *
+     * @param x    各维度的坐标，计算过程中会被修改
+     * @param bits 每个维度的位数
+     * @return Hilbert编码，共x.length*bits位
+     */
+    static long hilbert(int[] x, int bits) {
+        int dims = x.length;
+        if (bits == 0) {
+            return 0;
+        }
+        int m = 1 << (bits - 1);
+        // 逆变换
+        for (int q = m; q > 1; q >>= 1) {
+            int p = q - 1;
+            for (int i = 0; i < dims; i++) {
+                if ((x[i] & q) != 0) {
+                    x[0] ^= p;
+                } else {
+                    int t = (x[0] ^ x[i]) & p;
+                    x[0] ^= t;
+                    x[i] ^= t;
+                }
+            }
+        }
+        // 格雷编码
+        for (int i = 1; i < dims; i++) {
+            x[i] ^= x[i - 1];
+        }
+        int t = 0;
+        for (int q = m; q > 1; q >>= 1) {
+            if ((x[dims - 1] & q) != 0) {
+                t ^= q - 1;
+            }
+        }
+        for (int i = 0; i < dims; i++) {
+            x[i] ^= t;
+        }
+        // 各维度的位交错排列
+        long h = 0;
+        for (int b = bits - 1; b >= 0; b--) {
+            for (int i = 0; i < dims; i++) {
+                h = (h << 1) | ((x[i] >> b) & 1);
+            }
+        }
+        return h;
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    /**
+     * 要素区的顺序写入，保证一个要素不跨越映射块的边界
+     */
+    private static final class FeatureOutput {
+        private final FileChannel channel;
+        private final long start;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1024 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        /**
+         * 已写入(含缓冲中)的字节数，即下一个要素在要素区中的位置
+         */
+        private long size;
+        private long flushed;
+
+        private FeatureOutput(FileChannel channel, long start) {
+            this.channel = channel;
+            this.start = start;
+        }
+
+        /**
+         * @return 要素在要素区中的位置
+         */
+        long write(byte[] bytes) {
+            long recordSize = 4L + bytes.length;
+            if (recordSize > MappedRTree.chunkSize) {
+                throw new RuntimeException("要素过大 " + bytes.length);
+            }
+            long chunkRemaining = MappedRTree.chunkSize - size % MappedRTree.chunkSize;
+            if (recordSize > chunkRemaining) {
+                // 跳到下一个映射块的开头，空出的部分不会被读取
+                pad(chunkRemaining);
+            }
+            long offset = size;
+            put(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, bytes.length).array());
+            put(bytes);
+            return offset;
+        }
+
+        private void pad(long num) {
+            byte[] zeros = new byte[(int) Math.min(num, 64 * 1024)];
+            while (num > 0) {
+                int len = (int) Math.min(num, zeros.length);
+                put(zeros, len);
+                num -= len;
+            }
+        }
+
+        private void put(byte[] bytes) {
+            put(bytes, bytes.length);
+        }
+
+        private void put(byte[] bytes, int length) {
+            int p = 0;
+            while (p < length) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int len = Math.min(buffer.remaining(), length - p);
+                buffer.put(bytes, p, len);
+                p += len;
+            }
+            size += length;
+        }
+
+        void flush() {
+            buffer.flip();
+            try {
+                flushed += writeFully(channel, buffer, start + flushed);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *
+ *  * Copyright (c) 2022- "giscat (https://github.com/codingmiao/giscat)"
+ *  *
+ *  * 本项目采用自定义版权协议，在不同行业使用时有不同约束，详情参阅：
+ *  *
+ *  * https://github.com/codingmiao/giscat/blob/main/LICENSE
+ *
+ */
+
+package org.wowtools.giscat.vector.rocksrtree;
+
+import org.rocksdb.Statistics;
+
+/**
+ * 运行指标监听器，通过TreeBuilderConfig.metricsListener配置，用于把查询、缓存、rocksdb读取和提交的实时指标接入外部监控。
+ * 未配置时各处只做一次null判断，不计时也不计数。
+ * 回调在查询和提交的线程中同步执行，可能被多个线程并发调用，实现需要线程安全且尽量轻量，不要在回调中操作树。
+ * 各方法默认不做任何处理，按需覆盖即可，内置的汇总实现见MetricsRecorder
+ *
+ * @author liuyu
+ * @date 2023/4/25
+ * @see MetricsRecorder
+ */
+public interface MetricsListener {
+
+    /**
+     * 缓存级别：事务内缓存(一级缓存及事务中修改过的节点)
+     */
+    int txCache = 1;
+
+    /**
+     * 缓存级别：所有事务共享的节点缓存(二级缓存)
+     */
+    int sharedCache = 2;
+
+    /**
+     * 完成一次范围查询(contains、intersects及其并行版本、count)
+     *
+     * @param visitedNodes 访问的节点数
+     * @param costNanos    耗时，纳秒
+     */
+    default void onQuery(int visitedNodes, long costNanos) {
+    }
+
+    /**
+     * 在缓存中取到节点
+     *
+     * @param level 缓存级别，txCache或sharedCache
+     */
+    default void onCacheHit(int level) {
+    }
+
+    /**
+     * 缓存中没有节点，需要从rocksdb读取
+     */
+    default void onCacheMiss() {
+    }
+
+    /**
+     * 从rocksdb读取节点，一次get或multiGet回调一次
+     *
+     * @param nodeNum   读取的节点数
+     * @param bytes     读到并反序列化的字节数
+     * @param costNanos rocksdb读取耗时，纳秒
+     */
+    default void onNodeRead(int nodeNum, long bytes, long costNanos) {
+    }
+
+    /**
+     * 从features列族读取独立存储的要素，一次multiGet回调一次
+     *
+     * @param featureNum 读取的要素数
+     * @param bytes      读到的字节数
+     * @param costNanos  rocksdb读取耗时，纳秒
+     */
+    default void onFeatureRead(int featureNum, long bytes, long costNanos) {
+    }
+
+    /**
+     * 完成一次提交。通过StoreTransaction提交时，各棵树的监听器都会收到整个WriteBatch的数值
+     *
+     * @param batchCount WriteBatch中的写操作数
+     * @param batchBytes WriteBatch的字节数
+     * @param costNanos  从序列化修改到写入rocksdb并更新缓存的耗时(含等待写锁)，纳秒
+     */
+    default void onCommit(int batchCount, long batchBytes, long costNanos) {
+    }
+
+    /**
+     * 调用TreeBuilder.reportRocksDbStatistics时回调，用于读取rocksdb的ticker和直方图
+     *
+     * @param statistics rocksdb统计信息，同一RTreeStore中的树共用
+     * @see TreeBuilder#reportRocksDbStatistics()
+     */
+    default void onRocksDbStatistics(Statistics statistics) {
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ *
+ *  * Copyright (c) 2022- "giscat (https://github.com/codingmiao/giscat)"
+ *  *
+ *  * 本项目采用自定义版权协议，在不同行业使用时有不同约束，详情参阅：
+ *  *
+ *  * https://github.com/codingmiao/giscat/blob/main/LICENSE
+ *
+ */
+
+package org.wowtools.giscat.vector.rocksrtree;
+
+import org.rocksdb.Statistics;
+import org.rocksdb.TickerType;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 内置的MetricsListener实现，在内存中汇总计数和直方图，可以定时读取后上报到监控系统。例如:
+ * <pre>
+ *  MetricsRecorder recorder = new MetricsRecorder();
+ *  TreeBuilderConfig config = new TreeBuilderConfig();
+ *  config.metricsListener = recorder;
+ *  ...
+ *  builder.reportRocksDbStatistics();
+ *  System.out.println(recorder);
+ * </pre>
+ * 计数从创建时开始累计，各项读取之间不是原子的快照
+ *
+ * @author liuyu
+ * @date 2023/4/25
+ */
+public class MetricsRecorder implements MetricsListener {
+
+    /**
+     * 记录的rocksdb ticker
+     */
+    private static final TickerType[] recordedTickers = new TickerType[]{
+            TickerType.BLOCK_CACHE_HIT, TickerType.BLOCK_CACHE_MISS, TickerType.BLOOM_FILTER_USEFUL,
+            TickerType.MEMTABLE_HIT, TickerType.MEMTABLE_MISS, TickerType.BYTES_READ, TickerType.BYTES_WRITTEN,
+            TickerType.COMPACT_READ_BYTES, TickerType.COMPACT_WRITE_BYTES, TickerType.STALL_MICROS
+    };
+
+    private final LongAdder txCacheHitCount = new LongAdder();
+    private final LongAdder sharedCacheHitCount = new LongAdder();
+    private final LongAdder cacheMissCount = new LongAdder();
+    private final LongAdder nodeReadCount = new LongAdder();
+    private final LongAdder nodeReadBytes = new LongAdder();
+    private final LongAdder featureReadCount = new LongAdder();
+    private final LongAdder featureReadBytes = new LongAdder();
+
+    private final Histogram queryLatency = new Histogram();
+    private final Histogram queryVisitedNodes = new Histogram();
+    private final Histogram nodeReadLatency = new Histogram();
+    private final Histogram featureReadLatency = new Histogram();
+    private final Histogram commitLatency = new Histogram();
+    private final Histogram commitBatchCount = new Histogram();
+    private final Histogram commitBatchBytes = new Histogram();
+
+    private volatile Map<TickerType, Long> rocksDbTickers = Collections.emptyMap();
+
+    @Override
+    public void onQuery(int visitedNodes, long costNanos) {
+        queryVisitedNodes.record(visitedNodes);
+        queryLatency.record(costNanos);
+    }
+
+    @Override
+    public void onCacheHit(int level) {
+        if (level == txCache) {
+            txCacheHitCount.increment();
+        } else {
+            sharedCacheHitCount.increment();
+        }
+    }
+
+    @Override
+    public void onCacheMiss() {
+        cacheMissCount.increment();
+    }
+
+    @Override
+    public void onNodeRead(int nodeNum, long bytes, long costNanos) {
+        nodeReadCount.add(nodeNum);
+        nodeReadBytes.add(bytes);
+        nodeReadLatency.record(costNanos);
+    }
+
+    @Override
+    public void onFeatureRead(int featureNum, long bytes, long costNanos) {
+        featureReadCount.add(featureNum);
+        featureReadBytes.add(bytes);
+        featureReadLatency.record(costNanos);
+    }
+
+    @Override
+    public void onCommit(int batchCount, long batchBytes, long costNanos) {
+        commitBatchCount.record(batchCount);
+        commitBatchBytes.record(batchBytes);
+        commitLatency.record(costNanos);
+    }
+
+    @Override
+    public void onRocksDbStatistics(Statistics statistics) {
+        Map<TickerType, Long> tickers = new EnumMap<>(TickerType.class);
+        for (TickerType tickerType : recordedTickers) {
+            tickers.put(tickerType, statistics.getTickerCount(tickerType));
+        }
+        rocksDbTickers = Collections.unmodifiableMap(tickers);
+    }
+
+    /**
+     * @return 事务内缓存命中次数
+     */
+    public long getTxCacheHitCount() {
+        return txCacheHitCount.sum();
+    }
+
+    /**
+     * @return 共享节点缓存命中次数
+     */
+    public long getSharedCacheHitCount() {
+        return sharedCacheHitCount.sum();
+    }
+
+    /**
+     * @return 两级缓存都未命中的次数
+     */
+    public long getCacheMissCount() {
+        return cacheMissCount.sum();
+    }
+
+    /**
+     * @return 从rocksdb读取的节点数
+     */
+    public long getNodeReadCount() {
+        return nodeReadCount.sum();
+    }
+
+    /**
+     * @return 从rocksdb读取并反序列化的节点字节数
+     */
+    public long getNodeReadBytes() {
+        return nodeReadBytes.sum();
+    }
+
+    /**
+     * @return 从features列族读取的要素数
+     */
+    public long getFeatureReadCount() {
+        return featureReadCount.sum();
+    }
+
+    /**
+     * @return 从features列族读取的字节数
+     */
+    public long getFeatureReadBytes() {
+        return featureReadBytes.sum();
+    }
+
+    /**
+     * @return 查询耗时(纳秒)直方图
+     */
+    public Histogram getQueryLatency() {
+        return queryLatency;
+    }
+
+    /**
+     * @return 每次查询访问节点数的直方图
+     */
+    public Histogram getQueryVisitedNodes() {
+        return queryVisitedNodes;
+    }
+
+    /**
+     * @return 每次从rocksdb读取节点的耗时(纳秒)直方图
+     */
+    public Histogram getNodeReadLatency() {
+        return nodeReadLatency;
+    }
+
+    /**
+     * @return 每次从features列族读取要素的耗时(纳秒)直方图
+     */
+    public Histogram getFeatureReadLatency() {
+        return featureReadLatency;
+    }
+
+    /**
+     * @return 提交耗时(纳秒)直方图
+     */
+    public Histogram getCommitLatency() {
+        return commitLatency;
+    }
+
+    /**
+     * @return 每次提交的写操作数直方图
+     */
+    public Histogram getCommitBatchCount() {
+        return commitBatchCount;
+    }
+
+    /**
+     * @return 每次提交的字节数直方图
+     */
+    public Histogram getCommitBatchBytes() {
+        return commitBatchBytes;
+    }
+
+    /**
+     * @return 最近一次reportRocksDbStatistics时读到的rocksdb ticker累计值，未上报过或rocksdb未配置Statistics时为空
+     */
+    public Map<TickerType, Long> getRocksDbTickers() {
+        return rocksDbTickers;
+    }
+
+    @Override
+    public String toString() {
+        return "MetricsRecorder{" +
+                "txCacheHitCount=" + getTxCacheHitCount() +
+                ", sharedCacheHitCount=" + getSharedCacheHitCount() +
+                ", cacheMissCount=" + getCacheMissCount() +
+                ", nodeReadCount=" + getNodeReadCount() +
+                ", nodeReadBytes=" + getNodeReadBytes() +
+                ", featureReadCount=" + getFeatureReadCount() +
+                ", featureReadBytes=" + getFeatureReadBytes() +
+                ", queryLatency=" + queryLatency +
+                ", queryVisitedNodes=" + queryVisitedNodes +
+                ", nodeReadLatency=" + nodeReadLatency +
+                ", featureReadLatency=" + featureReadLatency +
+                ", commitLatency=" + commitLatency +
+                ", commitBatchCount=" + commitBatchCount +
+                ", commitBatchBytes=" + commitBatchBytes +
+                ", rocksDbTickers=" + rocksDbTickers +
+                '}';
+    }
+
+    /**
+     * 按2的幂分桶的直方图，第i个桶记录[2^(i-1), 2^i)范围内的值(第0个桶记录0)，分位数按桶的上界估算，误差在2倍以内。
+     * 记录时只有几次原子加，不加锁
+     */
+    public static final class Histogram {
+
+        private final AtomicLongArray buckets = new AtomicLongArray(65);
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder sum = new LongAdder();
+
+        private final AtomicLong max = new AtomicLong();
+
+        Histogram() {
+        }
+
+        /**
+         * 记录一个值，负数按0记录
+         *
+         * @param value 值
+         */
+        public void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+            count.increment();
+            sum.add(value);
+            if (value > max.get()) {
+                max.accumulateAndGet(value, Math::max);
+            }
+        }
+
+        /**
+         * @return 记录的值的个数
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @return 记录的值之和
+         */
+        public long getSum() {
+            return sum.sum();
+        }
+
+        /**
+         * @return 平均值，没有记录时为0
+         */
+        public double getMean() {
+            long n = count.sum();
+            return n == 0 ? 0 : sum.sum() * 1.0 / n;
+        }
+
+        /**
+         * @return 最大值
+         */
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * 估算分位数
+         *
+         * @param p 分位，取值0~1，如0.99
+         * @return 分位数所在桶的上界，不超过最大值，没有记录时为0
+         */
+        public long getPercentile(double p) {
+            long n = 0;
+            long[] counts = new long[buckets.length()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets.get(i);
+                n += counts[i];
+            }
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(n * Math.min(Math.max(p, 0), 1));
+            long c = 0;
+            for (int i = 0; i < counts.length; i++) {
+                c += counts[i];
+                if (c >= rank && counts[i] > 0) {
+                    long upper = i == 0 ? 0 : (i >= 63 ? Long.MAX_VALUE : (1L << i) - 1);
+                    return Math.min(upper, getMax());
+                }
+            }
+            return getMax();
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + getCount() +
+                    ", mean=" + String.format("%.1f", getMean()) +
+                    ", p50=" + getPercentile(0.5) +
+                    ", p99=" + getPercentile(0.99) +
+                    ", max=" + getMax() +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ *
+ *  * Copyright (c) 2022- "giscat (https://github.com/codingmiao/giscat)"
+ *  *
+ *  * 本项目采用自定义版权协议，在不同行业使用时有不同约束，详情参阅：
+ *  *
+ *  * https://github.com/codingmiao/giscat/blob/main/LICENSE
+ *
+ */
+
+package org.wowtools.giscat.vector.rocksrtree;
+
+import org.jetbrains.annotations.Nullable;
+import org.wowtools.giscat.vector.pojo.Feature;
+
+import java.util.PriorityQueue;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 最近邻查询，按距离下界(MINDIST)由近到远地最优优先遍历树，只有距离下界小于当前候选结果的节点才会从rocksdb中读取
+ *
+ * @author liuyu
+ * @date 2023/4/13
+ */
+class NearestSearcher {
+
+    /**
+     * 尚未读取的节点，距离为父节点中记录的其外接矩形的距离
+     */
+    private static final int typeNodeId = 0;
+    /**
+     * 数据，距离为外接矩形的距离
+     */
+    private static final int typeEntry = 1;
+    /**
+     * 数据，距离为distanceFunction计算出的精确距离
+     */
+    private static final int typeExactEntry = 2;
+
+    private static final class Item implements Comparable<Item> {
+        private final double distance;
+        private final int type;
+        private final Object value;
+
+        private Item(double distance, int type, Object value) {
+            this.distance = distance;
+            this.type = type;
+            this.value = value;
+        }
+
+        @Override
+        public int compareTo(Item o) {
+            return Double.compare(distance, o.distance);
+        }
+    }
+
+    private final TreeBuilder builder;
+
+    private final PointNd point;
+
+    private final double maxDistance;
+
+    private final ToDoubleFunction<Feature> distanceFunction;
+
+    private final PriorityQueue<Item> queue = new PriorityQueue<>();
+
+    NearestSearcher(TreeBuilder builder, PointNd point, double maxDistance, @Nullable ToDoubleFunction<Feature> distanceFunction) {
+        this.builder = builder;
+        this.point = point;
+        this.maxDistance = maxDistance;
+        this.distanceFunction = distanceFunction;
+    }
+
+    /**
+     * 查询
+     *
+     * @param rootId   根节点id
+     * @param k        最多返回几个结果
+     * @param consumer 结果消费者，按距离由近到远接收结果
+     * @param tx       事务
+     */
+    void search(long rootId, int k, FeatureConsumer consumer, TreeTransaction tx) {
+        queue.add(new Item(0, typeNodeId, rootId));
+        int n = 0;
+        while (n < k && !queue.isEmpty()) {
+            Item item = queue.poll();
+            if (item.distance > maxDistance) {
+                return;
+            }
+            switch (item.type) {
+                case typeNodeId: {
+                    Node node = builder.getNode((Long) item.value, tx);
+                    if (null != node) {
+                        expand(node, tx);
+                    }
+                    break;
+                }
+                case typeEntry: {
+                    RectNd rect = tx.loadFeature((RectNd) item.value);
+                    if (null == distanceFunction) {
+                        n++;
+                        if (!consumer.accept(rect)) {
+                            return;
+                        }
+                    } else {
+                        // 精确距离不小于外接矩形的距离，放回队列中重新排序
+                        offer(distanceFunction.applyAsDouble(rect.getFeature()), typeExactEntry, rect);
+                    }
+                    break;
+                }
+                case typeExactEntry:
+                    n++;
+                    if (!consumer.accept((RectNd) item.value)) {
+                        return;
+                    }
+                    break;
+                default:
+                    throw new RuntimeException("未知类型 " + item.type);
+            }
+        }
+    }
+
+    private void expand(Node node, TreeTransaction tx) {
+        if (node.isLeaf()) {
+            Leaf leaf = (Leaf) node;
+            for (int i = 0; i < leaf.size(); i++) {
+                offer(leaf.entryRects[i].minDist(point), typeEntry, leaf.entry[i]);
+            }
+        } else {
+            Branch branch = (Branch) node;
+            // 子节点的外接矩形记录在父节点中，按其距离入队，轮到它时再读取子节点
+            for (int i = 0; i < branch.size(); i++) {
+                offer(branch.getChildBound(i, tx).minDist(point), typeNodeId, branch.getChildId(i));
+            }
+        }
+    }
+
+    private void offer(double distance, int type, Object value) {
+        if (distance <= maxDistance) {
+            queue.add(new Item(distance, type, value));
+        }
+    }
+}
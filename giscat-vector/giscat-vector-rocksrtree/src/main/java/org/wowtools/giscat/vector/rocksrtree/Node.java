@@ -38,7 +38,7 @@ import java.util.function.Consumer;
  */
 abstract class Node extends ProtoAble{
 
-    public Node(TreeBuilder builder, String id) {
+    public Node(TreeBuilder builder, long id) {
         super(builder, id);
     }
 
@@ -59,22 +59,6 @@ abstract class Node extends ProtoAble{
      */
     abstract Node add(RectNd t, TreeTransaction tx);
 
-    /**
-     * Remove t from the index
-     *
-     * @param t - value to remove from index
-     */
-    abstract Node remove(RectNd t, TreeTransaction tx);
-
-    /**
-     * update an existing t in the index
-     *
-     * @param told - old index to be updated
-     * @param tnew - value to update old index to
-     */
-    abstract Node update(RectNd told, RectNd tnew, TreeTransaction tx);
-
-
     /**
      * Visitor pattern:
      * <p>
@@ -0,0 +1,265 @@
+/*
+ *
+ *  * Copyright (c) 2022- "giscat (https://github.com/codingmiao/giscat)"
+ *  *
+ *  * 本项目采用自定义版权协议，在不同行业使用时有不同约束，详情参阅：
+ *  *
+ *  * https://github.com/codingmiao/giscat/blob/main/LICENSE
+ *
+ */
+
+package org.wowtools.giscat.vector.rocksrtree;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 线程安全的二级节点缓存，按key的hash分段，每段是一个独立加锁的LRU，多线程读写时只在同一段上竞争。
+ * 每个缓存项记录其生效时的rocksdb序列号，持有快照的只读事务只使用不晚于快照的缓存项，以保证读到一致的数据。
+ * 容量同时按节点数和字节数限制，字节数为节点解析后的对象估算占用的堆内存，见ProtoAble.estimateHeapSize
+ *
+ * @author liuyu
+ * @date 2023/4/12
+ */
+class NodeCache {
+
+    private static final int segmentNum = 64;
+
+    /**
+     * 每个缓存项除节点外额外占用的字节数：LinkedHashMap的节点40、Long类型的key 16、Entry对象32
+     */
+    private static final int entryOverhead = 88;
+
+    /**
+     * 缓存项
+     */
+    static final class Entry {
+        final ProtoAble value;
+        /**
+         * 该值从哪个rocksdb序列号开始生效
+         */
+        final long seq;
+        /**
+         * 估算的占用字节数
+         */
+        final int weight;
+
+        Entry(ProtoAble value, long seq) {
+            this.value = value;
+            this.seq = seq;
+            weight = value.estimateHeapSize() + entryOverhead;
+        }
+    }
+
+    private final Segment[] segments;
+
+    /**
+     * 缓存已同步到的rocksdb序列号，提交事务写入rocksdb后、更新完缓存前，快照比它新的只读事务不能使用缓存。
+     * 本树没有正在进行的提交时，只读事务会把它推进到自己的快照，见TreeTransaction
+     */
+    private final AtomicLong syncedSeq;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final class Segment extends LinkedHashMap<Long, Entry> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+        /**
+         * 字节数上限，0表示不按字节数限制
+         */
+        private final long byteCapacity;
+        private long bytes;
+
+        private Segment(int capacity, long byteCapacity) {
+            super(capacity, 0.75f, true);
+            this.capacity = capacity;
+            this.byteCapacity = byteCapacity;
+        }
+
+        private void putEntry(long key, Entry entry) {
+            Entry old = put(key, entry);
+            if (null != old) {
+                bytes -= old.weight;
+            }
+            bytes += entry.weight;
+            // 淘汰最久未使用的缓存项，直到节点数和字节数都不超过上限，刚放入的缓存项至少保留
+            Iterator<Entry> iterator = values().iterator();
+            while (size() > 1 && (size() > capacity || (byteCapacity > 0 && bytes > byteCapacity))) {
+                Entry eldest = iterator.next();
+                iterator.remove();
+                bytes -= eldest.weight;
+                evictionCount.increment();
+            }
+        }
+
+        private void removeEntry(long key) {
+            Entry old = remove(key);
+            if (null != old) {
+                bytes -= old.weight;
+            }
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            bytes = 0;
+        }
+    }
+
+    /**
+     * @param cacheSize     最多缓存的节点数
+     * @param cacheByteSize 最多占用的字节数，0表示不按字节数限制
+     * @param syncedSeq     缓存已同步到的rocksdb序列号
+     */
+    NodeCache(int cacheSize, long cacheByteSize, long syncedSeq) {
+        this.syncedSeq = new AtomicLong(syncedSeq);
+        int segmentCapacity = Math.max(cacheSize / segmentNum, 1);
+        long segmentByteCapacity = cacheByteSize > 0 ? Math.max(cacheByteSize / segmentNum, 1) : 0;
+        segments = new Segment[segmentNum];
+        for (int i = 0; i < segmentNum; i++) {
+            segments[i] = new Segment(segmentCapacity, segmentByteCapacity);
+        }
+    }
+
+    private Segment segment(long key) {
+        // 节点id的高位是类型标识，低位是连续的序号，混合后取分段
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= (h >>> 32);
+        return segments[(int) h & (segmentNum - 1)];
+    }
+
+    /**
+     * 取缓存项
+     *
+     * @param key key
+     * @return 缓存项，不存在时返回null
+     */
+    Entry get(long key) {
+        Segment segment = segment(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    /**
+     * 写入事务提交后放入其修改的节点，无条件覆盖旧值
+     *
+     * @param key   key
+     * @param value 节点
+     * @param seq   提交后的rocksdb序列号
+     */
+    void put(long key, ProtoAble value, long seq) {
+        Segment segment = segment(key);
+        synchronized (segment) {
+            segment.putEntry(key, new Entry(value, seq));
+        }
+    }
+
+    /**
+     * 放入从rocksdb读到的节点，仅当读取之后没有新的提交时才放入，避免旧数据覆盖新数据
+     *
+     * @param key       key
+     * @param value     节点
+     * @param seq       读取时的rocksdb序列号
+     * @param latestSeq 获取rocksdb最新序列号，在分段锁内调用
+     */
+    void putIfLatest(long key, ProtoAble value, long seq, LatestSeq latestSeq) {
+        Segment segment = segment(key);
+        synchronized (segment) {
+            if (latestSeq.get() == seq) {
+                segment.putEntry(key, new Entry(value, seq));
+            }
+        }
+    }
+
+    void remove(long key) {
+        Segment segment = segment(key);
+        synchronized (segment) {
+            segment.removeEntry(key);
+        }
+    }
+
+    long getSyncedSeq() {
+        return syncedSeq.get();
+    }
+
+    /**
+     * 推进已同步到的序列号，只增不减
+     *
+     * @param syncedSeq 序列号
+     */
+    void setSyncedSeq(long syncedSeq) {
+        this.syncedSeq.accumulateAndGet(syncedSeq, Math::max);
+    }
+
+    void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * 记录一次命中，由事务在确定使用缓存项后调用
+     */
+    void recordHit() {
+        hitCount.increment();
+    }
+
+    /**
+     * 记录一次未命中，由事务在需要从rocksdb读取时调用
+     */
+    void recordMiss() {
+        missCount.increment();
+    }
+
+    long getHitCount() {
+        return hitCount.sum();
+    }
+
+    long getMissCount() {
+        return missCount.sum();
+    }
+
+    long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * @return 缓存项数量
+     */
+    long getEntryCount() {
+        long n = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                n += segment.size();
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @return 估算的缓存占用字节数
+     */
+    long getByteSize() {
+        long n = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                n += segment.bytes;
+            }
+        }
+        return n;
+    }
+
+    @FunctionalInterface
+    interface LatestSeq {
+        long get();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *
+ *  * Copyright (c) 2022- "giscat (https://github.com/codingmiao/giscat)"
+ *  *
+ *  * 本项目采用自定义版权协议，在不同行业使用时有不同约束，详情参阅：
+ *  *
+ *  * https://github.com/codingmiao/giscat/blob/main/LICENSE
+ *
+ */
+
+package org.wowtools.giscat.vector.rocksrtree;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 节点id工具类，节点id为long，最高字节为类型标识('L'叶子节点、'B'非叶子节点)，其余7字节为序号。
+ * 格式版本1中节点id直接以8字节大端序作为rocksdb的key，格式版本0中以"L123"形式的字符串作为key
+ *
+ * @author liuyu
+ * @date 2023/4/15
+ */
+final class NodeId {
+
+    /**
+     * 空节点id
+     */
+    static final long none = 0;
+
+    private static final long leafTag = (long) 'L' << 56;
+
+    private static final long branchTag = (long) 'B' << 56;
+
+    private static final long seqMask = 0x00FFFFFFFFFFFFFFL;
+
+    private NodeId() {
+    }
+
+    static long leaf(long seq) {
+        return leafTag | seq;
+    }
+
+    static long branch(long seq) {
+        return branchTag | seq;
+    }
+
+    static boolean isLeaf(long id) {
+        return (id & ~seqMask) == leafTag;
+    }
+
+    static boolean isBranch(long id) {
+        return (id & ~seqMask) == branchTag;
+    }
+
+    static long seq(long id) {
+        return id & seqMask;
+    }
+
+    /**
+     * @param id 节点id
+     * @return 8字节大端序的key
+     */
+    static byte[] toBytes(long id) {
+        byte[] bytes = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            bytes[i] = (byte) id;
+            id >>>= 8;
+        }
+        return bytes;
+    }
+
+    static long fromBytes(byte[] bytes) {
+        long id = 0;
+        for (int i = 0; i < 8; i++) {
+            id = (id << 8) | (bytes[i] & 0xFF);
+        }
+        return id;
+    }
+
+    /**
+     * @param id 节点id
+     * @return 格式版本0的字符串id，如"L123"
+     */
+    static String toLegacy(long id) {
+        return (char) (id >>> 56) + String.valueOf(seq(id));
+    }
+
+    static long fromLegacy(String id) {
+        char type = id.charAt(0);
+        long seq = Long.parseLong(id.substring(1));
+        if ('L' == type) {
+            return leaf(seq);
+        } else if ('B' == type) {
+            return branch(seq);
+        }
+        throw new RuntimeException("非法的节点id " + id);
+    }
+
+    static long fromLegacy(byte[] id) {
+        return fromLegacy(new String(id, StandardCharsets.UTF_8));
+    }
+}
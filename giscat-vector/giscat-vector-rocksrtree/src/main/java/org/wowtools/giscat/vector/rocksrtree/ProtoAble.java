@@ -24,7 +24,12 @@ import java.util.Map;
 abstract class ProtoAble {
 
     protected final TreeBuilder builder;
-    protected final String id;
+    protected final long id;
+
+    /**
+     * 对象内容是否与rocksdb中的不一致，新建和修改过的对象为true，提交时只序列化和写入不一致的对象
+     */
+    private boolean dirty = true;
 
     private static final Map<Class<? extends ProtoAble>, Constructor<? extends ProtoAble>> implConstructors;
 
@@ -36,7 +41,7 @@ abstract class ProtoAble {
         try {
             Map<Class<? extends ProtoAble>, Constructor<? extends ProtoAble>> constructors = new HashMap<>();
             for (Class<? extends ProtoAble> impl : impls) {
-                Constructor<? extends ProtoAble> constructor = impl.getConstructor(TreeBuilder.class, String.class);
+                Constructor<? extends ProtoAble> constructor = impl.getConstructor(TreeBuilder.class, long.class);
                 constructors.put(impl, constructor);
             }
             implConstructors = Map.copyOf(constructors);
@@ -45,16 +50,63 @@ abstract class ProtoAble {
         }
     }
 
-    public ProtoAble(TreeBuilder builder, String id) {
+    public ProtoAble(TreeBuilder builder, long id) {
         this.builder = builder;
         this.id = id;
     }
 
     public abstract void fill(byte[] bytes);
 
+    /**
+     * @return 对象内容是否与rocksdb中的不一致
+     */
+    protected final boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * 修改对象内容后调用
+     */
+    protected final void markDirty() {
+        dirty = true;
+    }
+
+    /**
+     * 对象从rocksdb读取或写入rocksdb后调用
+     */
+    protected final void markClean() {
+        dirty = false;
+    }
+
+    /**
+     * 估算对象解析后占用的堆内存字节数(按64位JVM开启指针压缩计)，用于按字节数限制节点缓存的容量
+     *
+     * @return 字节数
+     */
+    protected abstract int estimateHeapSize();
+
+    /**
+     * 把修改状态复制给副本
+     *
+     * @param copy 副本
+     * @return 副本
+     */
+    protected final <T extends ProtoAble> T copyState(T copy) {
+        ProtoAble c = copy;
+        c.dirty = dirty;
+        return copy;
+    }
+
     protected abstract byte[] toBytes();
 
-    public static <T extends ProtoAble> T fromBytes(Class<T> t, TreeBuilder builder, String id, byte[] bytes) {
+    /**
+     * 复制一个新对象，写事务修改共享缓存中的对象前先复制，避免无锁读取的事务读到修改中的数据
+     *
+     * @return 新对象
+     */
+    protected abstract ProtoAble copy();
+
+    public static <T extends ProtoAble> T fromBytes(Class<T> t, TreeBuilder builder, long id, byte[] bytes) {
         Constructor<T> constructor = (Constructor<T>) implConstructors.get(t);
         T instance;
         try {
@@ -63,6 +115,7 @@ abstract class ProtoAble {
             throw new RuntimeException(e);
         }
         instance.fill(bytes);
+        instance.markClean();
         return instance;
     }
 }
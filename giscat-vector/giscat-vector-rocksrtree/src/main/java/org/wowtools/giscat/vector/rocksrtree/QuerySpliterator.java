@@ -0,0 +1,161 @@
+/*
+ *
+ *  * Copyright (c) 2022- "giscat (https://github.com/codingmiao/giscat)"
+ *  *
+ *  * 本项目采用自定义版权协议，在不同行业使用时有不同约束，详情参阅：
+ *  *
+ *  * https://github.com/codingmiao/giscat/blob/main/LICENSE
+ *
+ */
+
+package org.wowtools.giscat.vector.rocksrtree;
+
+import org.wowtools.giscat.vector.pojo.Feature;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * 范围查询的Spliterator，用显式的栈深度优先遍历树，每次只读取一个节点，最多缓存一个叶子节点中命中的数据。
+ * 只读事务可以按非叶子节点拆分，把栈中一半的子树交给新的Spliterator，从而支持并行流
+ *
+ * @author liuyu
+ * @date 2023/4/18
+ */
+class QuerySpliterator implements Spliterator<Feature> {
+
+    private final TreeBuilder builder;
+
+    private final RectNd rect;
+
+    private final boolean contains;
+
+    private final TreeTransaction tx;
+
+    /**
+     * 待访问的节点id，栈顶在末尾
+     */
+    private long[] stack;
+
+    private int stackSize;
+
+    /**
+     * 当前叶子节点中命中的数据
+     */
+    private RectNd[] hits = new RectNd[0];
+
+    private int hitSize;
+
+    private int hitIndex;
+
+    QuerySpliterator(TreeBuilder builder, RectNd rect, boolean contains, TreeTransaction tx) {
+        this.builder = builder;
+        this.rect = rect;
+        this.contains = contains;
+        this.tx = tx;
+        stack = new long[16];
+        long rootId = tx.rootId();
+        if (NodeId.none != rootId) {
+            push(rootId);
+        }
+    }
+
+    private QuerySpliterator(QuerySpliterator parent, long[] stack, int stackSize) {
+        builder = parent.builder;
+        rect = parent.rect;
+        contains = parent.contains;
+        tx = parent.tx;
+        this.stack = stack;
+        this.stackSize = stackSize;
+    }
+
+    private void push(long id) {
+        if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stackSize * 2);
+        }
+        stack[stackSize] = id;
+        stackSize++;
+    }
+
+    /**
+     * 访问栈顶的节点，叶子节点把命中的数据放入hits，非叶子节点把与查询范围相交的子节点入栈
+     */
+    private void visitTop() {
+        stackSize--;
+        Node node = builder.getNode(stack[stackSize], tx);
+        if (null == node) {
+            return;
+        }
+        if (node.isLeaf()) {
+            Leaf leaf = (Leaf) node;
+            if (hits.length < leaf.size()) {
+                hits = new RectNd[leaf.size()];
+            }
+            hitSize = 0;
+            hitIndex = 0;
+            for (int i = 0; i < leaf.size(); i++) {
+                RectNd r = leaf.entryRects[i];
+                if (contains ? rect.contains(r) : rect.intersects(r)) {
+                    hits[hitSize] = leaf.entry[i];
+                    hitSize++;
+                }
+            }
+            tx.loadFeatures(hits, hitSize);
+        } else {
+            Branch branch = (Branch) node;
+            // 逆序入栈，使出栈顺序与子节点顺序一致
+            for (int i = branch.size() - 1; i >= 0; i--) {
+                if (rect.intersects(branch.getChildBound(i, tx))) {
+                    push(branch.getChildId(i));
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Feature> action) {
+        while (hitIndex >= hitSize) {
+            if (stackSize == 0) {
+                return false;
+            }
+            visitTop();
+        }
+        RectNd hit = hits[hitIndex];
+        hits[hitIndex] = null;
+        hitIndex++;
+        action.accept(hit.getFeature());
+        return true;
+    }
+
+    @Override
+    public Spliterator<Feature> trySplit() {
+        // 读写事务不是线程安全的，不拆分
+        if (!tx.isReadOnly()) {
+            return null;
+        }
+        // 栈中只有一个非叶子节点时先展开它
+        while (stackSize == 1 && !NodeId.isLeaf(stack[0])) {
+            visitTop();
+        }
+        if (stackSize < 2) {
+            return null;
+        }
+        // 栈底的一半是离当前位置较远的子树，交给新的Spliterator
+        int half = stackSize / 2;
+        long[] splitStack = Arrays.copyOf(stack, Math.max(half, 16));
+        System.arraycopy(stack, half, stack, 0, stackSize - half);
+        stackSize -= half;
+        return new QuerySpliterator(this, splitStack, half);
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return NONNULL;
+    }
+}
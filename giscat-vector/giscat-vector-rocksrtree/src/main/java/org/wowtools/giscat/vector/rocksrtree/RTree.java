@@ -30,10 +30,23 @@ package org.wowtools.giscat.vector.rocksrtree;
  * #L%
  */
 
+import org.jetbrains.annotations.Nullable;
+import org.locationtech.jts.geom.Geometry;
 import org.wowtools.giscat.vector.pojo.Feature;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -51,6 +64,16 @@ public final class RTree {
 
     private static final double EPSILON = 1e-12;
 
+    /**
+     * 查询时每次multiGet最多读取几个节点
+     */
+    static final int prefetchNodeNum = 256;
+
+    /**
+     * 并行查询时每个cpu核心分配几个任务，任务数多于核心数使各线程的负载更均衡
+     */
+    private static final int parallelTaskPerCore = 4;
+
     private final TreeBuilder builder;
 
     protected RTree(TreeBuilder builder) {
@@ -65,9 +88,7 @@ public final class RTree {
      * @param tx       事务
      */
     public void contains(RectNd rect, FeatureConsumer consumer, TreeTransaction tx) {
-        if (builder.rootId != null) {
-            builder.getNode(builder.rootId, tx).contains(rect, consumer, tx);
-        }
+        search(rect, true, consumer, tx);
     }
 
 
@@ -79,20 +100,306 @@ public final class RTree {
      * @param tx       事务
      */
     public void intersects(RectNd rect, FeatureConsumer consumer, TreeTransaction tx) {
-        if (builder.rootId != null) {
-            builder.getNode(builder.rootId, tx).intersects(rect, consumer, tx);
+        search(rect, false, consumer, tx);
+    }
+
+    /**
+     * 查询与输入几何相交的要素。先按几何的外接矩形遍历树，再对候选要素用预处理过的几何做精确判断；
+     * 外接矩形被输入几何覆盖的要素不需要判断，直接返回。几何按树的前两个维度比较
+     *
+     * @param geometry 输入几何
+     * @param consumer 查询结果消费者，若accept返回false，则终止查询过程
+     * @param tx       事务
+     */
+    public void intersects(Geometry geometry, FeatureConsumer consumer, TreeTransaction tx) {
+        long rootId = tx.rootId();
+        if (rootId == NodeId.none) {
+            return;
+        }
+        new GeometrySearcher(builder, geometry).search(rootId, consumer, tx);
+    }
+
+    /**
+     * 以流的形式查询被输入范围完全覆盖的要素
+     *
+     * @param rect 输入范围
+     * @param tx   事务
+     * @return 要素流
+     * @see #intersectsStream(RectNd, TreeTransaction)
+     */
+    public Stream<Feature> containsStream(RectNd rect, TreeTransaction tx) {
+        return StreamSupport.stream(new QuerySpliterator(builder, rect, true, tx), false);
+    }
+
+    /**
+     * 以流的形式查询与输入范围相交的要素。流是惰性的，每取一个结果才向下遍历，limit、findFirst等短路操作会提前结束遍历。
+     * 使用只读事务时可以调用parallel()，按子树拆分后并行遍历；读写事务不是线程安全的，parallel()时仍按顺序遍历。
+     * 事务需要在流使用完之后才能关闭
+     *
+     * @param rect 输入范围
+     * @param tx   事务
+     * @return 要素流
+     */
+    public Stream<Feature> intersectsStream(RectNd rect, TreeTransaction tx) {
+        return StreamSupport.stream(new QuerySpliterator(builder, rect, false, tx), false);
+    }
+
+    /**
+     * 并行查询与输入范围相交的要素，从根节点向下展开出足够多的子树后，按子树分组提交给executor并行遍历，全部完成后返回。
+     * 只读事务中的各个任务共享同一个快照和缓存；读写事务不是线程安全的，会退化为单线程查询
+     *
+     * @param rect     输入范围
+     * @param consumer 查询结果消费者，会被多个线程同时调用，需要是线程安全的。若accept返回false，则尽快终止所有任务
+     * @param executor 执行遍历任务的线程池
+     * @param tx       事务
+     */
+    public void intersectsParallel(RectNd rect, FeatureConsumer consumer, Executor executor, TreeTransaction tx) {
+        searchParallel(rect, false, consumer, executor, tx);
+    }
+
+    /**
+     * 使用ForkJoinPool.commonPool()并行查询与输入范围相交的要素
+     *
+     * @param rect     输入范围
+     * @param consumer 查询结果消费者，会被多个线程同时调用，需要是线程安全的
+     * @param tx       事务
+     * @see #intersectsParallel(RectNd, FeatureConsumer, Executor, TreeTransaction)
+     */
+    public void intersectsParallel(RectNd rect, FeatureConsumer consumer, TreeTransaction tx) {
+        searchParallel(rect, false, consumer, ForkJoinPool.commonPool(), tx);
+    }
+
+    /**
+     * 并行查询被输入范围完全覆盖的要素
+     *
+     * @param rect     输入范围
+     * @param consumer 查询结果消费者，会被多个线程同时调用，需要是线程安全的
+     * @param executor 执行遍历任务的线程池
+     * @param tx       事务
+     * @see #intersectsParallel(RectNd, FeatureConsumer, Executor, TreeTransaction)
+     */
+    public void containsParallel(RectNd rect, FeatureConsumer consumer, Executor executor, TreeTransaction tx) {
+        searchParallel(rect, true, consumer, executor, tx);
+    }
+
+    private void search(RectNd rect, boolean contains, FeatureConsumer consumer, TreeTransaction tx) {
+        long rootId = tx.rootId();
+        if (rootId == NodeId.none) {
+            return;
+        }
+        MetricsListener metrics = builder.getMetricsListener();
+        long start = null == metrics ? 0 : System.nanoTime();
+        int visited = search(new long[]{rootId}, 1, rect, contains, consumer, tx);
+        if (null != metrics) {
+            metrics.onQuery(visited, System.nanoTime() - start);
+        }
+    }
+
+    private void searchParallel(RectNd rect, boolean contains, FeatureConsumer consumer, Executor executor, TreeTransaction tx) {
+        if (!tx.isReadOnly()) {
+            search(rect, contains, consumer, tx);
+            return;
+        }
+        long rootId = tx.rootId();
+        if (rootId == NodeId.none) {
+            return;
+        }
+        MetricsListener metrics = builder.getMetricsListener();
+        long start = null == metrics ? 0 : System.nanoTime();
+        int taskNum = Runtime.getRuntime().availableProcessors() * parallelTaskPerCore;
+        AtomicInteger visited = new AtomicInteger();
+        long[] ids = expand(rootId, rect, taskNum, visited, tx);
+        if (ids.length == 0) {
+            if (null != metrics) {
+                metrics.onQuery(visited.get(), System.nanoTime() - start);
+            }
+            return;
+        }
+        AtomicBoolean stopped = new AtomicBoolean();
+        FeatureConsumer taskConsumer = (feature) -> {
+            if (stopped.get()) {
+                return false;
+            }
+            if (!consumer.accept(feature)) {
+                stopped.set(true);
+                return false;
+            }
+            return true;
+        };
+        // 相邻的子树在空间上也相近，按顺序分组，每组一个任务
+        int groupSize = (ids.length + taskNum - 1) / taskNum;
+        CompletableFuture<?>[] futures = new CompletableFuture[(ids.length + groupSize - 1) / groupSize];
+        for (int i = 0; i < futures.length; i++) {
+            long[] group = Arrays.copyOfRange(ids, i * groupSize, Math.min(ids.length, (i + 1) * groupSize));
+            futures[i] = CompletableFuture.runAsync(() -> {
+                if (!stopped.get()) {
+                    visited.addAndGet(search(group, group.length, rect, contains, taskConsumer, tx));
+                }
+            }, executor);
+        }
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
         }
+        if (null != metrics) {
+            metrics.onQuery(visited.get(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 从根节点开始逐层展开与输入范围相交的子节点，直到节点数不少于minNum或只剩叶子节点
+     *
+     * @param visited 累计展开时访问的节点数，保留在结果中的叶子节点不计入
+     * @return 展开后的节点id，叶子节点保留在其中
+     */
+    private long[] expand(long rootId, RectNd rect, int minNum, AtomicInteger visited, TreeTransaction tx) {
+        Node root = builder.getNode(rootId, tx);
+        if (null == root || null == root.getBound() || !rect.intersects(root.getBound())) {
+            visited.incrementAndGet();
+            return new long[0];
+        }
+        long[] level = new long[]{rootId};
+        boolean hasBranch = !root.isLeaf();
+        while (hasBranch && level.length < minNum) {
+            long[] next = new long[level.length * 4];
+            int nextSize = 0;
+            hasBranch = false;
+            for (int from = 0; from < level.length; from += prefetchNodeNum) {
+                Node[] nodes = tx.getNodes(level, from, Math.min(prefetchNodeNum, level.length - from));
+                for (int j = 0; j < nodes.length; j++) {
+                    Node node = nodes[j];
+                    if (null == node) {
+                        continue;
+                    }
+                    if (node.isLeaf()) {
+                        if (nextSize == next.length) {
+                            next = Arrays.copyOf(next, nextSize * 2);
+                        }
+                        next[nextSize] = level[from + j];
+                        nextSize++;
+                        continue;
+                    }
+                    visited.incrementAndGet();
+                    Branch branch = (Branch) node;
+                    for (int i = 0; i < branch.size(); i++) {
+                        if (!rect.intersects(branch.getChildBound(i, tx))) {
+                            continue;
+                        }
+                        if (nextSize == next.length) {
+                            next = Arrays.copyOf(next, nextSize * 2);
+                        }
+                        next[nextSize] = branch.getChildId(i);
+                        nextSize++;
+                        if (!NodeId.isLeaf(branch.getChildId(i))) {
+                            hasBranch = true;
+                        }
+                    }
+                }
+            }
+            level = Arrays.copyOf(next, nextSize);
+        }
+        return level;
+    }
+
+    /**
+     * 从给定的节点开始逐层遍历树，按非叶子节点中记录的子节点外接矩形剪枝，每层与输入范围相交的子节点id收集起来后，
+     * 缓存中没有的通过multiGet批量读取，避免逐个节点地同步读取rocksdb
+     *
+     * @param level     起始节点id
+     * @param levelSize 起始节点数
+     * @param rect      输入范围
+     * @param contains  为true时查询被输入范围完全覆盖的要素，否则查询与输入范围相交的要素
+     * @param consumer  查询结果消费者，若accept返回false，则终止查询过程
+     * @param tx        事务
+     * @return 访问的节点数
+     */
+    private int search(long[] level, int levelSize, RectNd rect, boolean contains, FeatureConsumer consumer, TreeTransaction tx) {
+        int visited = 0;
+        while (levelSize > 0) {
+            long[] next = new long[Math.max(levelSize * 4, 16)];
+            int nextSize = 0;
+            for (int from = 0; from < levelSize; from += prefetchNodeNum) {
+                Node[] nodes = tx.getNodes(level, from, Math.min(prefetchNodeNum, levelSize - from));
+                visited += nodes.length;
+                for (Node node : nodes) {
+                    if (null == node || null == node.getBound() || !rect.intersects(node.getBound())) {
+                        continue;
+                    }
+                    if (node.isLeaf()) {
+                        boolean goOn = contains ? node.contains(rect, consumer, tx) : node.intersects(rect, consumer, tx);
+                        if (!goOn) {
+                            return visited;
+                        }
+                    } else {
+                        Branch branch = (Branch) node;
+                        for (int i = 0; i < branch.size(); i++) {
+                            if (!rect.intersects(branch.getChildBound(i, tx))) {
+                                continue;
+                            }
+                            if (nextSize == next.length) {
+                                next = Arrays.copyOf(next, nextSize * 2);
+                            }
+                            next[nextSize] = branch.getChildId(i);
+                            nextSize++;
+                        }
+                    }
+                }
+            }
+            level = next;
+            levelSize = nextSize;
+        }
+        return visited;
+    }
+
+
+    /**
+     * 查询距离输入点最近的k个要素，结果按距离由近到远交给consumer，距离按要素外接矩形计算
+     *
+     * @param point    输入点，维度与树中的数据一致
+     * @param k        最多返回几个要素
+     * @param consumer 查询结果消费者，若accept返回false，则终止查询过程
+     * @param tx       事务
+     */
+    public void nearest(double[] point, int k, FeatureConsumer consumer, TreeTransaction tx) {
+        nearest(point, k, Double.POSITIVE_INFINITY, null, consumer, tx);
     }
 
+    /**
+     * 查询距离输入点最近的k个要素，结果按距离由近到远交给consumer
+     *
+     * @param point            输入点，维度与树中的数据一致
+     * @param k                最多返回几个要素
+     * @param maxDistance      最大距离，超出此距离的要素不返回
+     * @param distanceFunction 计算要素到输入点的精确距离，如点到geometry的距离，为空则按要素外接矩形计算。
+     *                         其返回值不能小于点到要素外接矩形的距离，否则结果的顺序不正确
+     * @param consumer         查询结果消费者，若accept返回false，则终止查询过程
+     * @param tx               事务
+     */
+    public void nearest(double[] point, int k, double maxDistance, @Nullable ToDoubleFunction<Feature> distanceFunction, FeatureConsumer consumer, TreeTransaction tx) {
+        long rootId = tx.rootId();
+        if (rootId != NodeId.none && k > 0) {
+            new NearestSearcher(builder, new PointNd(point), maxDistance, distanceFunction).search(rootId, k, consumer, tx);
+        }
+    }
 
     /**
-     * 添加一个feature
+     * 添加一个feature。配置了featureKeyFunction时featureKey不能与已有数据重复，修改已有数据请使用update
      *
      * @param feature feature
      * @param tx      事务
      */
     public void add(Feature feature, TreeTransaction tx) {
         RectNd t = builder.buildFeatureRect(feature);
+        // 重复的featureKey会覆盖索引，旧数据之后无法再按featureKey删除和修改
+        if (null != t.featureKey && NodeId.none != tx.getFeatureLeafId(t.featureKey)) {
+            throw new RuntimeException("featureKey已存在 " + t.featureKey + "，修改数据请使用update");
+        }
+        tx.putFeature(t);
         add(t, tx);
     }
 
@@ -104,50 +411,229 @@ public final class RTree {
      * @param tx 事务
      */
     protected void add(final RectNd t, TreeTransaction tx) {
-        if (builder.rootId != null) {
-            Node node = builder.getNode(builder.rootId, tx);
+        if (tx.isReadOnly()) {
+            throw new RuntimeException("只读事务不能修改数据");
+        }
+        tx.beginInsert();
+        insert(t, tx);
+        // R*树策略中溢出节点取出的数据，重新插入时不再触发强制重新插入
+        for (RectNd r : tx.takeReinsertEntries()) {
+            insert(r, tx);
+        }
+    }
+
+    private void insert(final RectNd t, TreeTransaction tx) {
+        if (tx.rootId() != NodeId.none) {
+            Node node = builder.getNode(tx.rootId(), tx);
             Node newNode = node.add(t, tx);
-            builder.rootId = newNode.id;
+            tx.setRootId(newNode.id);
         } else {
-            builder.rootId = builder.newLeaf(tx).id;
-            builder.getNode(builder.rootId, tx).add(t, tx);
-        }
-    }
-
-    // TODO 删除和修改由于equals不易判断，暂不开放 后续通过featurekey拿到RectNd再  featureEquals来比较删除和修改
-
-//    /**
-//     * 添加一个feature
-//     * @param feature feature
-//     * @param tx 事务
-//     */
-//    public void remove(Feature feature,Transaction tx) {
-//        RectNd t = builder.getFeatureRect(feature);
-//        remove(t,tx);
-//    }
-//
-//    /**
-//     * Remove the data entry from the SpatialSearch structure
-//     *
-//     * @param t Data entry to be removed
-//     */
-//    protected void remove(final RectNd t, Transaction tx) {
-//        if (root != null) {
-//            root = root.remove(t, tx);
-//        }
-//    }
-//
-//    /**
-//     * Update entry in tree
-//     *
-//     * @param told - Entry to update
-//     * @param tnew - Entry to update it to
-//     */
-//    protected void update(final RectNd told, final RectNd tnew, Transaction tx) {
-//        if (root != null) {
-//            root = root.update(told, tnew, tx);
-//        }
-//    }
+            Leaf leaf = builder.newLeaf(tx);
+            tx.setRootId(leaf.id);
+            leaf.add(t, tx);
+        }
+    }
+
+    /**
+     * 删除一个feature，需配置TreeBuilderConfig.featureKeyFunction
+     *
+     * @param feature feature
+     * @param tx      事务
+     * @return 是否删除了数据
+     */
+    public boolean remove(Feature feature, TreeTransaction tx) {
+        return remove(builder.getFeatureKey(feature), tx);
+    }
+
+    /**
+     * 按featureKey删除一个feature，需配置TreeBuilderConfig.featureKeyFunction
+     *
+     * @param featureKey featureKey
+     * @param tx         事务
+     * @return 是否删除了数据
+     */
+    public boolean remove(String featureKey, TreeTransaction tx) {
+        if (tx.isReadOnly()) {
+            throw new RuntimeException("只读事务不能修改数据");
+        }
+        if (!builder.hasFeatureKey()) {
+            throw new RuntimeException("未配置featureKeyFunction，无法按featureKey操作数据");
+        }
+        long leafId = tx.getFeatureLeafId(featureKey);
+        if (NodeId.none == leafId || NodeId.none == tx.rootId()) {
+            return false;
+        }
+        Leaf leaf = builder.getLeaf(leafId, tx);
+        int idx = null == leaf ? -1 : leaf.indexOf(featureKey, tx);
+        if (idx < 0) {
+            return false;
+        }
+        ArrayList<Node> path = new ArrayList<>();
+        Node root = builder.getNode(tx.rootId(), tx);
+        // 旧版本构建的树中非叶子节点的范围可能没有完全覆盖子节点，按范围找不到时遍历整棵树
+        if (!findPath(root, leafId, leaf.entryRects[idx], path, tx) && !findPath(root, leafId, null, path, tx)) {
+            throw new RuntimeException("featureKey索引与树不一致 " + featureKey + " " + NodeId.toLegacy(leafId));
+        }
+        leaf = (Leaf) path.get(path.size() - 1);
+        tx.removeFeature(leaf.entry[idx]);
+        leaf.removeEntry(idx);
+        tx.put(leafId, leaf);
+        tx.removeFeatureIndex(featureKey);
+        condense(path, tx);
+        return true;
+    }
+
+    /**
+     * 修改一个feature，按featureKey删除旧数据后添加新数据，旧数据不存在时直接添加
+     *
+     * @param feature 新的feature
+     * @param tx      事务
+     */
+    public void update(Feature feature, TreeTransaction tx) {
+        RectNd t = builder.buildFeatureRect(feature);
+        remove(t.featureKey, tx);
+        tx.putFeature(t);
+        add(t, tx);
+    }
+
+    /**
+     * 自顶向下查找到叶子节点的路径
+     *
+     * @param node   当前节点
+     * @param leafId 目标叶子节点id
+     * @param rect   叶子节点中的数据范围，只需要进入覆盖此范围的子节点，为null时进入所有子节点
+     * @param path   路径，查找成功时依次为根节点到叶子节点
+     * @return 是否找到
+     */
+    private boolean findPath(Node node, long leafId, RectNd rect, ArrayList<Node> path, TreeTransaction tx) {
+        path.add(node);
+        if (node.id == leafId) {
+            return true;
+        }
+        if (!node.isLeaf()) {
+            Branch branch = (Branch) node;
+            for (int i = 0; i < branch.size(); i++) {
+                if ((null == rect || branch.getChildBound(i, tx).contains(rect))
+                        && findPath(builder.getNode(branch.getChildId(i), tx), leafId, rect, path, tx)) {
+                    return true;
+                }
+            }
+        }
+        path.remove(path.size() - 1);
+        return false;
+    }
+
+    /**
+     * 删除数据后自底向上整理路径上的节点：不足mMin的叶子节点从父节点中摘除并删除，其中的数据重新插入；
+     * 非叶子节点在子节点不足mMin时也会直接长出新的叶子节点(见Branch.add)，子节点少是正常状态，只在没有子节点时删除；
+     * 其余节点重新计算外接矩形。每次删除最多重新插入一个叶子节点中的不足mMin个数据
+     *
+     * @param path 根节点到叶子节点的路径
+     * @param tx   事务
+     */
+    private void condense(ArrayList<Node> path, TreeTransaction tx) {
+        ArrayList<RectNd> orphans = new ArrayList<>();
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node n = path.get(i);
+            Branch parent = (Branch) path.get(i - 1);
+            if (n.isLeaf() ? n.size() < builder.mMin : n.size() == 0) {
+                parent.removeChild(parent.indexOfChild(n.id));
+                if (n.isLeaf()) {
+                    Leaf leaf = (Leaf) n;
+                    for (int j = 0; j < leaf.size(); j++) {
+                        orphans.add(leaf.entry[j]);
+                    }
+                }
+                tx.remove(n.id);
+            } else {
+                parent.updateChild(parent.indexOfChild(n.id), n, tx);
+            }
+            parent.resetBound(tx);
+            tx.put(parent.id, parent);
+        }
+
+        Node root = path.get(0);
+        while (true) {
+            if (root.size() == 0) {
+                tx.remove(root.id);
+                tx.setRootId(NodeId.none);
+                break;
+            } else if (!root.isLeaf() && root.size() == 1) {
+                // 只剩一个子节点的根节点没有意义，由子节点作为新的根节点
+                tx.remove(root.id);
+                tx.setRootId(((Branch) root).getChildId(0));
+                root = builder.getNode(tx.rootId(), tx);
+            } else {
+                tx.setRootId(root.id);
+                break;
+            }
+        }
+
+        for (RectNd orphan : orphans) {
+            add(orphan, tx);
+        }
+    }
+
+    /**
+     * 统计与输入范围相交的数据个数，被输入范围完全覆盖的子树直接累加非叶子节点中记录的数据总数，不需要读取子树和要素
+     *
+     * @param rect 输入范围
+     * @param tx   事务
+     * @return 数据个数
+     */
+    public long count(RectNd rect, TreeTransaction tx) {
+        long rootId = tx.rootId();
+        if (rootId == NodeId.none) {
+            return 0;
+        }
+        MetricsListener metrics = builder.getMetricsListener();
+        long start = null == metrics ? 0 : System.nanoTime();
+        int visited = 0;
+        long count = 0;
+        long[] level = new long[]{rootId};
+        int levelSize = 1;
+        while (levelSize > 0) {
+            long[] next = new long[Math.max(levelSize * 4, 16)];
+            int nextSize = 0;
+            for (int from = 0; from < levelSize; from += prefetchNodeNum) {
+                Node[] nodes = tx.getNodes(level, from, Math.min(prefetchNodeNum, levelSize - from));
+                visited += nodes.length;
+                for (Node node : nodes) {
+                    if (null == node || null == node.getBound() || !rect.intersects(node.getBound())) {
+                        continue;
+                    }
+                    if (node.isLeaf()) {
+                        Leaf leaf = (Leaf) node;
+                        for (int i = 0; i < leaf.size(); i++) {
+                            if (rect.intersects(leaf.entryRects[i])) {
+                                count++;
+                            }
+                        }
+                        continue;
+                    }
+                    Branch branch = (Branch) node;
+                    for (int i = 0; i < branch.size(); i++) {
+                        RectNd childBound = branch.getChildBound(i, tx);
+                        if (rect.contains(childBound)) {
+                            count += branch.getChildCount(i, tx);
+                        } else if (rect.intersects(childBound)) {
+                            if (nextSize == next.length) {
+                                next = Arrays.copyOf(next, nextSize * 2);
+                            }
+                            next[nextSize] = branch.getChildId(i);
+                            nextSize++;
+                        }
+                    }
+                }
+            }
+            level = next;
+            levelSize = nextSize;
+        }
+        if (null != metrics) {
+            metrics.onQuery(visited, System.nanoTime() - start);
+        }
+        return count;
+    }
 
     /**
      * Get the number of entries in the tree
@@ -155,8 +641,9 @@ public final class RTree {
      * @return entry count
      */
     public int getEntryCount(TreeTransaction tx) {
-        if (builder.rootId != null) {
-            return builder.getNode(builder.rootId, tx).totalSize(tx);
+        long rootId = tx.rootId();
+        if (rootId != NodeId.none) {
+            return builder.getNode(rootId, tx).totalSize(tx);
         }
         return 0;
     }
@@ -175,8 +662,9 @@ public final class RTree {
      * @param consumer - callback for each element
      */
     protected void forEach(Consumer<RectNd> consumer, TreeTransaction tx) {
-        if (builder.rootId != null) {
-            builder.getNode(builder.rootId, tx).forEach(consumer, tx);
+        long rootId = tx.rootId();
+        if (rootId != NodeId.none) {
+            builder.getNode(rootId, tx).forEach(consumer, tx);
         }
     }
 
@@ -184,20 +672,38 @@ public final class RTree {
         Stats stats = new Stats();
         stats.setMaxFill(builder.mMax);
         stats.setMinFill(builder.mMin);
-        builder.getNode(builder.rootId, tx).collectStats(stats, 0, tx);
+        if (NodeId.none != tx.rootId()) {
+            builder.getNode(tx.rootId(), tx).collectStats(stats, 0, tx);
+        }
         return stats;
     }
 
     Node getRoot(TreeTransaction tx) {
-        return builder.getNode(builder.rootId, tx);
+        return builder.getNode(tx.rootId(), tx);
     }
 
 
-    protected byte[] toBytes() {
+    /**
+     * @param rootId 根节点id
+     */
+    protected RocksRtreePb.RTreePb toPb(long rootId) {
         RocksRtreePb.RTreePb.Builder rtreeBuilder = RocksRtreePb.RTreePb.newBuilder();
         rtreeBuilder.setMMax(builder.mMax);
         rtreeBuilder.setMMin(builder.mMin);
-        rtreeBuilder.setRootId(builder.rootId);
-        return rtreeBuilder.build().toByteArray();
+        if (builder.formatVersion >= 1) {
+            rtreeBuilder.setFormatVersion(builder.formatVersion);
+            rtreeBuilder.setRootNodeId(rootId);
+        } else if (NodeId.none != rootId) {
+            rtreeBuilder.setRootId(NodeId.toLegacy(rootId));
+        }
+        rtreeBuilder.setLeafIdLimit(builder.getLeafIdLimit());
+        rtreeBuilder.setBranchIdLimit(builder.getBranchIdLimit());
+        rtreeBuilder.setSeparateFeatures(builder.separateFeatures);
+        rtreeBuilder.setEntryIdLimit(builder.getEntryIdLimit());
+        return rtreeBuilder.build();
+    }
+
+    protected byte[] toBytes() {
+        return toPb(builder.rootId).toByteArray();
     }
 }
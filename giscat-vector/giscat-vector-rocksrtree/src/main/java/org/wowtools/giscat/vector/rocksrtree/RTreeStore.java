@@ -0,0 +1,681 @@
+/*
+ *
+ *  * Copyright (c) 2022- "giscat (https://github.com/codingmiao/giscat)"
+ *  *
+ *  * 本项目采用自定义版权协议，在不同行业使用时有不同约束，详情参阅：
+ *  *
+ *  * https://github.com/codingmiao/giscat/blob/main/LICENSE
+ *
+ */
+
+package org.wowtools.giscat.vector.rocksrtree;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.rocksdb.*;
+import org.rocksdb.util.SizeUnit;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 在一个rocksdb实例中存储多棵具名的树，每棵树的节点存储在以树名命名的列族中，独立存储的要素在"树名.features"列族中。
+ * 所有树共用rocksdb的后台线程、块缓存和写缓冲内存上限，通过StoreTransaction可以把对多棵树的修改在一次写入中原子提交。
+ * 用法示例:
+ * <pre>
+ *  try (RTreeStore store = new RTreeStore(dir, null)) {
+ *      TreeBuilder roads = store.openTree("roads", roadConfig);
+ *      TreeBuilder pois = store.openTree("pois", poiConfig);
+ *      try (StoreTransaction tx = store.newTx()) {
+ *          roads.getRTree().add(road, tx.getTx("roads"));
+ *          pois.getRTree().add(poi, tx.getTx("pois"));
+ *          tx.commit();
+ *      }
+ *  }
+ * </pre>
+ * 独立使用的TreeBuilder内部也持有一个RTreeStore，其中只有一棵节点存储在default列族的树
+ *
+ * @author liuyu
+ * @date 2023/4/24
+ */
+@Slf4j
+public class RTreeStore implements Closeable {
+
+    private static final String defaultColumnFamilyName = "default";
+
+    /**
+     * 独立使用TreeBuilder时存储要素的列族名
+     */
+    private static final String standaloneFeatureColumnFamilyName = "features";
+
+    /**
+     * 具名的树存储要素的列族名后缀
+     */
+    private static final String featureColumnFamilySuffix = ".features";
+
+    public static final class RTreeStoreConfig {
+        /**
+         * rocksdb配置参数，为空时使用rocksDbProfile对应的内置配置
+         */
+        public @Nullable Options options;
+
+        /**
+         * 内置的rocksdb配置方案，对options、nodeColumnFamilyOptions、featureColumnFamilyOptions中为空的部分生效
+         *
+         * @see RocksDbProfile
+         */
+        public RocksDbProfile rocksDbProfile = RocksDbProfile.MIXED;
+
+        /**
+         * 所有树共用的块缓存(堆外内存)字节数
+         */
+        public long blockCacheSize = 256 * SizeUnit.MB;
+
+        /**
+         * 所有树的写缓冲(memtable)合计最多占用的字节数，占用的内存计入块缓存，超出后最大的写缓冲会被提前刷盘。0表示不限制
+         */
+        public long writeBufferBudget = 128 * SizeUnit.MB;
+
+        /**
+         * 存储树节点的列族的配置参数，为空时使用内置的配置
+         */
+        public @Nullable ColumnFamilyOptions nodeColumnFamilyOptions;
+
+        /**
+         * 存储要素的列族的配置参数，为空时使用内置的配置
+         */
+        public @Nullable ColumnFamilyOptions featureColumnFamilyOptions;
+    }
+
+    private final RocksDB db;
+
+    private final DBOptions dbOptions;
+
+    private final @Nullable WriteBufferManager writeBufferManager;
+
+    private final RocksDbProfile profile;
+
+    private final @Nullable Options userOptions;
+
+    private final @Nullable ColumnFamilyOptions userNodeColumnFamilyOptions;
+
+    private final @Nullable ColumnFamilyOptions userFeatureColumnFamilyOptions;
+
+    /**
+     * 已打开的列族，key为列族名
+     */
+    private final Map<String, ColumnFamilyHandle> columnFamilies = new LinkedHashMap<>();
+
+    /**
+     * 已打开的具名的树
+     */
+    private final Map<String, TreeBuilder> trees = new HashMap<>();
+
+    /**
+     * 独立使用的TreeBuilder中的树，不是独立使用时为null
+     */
+    private @Nullable TreeBuilder standaloneTree;
+
+    /**
+     * 内置配置中创建的rocksdb对象(列族参数、布隆过滤器等)，关闭rocksdb后释放
+     */
+    private final List<RocksObject> ownedObjects = new ArrayList<>();
+
+    /**
+     * 装载结束后切换到的写缓冲大小和个数，与MIXED方案一致
+     */
+    private static final long serveWriteBufferSize = 64 * SizeUnit.MB;
+    private static final int serveMaxWriteBufferNumber = 3;
+
+    /**
+     * 是否处于装载模式，装载模式下写入不记WAL、不做自动压缩，见RocksDbProfile.BULK_LOAD
+     */
+    private volatile boolean loadMode;
+
+    /**
+     * 内置的rocksdb配置共用的块缓存(堆外)，所有树的节点和要素数据块共享同一个容量上限
+     */
+    private final Cache blockCache;
+
+    /**
+     * rocksdb统计信息，用于取块缓存命中次数，rocksdb配置中没有时为null
+     */
+    private final @Nullable Statistics statistics;
+
+    /**
+     * 内置的节点列族配置共用的布隆过滤器，首次用到时创建
+     */
+    private @Nullable Filter bloomFilter;
+
+    private static Options buildDefaultRocksDbOptions(RocksDbProfile profile) {
+        // 列族级别的参数见buildDefaultColumnFamilyOptions，这里只设置数据库级别的参数
+        Options options = new Options();
+        options.setCreateIfMissing(true)
+                .setStatistics(new Statistics())
+                .setMaxBackgroundJobs(profile == RocksDbProfile.LOW_MEMORY ? 2 : 6)
+                .setBytesPerSync(SizeUnit.MB);
+        return options;
+    }
+
+    /**
+     * 按配置方案构造列族参数
+     *
+     * @param profile      配置方案
+     * @param tableConfig  表格式参数
+     * @param bottommost   最底层的压缩算法，最底层存放了绝大部分数据
+     * @return 列族参数
+     */
+    private static ColumnFamilyOptions buildDefaultColumnFamilyOptions(RocksDbProfile profile, BlockBasedTableConfig tableConfig, CompressionType bottommost) {
+        long writeBufferSize;
+        int maxWriteBufferNumber;
+        switch (profile) {
+            case BULK_LOAD:
+                writeBufferSize = 128 * SizeUnit.MB;
+                maxWriteBufferNumber = 4;
+                break;
+            case READ_MOSTLY:
+                writeBufferSize = 16 * SizeUnit.MB;
+                maxWriteBufferNumber = 2;
+                break;
+            case LOW_MEMORY:
+                writeBufferSize = 4 * SizeUnit.MB;
+                maxWriteBufferNumber = 2;
+                break;
+            default:
+                writeBufferSize = serveWriteBufferSize;
+                maxWriteBufferNumber = serveMaxWriteBufferNumber;
+        }
+        // 刚写入的L0、L1很快会被再次压缩，不压缩以节省cpu，往下用lz4
+        List<CompressionType> compressionPerLevel = new ArrayList<>(7);
+        for (int i = 0; i < 7; i++) {
+            compressionPerLevel.add(i < 2 ? CompressionType.NO_COMPRESSION : CompressionType.LZ4_COMPRESSION);
+        }
+        ColumnFamilyOptions options = new ColumnFamilyOptions()
+                .setWriteBufferSize(writeBufferSize)
+                .setMaxWriteBufferNumber(maxWriteBufferNumber)
+                .setCompactionStyle(CompactionStyle.LEVEL)
+                .setLevelCompactionDynamicLevelBytes(true)
+                .setCompressionPerLevel(compressionPerLevel)
+                .setBottommostCompressionType(bottommost)
+                .setTableFormatConfig(tableConfig);
+        if (profile == RocksDbProfile.BULK_LOAD) {
+            // 装载期间不做自动压缩，L0文件再多也不限速，装载完后由finishLoad统一压缩
+            options.setDisableAutoCompactions(true)
+                    .setLevel0FileNumCompactionTrigger(1 << 30)
+                    .setLevel0SlowdownWritesTrigger(1 << 30)
+                    .setLevel0StopWritesTrigger(1 << 30);
+        }
+        return options;
+    }
+
+    private static BlockBasedTableConfig buildDefaultTableConfig(RocksDbProfile profile, Cache blockCache, long blockSize) {
+        BlockBasedTableConfig tableConfig = new BlockBasedTableConfig();
+        tableConfig.setBlockCache(blockCache)
+                .setBlockSize(blockSize)
+                .setFormatVersion(5)
+                .setCacheIndexAndFilterBlocks(true)
+                .setCacheIndexAndFilterBlocksWithHighPriority(true)
+                .setPinL0FilterAndIndexBlocksInCache(true);
+        if (profile == RocksDbProfile.BULK_LOAD || profile == RocksDbProfile.LOW_MEMORY) {
+            // 数据量大或内存紧张时分区存储索引和过滤器，只有顶层分区常驻缓存，其余分区与数据块一样按需读取和淘汰
+            tableConfig.setIndexType(IndexType.kTwoLevelIndexSearch)
+                    .setPartitionFilters(true)
+                    .setMetadataBlockSize(4 * SizeUnit.KB)
+                    .setPinTopLevelIndexAndFilter(true);
+        }
+        return tableConfig;
+    }
+
+    /**
+     * @param withFeatures 要素是否存储在叶子节点中
+     */
+    private static ColumnFamilyOptions buildDefaultNodeColumnFamilyOptions(RocksDbProfile profile, Cache blockCache, Filter bloomFilter, boolean withFeatures) {
+        // 节点每次查询都要遍历，用布隆过滤器；读多的场景块小一些，减少每次读取的无关数据
+        long blockSize;
+        switch (profile) {
+            case READ_MOSTLY:
+                blockSize = 4 * SizeUnit.KB;
+                break;
+            case MIXED:
+                blockSize = 8 * SizeUnit.KB;
+                break;
+            default:
+                blockSize = 16 * SizeUnit.KB;
+        }
+        BlockBasedTableConfig tableConfig = buildDefaultTableConfig(profile, blockCache, blockSize)
+                .setFilterPolicy(bloomFilter);
+        // 要素存储在叶子节点中时数据量大，最底层用压缩率高的zstd，否则用解压快的lz4
+        CompressionType bottommost = withFeatures && profile != RocksDbProfile.READ_MOSTLY ? CompressionType.ZSTD_COMPRESSION : CompressionType.LZ4_COMPRESSION;
+        return buildDefaultColumnFamilyOptions(profile, tableConfig, bottommost);
+    }
+
+    private static ColumnFamilyOptions buildDefaultFeatureColumnFamilyOptions(RocksDbProfile profile, Cache blockCache) {
+        // 要素体积大且只在命中后按key读取，读取的key一定存在，不需要布隆过滤器，最底层用压缩率高的zstd
+        BlockBasedTableConfig tableConfig = buildDefaultTableConfig(profile, blockCache, profile == RocksDbProfile.LOW_MEMORY ? 32 * SizeUnit.KB : 16 * SizeUnit.KB);
+        return buildDefaultColumnFamilyOptions(profile, tableConfig, CompressionType.ZSTD_COMPRESSION)
+                .setOptimizeFiltersForHits(true);
+    }
+
+
+
+    /**
+     * 打开一个RTreeStore
+     *
+     * @param dir    持久化存储到本地磁盘的路径
+     * @param config 配置信息
+     * @see RTreeStoreConfig
+     */
+    public RTreeStore(@NotNull String dir, @Nullable RTreeStoreConfig config) {
+        this(dir, config, false);
+    }
+
+    /**
+     * @param separateFeatures default列族中新建的树是否独立存储要素，用于选择default列族的配置
+     */
+    RTreeStore(@NotNull String dir, @Nullable RTreeStoreConfig config, boolean separateFeatures) {
+        if (null == config) {
+            config = new RTreeStoreConfig();
+        }
+        profile = config.rocksDbProfile;
+        userOptions = config.options;
+        userNodeColumnFamilyOptions = config.nodeColumnFamilyOptions;
+        userFeatureColumnFamilyOptions = config.featureColumnFamilyOptions;
+        blockCache = new LRUCache(config.blockCacheSize);
+        Options options = config.options;
+        if (null == options) {
+            options = buildDefaultRocksDbOptions(profile);
+            ownedObjects.add(options);
+        }
+        statistics = options.statistics();
+        List<byte[]> columnFamilyNames;
+        try {
+            columnFamilyNames = RocksDB.listColumnFamilies(options, dir);
+        } catch (RocksDBException e) {
+            // 数据库尚不存在
+            columnFamilyNames = new ArrayList<>(0);
+        }
+        Set<String> names = new HashSet<>();
+        for (byte[] name : columnFamilyNames) {
+            names.add(new String(name, StandardCharsets.UTF_8));
+        }
+        // rocksdb要求打开已有的全部列族，节点列族按树是否独立存储要素选择配置
+        List<ColumnFamilyDescriptor> descriptors = new ArrayList<>();
+        descriptors.add(new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY,
+                nodeColumnFamilyOptions(!separateFeatures && !names.contains(standaloneFeatureColumnFamilyName))));
+        for (String name : names) {
+            if (defaultColumnFamilyName.equals(name)) {
+                continue;
+            }
+            ColumnFamilyOptions columnFamilyOptions;
+            if (isFeatureColumnFamily(name)) {
+                columnFamilyOptions = featureColumnFamilyOptions();
+            } else {
+                columnFamilyOptions = nodeColumnFamilyOptions(!names.contains(name + featureColumnFamilySuffix));
+            }
+            descriptors.add(new ColumnFamilyDescriptor(name.getBytes(StandardCharsets.UTF_8), columnFamilyOptions));
+        }
+        dbOptions = new DBOptions(options);
+        if (config.writeBufferBudget > 0) {
+            writeBufferManager = new WriteBufferManager(config.writeBufferBudget, blockCache);
+            dbOptions.setWriteBufferManager(writeBufferManager);
+        } else {
+            writeBufferManager = null;
+        }
+        List<ColumnFamilyHandle> handles = new ArrayList<>(descriptors.size());
+        try {
+            db = RocksDB.open(dbOptions, dir, descriptors, handles);
+        } catch (RocksDBException e) {
+            throw new RuntimeException(e);
+        }
+        for (int i = 0; i < descriptors.size(); i++) {
+            columnFamilies.put(new String(descriptors.get(i).getName(), StandardCharsets.UTF_8), handles.get(i));
+        }
+        loadMode = profile == RocksDbProfile.BULK_LOAD;
+    }
+
+    private static boolean isFeatureColumnFamily(String name) {
+        return standaloneFeatureColumnFamilyName.equals(name) || name.endsWith(featureColumnFamilySuffix);
+    }
+
+    /**
+     * @param withFeatures 要素是否存储在叶子节点中
+     */
+    private ColumnFamilyOptions nodeColumnFamilyOptions(boolean withFeatures) {
+        if (null != userNodeColumnFamilyOptions) {
+            return userNodeColumnFamilyOptions;
+        }
+        ColumnFamilyOptions options;
+        if (null != userOptions && withFeatures) {
+            options = new ColumnFamilyOptions(userOptions);
+        } else {
+            if (null == bloomFilter) {
+                bloomFilter = new BloomFilter(10);
+                ownedObjects.add(bloomFilter);
+            }
+            options = buildDefaultNodeColumnFamilyOptions(profile, blockCache, bloomFilter, withFeatures);
+        }
+        ownedObjects.add(options);
+        return options;
+    }
+
+    private ColumnFamilyOptions featureColumnFamilyOptions() {
+        if (null != userFeatureColumnFamilyOptions) {
+            return userFeatureColumnFamilyOptions;
+        }
+        ColumnFamilyOptions options = buildDefaultFeatureColumnFamilyOptions(profile, blockCache);
+        ownedObjects.add(options);
+        return options;
+    }
+
+    private ColumnFamilyHandle createColumnFamily(String name, ColumnFamilyOptions options) {
+        ColumnFamilyHandle handle;
+        try {
+            handle = db.createColumnFamily(new ColumnFamilyDescriptor(name.getBytes(StandardCharsets.UTF_8), options));
+        } catch (RocksDBException e) {
+            throw new RuntimeException(e);
+        }
+        columnFamilies.put(name, handle);
+        return handle;
+    }
+
+    /**
+     * 获取树的节点列族，不存在时新建
+     *
+     * @param name             树名，为null时为独立使用的TreeBuilder中的树，节点存储在default列族
+     * @param separateFeatures 新建时树是否独立存储要素
+     * @return 列族
+     */
+    synchronized ColumnFamilyHandle nodeColumnFamily(@Nullable String name, boolean separateFeatures) {
+        String columnFamilyName = null == name ? defaultColumnFamilyName : name;
+        ColumnFamilyHandle handle = columnFamilies.get(columnFamilyName);
+        if (null == handle) {
+            handle = createColumnFamily(columnFamilyName, nodeColumnFamilyOptions(!separateFeatures));
+        }
+        return handle;
+    }
+
+    /**
+     * 获取树的要素列族
+     *
+     * @param name   树名，为null时为独立使用的TreeBuilder中的树
+     * @param create 不存在时是否新建
+     * @return 列族，不存在且不新建时返回null
+     */
+    synchronized @Nullable ColumnFamilyHandle featureColumnFamily(@Nullable String name, boolean create) {
+        String columnFamilyName = null == name ? standaloneFeatureColumnFamilyName : name + featureColumnFamilySuffix;
+        ColumnFamilyHandle handle = columnFamilies.get(columnFamilyName);
+        if (null == handle && create) {
+            handle = createColumnFamily(columnFamilyName, featureColumnFamilyOptions());
+        }
+        return handle;
+    }
+
+    /**
+     * 打开一棵树，树不存在时按config新建；已有的树沿用其创建时的mMin、mMax等存储相关的设置。
+     * 同一棵树重复打开时返回已打开的TreeBuilder，忽略config。
+     * config中options、rocksDbProfile、blockCacheSize和列族配置对RTreeStore中的树无效，使用RTreeStoreConfig中的配置
+     *
+     * @param name   树名，不能为空、"default"、"features"或以".features"结尾
+     * @param config 树的配置信息
+     * @return TreeBuilder，用完后可以close，也可以随RTreeStore一起关闭
+     */
+    public synchronized TreeBuilder openTree(@NotNull String name, @Nullable TreeBuilder.TreeBuilderConfig config) {
+        if (name.isEmpty() || defaultColumnFamilyName.equals(name) || isFeatureColumnFamily(name)) {
+            throw new RuntimeException("不可用的树名 " + name);
+        }
+        TreeBuilder tree = trees.get(name);
+        if (null == tree) {
+            tree = new TreeBuilder(this, name, config);
+            trees.put(name, tree);
+        }
+        return tree;
+    }
+
+    /**
+     * @param name 树名
+     * @return 已打开的树，未打开时返回null
+     */
+    public synchronized @Nullable TreeBuilder getTree(@NotNull String name) {
+        return trees.get(name);
+    }
+
+    /**
+     * @return 库中已有的树的名字，包括未打开的
+     */
+    public synchronized List<String> getTreeNames() {
+        List<String> names = new ArrayList<>();
+        for (String name : columnFamilies.keySet()) {
+            if (!defaultColumnFamilyName.equals(name) && !isFeatureColumnFamily(name)) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * TreeBuilder关闭时调用
+     */
+    synchronized void onTreeClosed(String name) {
+        trees.remove(name);
+    }
+
+    /**
+     * 独立使用的TreeBuilder创建时调用
+     */
+    synchronized void setStandaloneTree(TreeBuilder tree) {
+        standaloneTree = tree;
+    }
+
+    /**
+     * 获得一个跨多棵树的读写事务，各棵树的修改在commit时通过一次写入原子提交。用完后需要close
+     *
+     * @return 读写事务
+     */
+    public StoreTransaction newTx() {
+        return new StoreTransaction(this, false);
+    }
+
+    /**
+     * 获得一个跨多棵树的只读事务，各棵树读取的是同一个快照。用完后需要close
+     *
+     * @return 只读事务
+     */
+    public StoreTransaction newReadOnlyTx() {
+        return new StoreTransaction(this, true);
+    }
+
+    protected RocksDB getDb() {
+        return db;
+    }
+
+    /**
+     * @return 是否处于装载模式，装载模式下写入不记WAL
+     */
+    protected boolean isLoadMode() {
+        return loadMode;
+    }
+
+    /**
+     * 在一次写入中提交多个事务的修改
+     *
+     * @param writeOpt 写入参数
+     * @param batch    各事务共用的WriteBatch
+     * @param txs      事务
+     */
+    void commit(WriteOptions writeOpt, WriteBatch batch, Collection<TreeTransaction> txs) {
+        long start = System.nanoTime();
+        for (TreeTransaction tx : txs) {
+            tx.checkCommitLock();
+        }
+        for (TreeTransaction tx : txs) {
+            tx.prepareCommit();
+        }
+        List<TreeBuilder> locked = sortByName(txs);
+        for (TreeBuilder tree : locked) {
+            tree.getLock().writeLock().lock();
+        }
+        try {
+            // 任一棵树冲突时整个事务都不写入
+            for (TreeTransaction tx : txs) {
+                tx.checkConflict();
+            }
+            // 事务可能在装载模式下创建，按写入时的模式决定是否记WAL
+            writeOpt.setDisableWAL(loadMode);
+            db.write(writeOpt, batch);
+            long seq = db.getLatestSequenceNumber();
+            for (TreeTransaction tx : txs) {
+                tx.onCommitted(seq);
+            }
+        } catch (RocksDBException e) {
+            throw new RuntimeException(e);
+        } finally {
+            for (TreeBuilder tree : locked) {
+                tree.getLock().writeLock().unlock();
+            }
+        }
+        for (TreeTransaction tx : txs) {
+            tx.reportCommit(start);
+        }
+    }
+
+    /**
+     * 各棵树按树名排序，多棵树的写锁总是按这个顺序获取，避免相互等待
+     */
+    private static List<TreeBuilder> sortByName(Collection<TreeTransaction> txs) {
+        List<TreeBuilder> list = new ArrayList<>(txs.size());
+        for (TreeTransaction tx : txs) {
+            list.add(tx.getBuilder());
+        }
+        list.sort(treeOrder);
+        return list;
+    }
+
+    private static final Comparator<TreeBuilder> treeOrder = Comparator.comparing(TreeBuilder::getName, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    /**
+     * 结束装载，从装载模式切换到服务模式：把内存中的数据刷到磁盘，全量压缩，
+     * 再开启自动压缩、恢复L0文件数限制、缩小写缓冲，之后的写入重新记WAL。
+     * 只对RocksDbProfile.BULK_LOAD方案打开的库生效，其它方案调用时直接返回
+     *
+     * @see RocksDbProfile#BULK_LOAD
+     */
+    public void finishLoad() {
+        // 持有所有已打开的树的写锁，等装载模式下开启的读写事务都结束后再切换
+        List<TreeBuilder> locked;
+        Collection<ColumnFamilyHandle> handles;
+        synchronized (this) {
+            locked = new ArrayList<>(trees.values());
+            if (null != standaloneTree) {
+                locked.add(standaloneTree);
+            }
+            handles = new ArrayList<>(columnFamilies.values());
+        }
+        locked.sort(treeOrder);
+        for (TreeBuilder tree : locked) {
+            tree.getLock().writeLock().lock();
+        }
+        try {
+            if (!loadMode) {
+                return;
+            }
+            try (FlushOptions flushOptions = new FlushOptions().setWaitForFlush(true)) {
+                for (ColumnFamilyHandle handle : handles) {
+                    db.flush(flushOptions, handle);
+                }
+                for (ColumnFamilyHandle handle : handles) {
+                    db.compactRange(handle);
+                }
+                MutableColumnFamilyOptions serveOptions = MutableColumnFamilyOptions.builder()
+                        .setDisableAutoCompactions(false)
+                        .setLevel0FileNumCompactionTrigger(4)
+                        .setLevel0SlowdownWritesTrigger(20)
+                        .setLevel0StopWritesTrigger(36)
+                        .setWriteBufferSize(serveWriteBufferSize)
+                        .setMaxWriteBufferNumber(serveMaxWriteBufferNumber)
+                        .build();
+                for (ColumnFamilyHandle handle : handles) {
+                    db.setOptions(handle, serveOptions);
+                }
+            } catch (RocksDBException e) {
+                throw new RuntimeException(e);
+            }
+            loadMode = false;
+        } finally {
+            for (TreeBuilder tree : locked) {
+                tree.getLock().writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * @return rocksdb统计信息，rocksdb配置中没有时为null
+     */
+    @Nullable Statistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * 获取缓存统计信息
+     *
+     * @param nodeCache 树的节点缓存
+     * @return 缓存统计信息，块缓存部分为所有树共用的数值
+     */
+    CacheStats getCacheStats(NodeCache nodeCache) {
+        long blockCacheHit = -1;
+        long blockCacheMiss = -1;
+        if (null != statistics) {
+            blockCacheHit = statistics.getTickerCount(TickerType.BLOCK_CACHE_HIT);
+            blockCacheMiss = statistics.getTickerCount(TickerType.BLOCK_CACHE_MISS);
+        }
+        long blockCacheUsage;
+        try {
+            blockCacheUsage = db.getLongProperty("rocksdb.block-cache-usage");
+        } catch (RocksDBException e) {
+            blockCacheUsage = -1;
+        }
+        return new CacheStats(nodeCache.getHitCount(), nodeCache.getMissCount(), nodeCache.getEvictionCount(),
+                nodeCache.getEntryCount(), nodeCache.getByteSize(),
+                blockCacheHit, blockCacheMiss, blockCacheUsage);
+    }
+
+    /**
+     * 关闭rocksdb，之后其中的树都不能再使用
+     */
+    @Override
+    public synchronized void close() {
+        if (loadMode) {
+            // 装载模式下没有WAL，关闭前确保内存中的数据落盘
+            try (FlushOptions flushOptions = new FlushOptions().setWaitForFlush(true)) {
+                for (ColumnFamilyHandle handle : columnFamilies.values()) {
+                    db.flush(flushOptions, handle);
+                }
+            } catch (RocksDBException e) {
+                log.warn("flush失败", e);
+            }
+        }
+        trees.clear();
+        for (ColumnFamilyHandle handle : columnFamilies.values()) {
+            handle.close();
+        }
+        db.close();
+        dbOptions.close();
+        for (RocksObject object : ownedObjects) {
+            object.close();
+        }
+        ownedObjects.clear();
+        if (null != writeBufferManager) {
+            writeBufferManager.close();
+        }
+        blockCache.close();
+    }
+}
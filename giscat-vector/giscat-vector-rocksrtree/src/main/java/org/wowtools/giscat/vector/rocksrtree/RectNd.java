@@ -30,7 +30,17 @@ package org.wowtools.giscat.vector.rocksrtree;
  * #L%
  */
 
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import org.locationtech.jts.geom.GeometryFactory;
 import org.wowtools.giscat.vector.pojo.Feature;
+import org.wowtools.giscat.vector.pojo.converter.ProtoFeatureConverter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * An N dimensional rectangle or "hypercube" that is a representation of a data entry.
@@ -41,9 +51,35 @@ public final class RectNd {
 
     final PointNd min, max;
 
-    Feature feature;
+    private static final GeometryFactory gf = new GeometryFactory();
+
+    /**
+     * 已解析的要素，只有尚未写入rocksdb的新数据和查询时复制出的对象(detached)持有。
+     * 节点缓存中被共享的对象不保留解析结果，否则其内存不计入缓存容量
+     */
+    private volatile Feature feature;
+
+    /**
+     * 要素的原始数据，ByteString为单个要素的proto，Leaf.EntryCollection为旧格式中整个叶子节点的featureCollection
+     */
+    private Object featureSource;
+
+    private int featureIndex;
 
-    String leafId;
+    /**
+     * 是否为查询时复制出的对象，不在节点中共享，可以保留解析结果
+     */
+    private boolean detached;
+
+    /**
+     * 实体id，要素独立存储在features列族时使用，0表示未分配
+     */
+    long entryId;
+
+    /**
+     * 数据的featureKey，配置了featureKeyFunction时随叶子节点存储，按featureKey查找时不必读取要素，null表示旧版本写入的数据未记录
+     */
+    String featureKey;
 
     protected RocksRtreePb.RectNdPb.Builder toBuilder() {
         RocksRtreePb.RectNdPb.Builder builder = RocksRtreePb.RectNdPb.newBuilder();
@@ -53,14 +89,186 @@ public final class RectNd {
     }
 
     public boolean featureEquals(RectNd other, TreeBuilder builder) {
-        return false;
-//        if (feature == null) {
-//            throw new RuntimeException("feature为空，不符合逻辑");
-//        }
-//        if (other.feature == null) {
-//            throw new RuntimeException("feature为空，不符合逻辑");
-//        }
-//        return Objects.equals(builder.getFeatureKey(feature), builder.getFeatureKey(other.feature));
+        Feature feature = getFeature();
+        if (feature == null) {
+            throw new RuntimeException("feature为空，不符合逻辑");
+        }
+        Feature otherFeature = other.getFeature();
+        if (otherFeature == null) {
+            throw new RuntimeException("feature为空，不符合逻辑");
+        }
+        return Objects.equals(builder.getFeatureKey(feature), builder.getFeatureKey(otherFeature));
+    }
+
+    /**
+     * @return 要素，尚未解析时在此解析。节点中被共享的对象每次调用都重新解析，查询时应先通过事务的loadFeatures复制出对象
+     */
+    public Feature getFeature() {
+        Feature f = feature;
+        if (null == f && null != featureSource) {
+            if (featureSource instanceof ByteString) {
+                f = ProtoFeatureConverter.proto2feature(((ByteString) featureSource).toByteArray(), gf);
+            } else {
+                f = ((Leaf.EntryCollection) featureSource).decode().get(featureIndex);
+            }
+            if (detached) {
+                feature = f;
+            }
+        } else if (null == f && 0 != entryId) {
+            throw new RuntimeException("要素独立存储在features列族中，需通过事务读取 " + entryId);
+        }
+        return f;
+    }
+
+    /**
+     * @return 是否不访问rocksdb即可取得要素
+     */
+    boolean hasFeature() {
+        return null != feature || null != featureSource;
+    }
+
+    /**
+     * @return 是否有从rocksdb读取或序列化得到的要素原始数据
+     */
+    boolean hasFeatureSource() {
+        return null != featureSource;
+    }
+
+    /**
+     * @return 旧格式中整个叶子节点共用的featureCollection，没有时返回null
+     */
+    Leaf.EntryCollection getEntryCollection() {
+        return featureSource instanceof Leaf.EntryCollection ? (Leaf.EntryCollection) featureSource : null;
+    }
+
+    /**
+     * 估算占用的堆内存字节数：坐标部分、featureKey字符串(对象24+数组头16)和单个要素的原始数据(ByteString对象16+数组头16)，
+     * 不含旧格式中被多个数据共用的featureCollection
+     *
+     * @return 字节数
+     */
+    int estimateHeapSize() {
+        int n = heapSize(getNDim());
+        if (null != featureKey) {
+            n += 40 + featureKey.length();
+        }
+        if (featureSource instanceof ByteString) {
+            n += 32 + ((ByteString) featureSource).size();
+        }
+        return n;
+    }
+
+    /**
+     * 只含坐标的RectNd占用的堆内存字节数：RectNd对象64，min、max两个PointNd对象各16，其double数组各16+8*nDim
+     *
+     * @param nDim 维度
+     * @return 字节数
+     */
+    static int heapSize(int nDim) {
+        return 64 + 2 * (16 + 16 + 8 * nDim);
+    }
+
+    /**
+     * 复制一个带有要素的对象，用于从features列族读取的要素，不修改节点中被共享的对象
+     *
+     * @param bytes 单个要素的proto
+     * @return 新对象
+     */
+    RectNd withFeatureBytes(ByteString bytes) {
+        RectNd r = new RectNd(min, max);
+        r.entryId = entryId;
+        r.featureKey = featureKey;
+        r.featureSource = bytes;
+        r.detached = true;
+        return r;
+    }
+
+    /**
+     * 复制一个记录了featureKey的对象，不修改节点中被共享的对象
+     *
+     * @param featureKey featureKey
+     * @return 新对象
+     */
+    RectNd withFeatureKey(String featureKey) {
+        RectNd r = new RectNd(min, max);
+        r.entryId = entryId;
+        r.featureKey = featureKey;
+        r.feature = feature;
+        r.featureSource = featureSource;
+        r.featureIndex = featureIndex;
+        r.detached = detached;
+        return r;
+    }
+
+    /**
+     * 把数组中前n个从节点中读到的数据替换为复制出的对象，要素在复制出的对象上解析和保留，不修改节点中被共享的对象。
+     * 旧格式中同一叶子节点的featureCollection只解析一次
+     *
+     * @param rects 数据
+     * @param n     数组中前几个数据需要处理
+     */
+    static void detachFeatures(RectNd[] rects, int n) {
+        IdentityHashMap<Leaf.EntryCollection, List<Feature>> decoded = null;
+        for (int i = 0; i < n; i++) {
+            RectNd rect = rects[i];
+            if (rect.detached || null == rect.featureSource) {
+                continue;
+            }
+            RectNd r = new RectNd(rect.min, rect.max);
+            r.entryId = rect.entryId;
+            r.featureKey = rect.featureKey;
+            r.featureSource = rect.featureSource;
+            r.featureIndex = rect.featureIndex;
+            r.detached = true;
+            if (rect.featureSource instanceof Leaf.EntryCollection) {
+                if (null == decoded) {
+                    decoded = new IdentityHashMap<>();
+                }
+                r.feature = decoded.computeIfAbsent((Leaf.EntryCollection) rect.featureSource, Leaf.EntryCollection::decode).get(rect.featureIndex);
+            }
+            rects[i] = r;
+        }
+    }
+
+    void setFeature(Feature feature) {
+        this.feature = feature;
+        featureSource = null;
+    }
+
+    /**
+     * 释放新数据的要素，在要素已写入features列族后调用，之后需通过事务读取
+     */
+    void releaseFeature() {
+        feature = null;
+    }
+
+    /**
+     * 设置要素的proto，要素尚未解析时在访问时解析；新数据序列化后设置时释放已有的要素，写回时不必重新序列化
+     *
+     * @param bytes 单个要素的proto
+     */
+    void setFeatureBytes(ByteString bytes) {
+        featureSource = bytes;
+        feature = null;
+    }
+
+    /**
+     * 设置未解析的要素
+     *
+     * @param collection 整个叶子节点的featureCollection
+     * @param index      要素在featureCollection中的位置
+     */
+    void setFeatureBytes(Leaf.EntryCollection collection, int index) {
+        featureSource = collection;
+        featureIndex = index;
+        feature = null;
+    }
+
+    /**
+     * @return 单个要素的proto，没有时返回null
+     */
+    ByteString getFeatureBytes() {
+        return featureSource instanceof ByteString ? (ByteString) featureSource : null;
     }
 
     protected RectNd(PointNd min, PointNd max) {
@@ -84,13 +292,57 @@ public final class RectNd {
         max = new PointNd(pb.getMaxList());
     }
 
+    /**
+     * 紧凑格式中每个维度占用的字节数，min和max各一个double
+     */
+    static final int packedBytesPerDim = 16;
+
+    /**
+     * 把多个Rect写为一个小端序double数组，每个Rect依次为min和max
+     *
+     * @param rects Rect
+     * @param n     写入前n个
+     * @return bytes
+     */
+    static ByteString pack(RectNd[] rects, int n) {
+        int nDim = rects[0].getNDim();
+        ByteBuffer buffer = ByteBuffer.allocate(n * nDim * packedBytesPerDim).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < n; i++) {
+            for (double x : rects[i].min.xs) {
+                buffer.putDouble(x);
+            }
+            for (double x : rects[i].max.xs) {
+                buffer.putDouble(x);
+            }
+        }
+        return UnsafeByteOperations.unsafeWrap(buffer.array());
+    }
+
+    /**
+     * 从小端序double数组中读取一个Rect
+     *
+     * @param buffer 小端序的buffer
+     * @param nDim   维度
+     * @return Rect
+     */
+    static RectNd readPacked(ByteBuffer buffer, int nDim) {
+        double[] min = new double[nDim];
+        double[] max = new double[nDim];
+        for (int i = 0; i < nDim; i++) {
+            min[i] = buffer.getDouble();
+        }
+        for (int i = 0; i < nDim; i++) {
+            max[i] = buffer.getDouble();
+        }
+        return new RectNd(new PointNd(min), new PointNd(max));
+    }
+
 
     @Override
     public String toString() {
         return min + " " + max;
     }
 
-    private RectNd getMbrCache;
     /**
      * Calculate the resulting mbr when combining param HyperRect with this HyperRect
      *
@@ -98,9 +350,6 @@ public final class RectNd {
      * @return new HyperRect representing mbr of both HyperRects combined
      */
     public RectNd getMbr(RectNd r) {
-        if (null != getMbrCache) {
-            return getMbrCache;
-        }
         int dim = min.xs.length;
         double[] min = new double[dim];
         double[] max = new double[dim];
@@ -112,8 +361,7 @@ public final class RectNd {
                 throw new RuntimeException(e);
             }
         }
-        getMbrCache = new RectNd(new PointNd(min), new PointNd(max));
-        return getMbrCache;
+        return new RectNd(new PointNd(min), new PointNd(max));
     }
 
     /**
@@ -163,7 +411,48 @@ public final class RectNd {
      * @return double - the numeric range of the dimention (min - max)
      */
     double getRange(final int d) {
-        return max.xs[d] - max.xs[d];
+        return max.xs[d] - min.xs[d];
+    }
+
+    /**
+     * 计算与另一个矩形重叠部分的面积(各维度跨度之积)，不相交时为0
+     *
+     * @param r 另一个矩形
+     * @return 重叠部分的面积
+     */
+    double overlap(RectNd r) {
+        double res = 1;
+        for (int i = 0; i < min.xs.length; i++) {
+            double d = Math.min(max.xs[i], r.max.xs[i]) - Math.max(min.xs[i], r.min.xs[i]);
+            if (d <= 0) {
+                return 0;
+            }
+            res *= d;
+        }
+        return res;
+    }
+
+    /**
+     * 计算点到矩形的最小距离(MINDIST)，点在矩形内时为0
+     *
+     * @param p 点
+     * @return 最小距离
+     */
+    double minDist(PointNd p) {
+        double ds = 0;
+        for (int i = 0; i < min.xs.length; i++) {
+            double x = p.xs[i];
+            double d;
+            if (x < min.xs[i]) {
+                d = min.xs[i] - x;
+            } else if (x > max.xs[i]) {
+                d = x - max.xs[i];
+            } else {
+                continue;
+            }
+            ds += d * d;
+        }
+        return Math.sqrt(ds);
     }
 
     /**
@@ -0,0 +1,54 @@
+/*
+ *
+ *  * Copyright (c) 2022- "giscat (https://github.com/codingmiao/giscat)"
+ *  *
+ *  * 本项目采用自定义版权协议，在不同行业使用时有不同约束，详情参阅：
+ *  *
+ *  * https://github.com/codingmiao/giscat/blob/main/LICENSE
+ *
+ */
+
+package org.wowtools.giscat.vector.rocksrtree;
+
+/**
+ * 重新打包树的结果，通过TreeBuilder.optimize或TreeBuilder.repack获得，
+ * 可以对比前后的叶子节点填充率(Stats.getLeafFillPercentage)和重叠率(Stats.getOverlapRatio)
+ *
+ * @author liuyu
+ * @date 2023/4/25
+ */
+public class RepackResult {
+
+    private final Stats before;
+
+    private final Stats after;
+
+    private final long cost;
+
+    RepackResult(Stats before, Stats after, long cost) {
+        this.before = before;
+        this.after = after;
+        this.cost = cost;
+    }
+
+    /**
+     * @return 重新打包前的统计信息
+     */
+    public Stats getBefore() {
+        return before;
+    }
+
+    /**
+     * @return 重新打包后的统计信息
+     */
+    public Stats getAfter() {
+        return after;
+    }
+
+    /**
+     * @return 耗时(毫秒)，包括读取、构建和压缩
+     */
+    public long getCost() {
+        return cost;
+    }
+}
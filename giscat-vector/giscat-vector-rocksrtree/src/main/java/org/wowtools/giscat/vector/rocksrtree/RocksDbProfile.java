@@ -0,0 +1,38 @@
+/*
+ *
+ *  * Copyright (c) 2022- "giscat (https://github.com/codingmiao/giscat)"
+ *  *
+ *  * 本项目采用自定义版权协议，在不同行业使用时有不同约束，详情参阅：
+ *  *
+ *  * https://github.com/codingmiao/giscat/blob/main/LICENSE
+ *
+ */
+
+package org.wowtools.giscat.vector.rocksrtree;
+
+/**
+ * 内置的rocksdb配置方案，按读写负载选择。
+ * 各方案都使用level压缩，L0、L1不压缩，往下用lz4，最底层按数据类型用lz4或zstd；块缓存大小见TreeBuilderConfig.blockCacheSize
+ *
+ * @author liuyu
+ * @date 2023/4/23
+ */
+public enum RocksDbProfile {
+    /**
+     * 大批量装载：128MB*4的写缓冲，写入不记WAL，关闭自动压缩和L0文件数限制，索引和过滤器分区存储。
+     * 装载完成后需调用TreeBuilder.finishLoad全量压缩并切换到服务模式；未调用finishLoad时进程崩溃会丢失尚未刷盘的数据
+     */
+    BULK_LOAD,
+    /**
+     * 读多写少：16MB*2的写缓冲，节点数据块4KB，减少每次读取的无关数据，最底层用解压快的lz4
+     */
+    READ_MOSTLY,
+    /**
+     * 读写混合，默认方案：64MB*3的写缓冲，节点数据块8KB
+     */
+    MIXED,
+    /**
+     * 内存紧张：4MB*2的写缓冲，2个后台线程，数据块较大以减少索引条目，索引和过滤器分区存储，只有顶层分区常驻缓存
+     */
+    LOW_MEMORY
+}
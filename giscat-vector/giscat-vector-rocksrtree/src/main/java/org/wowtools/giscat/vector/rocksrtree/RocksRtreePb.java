@@ -896,6 +896,131 @@ public final class RocksRtreePb {
      */
     com.google.protobuf.ByteString
         getChildIdsBytes(int index);
+
+    /**
+     * <pre>
+     * 以下为格式版本1使用的字段
+     * 子节点id，类型标识+序号编码为long
+     * </pre>
+     *
+     * <code>repeated fixed64 childNodeIds = 3;</code>
+     * @return A list containing the childNodeIds.
+     */
+    java.util.List<Long> getChildNodeIdsList();
+    /**
+     * <pre>
+     * 以下为格式版本1使用的字段
+     * 子节点id，类型标识+序号编码为long
+     * </pre>
+     *
+     * <code>repeated fixed64 childNodeIds = 3;</code>
+     * @return The count of childNodeIds.
+     */
+    int getChildNodeIdsCount();
+    /**
+     * <pre>
+     * 以下为格式版本1使用的字段
+     * 子节点id，类型标识+序号编码为long
+     * </pre>
+     *
+     * <code>repeated fixed64 childNodeIds = 3;</code>
+     * @param index The index of the element to return.
+     * @return The childNodeIds at the given index.
+     */
+    long getChildNodeIds(int index);
+
+    /**
+     * <pre>
+     * 节点Rect，小端序double数组，依次为min和max
+     * </pre>
+     *
+     * <code>bytes packedMbr = 4;</code>
+     * @return The packedMbr.
+     */
+    com.google.protobuf.ByteString getPackedMbr();
+
+    /**
+     * <pre>
+     * 子节点Rect，小端序double数组，依次为每个子节点的min和max
+     * </pre>
+     *
+     * <code>bytes packedChildMbrs = 5;</code>
+     * @return The packedChildMbrs.
+     */
+    com.google.protobuf.ByteString getPackedChildMbrs();
+
+    /**
+     * <pre>
+     * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+     * </pre>
+     *
+     * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+     */
+    java.util.List<RectNdPb>
+        getChildMbrsList();
+    /**
+     * <pre>
+     * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+     * </pre>
+     *
+     * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+     */
+    RectNdPb getChildMbrs(int index);
+    /**
+     * <pre>
+     * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+     * </pre>
+     *
+     * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+     */
+    int getChildMbrsCount();
+    /**
+     * <pre>
+     * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+     * </pre>
+     *
+     * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+     */
+    java.util.List<? extends RectNdPbOrBuilder>
+        getChildMbrsOrBuilderList();
+    /**
+     * <pre>
+     * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+     * </pre>
+     *
+     * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+     */
+    RectNdPbOrBuilder getChildMbrsOrBuilder(
+        int index);
+
+    /**
+     * <pre>
+     * 子节点中的数据总数，旧版本写入的节点中没有此字段
+     * </pre>
+     *
+     * <code>repeated int32 childEntryCounts = 7;</code>
+     * @return A list containing the childEntryCounts.
+     */
+    java.util.List<Integer> getChildEntryCountsList();
+    /**
+     * <pre>
+     * 子节点中的数据总数，旧版本写入的节点中没有此字段
+     * </pre>
+     *
+     * <code>repeated int32 childEntryCounts = 7;</code>
+     * @return The count of childEntryCounts.
+     */
+    int getChildEntryCountsCount();
+    /**
+     * <pre>
+     * 子节点中的数据总数，旧版本写入的节点中没有此字段
+     * </pre>
+     *
+     * <code>repeated int32 childEntryCounts = 7;</code>
+     * @param index The index of the element to return.
+     * @return The childEntryCounts at the given index.
+     */
+    int getChildEntryCounts(int index);
   }
   /**
    * <pre>
@@ -915,6 +1040,11 @@ public final class RocksRtreePb {
     }
     private BranchPb() {
       childIds_ = com.google.protobuf.LazyStringArrayList.EMPTY;
+      childNodeIds_ = emptyLongList();
+      packedMbr_ = com.google.protobuf.ByteString.EMPTY;
+      packedChildMbrs_ = com.google.protobuf.ByteString.EMPTY;
+      childMbrs_ = java.util.Collections.emptyList();
+      childEntryCounts_ = emptyIntList();
     }
 
     @Override
@@ -970,6 +1100,67 @@ public final class RocksRtreePb {
               childIds_.add(s);
               break;
             }
+            case 25: {
+              if (!((mutable_bitField0_ & 0x00000002) != 0)) {
+                childNodeIds_ = newLongList();
+                mutable_bitField0_ |= 0x00000002;
+              }
+              childNodeIds_.addLong(input.readFixed64());
+              break;
+            }
+            case 26: {
+              int length = input.readRawVarint32();
+              int limit = input.pushLimit(length);
+              if (!((mutable_bitField0_ & 0x00000002) != 0) && input.getBytesUntilLimit() > 0) {
+                childNodeIds_ = newLongList();
+                mutable_bitField0_ |= 0x00000002;
+              }
+              while (input.getBytesUntilLimit() > 0) {
+                childNodeIds_.addLong(input.readFixed64());
+              }
+              input.popLimit(limit);
+              break;
+            }
+            case 34: {
+
+              packedMbr_ = input.readBytes();
+              break;
+            }
+            case 42: {
+
+              packedChildMbrs_ = input.readBytes();
+              break;
+            }
+            case 50: {
+              if (!((mutable_bitField0_ & 0x00000004) != 0)) {
+                childMbrs_ = new java.util.ArrayList<RectNdPb>();
+                mutable_bitField0_ |= 0x00000004;
+              }
+              childMbrs_.add(
+                  input.readMessage(RectNdPb.parser(), extensionRegistry));
+              break;
+            }
+            case 56: {
+              if (!((mutable_bitField0_ & 0x00000008) != 0)) {
+                childEntryCounts_ = newIntList();
+                mutable_bitField0_ |= 0x00000008;
+              }
+              childEntryCounts_.addInt(input.readInt32());
+              break;
+            }
+            case 58: {
+              int length = input.readRawVarint32();
+              int limit = input.pushLimit(length);
+              if (!((mutable_bitField0_ & 0x00000008) != 0) && input.getBytesUntilLimit() > 0) {
+                childEntryCounts_ = newIntList();
+                mutable_bitField0_ |= 0x00000008;
+              }
+              while (input.getBytesUntilLimit() > 0) {
+                childEntryCounts_.addInt(input.readInt32());
+              }
+              input.popLimit(limit);
+              break;
+            }
             default: {
               if (!parseUnknownField(
                   input, unknownFields, extensionRegistry, tag)) {
@@ -990,6 +1181,15 @@ public final class RocksRtreePb {
         if (((mutable_bitField0_ & 0x00000001) != 0)) {
           childIds_ = childIds_.getUnmodifiableView();
         }
+        if (((mutable_bitField0_ & 0x00000002) != 0)) {
+          childNodeIds_.makeImmutable(); // C
+        }
+        if (((mutable_bitField0_ & 0x00000004) != 0)) {
+          childMbrs_ = java.util.Collections.unmodifiableList(childMbrs_);
+        }
+        if (((mutable_bitField0_ & 0x00000008) != 0)) {
+          childEntryCounts_.makeImmutable(); // C
+        }
         this.unknownFields = unknownFields.build();
         makeExtensionsImmutable();
       }
@@ -1096,6 +1296,179 @@ public final class RocksRtreePb {
       return childIds_.getByteString(index);
     }
 
+    public static final int CHILDNODEIDS_FIELD_NUMBER = 3;
+    private com.google.protobuf.Internal.LongList childNodeIds_;
+    /**
+     * <pre>
+     * 以下为格式版本1使用的字段
+     * 子节点id，类型标识+序号编码为long
+     * </pre>
+     *
+     * <code>repeated fixed64 childNodeIds = 3;</code>
+     * @return A list containing the childNodeIds.
+     */
+    @Override
+    public java.util.List<Long>
+        getChildNodeIdsList() {
+      return childNodeIds_;
+    }
+    /**
+     * <pre>
+     * 以下为格式版本1使用的字段
+     * 子节点id，类型标识+序号编码为long
+     * </pre>
+     *
+     * <code>repeated fixed64 childNodeIds = 3;</code>
+     * @return The count of childNodeIds.
+     */
+    public int getChildNodeIdsCount() {
+      return childNodeIds_.size();
+    }
+    /**
+     * <pre>
+     * 以下为格式版本1使用的字段
+     * 子节点id，类型标识+序号编码为long
+     * </pre>
+     *
+     * <code>repeated fixed64 childNodeIds = 3;</code>
+     * @param index The index of the element to return.
+     * @return The childNodeIds at the given index.
+     */
+    public long getChildNodeIds(int index) {
+      return childNodeIds_.getLong(index);
+    }
+    private int childNodeIdsMemoizedSerializedSize = -1;
+
+    public static final int PACKEDMBR_FIELD_NUMBER = 4;
+    private com.google.protobuf.ByteString packedMbr_;
+    /**
+     * <pre>
+     * 节点Rect，小端序double数组，依次为min和max
+     * </pre>
+     *
+     * <code>bytes packedMbr = 4;</code>
+     * @return The packedMbr.
+     */
+    @Override
+    public com.google.protobuf.ByteString getPackedMbr() {
+      return packedMbr_;
+    }
+
+    public static final int PACKEDCHILDMBRS_FIELD_NUMBER = 5;
+    private com.google.protobuf.ByteString packedChildMbrs_;
+    /**
+     * <pre>
+     * 子节点Rect，小端序double数组，依次为每个子节点的min和max
+     * </pre>
+     *
+     * <code>bytes packedChildMbrs = 5;</code>
+     * @return The packedChildMbrs.
+     */
+    @Override
+    public com.google.protobuf.ByteString getPackedChildMbrs() {
+      return packedChildMbrs_;
+    }
+
+    public static final int CHILDMBRS_FIELD_NUMBER = 6;
+    private java.util.List<RectNdPb> childMbrs_;
+    /**
+     * <pre>
+     * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+     * </pre>
+     *
+     * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+     */
+    @Override
+    public java.util.List<RectNdPb> getChildMbrsList() {
+      return childMbrs_;
+    }
+    /**
+     * <pre>
+     * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+     * </pre>
+     *
+     * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+     */
+    @Override
+    public java.util.List<? extends RectNdPbOrBuilder>
+        getChildMbrsOrBuilderList() {
+      return childMbrs_;
+    }
+    /**
+     * <pre>
+     * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+     * </pre>
+     *
+     * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+     */
+    @Override
+    public int getChildMbrsCount() {
+      return childMbrs_.size();
+    }
+    /**
+     * <pre>
+     * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+     * </pre>
+     *
+     * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+     */
+    @Override
+    public RectNdPb getChildMbrs(int index) {
+      return childMbrs_.get(index);
+    }
+    /**
+     * <pre>
+     * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+     * </pre>
+     *
+     * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+     */
+    @Override
+    public RectNdPbOrBuilder getChildMbrsOrBuilder(
+        int index) {
+      return childMbrs_.get(index);
+    }
+
+    public static final int CHILDENTRYCOUNTS_FIELD_NUMBER = 7;
+    private com.google.protobuf.Internal.IntList childEntryCounts_;
+    /**
+     * <pre>
+     * 子节点中的数据总数，旧版本写入的节点中没有此字段
+     * </pre>
+     *
+     * <code>repeated int32 childEntryCounts = 7;</code>
+     * @return A list containing the childEntryCounts.
+     */
+    @Override
+    public java.util.List<Integer>
+        getChildEntryCountsList() {
+      return childEntryCounts_;
+    }
+    /**
+     * <pre>
+     * 子节点中的数据总数，旧版本写入的节点中没有此字段
+     * </pre>
+     *
+     * <code>repeated int32 childEntryCounts = 7;</code>
+     * @return The count of childEntryCounts.
+     */
+    public int getChildEntryCountsCount() {
+      return childEntryCounts_.size();
+    }
+    /**
+     * <pre>
+     * 子节点中的数据总数，旧版本写入的节点中没有此字段
+     * </pre>
+     *
+     * <code>repeated int32 childEntryCounts = 7;</code>
+     * @param index The index of the element to return.
+     * @return The childEntryCounts at the given index.
+     */
+    public int getChildEntryCounts(int index) {
+      return childEntryCounts_.getInt(index);
+    }
+    private int childEntryCountsMemoizedSerializedSize = -1;
+
     private byte memoizedIsInitialized = -1;
     @Override
     public final boolean isInitialized() {
@@ -1110,12 +1483,36 @@ public final class RocksRtreePb {
     @Override
     public void writeTo(com.google.protobuf.CodedOutputStream output)
                         throws java.io.IOException {
+      getSerializedSize();
       if (mbr_ != null) {
         output.writeMessage(1, getMbr());
       }
       for (int i = 0; i < childIds_.size(); i++) {
         com.google.protobuf.GeneratedMessageV3.writeString(output, 2, childIds_.getRaw(i));
       }
+      if (getChildNodeIdsList().size() > 0) {
+        output.writeUInt32NoTag(26);
+        output.writeUInt32NoTag(childNodeIdsMemoizedSerializedSize);
+      }
+      for (int i = 0; i < childNodeIds_.size(); i++) {
+        output.writeFixed64NoTag(childNodeIds_.getLong(i));
+      }
+      if (!packedMbr_.isEmpty()) {
+        output.writeBytes(4, packedMbr_);
+      }
+      if (!packedChildMbrs_.isEmpty()) {
+        output.writeBytes(5, packedChildMbrs_);
+      }
+      for (int i = 0; i < childMbrs_.size(); i++) {
+        output.writeMessage(6, childMbrs_.get(i));
+      }
+      if (getChildEntryCountsList().size() > 0) {
+        output.writeUInt32NoTag(58);
+        output.writeUInt32NoTag(childEntryCountsMemoizedSerializedSize);
+      }
+      for (int i = 0; i < childEntryCounts_.size(); i++) {
+        output.writeInt32NoTag(childEntryCounts_.getInt(i));
+      }
       unknownFields.writeTo(output);
     }
 
@@ -1137,6 +1534,43 @@ public final class RocksRtreePb {
         size += dataSize;
         size += 1 * getChildIdsList().size();
       }
+      {
+        int dataSize = 0;
+        dataSize = 8 * getChildNodeIdsList().size();
+        size += dataSize;
+        if (!getChildNodeIdsList().isEmpty()) {
+          size += 1;
+          size += com.google.protobuf.CodedOutputStream
+              .computeInt32SizeNoTag(dataSize);
+        }
+        childNodeIdsMemoizedSerializedSize = dataSize;
+      }
+      if (!packedMbr_.isEmpty()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(4, packedMbr_);
+      }
+      if (!packedChildMbrs_.isEmpty()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(5, packedChildMbrs_);
+      }
+      for (int i = 0; i < childMbrs_.size(); i++) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(6, childMbrs_.get(i));
+      }
+      {
+        int dataSize = 0;
+        for (int i = 0; i < childEntryCounts_.size(); i++) {
+          dataSize += com.google.protobuf.CodedOutputStream
+            .computeInt32SizeNoTag(childEntryCounts_.getInt(i));
+        }
+        size += dataSize;
+        if (!getChildEntryCountsList().isEmpty()) {
+          size += 1;
+          size += com.google.protobuf.CodedOutputStream
+              .computeInt32SizeNoTag(dataSize);
+        }
+        childEntryCountsMemoizedSerializedSize = dataSize;
+      }
       size += unknownFields.getSerializedSize();
       memoizedSize = size;
       return size;
@@ -1159,6 +1593,16 @@ public final class RocksRtreePb {
       }
       if (!getChildIdsList()
           .equals(other.getChildIdsList())) return false;
+      if (!getChildNodeIdsList()
+          .equals(other.getChildNodeIdsList())) return false;
+      if (!getPackedMbr()
+          .equals(other.getPackedMbr())) return false;
+      if (!getPackedChildMbrs()
+          .equals(other.getPackedChildMbrs())) return false;
+      if (!getChildMbrsList()
+          .equals(other.getChildMbrsList())) return false;
+      if (!getChildEntryCountsList()
+          .equals(other.getChildEntryCountsList())) return false;
       if (!unknownFields.equals(other.unknownFields)) return false;
       return true;
     }
@@ -1178,6 +1622,22 @@ public final class RocksRtreePb {
         hash = (37 * hash) + CHILDIDS_FIELD_NUMBER;
         hash = (53 * hash) + getChildIdsList().hashCode();
       }
+      if (getChildNodeIdsCount() > 0) {
+        hash = (37 * hash) + CHILDNODEIDS_FIELD_NUMBER;
+        hash = (53 * hash) + getChildNodeIdsList().hashCode();
+      }
+      hash = (37 * hash) + PACKEDMBR_FIELD_NUMBER;
+      hash = (53 * hash) + getPackedMbr().hashCode();
+      hash = (37 * hash) + PACKEDCHILDMBRS_FIELD_NUMBER;
+      hash = (53 * hash) + getPackedChildMbrs().hashCode();
+      if (getChildMbrsCount() > 0) {
+        hash = (37 * hash) + CHILDMBRS_FIELD_NUMBER;
+        hash = (53 * hash) + getChildMbrsList().hashCode();
+      }
+      if (getChildEntryCountsCount() > 0) {
+        hash = (37 * hash) + CHILDENTRYCOUNTS_FIELD_NUMBER;
+        hash = (53 * hash) + getChildEntryCountsList().hashCode();
+      }
       hash = (29 * hash) + unknownFields.hashCode();
       memoizedHashCode = hash;
       return hash;
@@ -1310,6 +1770,7 @@ public final class RocksRtreePb {
       private void maybeForceBuilderInitialization() {
         if (com.google.protobuf.GeneratedMessageV3
                 .alwaysUseFieldBuilders) {
+          getChildMbrsFieldBuilder();
         }
       }
       @Override
@@ -1323,6 +1784,20 @@ public final class RocksRtreePb {
         }
         childIds_ = com.google.protobuf.LazyStringArrayList.EMPTY;
         bitField0_ = (bitField0_ & ~0x00000001);
+        childNodeIds_ = emptyLongList();
+        bitField0_ = (bitField0_ & ~0x00000002);
+        packedMbr_ = com.google.protobuf.ByteString.EMPTY;
+
+        packedChildMbrs_ = com.google.protobuf.ByteString.EMPTY;
+
+        if (childMbrsBuilder_ == null) {
+          childMbrs_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000004);
+        } else {
+          childMbrsBuilder_.clear();
+        }
+        childEntryCounts_ = emptyIntList();
+        bitField0_ = (bitField0_ & ~0x00000008);
         return this;
       }
 
@@ -1360,11 +1835,32 @@ public final class RocksRtreePb {
           bitField0_ = (bitField0_ & ~0x00000001);
         }
         result.childIds_ = childIds_;
-        onBuilt();
-        return result;
-      }
-
-      @Override
+        if (((bitField0_ & 0x00000002) != 0)) {
+          childNodeIds_.makeImmutable();
+          bitField0_ = (bitField0_ & ~0x00000002);
+        }
+        result.childNodeIds_ = childNodeIds_;
+        result.packedMbr_ = packedMbr_;
+        result.packedChildMbrs_ = packedChildMbrs_;
+        if (childMbrsBuilder_ == null) {
+          if (((bitField0_ & 0x00000004) != 0)) {
+            childMbrs_ = java.util.Collections.unmodifiableList(childMbrs_);
+            bitField0_ = (bitField0_ & ~0x00000004);
+          }
+          result.childMbrs_ = childMbrs_;
+        } else {
+          result.childMbrs_ = childMbrsBuilder_.build();
+        }
+        if (((bitField0_ & 0x00000008) != 0)) {
+          childEntryCounts_.makeImmutable();
+          bitField0_ = (bitField0_ & ~0x00000008);
+        }
+        result.childEntryCounts_ = childEntryCounts_;
+        onBuilt();
+        return result;
+      }
+
+      @Override
       public Builder clone() {
         return super.clone();
       }
@@ -1421,6 +1917,58 @@ public final class RocksRtreePb {
           }
           onChanged();
         }
+        if (!other.childNodeIds_.isEmpty()) {
+          if (childNodeIds_.isEmpty()) {
+            childNodeIds_ = other.childNodeIds_;
+            bitField0_ = (bitField0_ & ~0x00000002);
+          } else {
+            ensureChildNodeIdsIsMutable();
+            childNodeIds_.addAll(other.childNodeIds_);
+          }
+          onChanged();
+        }
+        if (other.getPackedMbr() != com.google.protobuf.ByteString.EMPTY) {
+          setPackedMbr(other.getPackedMbr());
+        }
+        if (other.getPackedChildMbrs() != com.google.protobuf.ByteString.EMPTY) {
+          setPackedChildMbrs(other.getPackedChildMbrs());
+        }
+        if (childMbrsBuilder_ == null) {
+          if (!other.childMbrs_.isEmpty()) {
+            if (childMbrs_.isEmpty()) {
+              childMbrs_ = other.childMbrs_;
+              bitField0_ = (bitField0_ & ~0x00000004);
+            } else {
+              ensureChildMbrsIsMutable();
+              childMbrs_.addAll(other.childMbrs_);
+            }
+            onChanged();
+          }
+        } else {
+          if (!other.childMbrs_.isEmpty()) {
+            if (childMbrsBuilder_.isEmpty()) {
+              childMbrsBuilder_.dispose();
+              childMbrsBuilder_ = null;
+              childMbrs_ = other.childMbrs_;
+              bitField0_ = (bitField0_ & ~0x00000004);
+              childMbrsBuilder_ =
+                com.google.protobuf.GeneratedMessageV3.alwaysUseFieldBuilders ?
+                   getChildMbrsFieldBuilder() : null;
+            } else {
+              childMbrsBuilder_.addAllMessages(other.childMbrs_);
+            }
+          }
+        }
+        if (!other.childEntryCounts_.isEmpty()) {
+          if (childEntryCounts_.isEmpty()) {
+            childEntryCounts_ = other.childEntryCounts_;
+            bitField0_ = (bitField0_ & ~0x00000008);
+          } else {
+            ensureChildEntryCountsIsMutable();
+            childEntryCounts_.addAll(other.childEntryCounts_);
+          }
+          onChanged();
+        }
         this.mergeUnknownFields(other.unknownFields);
         onChanged();
         return this;
@@ -1751,124 +2299,749 @@ public final class RocksRtreePb {
         onChanged();
         return this;
       }
-      @Override
-      public final Builder setUnknownFields(
-          final com.google.protobuf.UnknownFieldSet unknownFields) {
-        return super.setUnknownFields(unknownFields);
+
+      private com.google.protobuf.Internal.LongList childNodeIds_ = emptyLongList();
+      private void ensureChildNodeIdsIsMutable() {
+        if (!((bitField0_ & 0x00000002) != 0)) {
+          childNodeIds_ = mutableCopy(childNodeIds_);
+          bitField0_ |= 0x00000002;
+         }
+      }
+      /**
+       * <pre>
+       * 以下为格式版本1使用的字段
+       * 子节点id，类型标识+序号编码为long
+       * </pre>
+       *
+       * <code>repeated fixed64 childNodeIds = 3;</code>
+       * @return A list containing the childNodeIds.
+       */
+      public java.util.List<Long>
+          getChildNodeIdsList() {
+        return ((bitField0_ & 0x00000002) != 0) ?
+                 java.util.Collections.unmodifiableList(childNodeIds_) : childNodeIds_;
+      }
+      /**
+       * <pre>
+       * 以下为格式版本1使用的字段
+       * 子节点id，类型标识+序号编码为long
+       * </pre>
+       *
+       * <code>repeated fixed64 childNodeIds = 3;</code>
+       * @return The count of childNodeIds.
+       */
+      public int getChildNodeIdsCount() {
+        return childNodeIds_.size();
+      }
+      /**
+       * <pre>
+       * 以下为格式版本1使用的字段
+       * 子节点id，类型标识+序号编码为long
+       * </pre>
+       *
+       * <code>repeated fixed64 childNodeIds = 3;</code>
+       * @param index The index of the element to return.
+       * @return The childNodeIds at the given index.
+       */
+      public long getChildNodeIds(int index) {
+        return childNodeIds_.getLong(index);
+      }
+      /**
+       * <pre>
+       * 以下为格式版本1使用的字段
+       * 子节点id，类型标识+序号编码为long
+       * </pre>
+       *
+       * <code>repeated fixed64 childNodeIds = 3;</code>
+       * @param index The index to set the value at.
+       * @param value The childNodeIds to set.
+       * @return This builder for chaining.
+       */
+      public Builder setChildNodeIds(
+          int index, long value) {
+        ensureChildNodeIdsIsMutable();
+        childNodeIds_.setLong(index, value);
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 以下为格式版本1使用的字段
+       * 子节点id，类型标识+序号编码为long
+       * </pre>
+       *
+       * <code>repeated fixed64 childNodeIds = 3;</code>
+       * @param value The childNodeIds to add.
+       * @return This builder for chaining.
+       */
+      public Builder addChildNodeIds(long value) {
+        ensureChildNodeIdsIsMutable();
+        childNodeIds_.addLong(value);
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 以下为格式版本1使用的字段
+       * 子节点id，类型标识+序号编码为long
+       * </pre>
+       *
+       * <code>repeated fixed64 childNodeIds = 3;</code>
+       * @param values The childNodeIds to add.
+       * @return This builder for chaining.
+       */
+      public Builder addAllChildNodeIds(
+          Iterable<? extends Long> values) {
+        ensureChildNodeIdsIsMutable();
+        com.google.protobuf.AbstractMessageLite.Builder.addAll(
+            values, childNodeIds_);
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 以下为格式版本1使用的字段
+       * 子节点id，类型标识+序号编码为long
+       * </pre>
+       *
+       * <code>repeated fixed64 childNodeIds = 3;</code>
+       * @return This builder for chaining.
+       */
+      public Builder clearChildNodeIds() {
+        childNodeIds_ = emptyLongList();
+        bitField0_ = (bitField0_ & ~0x00000002);
+        onChanged();
+        return this;
       }
 
+      private com.google.protobuf.ByteString packedMbr_ = com.google.protobuf.ByteString.EMPTY;
+      /**
+       * <pre>
+       * 节点Rect，小端序double数组，依次为min和max
+       * </pre>
+       *
+       * <code>bytes packedMbr = 4;</code>
+       * @return The packedMbr.
+       */
       @Override
-      public final Builder mergeUnknownFields(
-          final com.google.protobuf.UnknownFieldSet unknownFields) {
-        return super.mergeUnknownFields(unknownFields);
+      public com.google.protobuf.ByteString getPackedMbr() {
+        return packedMbr_;
       }
+      /**
+       * <pre>
+       * 节点Rect，小端序double数组，依次为min和max
+       * </pre>
+       *
+       * <code>bytes packedMbr = 4;</code>
+       * @param value The packedMbr to set.
+       * @return This builder for chaining.
+       */
+      public Builder setPackedMbr(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
 
+        packedMbr_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 节点Rect，小端序double数组，依次为min和max
+       * </pre>
+       *
+       * <code>bytes packedMbr = 4;</code>
+       * @return This builder for chaining.
+       */
+      public Builder clearPackedMbr() {
 
-      // @@protoc_insertion_point(builder_scope:pojo.BranchPb)
-    }
-
-    // @@protoc_insertion_point(class_scope:pojo.BranchPb)
-    private static final BranchPb DEFAULT_INSTANCE;
-    static {
-      DEFAULT_INSTANCE = new BranchPb();
-    }
-
-    public static BranchPb getDefaultInstance() {
-      return DEFAULT_INSTANCE;
-    }
+        packedMbr_ = getDefaultInstance().getPackedMbr();
+        onChanged();
+        return this;
+      }
 
-    private static final com.google.protobuf.Parser<BranchPb>
-        PARSER = new com.google.protobuf.AbstractParser<BranchPb>() {
+      private com.google.protobuf.ByteString packedChildMbrs_ = com.google.protobuf.ByteString.EMPTY;
+      /**
+       * <pre>
+       * 子节点Rect，小端序double数组，依次为每个子节点的min和max
+       * </pre>
+       *
+       * <code>bytes packedChildMbrs = 5;</code>
+       * @return The packedChildMbrs.
+       */
       @Override
-      public BranchPb parsePartialFrom(
-          com.google.protobuf.CodedInputStream input,
-          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-          throws com.google.protobuf.InvalidProtocolBufferException {
-        return new BranchPb(input, extensionRegistry);
+      public com.google.protobuf.ByteString getPackedChildMbrs() {
+        return packedChildMbrs_;
       }
-    };
-
-    public static com.google.protobuf.Parser<BranchPb> parser() {
-      return PARSER;
-    }
-
-    @Override
-    public com.google.protobuf.Parser<BranchPb> getParserForType() {
-      return PARSER;
-    }
+      /**
+       * <pre>
+       * 子节点Rect，小端序double数组，依次为每个子节点的min和max
+       * </pre>
+       *
+       * <code>bytes packedChildMbrs = 5;</code>
+       * @param value The packedChildMbrs to set.
+       * @return This builder for chaining.
+       */
+      public Builder setPackedChildMbrs(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
 
-    @Override
-    public BranchPb getDefaultInstanceForType() {
-      return DEFAULT_INSTANCE;
-    }
+        packedChildMbrs_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 子节点Rect，小端序double数组，依次为每个子节点的min和max
+       * </pre>
+       *
+       * <code>bytes packedChildMbrs = 5;</code>
+       * @return This builder for chaining.
+       */
+      public Builder clearPackedChildMbrs() {
 
-  }
+        packedChildMbrs_ = getDefaultInstance().getPackedChildMbrs();
+        onChanged();
+        return this;
+      }
 
-  public interface LeafPbOrBuilder extends
-      // @@protoc_insertion_point(interface_extends:pojo.LeafPb)
-      com.google.protobuf.MessageOrBuilder {
+      private java.util.List<RectNdPb> childMbrs_ =
+        java.util.Collections.emptyList();
+      private void ensureChildMbrsIsMutable() {
+        if (!((bitField0_ & 0x00000004) != 0)) {
+          childMbrs_ = new java.util.ArrayList<RectNdPb>(childMbrs_);
+          bitField0_ |= 0x00000004;
+         }
+      }
 
-    /**
-     * <pre>
-     * 节点Rect
-     * </pre>
-     *
-     * <code>.pojo.RectNdPb mbr = 1;</code>
-     * @return Whether the mbr field is set.
-     */
-    boolean hasMbr();
-    /**
-     * <pre>
-     * 节点Rect
-     * </pre>
-     *
-     * <code>.pojo.RectNdPb mbr = 1;</code>
-     * @return The mbr.
-     */
-    RectNdPb getMbr();
-    /**
-     * <pre>
-     * 节点Rect
-     * </pre>
-     *
-     * <code>.pojo.RectNdPb mbr = 1;</code>
-     */
-    RectNdPbOrBuilder getMbrOrBuilder();
+      private com.google.protobuf.RepeatedFieldBuilderV3<
+          RectNdPb, RectNdPb.Builder, RectNdPbOrBuilder> childMbrsBuilder_;
 
-    /**
-     * <pre>
-     * 实体Rect
-     * </pre>
-     *
-     * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
-     */
-    java.util.List<RectNdPb>
-        getEntryRectsList();
-    /**
-     * <pre>
-     * 实体Rect
-     * </pre>
-     *
-     * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
-     */
-    RectNdPb getEntryRects(int index);
-    /**
-     * <pre>
-     * 实体Rect
-     * </pre>
-     *
-     * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
-     */
-    int getEntryRectsCount();
-    /**
-     * <pre>
-     * 实体Rect
-     * </pre>
-     *
-     * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
-     */
-    java.util.List<? extends RectNdPbOrBuilder>
-        getEntryRectsOrBuilderList();
+      /**
+       * <pre>
+       * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+       */
+      public java.util.List<RectNdPb> getChildMbrsList() {
+        if (childMbrsBuilder_ == null) {
+          return java.util.Collections.unmodifiableList(childMbrs_);
+        } else {
+          return childMbrsBuilder_.getMessageList();
+        }
+      }
+      /**
+       * <pre>
+       * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+       */
+      public int getChildMbrsCount() {
+        if (childMbrsBuilder_ == null) {
+          return childMbrs_.size();
+        } else {
+          return childMbrsBuilder_.getCount();
+        }
+      }
+      /**
+       * <pre>
+       * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+       */
+      public RectNdPb getChildMbrs(int index) {
+        if (childMbrsBuilder_ == null) {
+          return childMbrs_.get(index);
+        } else {
+          return childMbrsBuilder_.getMessage(index);
+        }
+      }
+      /**
+       * <pre>
+       * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+       */
+      public Builder setChildMbrs(
+          int index, RectNdPb value) {
+        if (childMbrsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureChildMbrsIsMutable();
+          childMbrs_.set(index, value);
+          onChanged();
+        } else {
+          childMbrsBuilder_.setMessage(index, value);
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+       */
+      public Builder setChildMbrs(
+          int index, RectNdPb.Builder builderForValue) {
+        if (childMbrsBuilder_ == null) {
+          ensureChildMbrsIsMutable();
+          childMbrs_.set(index, builderForValue.build());
+          onChanged();
+        } else {
+          childMbrsBuilder_.setMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+       */
+      public Builder addChildMbrs(RectNdPb value) {
+        if (childMbrsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureChildMbrsIsMutable();
+          childMbrs_.add(value);
+          onChanged();
+        } else {
+          childMbrsBuilder_.addMessage(value);
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+       */
+      public Builder addChildMbrs(
+          int index, RectNdPb value) {
+        if (childMbrsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureChildMbrsIsMutable();
+          childMbrs_.add(index, value);
+          onChanged();
+        } else {
+          childMbrsBuilder_.addMessage(index, value);
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+       */
+      public Builder addChildMbrs(
+          RectNdPb.Builder builderForValue) {
+        if (childMbrsBuilder_ == null) {
+          ensureChildMbrsIsMutable();
+          childMbrs_.add(builderForValue.build());
+          onChanged();
+        } else {
+          childMbrsBuilder_.addMessage(builderForValue.build());
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+       */
+      public Builder addChildMbrs(
+          int index, RectNdPb.Builder builderForValue) {
+        if (childMbrsBuilder_ == null) {
+          ensureChildMbrsIsMutable();
+          childMbrs_.add(index, builderForValue.build());
+          onChanged();
+        } else {
+          childMbrsBuilder_.addMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+       */
+      public Builder addAllChildMbrs(
+          Iterable<? extends RectNdPb> values) {
+        if (childMbrsBuilder_ == null) {
+          ensureChildMbrsIsMutable();
+          com.google.protobuf.AbstractMessageLite.Builder.addAll(
+              values, childMbrs_);
+          onChanged();
+        } else {
+          childMbrsBuilder_.addAllMessages(values);
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+       */
+      public Builder clearChildMbrs() {
+        if (childMbrsBuilder_ == null) {
+          childMbrs_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000004);
+          onChanged();
+        } else {
+          childMbrsBuilder_.clear();
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+       */
+      public Builder removeChildMbrs(int index) {
+        if (childMbrsBuilder_ == null) {
+          ensureChildMbrsIsMutable();
+          childMbrs_.remove(index);
+          onChanged();
+        } else {
+          childMbrsBuilder_.remove(index);
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+       */
+      public RectNdPb.Builder getChildMbrsBuilder(
+          int index) {
+        return getChildMbrsFieldBuilder().getBuilder(index);
+      }
+      /**
+       * <pre>
+       * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+       */
+      public RectNdPbOrBuilder getChildMbrsOrBuilder(
+          int index) {
+        if (childMbrsBuilder_ == null) {
+          return childMbrs_.get(index);  } else {
+          return childMbrsBuilder_.getMessageOrBuilder(index);
+        }
+      }
+      /**
+       * <pre>
+       * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+       */
+      public java.util.List<? extends RectNdPbOrBuilder>
+           getChildMbrsOrBuilderList() {
+        if (childMbrsBuilder_ != null) {
+          return childMbrsBuilder_.getMessageOrBuilderList();
+        } else {
+          return java.util.Collections.unmodifiableList(childMbrs_);
+        }
+      }
+      /**
+       * <pre>
+       * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+       */
+      public RectNdPb.Builder addChildMbrsBuilder() {
+        return getChildMbrsFieldBuilder().addBuilder(
+            RectNdPb.getDefaultInstance());
+      }
+      /**
+       * <pre>
+       * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+       */
+      public RectNdPb.Builder addChildMbrsBuilder(
+          int index) {
+        return getChildMbrsFieldBuilder().addBuilder(
+            index, RectNdPb.getDefaultInstance());
+      }
+      /**
+       * <pre>
+       * 子节点Rect，格式版本0使用，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb childMbrs = 6;</code>
+       */
+      public java.util.List<RectNdPb.Builder>
+           getChildMbrsBuilderList() {
+        return getChildMbrsFieldBuilder().getBuilderList();
+      }
+      private com.google.protobuf.RepeatedFieldBuilderV3<
+          RectNdPb, RectNdPb.Builder, RectNdPbOrBuilder>
+          getChildMbrsFieldBuilder() {
+        if (childMbrsBuilder_ == null) {
+          childMbrsBuilder_ = new com.google.protobuf.RepeatedFieldBuilderV3<
+              RectNdPb, RectNdPb.Builder, RectNdPbOrBuilder>(
+                  childMbrs_,
+                  ((bitField0_ & 0x00000004) != 0),
+                  getParentForChildren(),
+                  isClean());
+          childMbrs_ = null;
+        }
+        return childMbrsBuilder_;
+      }
+
+      private com.google.protobuf.Internal.IntList childEntryCounts_ = emptyIntList();
+      private void ensureChildEntryCountsIsMutable() {
+        if (!((bitField0_ & 0x00000008) != 0)) {
+          childEntryCounts_ = mutableCopy(childEntryCounts_);
+          bitField0_ |= 0x00000008;
+         }
+      }
+      /**
+       * <pre>
+       * 子节点中的数据总数，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated int32 childEntryCounts = 7;</code>
+       * @return A list containing the childEntryCounts.
+       */
+      public java.util.List<Integer>
+          getChildEntryCountsList() {
+        return ((bitField0_ & 0x00000008) != 0) ?
+                 java.util.Collections.unmodifiableList(childEntryCounts_) : childEntryCounts_;
+      }
+      /**
+       * <pre>
+       * 子节点中的数据总数，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated int32 childEntryCounts = 7;</code>
+       * @return The count of childEntryCounts.
+       */
+      public int getChildEntryCountsCount() {
+        return childEntryCounts_.size();
+      }
+      /**
+       * <pre>
+       * 子节点中的数据总数，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated int32 childEntryCounts = 7;</code>
+       * @param index The index of the element to return.
+       * @return The childEntryCounts at the given index.
+       */
+      public int getChildEntryCounts(int index) {
+        return childEntryCounts_.getInt(index);
+      }
+      /**
+       * <pre>
+       * 子节点中的数据总数，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated int32 childEntryCounts = 7;</code>
+       * @param index The index to set the value at.
+       * @param value The childEntryCounts to set.
+       * @return This builder for chaining.
+       */
+      public Builder setChildEntryCounts(
+          int index, int value) {
+        ensureChildEntryCountsIsMutable();
+        childEntryCounts_.setInt(index, value);
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 子节点中的数据总数，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated int32 childEntryCounts = 7;</code>
+       * @param value The childEntryCounts to add.
+       * @return This builder for chaining.
+       */
+      public Builder addChildEntryCounts(int value) {
+        ensureChildEntryCountsIsMutable();
+        childEntryCounts_.addInt(value);
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 子节点中的数据总数，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated int32 childEntryCounts = 7;</code>
+       * @param values The childEntryCounts to add.
+       * @return This builder for chaining.
+       */
+      public Builder addAllChildEntryCounts(
+          Iterable<? extends Integer> values) {
+        ensureChildEntryCountsIsMutable();
+        com.google.protobuf.AbstractMessageLite.Builder.addAll(
+            values, childEntryCounts_);
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 子节点中的数据总数，旧版本写入的节点中没有此字段
+       * </pre>
+       *
+       * <code>repeated int32 childEntryCounts = 7;</code>
+       * @return This builder for chaining.
+       */
+      public Builder clearChildEntryCounts() {
+        childEntryCounts_ = emptyIntList();
+        bitField0_ = (bitField0_ & ~0x00000008);
+        onChanged();
+        return this;
+      }
+      @Override
+      public final Builder setUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.setUnknownFields(unknownFields);
+      }
+
+      @Override
+      public final Builder mergeUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.mergeUnknownFields(unknownFields);
+      }
+
+
+      // @@protoc_insertion_point(builder_scope:pojo.BranchPb)
+    }
+
+    // @@protoc_insertion_point(class_scope:pojo.BranchPb)
+    private static final BranchPb DEFAULT_INSTANCE;
+    static {
+      DEFAULT_INSTANCE = new BranchPb();
+    }
+
+    public static BranchPb getDefaultInstance() {
+      return DEFAULT_INSTANCE;
+    }
+
+    private static final com.google.protobuf.Parser<BranchPb>
+        PARSER = new com.google.protobuf.AbstractParser<BranchPb>() {
+      @Override
+      public BranchPb parsePartialFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return new BranchPb(input, extensionRegistry);
+      }
+    };
+
+    public static com.google.protobuf.Parser<BranchPb> parser() {
+      return PARSER;
+    }
+
+    @Override
+    public com.google.protobuf.Parser<BranchPb> getParserForType() {
+      return PARSER;
+    }
+
+    @Override
+    public BranchPb getDefaultInstanceForType() {
+      return DEFAULT_INSTANCE;
+    }
+
+  }
+
+  public interface LeafPbOrBuilder extends
+      // @@protoc_insertion_point(interface_extends:pojo.LeafPb)
+      com.google.protobuf.MessageOrBuilder {
+
+    /**
+     * <pre>
+     * 节点Rect
+     * </pre>
+     *
+     * <code>.pojo.RectNdPb mbr = 1;</code>
+     * @return Whether the mbr field is set.
+     */
+    boolean hasMbr();
+    /**
+     * <pre>
+     * 节点Rect
+     * </pre>
+     *
+     * <code>.pojo.RectNdPb mbr = 1;</code>
+     * @return The mbr.
+     */
+    RectNdPb getMbr();
+    /**
+     * <pre>
+     * 节点Rect
+     * </pre>
+     *
+     * <code>.pojo.RectNdPb mbr = 1;</code>
+     */
+    RectNdPbOrBuilder getMbrOrBuilder();
+
+    /**
+     * <pre>
+     * 实体Rect
+     * </pre>
+     *
+     * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+     */
+    java.util.List<RectNdPb>
+        getEntryRectsList();
+    /**
+     * <pre>
+     * 实体Rect
+     * </pre>
+     *
+     * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+     */
+    RectNdPb getEntryRects(int index);
+    /**
+     * <pre>
+     * 实体Rect
+     * </pre>
+     *
+     * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+     */
+    int getEntryRectsCount();
+    /**
+     * <pre>
+     * 实体Rect
+     * </pre>
+     *
+     * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+     */
+    java.util.List<? extends RectNdPbOrBuilder>
+        getEntryRectsOrBuilderList();
     /**
      * <pre>
      * 实体Rect
@@ -1888,6 +3061,125 @@ public final class RocksRtreePb {
      * @return The entries.
      */
     com.google.protobuf.ByteString getEntries();
+
+    /**
+     * <pre>
+     * 以下为格式版本1使用的字段
+     * 节点Rect，小端序double数组，依次为min和max
+     * </pre>
+     *
+     * <code>bytes packedMbr = 4;</code>
+     * @return The packedMbr.
+     */
+    com.google.protobuf.ByteString getPackedMbr();
+
+    /**
+     * <pre>
+     * 实体Rect，小端序double数组，依次为每个实体的min和max
+     * </pre>
+     *
+     * <code>bytes packedEntryRects = 5;</code>
+     * @return The packedEntryRects.
+     */
+    com.google.protobuf.ByteString getPackedEntryRects();
+
+    /**
+     * <pre>
+     * 实体，每个实体单独序列化，查询时只解析命中的实体
+     * </pre>
+     *
+     * <code>repeated bytes entryFeatures = 6;</code>
+     * @return A list containing the entryFeatures.
+     */
+    java.util.List<com.google.protobuf.ByteString> getEntryFeaturesList();
+    /**
+     * <pre>
+     * 实体，每个实体单独序列化，查询时只解析命中的实体
+     * </pre>
+     *
+     * <code>repeated bytes entryFeatures = 6;</code>
+     * @return The count of entryFeatures.
+     */
+    int getEntryFeaturesCount();
+    /**
+     * <pre>
+     * 实体，每个实体单独序列化，查询时只解析命中的实体
+     * </pre>
+     *
+     * <code>repeated bytes entryFeatures = 6;</code>
+     * @param index The index of the element to return.
+     * @return The entryFeatures at the given index.
+     */
+    com.google.protobuf.ByteString getEntryFeatures(int index);
+
+    /**
+     * <pre>
+     * 实体id，要素独立存储在features列族时使用
+     * </pre>
+     *
+     * <code>repeated fixed64 entryIds = 7;</code>
+     * @return A list containing the entryIds.
+     */
+    java.util.List<Long> getEntryIdsList();
+    /**
+     * <pre>
+     * 实体id，要素独立存储在features列族时使用
+     * </pre>
+     *
+     * <code>repeated fixed64 entryIds = 7;</code>
+     * @return The count of entryIds.
+     */
+    int getEntryIdsCount();
+    /**
+     * <pre>
+     * 实体id，要素独立存储在features列族时使用
+     * </pre>
+     *
+     * <code>repeated fixed64 entryIds = 7;</code>
+     * @param index The index of the element to return.
+     * @return The entryIds at the given index.
+     */
+    long getEntryIds(int index);
+    /**
+     * <pre>
+     * 数据的featureKey，配置了featureKeyFunction时记录
+     * </pre>
+     *
+     * <code>repeated string entryKeys = 8;</code>
+     * @return A list containing the entryKeys.
+     */
+    java.util.List<String>
+        getEntryKeysList();
+    /**
+     * <pre>
+     * 数据的featureKey，配置了featureKeyFunction时记录
+     * </pre>
+     *
+     * <code>repeated string entryKeys = 8;</code>
+     * @return The count of entryKeys.
+     */
+    int getEntryKeysCount();
+    /**
+     * <pre>
+     * 数据的featureKey，配置了featureKeyFunction时记录
+     * </pre>
+     *
+     * <code>repeated string entryKeys = 8;</code>
+     * @param index The index of the element to return.
+     * @return The entryKeys at the given index.
+     */
+    String getEntryKeys(int index);
+    /**
+     * <pre>
+     * 数据的featureKey，配置了featureKeyFunction时记录
+     * </pre>
+     *
+     * <code>repeated string entryKeys = 8;</code>
+     * @param index The index of the value to return.
+     * @return The bytes of the entryKeys at the given index.
+     */
+    com.google.protobuf.ByteString
+        getEntryKeysBytes(int index);
   }
   /**
    * <pre>
@@ -1908,6 +3200,11 @@ public final class RocksRtreePb {
     private LeafPb() {
       entryRects_ = java.util.Collections.emptyList();
       entries_ = com.google.protobuf.ByteString.EMPTY;
+      packedMbr_ = com.google.protobuf.ByteString.EMPTY;
+      packedEntryRects_ = com.google.protobuf.ByteString.EMPTY;
+      entryFeatures_ = java.util.Collections.emptyList();
+      entryIds_ = emptyLongList();
+      entryKeys_ = com.google.protobuf.LazyStringArrayList.EMPTY;
     }
 
     @Override
@@ -1968,6 +3265,53 @@ public final class RocksRtreePb {
               entries_ = input.readBytes();
               break;
             }
+            case 34: {
+
+              packedMbr_ = input.readBytes();
+              break;
+            }
+            case 42: {
+
+              packedEntryRects_ = input.readBytes();
+              break;
+            }
+            case 50: {
+              if (!((mutable_bitField0_ & 0x00000002) != 0)) {
+                entryFeatures_ = new java.util.ArrayList<com.google.protobuf.ByteString>();
+                mutable_bitField0_ |= 0x00000002;
+              }
+              entryFeatures_.add(input.readBytes());
+              break;
+            }
+            case 57: {
+              if (!((mutable_bitField0_ & 0x00000004) != 0)) {
+                entryIds_ = newLongList();
+                mutable_bitField0_ |= 0x00000004;
+              }
+              entryIds_.addLong(input.readFixed64());
+              break;
+            }
+            case 58: {
+              int length = input.readRawVarint32();
+              int limit = input.pushLimit(length);
+              if (!((mutable_bitField0_ & 0x00000004) != 0) && input.getBytesUntilLimit() > 0) {
+                entryIds_ = newLongList();
+                mutable_bitField0_ |= 0x00000004;
+              }
+              while (input.getBytesUntilLimit() > 0) {
+                entryIds_.addLong(input.readFixed64());
+              }
+              input.popLimit(limit);
+              break;
+            }
+            case 66: {
+              String s = input.readStringRequireUtf8();
+              if (!((mutable_bitField0_ & 0x00000008) != 0)) {
+                entryKeys_ = new com.google.protobuf.LazyStringArrayList();
+                mutable_bitField0_ |= 0x00000008;
+              }
+              entryKeys_.add(s);
+              break;
             default: {
               if (!parseUnknownField(
                   input, unknownFields, extensionRegistry, tag)) {
@@ -1988,1038 +3332,1813 @@ public final class RocksRtreePb {
         if (((mutable_bitField0_ & 0x00000001) != 0)) {
           entryRects_ = java.util.Collections.unmodifiableList(entryRects_);
         }
+        if (((mutable_bitField0_ & 0x00000002) != 0)) {
+          entryFeatures_ = java.util.Collections.unmodifiableList(entryFeatures_); // C
+        }
+        if (((mutable_bitField0_ & 0x00000004) != 0)) {
+          entryIds_.makeImmutable(); // C
+        }
+        if (((mutable_bitField0_ & 0x00000008) != 0)) {
+          entryKeys_ = entryKeys_.getUnmodifiableView();
+        }
         this.unknownFields = unknownFields.build();
         makeExtensionsImmutable();
       }
     }
-    public static final com.google.protobuf.Descriptors.Descriptor
-        getDescriptor() {
-      return RocksRtreePb.internal_static_pojo_LeafPb_descriptor;
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return RocksRtreePb.internal_static_pojo_LeafPb_descriptor;
+    }
+
+    @Override
+    protected FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return RocksRtreePb.internal_static_pojo_LeafPb_fieldAccessorTable
+          .ensureFieldAccessorsInitialized(
+              LeafPb.class, Builder.class);
+    }
+
+    public static final int MBR_FIELD_NUMBER = 1;
+    private RectNdPb mbr_;
+    /**
+     * <pre>
+     * 节点Rect
+     * </pre>
+     *
+     * <code>.pojo.RectNdPb mbr = 1;</code>
+     * @return Whether the mbr field is set.
+     */
+    @Override
+    public boolean hasMbr() {
+      return mbr_ != null;
+    }
+    /**
+     * <pre>
+     * 节点Rect
+     * </pre>
+     *
+     * <code>.pojo.RectNdPb mbr = 1;</code>
+     * @return The mbr.
+     */
+    @Override
+    public RectNdPb getMbr() {
+      return mbr_ == null ? RectNdPb.getDefaultInstance() : mbr_;
+    }
+    /**
+     * <pre>
+     * 节点Rect
+     * </pre>
+     *
+     * <code>.pojo.RectNdPb mbr = 1;</code>
+     */
+    @Override
+    public RectNdPbOrBuilder getMbrOrBuilder() {
+      return getMbr();
+    }
+
+    public static final int ENTRYRECTS_FIELD_NUMBER = 2;
+    private java.util.List<RectNdPb> entryRects_;
+    /**
+     * <pre>
+     * 实体Rect
+     * </pre>
+     *
+     * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+     */
+    @Override
+    public java.util.List<RectNdPb> getEntryRectsList() {
+      return entryRects_;
+    }
+    /**
+     * <pre>
+     * 实体Rect
+     * </pre>
+     *
+     * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+     */
+    @Override
+    public java.util.List<? extends RectNdPbOrBuilder>
+        getEntryRectsOrBuilderList() {
+      return entryRects_;
+    }
+    /**
+     * <pre>
+     * 实体Rect
+     * </pre>
+     *
+     * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+     */
+    @Override
+    public int getEntryRectsCount() {
+      return entryRects_.size();
+    }
+    /**
+     * <pre>
+     * 实体Rect
+     * </pre>
+     *
+     * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+     */
+    @Override
+    public RectNdPb getEntryRects(int index) {
+      return entryRects_.get(index);
+    }
+    /**
+     * <pre>
+     * 实体Rect
+     * </pre>
+     *
+     * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+     */
+    @Override
+    public RectNdPbOrBuilder getEntryRectsOrBuilder(
+        int index) {
+      return entryRects_.get(index);
+    }
+
+    public static final int ENTRIES_FIELD_NUMBER = 3;
+    private com.google.protobuf.ByteString entries_;
+    /**
+     * <pre>
+     * 实体
+     * </pre>
+     *
+     * <code>bytes entries = 3;</code>
+     * @return The entries.
+     */
+    @Override
+    public com.google.protobuf.ByteString getEntries() {
+      return entries_;
+    }
+
+    public static final int PACKEDMBR_FIELD_NUMBER = 4;
+    private com.google.protobuf.ByteString packedMbr_;
+    /**
+     * <pre>
+     * 以下为格式版本1使用的字段
+     * 节点Rect，小端序double数组，依次为min和max
+     * </pre>
+     *
+     * <code>bytes packedMbr = 4;</code>
+     * @return The packedMbr.
+     */
+    @Override
+    public com.google.protobuf.ByteString getPackedMbr() {
+      return packedMbr_;
+    }
+
+    public static final int PACKEDENTRYRECTS_FIELD_NUMBER = 5;
+    private com.google.protobuf.ByteString packedEntryRects_;
+    /**
+     * <pre>
+     * 实体Rect，小端序double数组，依次为每个实体的min和max
+     * </pre>
+     *
+     * <code>bytes packedEntryRects = 5;</code>
+     * @return The packedEntryRects.
+     */
+    @Override
+    public com.google.protobuf.ByteString getPackedEntryRects() {
+      return packedEntryRects_;
+    }
+
+    public static final int ENTRYFEATURES_FIELD_NUMBER = 6;
+    private java.util.List<com.google.protobuf.ByteString> entryFeatures_;
+    /**
+     * <pre>
+     * 实体，每个实体单独序列化，查询时只解析命中的实体
+     * </pre>
+     *
+     * <code>repeated bytes entryFeatures = 6;</code>
+     * @return A list containing the entryFeatures.
+     */
+    @Override
+    public java.util.List<com.google.protobuf.ByteString>
+        getEntryFeaturesList() {
+      return entryFeatures_;
+    }
+    /**
+     * <pre>
+     * 实体，每个实体单独序列化，查询时只解析命中的实体
+     * </pre>
+     *
+     * <code>repeated bytes entryFeatures = 6;</code>
+     * @return The count of entryFeatures.
+     */
+    public int getEntryFeaturesCount() {
+      return entryFeatures_.size();
+    }
+    /**
+     * <pre>
+     * 实体，每个实体单独序列化，查询时只解析命中的实体
+     * </pre>
+     *
+     * <code>repeated bytes entryFeatures = 6;</code>
+     * @param index The index of the element to return.
+     * @return The entryFeatures at the given index.
+     */
+    public com.google.protobuf.ByteString getEntryFeatures(int index) {
+      return entryFeatures_.get(index);
     }
 
+    public static final int ENTRYIDS_FIELD_NUMBER = 7;
+    private com.google.protobuf.Internal.LongList entryIds_;
+    /**
+     * <pre>
+     * 实体id，要素独立存储在features列族时使用
+     * </pre>
+     *
+     * <code>repeated fixed64 entryIds = 7;</code>
+     * @return A list containing the entryIds.
+     */
     @Override
-    protected FieldAccessorTable
-        internalGetFieldAccessorTable() {
-      return RocksRtreePb.internal_static_pojo_LeafPb_fieldAccessorTable
-          .ensureFieldAccessorsInitialized(
-              LeafPb.class, Builder.class);
+    public java.util.List<Long>
+        getEntryIdsList() {
+      return entryIds_;
     }
-
-    public static final int MBR_FIELD_NUMBER = 1;
-    private RectNdPb mbr_;
     /**
      * <pre>
-     * 节点Rect
+     * 实体id，要素独立存储在features列族时使用
      * </pre>
      *
-     * <code>.pojo.RectNdPb mbr = 1;</code>
-     * @return Whether the mbr field is set.
+     * <code>repeated fixed64 entryIds = 7;</code>
+     * @return The count of entryIds.
      */
-    @Override
-    public boolean hasMbr() {
-      return mbr_ != null;
+    public int getEntryIdsCount() {
+      return entryIds_.size();
     }
     /**
      * <pre>
-     * 节点Rect
+     * 实体id，要素独立存储在features列族时使用
      * </pre>
      *
-     * <code>.pojo.RectNdPb mbr = 1;</code>
-     * @return The mbr.
+     * <code>repeated fixed64 entryIds = 7;</code>
+     * @param index The index of the element to return.
+     * @return The entryIds at the given index.
      */
-    @Override
-    public RectNdPb getMbr() {
-      return mbr_ == null ? RectNdPb.getDefaultInstance() : mbr_;
+    public long getEntryIds(int index) {
+      return entryIds_.getLong(index);
     }
+    private int entryIdsMemoizedSerializedSize = -1;
+    public static final int ENTRYKEYS_FIELD_NUMBER = 8;
+    private com.google.protobuf.LazyStringList entryKeys_;
     /**
      * <pre>
-     * 节点Rect
+     * 数据的featureKey，配置了featureKeyFunction时记录
      * </pre>
      *
-     * <code>.pojo.RectNdPb mbr = 1;</code>
+     * <code>repeated string entryKeys = 8;</code>
+     * @return A list containing the entryKeys.
      */
-    @Override
-    public RectNdPbOrBuilder getMbrOrBuilder() {
-      return getMbr();
+    public com.google.protobuf.ProtocolStringList
+        getEntryKeysList() {
+      return entryKeys_;
     }
-
-    public static final int ENTRYRECTS_FIELD_NUMBER = 2;
-    private java.util.List<RectNdPb> entryRects_;
     /**
      * <pre>
-     * 实体Rect
+     * 数据的featureKey，配置了featureKeyFunction时记录
      * </pre>
      *
-     * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+     * <code>repeated string entryKeys = 8;</code>
+     * @return The count of entryKeys.
      */
-    @Override
-    public java.util.List<RectNdPb> getEntryRectsList() {
-      return entryRects_;
+    public int getEntryKeysCount() {
+      return entryKeys_.size();
     }
     /**
      * <pre>
-     * 实体Rect
+     * 数据的featureKey，配置了featureKeyFunction时记录
      * </pre>
      *
-     * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+     * <code>repeated string entryKeys = 8;</code>
+     * @param index The index of the element to return.
+     * @return The entryKeys at the given index.
+     */
+    public String getEntryKeys(int index) {
+      return entryKeys_.get(index);
+    }
+    /**
+     * <pre>
+     * 数据的featureKey，配置了featureKeyFunction时记录
+     * </pre>
+     *
+     * <code>repeated string entryKeys = 8;</code>
+     * @param index The index of the value to return.
+     * @return The bytes of the entryKeys at the given index.
      */
+    public com.google.protobuf.ByteString
+        getEntryKeysBytes(int index) {
+      return entryKeys_.getByteString(index);
+    }
+
+    private byte memoizedIsInitialized = -1;
     @Override
-    public java.util.List<? extends RectNdPbOrBuilder>
-        getEntryRectsOrBuilderList() {
-      return entryRects_;
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized == 1) return true;
+      if (isInitialized == 0) return false;
+
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    @Override
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      if (mbr_ != null) {
+        output.writeMessage(1, getMbr());
+      }
+      for (int i = 0; i < entryRects_.size(); i++) {
+        output.writeMessage(2, entryRects_.get(i));
+      }
+      if (!entries_.isEmpty()) {
+        output.writeBytes(3, entries_);
+      }
+      if (!packedMbr_.isEmpty()) {
+        output.writeBytes(4, packedMbr_);
+      }
+      if (!packedEntryRects_.isEmpty()) {
+        output.writeBytes(5, packedEntryRects_);
+      }
+      for (int i = 0; i < entryFeatures_.size(); i++) {
+        output.writeBytes(6, entryFeatures_.get(i));
+      }
+      if (getEntryIdsList().size() > 0) {
+        output.writeUInt32NoTag(58);
+        output.writeUInt32NoTag(entryIdsMemoizedSerializedSize);
+      }
+      for (int i = 0; i < entryIds_.size(); i++) {
+        output.writeFixed64NoTag(entryIds_.getLong(i));
+      }
+      for (int i = 0; i < entryKeys_.size(); i++) {
+        com.google.protobuf.GeneratedMessageV3.writeString(output, 8, entryKeys_.getRaw(i));
+      }
+      unknownFields.writeTo(output);
+    }
+
+    @Override
+    public int getSerializedSize() {
+      int size = memoizedSize;
+      if (size != -1) return size;
+
+      size = 0;
+      if (mbr_ != null) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(1, getMbr());
+      }
+      for (int i = 0; i < entryRects_.size(); i++) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(2, entryRects_.get(i));
+      }
+      if (!entries_.isEmpty()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(3, entries_);
+      }
+      if (!packedMbr_.isEmpty()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(4, packedMbr_);
+      }
+      if (!packedEntryRects_.isEmpty()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(5, packedEntryRects_);
+      }
+      {
+        int dataSize = 0;
+        for (int i = 0; i < entryFeatures_.size(); i++) {
+          dataSize += com.google.protobuf.CodedOutputStream
+            .computeBytesSizeNoTag(entryFeatures_.get(i));
+        }
+        size += dataSize;
+        size += 1 * getEntryFeaturesList().size();
+      }
+      {
+        int dataSize = 0;
+        dataSize = 8 * getEntryIdsList().size();
+        size += dataSize;
+        if (!getEntryIdsList().isEmpty()) {
+          size += 1;
+          size += com.google.protobuf.CodedOutputStream
+              .computeInt32SizeNoTag(dataSize);
+        }
+        entryIdsMemoizedSerializedSize = dataSize;
+      }
+      {
+        int dataSize = 0;
+        for (int i = 0; i < entryKeys_.size(); i++) {
+          dataSize += computeStringSizeNoTag(entryKeys_.getRaw(i));
+        }
+        size += dataSize;
+        size += 1 * getEntryKeysList().size();
+      }
+      size += unknownFields.getSerializedSize();
+      memoizedSize = size;
+      return size;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (obj == this) {
+       return true;
+      }
+      if (!(obj instanceof LeafPb)) {
+        return super.equals(obj);
+      }
+      LeafPb other = (LeafPb) obj;
+
+      if (hasMbr() != other.hasMbr()) return false;
+      if (hasMbr()) {
+        if (!getMbr()
+            .equals(other.getMbr())) return false;
+      }
+      if (!getEntryRectsList()
+          .equals(other.getEntryRectsList())) return false;
+      if (!getEntries()
+          .equals(other.getEntries())) return false;
+      if (!getPackedMbr()
+          .equals(other.getPackedMbr())) return false;
+      if (!getPackedEntryRects()
+          .equals(other.getPackedEntryRects())) return false;
+      if (!getEntryFeaturesList()
+          .equals(other.getEntryFeaturesList())) return false;
+      if (!getEntryIdsList()
+          .equals(other.getEntryIdsList())) return false;
+      if (!getEntryKeysList()
+          .equals(other.getEntryKeysList())) return false;
+      if (!unknownFields.equals(other.unknownFields)) return false;
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      if (memoizedHashCode != 0) {
+        return memoizedHashCode;
+      }
+      int hash = 41;
+      hash = (19 * hash) + getDescriptor().hashCode();
+      if (hasMbr()) {
+        hash = (37 * hash) + MBR_FIELD_NUMBER;
+        hash = (53 * hash) + getMbr().hashCode();
+      }
+      if (getEntryRectsCount() > 0) {
+        hash = (37 * hash) + ENTRYRECTS_FIELD_NUMBER;
+        hash = (53 * hash) + getEntryRectsList().hashCode();
+      }
+      hash = (37 * hash) + ENTRIES_FIELD_NUMBER;
+      hash = (53 * hash) + getEntries().hashCode();
+      hash = (37 * hash) + PACKEDMBR_FIELD_NUMBER;
+      hash = (53 * hash) + getPackedMbr().hashCode();
+      hash = (37 * hash) + PACKEDENTRYRECTS_FIELD_NUMBER;
+      hash = (53 * hash) + getPackedEntryRects().hashCode();
+      if (getEntryFeaturesCount() > 0) {
+        hash = (37 * hash) + ENTRYFEATURES_FIELD_NUMBER;
+        hash = (53 * hash) + getEntryFeaturesList().hashCode();
+      }
+      if (getEntryIdsCount() > 0) {
+        hash = (37 * hash) + ENTRYIDS_FIELD_NUMBER;
+        hash = (53 * hash) + getEntryIdsList().hashCode();
+      }
+      if (getEntryKeysCount() > 0) {
+        hash = (37 * hash) + ENTRYKEYS_FIELD_NUMBER;
+        hash = (53 * hash) + getEntryKeysList().hashCode();
+      }
+      hash = (29 * hash) + unknownFields.hashCode();
+      memoizedHashCode = hash;
+      return hash;
+    }
+
+    public static LeafPb parseFrom(
+        java.nio.ByteBuffer data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static LeafPb parseFrom(
+        java.nio.ByteBuffer data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static LeafPb parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static LeafPb parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static LeafPb parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static LeafPb parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static LeafPb parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static LeafPb parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static LeafPb parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input);
+    }
+    public static LeafPb parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static LeafPb parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static LeafPb parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
     }
-    /**
-     * <pre>
-     * 实体Rect
-     * </pre>
-     *
-     * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
-     */
+
     @Override
-    public int getEntryRectsCount() {
-      return entryRects_.size();
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder() {
+      return DEFAULT_INSTANCE.toBuilder();
     }
-    /**
-     * <pre>
-     * 实体Rect
-     * </pre>
-     *
-     * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
-     */
-    @Override
-    public RectNdPb getEntryRects(int index) {
-      return entryRects_.get(index);
+    public static Builder newBuilder(LeafPb prototype) {
+      return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
     }
-    /**
-     * <pre>
-     * 实体Rect
-     * </pre>
-     *
-     * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
-     */
     @Override
-    public RectNdPbOrBuilder getEntryRectsOrBuilder(
-        int index) {
-      return entryRects_.get(index);
+    public Builder toBuilder() {
+      return this == DEFAULT_INSTANCE
+          ? new Builder() : new Builder().mergeFrom(this);
     }
 
-    public static final int ENTRIES_FIELD_NUMBER = 3;
-    private com.google.protobuf.ByteString entries_;
+    @Override
+    protected Builder newBuilderForType(
+        BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
     /**
      * <pre>
-     * 实体
+     * 叶子节点
      * </pre>
      *
-     * <code>bytes entries = 3;</code>
-     * @return The entries.
+     * Protobuf type {@code pojo.LeafPb}
      */
-    @Override
-    public com.google.protobuf.ByteString getEntries() {
-      return entries_;
-    }
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessageV3.Builder<Builder> implements
+        // @@protoc_insertion_point(builder_implements:pojo.LeafPb)
+        LeafPbOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return RocksRtreePb.internal_static_pojo_LeafPb_descriptor;
+      }
 
-    private byte memoizedIsInitialized = -1;
-    @Override
-    public final boolean isInitialized() {
-      byte isInitialized = memoizedIsInitialized;
-      if (isInitialized == 1) return true;
-      if (isInitialized == 0) return false;
+      @Override
+      protected FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return RocksRtreePb.internal_static_pojo_LeafPb_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                LeafPb.class, Builder.class);
+      }
 
-      memoizedIsInitialized = 1;
-      return true;
-    }
+      // Construct using org.wowtools.giscat.vector.rocksrtree.RocksRtreePb.LeafPb.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
 
-    @Override
-    public void writeTo(com.google.protobuf.CodedOutputStream output)
-                        throws java.io.IOException {
-      if (mbr_ != null) {
-        output.writeMessage(1, getMbr());
+      private Builder(
+          BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
       }
-      for (int i = 0; i < entryRects_.size(); i++) {
-        output.writeMessage(2, entryRects_.get(i));
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessageV3
+                .alwaysUseFieldBuilders) {
+          getEntryRectsFieldBuilder();
+        }
       }
-      if (!entries_.isEmpty()) {
-        output.writeBytes(3, entries_);
+      @Override
+      public Builder clear() {
+        super.clear();
+        if (mbrBuilder_ == null) {
+          mbr_ = null;
+        } else {
+          mbr_ = null;
+          mbrBuilder_ = null;
+        }
+        if (entryRectsBuilder_ == null) {
+          entryRects_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000001);
+        } else {
+          entryRectsBuilder_.clear();
+        }
+        entries_ = com.google.protobuf.ByteString.EMPTY;
+
+        packedMbr_ = com.google.protobuf.ByteString.EMPTY;
+
+        packedEntryRects_ = com.google.protobuf.ByteString.EMPTY;
+
+        entryFeatures_ = java.util.Collections.emptyList();
+        bitField0_ = (bitField0_ & ~0x00000002);
+        entryIds_ = emptyLongList();
+        bitField0_ = (bitField0_ & ~0x00000004);
+        entryKeys_ = com.google.protobuf.LazyStringArrayList.EMPTY;
+        bitField0_ = (bitField0_ & ~0x00000008);
+        return this;
+      }
+
+      @Override
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return RocksRtreePb.internal_static_pojo_LeafPb_descriptor;
+      }
+
+      @Override
+      public LeafPb getDefaultInstanceForType() {
+        return LeafPb.getDefaultInstance();
+      }
+
+      @Override
+      public LeafPb build() {
+        LeafPb result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      @Override
+      public LeafPb buildPartial() {
+        LeafPb result = new LeafPb(this);
+        int from_bitField0_ = bitField0_;
+        if (mbrBuilder_ == null) {
+          result.mbr_ = mbr_;
+        } else {
+          result.mbr_ = mbrBuilder_.build();
+        }
+        if (entryRectsBuilder_ == null) {
+          if (((bitField0_ & 0x00000001) != 0)) {
+            entryRects_ = java.util.Collections.unmodifiableList(entryRects_);
+            bitField0_ = (bitField0_ & ~0x00000001);
+          }
+          result.entryRects_ = entryRects_;
+        } else {
+          result.entryRects_ = entryRectsBuilder_.build();
+        }
+        result.entries_ = entries_;
+        result.packedMbr_ = packedMbr_;
+        result.packedEntryRects_ = packedEntryRects_;
+        if (((bitField0_ & 0x00000002) != 0)) {
+          entryFeatures_ = java.util.Collections.unmodifiableList(entryFeatures_);
+          bitField0_ = (bitField0_ & ~0x00000002);
+        }
+        result.entryFeatures_ = entryFeatures_;
+        if (((bitField0_ & 0x00000004) != 0)) {
+          entryIds_.makeImmutable();
+          bitField0_ = (bitField0_ & ~0x00000004);
+        }
+        result.entryIds_ = entryIds_;
+        if (((bitField0_ & 0x00000008) != 0)) {
+          entryKeys_ = entryKeys_.getUnmodifiableView();
+          bitField0_ = (bitField0_ & ~0x00000008);
+        }
+        result.entryKeys_ = entryKeys_;
+        onBuilt();
+        return result;
+      }
+
+      @Override
+      public Builder clone() {
+        return super.clone();
+      }
+      @Override
+      public Builder setField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          Object value) {
+        return super.setField(field, value);
+      }
+      @Override
+      public Builder clearField(
+          com.google.protobuf.Descriptors.FieldDescriptor field) {
+        return super.clearField(field);
+      }
+      @Override
+      public Builder clearOneof(
+          com.google.protobuf.Descriptors.OneofDescriptor oneof) {
+        return super.clearOneof(oneof);
+      }
+      @Override
+      public Builder setRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          int index, Object value) {
+        return super.setRepeatedField(field, index, value);
+      }
+      @Override
+      public Builder addRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          Object value) {
+        return super.addRepeatedField(field, value);
+      }
+      @Override
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof LeafPb) {
+          return mergeFrom((LeafPb)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(LeafPb other) {
+        if (other == LeafPb.getDefaultInstance()) return this;
+        if (other.hasMbr()) {
+          mergeMbr(other.getMbr());
+        }
+        if (entryRectsBuilder_ == null) {
+          if (!other.entryRects_.isEmpty()) {
+            if (entryRects_.isEmpty()) {
+              entryRects_ = other.entryRects_;
+              bitField0_ = (bitField0_ & ~0x00000001);
+            } else {
+              ensureEntryRectsIsMutable();
+              entryRects_.addAll(other.entryRects_);
+            }
+            onChanged();
+          }
+        } else {
+          if (!other.entryRects_.isEmpty()) {
+            if (entryRectsBuilder_.isEmpty()) {
+              entryRectsBuilder_.dispose();
+              entryRectsBuilder_ = null;
+              entryRects_ = other.entryRects_;
+              bitField0_ = (bitField0_ & ~0x00000001);
+              entryRectsBuilder_ =
+                com.google.protobuf.GeneratedMessageV3.alwaysUseFieldBuilders ?
+                   getEntryRectsFieldBuilder() : null;
+            } else {
+              entryRectsBuilder_.addAllMessages(other.entryRects_);
+            }
+          }
+        }
+        if (other.getEntries() != com.google.protobuf.ByteString.EMPTY) {
+          setEntries(other.getEntries());
+        }
+        if (other.getPackedMbr() != com.google.protobuf.ByteString.EMPTY) {
+          setPackedMbr(other.getPackedMbr());
+        }
+        if (other.getPackedEntryRects() != com.google.protobuf.ByteString.EMPTY) {
+          setPackedEntryRects(other.getPackedEntryRects());
+        }
+        if (!other.entryFeatures_.isEmpty()) {
+          if (entryFeatures_.isEmpty()) {
+            entryFeatures_ = other.entryFeatures_;
+            bitField0_ = (bitField0_ & ~0x00000002);
+          } else {
+            ensureEntryFeaturesIsMutable();
+            entryFeatures_.addAll(other.entryFeatures_);
+          }
+          onChanged();
+        }
+        if (!other.entryIds_.isEmpty()) {
+          if (entryIds_.isEmpty()) {
+            entryIds_ = other.entryIds_;
+            bitField0_ = (bitField0_ & ~0x00000004);
+          } else {
+            ensureEntryIdsIsMutable();
+            entryIds_.addAll(other.entryIds_);
+          }
+          onChanged();
+        }
+        if (!other.entryKeys_.isEmpty()) {
+          if (entryKeys_.isEmpty()) {
+            entryKeys_ = other.entryKeys_;
+            bitField0_ = (bitField0_ & ~0x00000008);
+          } else {
+            ensureEntryKeysIsMutable();
+            entryKeys_.addAll(other.entryKeys_);
+          }
+          onChanged();
+        }
+        this.mergeUnknownFields(other.unknownFields);
+        onChanged();
+        return this;
       }
-      unknownFields.writeTo(output);
-    }
-
-    @Override
-    public int getSerializedSize() {
-      int size = memoizedSize;
-      if (size != -1) return size;
 
-      size = 0;
-      if (mbr_ != null) {
-        size += com.google.protobuf.CodedOutputStream
-          .computeMessageSize(1, getMbr());
-      }
-      for (int i = 0; i < entryRects_.size(); i++) {
-        size += com.google.protobuf.CodedOutputStream
-          .computeMessageSize(2, entryRects_.get(i));
+      @Override
+      public final boolean isInitialized() {
+        return true;
       }
-      if (!entries_.isEmpty()) {
-        size += com.google.protobuf.CodedOutputStream
-          .computeBytesSize(3, entries_);
+
+      @Override
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        LeafPb parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (LeafPb) e.getUnfinishedMessage();
+          throw e.unwrapIOException();
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
       }
-      size += unknownFields.getSerializedSize();
-      memoizedSize = size;
-      return size;
-    }
+      private int bitField0_;
 
-    @Override
-    public boolean equals(final Object obj) {
-      if (obj == this) {
-       return true;
+      private RectNdPb mbr_;
+      private com.google.protobuf.SingleFieldBuilderV3<
+          RectNdPb, RectNdPb.Builder, RectNdPbOrBuilder> mbrBuilder_;
+      /**
+       * <pre>
+       * 节点Rect
+       * </pre>
+       *
+       * <code>.pojo.RectNdPb mbr = 1;</code>
+       * @return Whether the mbr field is set.
+       */
+      public boolean hasMbr() {
+        return mbrBuilder_ != null || mbr_ != null;
       }
-      if (!(obj instanceof LeafPb)) {
-        return super.equals(obj);
+      /**
+       * <pre>
+       * 节点Rect
+       * </pre>
+       *
+       * <code>.pojo.RectNdPb mbr = 1;</code>
+       * @return The mbr.
+       */
+      public RectNdPb getMbr() {
+        if (mbrBuilder_ == null) {
+          return mbr_ == null ? RectNdPb.getDefaultInstance() : mbr_;
+        } else {
+          return mbrBuilder_.getMessage();
+        }
       }
-      LeafPb other = (LeafPb) obj;
+      /**
+       * <pre>
+       * 节点Rect
+       * </pre>
+       *
+       * <code>.pojo.RectNdPb mbr = 1;</code>
+       */
+      public Builder setMbr(RectNdPb value) {
+        if (mbrBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          mbr_ = value;
+          onChanged();
+        } else {
+          mbrBuilder_.setMessage(value);
+        }
 
-      if (hasMbr() != other.hasMbr()) return false;
-      if (hasMbr()) {
-        if (!getMbr()
-            .equals(other.getMbr())) return false;
+        return this;
       }
-      if (!getEntryRectsList()
-          .equals(other.getEntryRectsList())) return false;
-      if (!getEntries()
-          .equals(other.getEntries())) return false;
-      if (!unknownFields.equals(other.unknownFields)) return false;
-      return true;
-    }
+      /**
+       * <pre>
+       * 节点Rect
+       * </pre>
+       *
+       * <code>.pojo.RectNdPb mbr = 1;</code>
+       */
+      public Builder setMbr(
+          RectNdPb.Builder builderForValue) {
+        if (mbrBuilder_ == null) {
+          mbr_ = builderForValue.build();
+          onChanged();
+        } else {
+          mbrBuilder_.setMessage(builderForValue.build());
+        }
 
-    @Override
-    public int hashCode() {
-      if (memoizedHashCode != 0) {
-        return memoizedHashCode;
-      }
-      int hash = 41;
-      hash = (19 * hash) + getDescriptor().hashCode();
-      if (hasMbr()) {
-        hash = (37 * hash) + MBR_FIELD_NUMBER;
-        hash = (53 * hash) + getMbr().hashCode();
-      }
-      if (getEntryRectsCount() > 0) {
-        hash = (37 * hash) + ENTRYRECTS_FIELD_NUMBER;
-        hash = (53 * hash) + getEntryRectsList().hashCode();
+        return this;
       }
-      hash = (37 * hash) + ENTRIES_FIELD_NUMBER;
-      hash = (53 * hash) + getEntries().hashCode();
-      hash = (29 * hash) + unknownFields.hashCode();
-      memoizedHashCode = hash;
-      return hash;
-    }
-
-    public static LeafPb parseFrom(
-        java.nio.ByteBuffer data)
-        throws com.google.protobuf.InvalidProtocolBufferException {
-      return PARSER.parseFrom(data);
-    }
-    public static LeafPb parseFrom(
-        java.nio.ByteBuffer data,
-        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-        throws com.google.protobuf.InvalidProtocolBufferException {
-      return PARSER.parseFrom(data, extensionRegistry);
-    }
-    public static LeafPb parseFrom(
-        com.google.protobuf.ByteString data)
-        throws com.google.protobuf.InvalidProtocolBufferException {
-      return PARSER.parseFrom(data);
-    }
-    public static LeafPb parseFrom(
-        com.google.protobuf.ByteString data,
-        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-        throws com.google.protobuf.InvalidProtocolBufferException {
-      return PARSER.parseFrom(data, extensionRegistry);
-    }
-    public static LeafPb parseFrom(byte[] data)
-        throws com.google.protobuf.InvalidProtocolBufferException {
-      return PARSER.parseFrom(data);
-    }
-    public static LeafPb parseFrom(
-        byte[] data,
-        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-        throws com.google.protobuf.InvalidProtocolBufferException {
-      return PARSER.parseFrom(data, extensionRegistry);
-    }
-    public static LeafPb parseFrom(java.io.InputStream input)
-        throws java.io.IOException {
-      return com.google.protobuf.GeneratedMessageV3
-          .parseWithIOException(PARSER, input);
-    }
-    public static LeafPb parseFrom(
-        java.io.InputStream input,
-        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-        throws java.io.IOException {
-      return com.google.protobuf.GeneratedMessageV3
-          .parseWithIOException(PARSER, input, extensionRegistry);
-    }
-    public static LeafPb parseDelimitedFrom(java.io.InputStream input)
-        throws java.io.IOException {
-      return com.google.protobuf.GeneratedMessageV3
-          .parseDelimitedWithIOException(PARSER, input);
-    }
-    public static LeafPb parseDelimitedFrom(
-        java.io.InputStream input,
-        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-        throws java.io.IOException {
-      return com.google.protobuf.GeneratedMessageV3
-          .parseDelimitedWithIOException(PARSER, input, extensionRegistry);
-    }
-    public static LeafPb parseFrom(
-        com.google.protobuf.CodedInputStream input)
-        throws java.io.IOException {
-      return com.google.protobuf.GeneratedMessageV3
-          .parseWithIOException(PARSER, input);
-    }
-    public static LeafPb parseFrom(
-        com.google.protobuf.CodedInputStream input,
-        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-        throws java.io.IOException {
-      return com.google.protobuf.GeneratedMessageV3
-          .parseWithIOException(PARSER, input, extensionRegistry);
-    }
-
-    @Override
-    public Builder newBuilderForType() { return newBuilder(); }
-    public static Builder newBuilder() {
-      return DEFAULT_INSTANCE.toBuilder();
-    }
-    public static Builder newBuilder(LeafPb prototype) {
-      return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
-    }
-    @Override
-    public Builder toBuilder() {
-      return this == DEFAULT_INSTANCE
-          ? new Builder() : new Builder().mergeFrom(this);
-    }
+      /**
+       * <pre>
+       * 节点Rect
+       * </pre>
+       *
+       * <code>.pojo.RectNdPb mbr = 1;</code>
+       */
+      public Builder mergeMbr(RectNdPb value) {
+        if (mbrBuilder_ == null) {
+          if (mbr_ != null) {
+            mbr_ =
+              RectNdPb.newBuilder(mbr_).mergeFrom(value).buildPartial();
+          } else {
+            mbr_ = value;
+          }
+          onChanged();
+        } else {
+          mbrBuilder_.mergeFrom(value);
+        }
 
-    @Override
-    protected Builder newBuilderForType(
-        BuilderParent parent) {
-      Builder builder = new Builder(parent);
-      return builder;
-    }
-    /**
-     * <pre>
-     * 叶子节点
-     * </pre>
-     *
-     * Protobuf type {@code pojo.LeafPb}
-     */
-    public static final class Builder extends
-        com.google.protobuf.GeneratedMessageV3.Builder<Builder> implements
-        // @@protoc_insertion_point(builder_implements:pojo.LeafPb)
-        LeafPbOrBuilder {
-      public static final com.google.protobuf.Descriptors.Descriptor
-          getDescriptor() {
-        return RocksRtreePb.internal_static_pojo_LeafPb_descriptor;
+        return this;
       }
+      /**
+       * <pre>
+       * 节点Rect
+       * </pre>
+       *
+       * <code>.pojo.RectNdPb mbr = 1;</code>
+       */
+      public Builder clearMbr() {
+        if (mbrBuilder_ == null) {
+          mbr_ = null;
+          onChanged();
+        } else {
+          mbr_ = null;
+          mbrBuilder_ = null;
+        }
 
-      @Override
-      protected FieldAccessorTable
-          internalGetFieldAccessorTable() {
-        return RocksRtreePb.internal_static_pojo_LeafPb_fieldAccessorTable
-            .ensureFieldAccessorsInitialized(
-                LeafPb.class, Builder.class);
+        return this;
       }
+      /**
+       * <pre>
+       * 节点Rect
+       * </pre>
+       *
+       * <code>.pojo.RectNdPb mbr = 1;</code>
+       */
+      public RectNdPb.Builder getMbrBuilder() {
 
-      // Construct using org.wowtools.giscat.vector.rocksrtree.RocksRtreePb.LeafPb.newBuilder()
-      private Builder() {
-        maybeForceBuilderInitialization();
+        onChanged();
+        return getMbrFieldBuilder().getBuilder();
+      }
+      /**
+       * <pre>
+       * 节点Rect
+       * </pre>
+       *
+       * <code>.pojo.RectNdPb mbr = 1;</code>
+       */
+      public RectNdPbOrBuilder getMbrOrBuilder() {
+        if (mbrBuilder_ != null) {
+          return mbrBuilder_.getMessageOrBuilder();
+        } else {
+          return mbr_ == null ?
+              RectNdPb.getDefaultInstance() : mbr_;
+        }
+      }
+      /**
+       * <pre>
+       * 节点Rect
+       * </pre>
+       *
+       * <code>.pojo.RectNdPb mbr = 1;</code>
+       */
+      private com.google.protobuf.SingleFieldBuilderV3<
+          RectNdPb, RectNdPb.Builder, RectNdPbOrBuilder>
+          getMbrFieldBuilder() {
+        if (mbrBuilder_ == null) {
+          mbrBuilder_ = new com.google.protobuf.SingleFieldBuilderV3<
+              RectNdPb, RectNdPb.Builder, RectNdPbOrBuilder>(
+                  getMbr(),
+                  getParentForChildren(),
+                  isClean());
+          mbr_ = null;
+        }
+        return mbrBuilder_;
       }
 
-      private Builder(
-          BuilderParent parent) {
-        super(parent);
-        maybeForceBuilderInitialization();
+      private java.util.List<RectNdPb> entryRects_ =
+        java.util.Collections.emptyList();
+      private void ensureEntryRectsIsMutable() {
+        if (!((bitField0_ & 0x00000001) != 0)) {
+          entryRects_ = new java.util.ArrayList<RectNdPb>(entryRects_);
+          bitField0_ |= 0x00000001;
+         }
       }
-      private void maybeForceBuilderInitialization() {
-        if (com.google.protobuf.GeneratedMessageV3
-                .alwaysUseFieldBuilders) {
-          getEntryRectsFieldBuilder();
+
+      private com.google.protobuf.RepeatedFieldBuilderV3<
+          RectNdPb, RectNdPb.Builder, RectNdPbOrBuilder> entryRectsBuilder_;
+
+      /**
+       * <pre>
+       * 实体Rect
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       */
+      public java.util.List<RectNdPb> getEntryRectsList() {
+        if (entryRectsBuilder_ == null) {
+          return java.util.Collections.unmodifiableList(entryRects_);
+        } else {
+          return entryRectsBuilder_.getMessageList();
+        }
+      }
+      /**
+       * <pre>
+       * 实体Rect
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       */
+      public int getEntryRectsCount() {
+        if (entryRectsBuilder_ == null) {
+          return entryRects_.size();
+        } else {
+          return entryRectsBuilder_.getCount();
+        }
+      }
+      /**
+       * <pre>
+       * 实体Rect
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       */
+      public RectNdPb getEntryRects(int index) {
+        if (entryRectsBuilder_ == null) {
+          return entryRects_.get(index);
+        } else {
+          return entryRectsBuilder_.getMessage(index);
+        }
+      }
+      /**
+       * <pre>
+       * 实体Rect
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       */
+      public Builder setEntryRects(
+          int index, RectNdPb value) {
+        if (entryRectsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureEntryRectsIsMutable();
+          entryRects_.set(index, value);
+          onChanged();
+        } else {
+          entryRectsBuilder_.setMessage(index, value);
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * 实体Rect
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       */
+      public Builder setEntryRects(
+          int index, RectNdPb.Builder builderForValue) {
+        if (entryRectsBuilder_ == null) {
+          ensureEntryRectsIsMutable();
+          entryRects_.set(index, builderForValue.build());
+          onChanged();
+        } else {
+          entryRectsBuilder_.setMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * 实体Rect
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       */
+      public Builder addEntryRects(RectNdPb value) {
+        if (entryRectsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureEntryRectsIsMutable();
+          entryRects_.add(value);
+          onChanged();
+        } else {
+          entryRectsBuilder_.addMessage(value);
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * 实体Rect
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       */
+      public Builder addEntryRects(
+          int index, RectNdPb value) {
+        if (entryRectsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureEntryRectsIsMutable();
+          entryRects_.add(index, value);
+          onChanged();
+        } else {
+          entryRectsBuilder_.addMessage(index, value);
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * 实体Rect
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       */
+      public Builder addEntryRects(
+          RectNdPb.Builder builderForValue) {
+        if (entryRectsBuilder_ == null) {
+          ensureEntryRectsIsMutable();
+          entryRects_.add(builderForValue.build());
+          onChanged();
+        } else {
+          entryRectsBuilder_.addMessage(builderForValue.build());
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * 实体Rect
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       */
+      public Builder addEntryRects(
+          int index, RectNdPb.Builder builderForValue) {
+        if (entryRectsBuilder_ == null) {
+          ensureEntryRectsIsMutable();
+          entryRects_.add(index, builderForValue.build());
+          onChanged();
+        } else {
+          entryRectsBuilder_.addMessage(index, builderForValue.build());
         }
+        return this;
       }
-      @Override
-      public Builder clear() {
-        super.clear();
-        if (mbrBuilder_ == null) {
-          mbr_ = null;
+      /**
+       * <pre>
+       * 实体Rect
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       */
+      public Builder addAllEntryRects(
+          Iterable<? extends RectNdPb> values) {
+        if (entryRectsBuilder_ == null) {
+          ensureEntryRectsIsMutable();
+          com.google.protobuf.AbstractMessageLite.Builder.addAll(
+              values, entryRects_);
+          onChanged();
         } else {
-          mbr_ = null;
-          mbrBuilder_ = null;
+          entryRectsBuilder_.addAllMessages(values);
         }
+        return this;
+      }
+      /**
+       * <pre>
+       * 实体Rect
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       */
+      public Builder clearEntryRects() {
         if (entryRectsBuilder_ == null) {
           entryRects_ = java.util.Collections.emptyList();
           bitField0_ = (bitField0_ & ~0x00000001);
+          onChanged();
         } else {
           entryRectsBuilder_.clear();
         }
-        entries_ = com.google.protobuf.ByteString.EMPTY;
-
         return this;
       }
-
-      @Override
-      public com.google.protobuf.Descriptors.Descriptor
-          getDescriptorForType() {
-        return RocksRtreePb.internal_static_pojo_LeafPb_descriptor;
-      }
-
-      @Override
-      public LeafPb getDefaultInstanceForType() {
-        return LeafPb.getDefaultInstance();
-      }
-
-      @Override
-      public LeafPb build() {
-        LeafPb result = buildPartial();
-        if (!result.isInitialized()) {
-          throw newUninitializedMessageException(result);
-        }
-        return result;
-      }
-
-      @Override
-      public LeafPb buildPartial() {
-        LeafPb result = new LeafPb(this);
-        int from_bitField0_ = bitField0_;
-        if (mbrBuilder_ == null) {
-          result.mbr_ = mbr_;
-        } else {
-          result.mbr_ = mbrBuilder_.build();
-        }
+      /**
+       * <pre>
+       * 实体Rect
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       */
+      public Builder removeEntryRects(int index) {
         if (entryRectsBuilder_ == null) {
-          if (((bitField0_ & 0x00000001) != 0)) {
-            entryRects_ = java.util.Collections.unmodifiableList(entryRects_);
-            bitField0_ = (bitField0_ & ~0x00000001);
-          }
-          result.entryRects_ = entryRects_;
+          ensureEntryRectsIsMutable();
+          entryRects_.remove(index);
+          onChanged();
         } else {
-          result.entryRects_ = entryRectsBuilder_.build();
+          entryRectsBuilder_.remove(index);
         }
-        result.entries_ = entries_;
-        onBuilt();
-        return result;
-      }
-
-      @Override
-      public Builder clone() {
-        return super.clone();
-      }
-      @Override
-      public Builder setField(
-          com.google.protobuf.Descriptors.FieldDescriptor field,
-          Object value) {
-        return super.setField(field, value);
-      }
-      @Override
-      public Builder clearField(
-          com.google.protobuf.Descriptors.FieldDescriptor field) {
-        return super.clearField(field);
-      }
-      @Override
-      public Builder clearOneof(
-          com.google.protobuf.Descriptors.OneofDescriptor oneof) {
-        return super.clearOneof(oneof);
-      }
-      @Override
-      public Builder setRepeatedField(
-          com.google.protobuf.Descriptors.FieldDescriptor field,
-          int index, Object value) {
-        return super.setRepeatedField(field, index, value);
+        return this;
       }
-      @Override
-      public Builder addRepeatedField(
-          com.google.protobuf.Descriptors.FieldDescriptor field,
-          Object value) {
-        return super.addRepeatedField(field, value);
+      /**
+       * <pre>
+       * 实体Rect
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       */
+      public RectNdPb.Builder getEntryRectsBuilder(
+          int index) {
+        return getEntryRectsFieldBuilder().getBuilder(index);
       }
-      @Override
-      public Builder mergeFrom(com.google.protobuf.Message other) {
-        if (other instanceof LeafPb) {
-          return mergeFrom((LeafPb)other);
-        } else {
-          super.mergeFrom(other);
-          return this;
+      /**
+       * <pre>
+       * 实体Rect
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       */
+      public RectNdPbOrBuilder getEntryRectsOrBuilder(
+          int index) {
+        if (entryRectsBuilder_ == null) {
+          return entryRects_.get(index);  } else {
+          return entryRectsBuilder_.getMessageOrBuilder(index);
         }
       }
-
-      public Builder mergeFrom(LeafPb other) {
-        if (other == LeafPb.getDefaultInstance()) return this;
-        if (other.hasMbr()) {
-          mergeMbr(other.getMbr());
-        }
-        if (entryRectsBuilder_ == null) {
-          if (!other.entryRects_.isEmpty()) {
-            if (entryRects_.isEmpty()) {
-              entryRects_ = other.entryRects_;
-              bitField0_ = (bitField0_ & ~0x00000001);
-            } else {
-              ensureEntryRectsIsMutable();
-              entryRects_.addAll(other.entryRects_);
-            }
-            onChanged();
-          }
+      /**
+       * <pre>
+       * 实体Rect
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       */
+      public java.util.List<? extends RectNdPbOrBuilder>
+           getEntryRectsOrBuilderList() {
+        if (entryRectsBuilder_ != null) {
+          return entryRectsBuilder_.getMessageOrBuilderList();
         } else {
-          if (!other.entryRects_.isEmpty()) {
-            if (entryRectsBuilder_.isEmpty()) {
-              entryRectsBuilder_.dispose();
-              entryRectsBuilder_ = null;
-              entryRects_ = other.entryRects_;
-              bitField0_ = (bitField0_ & ~0x00000001);
-              entryRectsBuilder_ =
-                com.google.protobuf.GeneratedMessageV3.alwaysUseFieldBuilders ?
-                   getEntryRectsFieldBuilder() : null;
-            } else {
-              entryRectsBuilder_.addAllMessages(other.entryRects_);
-            }
-          }
-        }
-        if (other.getEntries() != com.google.protobuf.ByteString.EMPTY) {
-          setEntries(other.getEntries());
+          return java.util.Collections.unmodifiableList(entryRects_);
         }
-        this.mergeUnknownFields(other.unknownFields);
-        onChanged();
-        return this;
       }
-
-      @Override
-      public final boolean isInitialized() {
-        return true;
+      /**
+       * <pre>
+       * 实体Rect
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       */
+      public RectNdPb.Builder addEntryRectsBuilder() {
+        return getEntryRectsFieldBuilder().addBuilder(
+            RectNdPb.getDefaultInstance());
       }
-
-      @Override
-      public Builder mergeFrom(
-          com.google.protobuf.CodedInputStream input,
-          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-          throws java.io.IOException {
-        LeafPb parsedMessage = null;
-        try {
-          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
-        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
-          parsedMessage = (LeafPb) e.getUnfinishedMessage();
-          throw e.unwrapIOException();
-        } finally {
-          if (parsedMessage != null) {
-            mergeFrom(parsedMessage);
-          }
+      /**
+       * <pre>
+       * 实体Rect
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       */
+      public RectNdPb.Builder addEntryRectsBuilder(
+          int index) {
+        return getEntryRectsFieldBuilder().addBuilder(
+            index, RectNdPb.getDefaultInstance());
+      }
+      /**
+       * <pre>
+       * 实体Rect
+       * </pre>
+       *
+       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       */
+      public java.util.List<RectNdPb.Builder>
+           getEntryRectsBuilderList() {
+        return getEntryRectsFieldBuilder().getBuilderList();
+      }
+      private com.google.protobuf.RepeatedFieldBuilderV3<
+          RectNdPb, RectNdPb.Builder, RectNdPbOrBuilder>
+          getEntryRectsFieldBuilder() {
+        if (entryRectsBuilder_ == null) {
+          entryRectsBuilder_ = new com.google.protobuf.RepeatedFieldBuilderV3<
+              RectNdPb, RectNdPb.Builder, RectNdPbOrBuilder>(
+                  entryRects_,
+                  ((bitField0_ & 0x00000001) != 0),
+                  getParentForChildren(),
+                  isClean());
+          entryRects_ = null;
         }
-        return this;
+        return entryRectsBuilder_;
       }
-      private int bitField0_;
 
-      private RectNdPb mbr_;
-      private com.google.protobuf.SingleFieldBuilderV3<
-          RectNdPb, RectNdPb.Builder, RectNdPbOrBuilder> mbrBuilder_;
+      private com.google.protobuf.ByteString entries_ = com.google.protobuf.ByteString.EMPTY;
       /**
        * <pre>
-       * 节点Rect
+       * 实体
        * </pre>
        *
-       * <code>.pojo.RectNdPb mbr = 1;</code>
-       * @return Whether the mbr field is set.
+       * <code>bytes entries = 3;</code>
+       * @return The entries.
        */
-      public boolean hasMbr() {
-        return mbrBuilder_ != null || mbr_ != null;
+      @Override
+      public com.google.protobuf.ByteString getEntries() {
+        return entries_;
       }
       /**
        * <pre>
-       * 节点Rect
+       * 实体
        * </pre>
        *
-       * <code>.pojo.RectNdPb mbr = 1;</code>
-       * @return The mbr.
+       * <code>bytes entries = 3;</code>
+       * @param value The entries to set.
+       * @return This builder for chaining.
        */
-      public RectNdPb getMbr() {
-        if (mbrBuilder_ == null) {
-          return mbr_ == null ? RectNdPb.getDefaultInstance() : mbr_;
-        } else {
-          return mbrBuilder_.getMessage();
-        }
+      public Builder setEntries(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+
+        entries_ = value;
+        onChanged();
+        return this;
       }
       /**
        * <pre>
-       * 节点Rect
+       * 实体
        * </pre>
        *
-       * <code>.pojo.RectNdPb mbr = 1;</code>
+       * <code>bytes entries = 3;</code>
+       * @return This builder for chaining.
        */
-      public Builder setMbr(RectNdPb value) {
-        if (mbrBuilder_ == null) {
-          if (value == null) {
-            throw new NullPointerException();
-          }
-          mbr_ = value;
-          onChanged();
-        } else {
-          mbrBuilder_.setMessage(value);
-        }
+      public Builder clearEntries() {
 
+        entries_ = getDefaultInstance().getEntries();
+        onChanged();
         return this;
       }
+
+      private com.google.protobuf.ByteString packedMbr_ = com.google.protobuf.ByteString.EMPTY;
       /**
        * <pre>
-       * 节点Rect
+       * 以下为格式版本1使用的字段
+       * 节点Rect，小端序double数组，依次为min和max
        * </pre>
        *
-       * <code>.pojo.RectNdPb mbr = 1;</code>
+       * <code>bytes packedMbr = 4;</code>
+       * @return The packedMbr.
        */
-      public Builder setMbr(
-          RectNdPb.Builder builderForValue) {
-        if (mbrBuilder_ == null) {
-          mbr_ = builderForValue.build();
-          onChanged();
-        } else {
-          mbrBuilder_.setMessage(builderForValue.build());
-        }
-
-        return this;
+      @Override
+      public com.google.protobuf.ByteString getPackedMbr() {
+        return packedMbr_;
       }
       /**
        * <pre>
-       * 节点Rect
+       * 以下为格式版本1使用的字段
+       * 节点Rect，小端序double数组，依次为min和max
        * </pre>
        *
-       * <code>.pojo.RectNdPb mbr = 1;</code>
+       * <code>bytes packedMbr = 4;</code>
+       * @param value The packedMbr to set.
+       * @return This builder for chaining.
        */
-      public Builder mergeMbr(RectNdPb value) {
-        if (mbrBuilder_ == null) {
-          if (mbr_ != null) {
-            mbr_ =
-              RectNdPb.newBuilder(mbr_).mergeFrom(value).buildPartial();
-          } else {
-            mbr_ = value;
-          }
-          onChanged();
-        } else {
-          mbrBuilder_.mergeFrom(value);
-        }
+      public Builder setPackedMbr(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
 
+        packedMbr_ = value;
+        onChanged();
         return this;
       }
       /**
        * <pre>
-       * 节点Rect
+       * 以下为格式版本1使用的字段
+       * 节点Rect，小端序double数组，依次为min和max
        * </pre>
        *
-       * <code>.pojo.RectNdPb mbr = 1;</code>
+       * <code>bytes packedMbr = 4;</code>
+       * @return This builder for chaining.
        */
-      public Builder clearMbr() {
-        if (mbrBuilder_ == null) {
-          mbr_ = null;
-          onChanged();
-        } else {
-          mbr_ = null;
-          mbrBuilder_ = null;
-        }
+      public Builder clearPackedMbr() {
 
+        packedMbr_ = getDefaultInstance().getPackedMbr();
+        onChanged();
         return this;
       }
+
+      private com.google.protobuf.ByteString packedEntryRects_ = com.google.protobuf.ByteString.EMPTY;
       /**
        * <pre>
-       * 节点Rect
+       * 实体Rect，小端序double数组，依次为每个实体的min和max
        * </pre>
        *
-       * <code>.pojo.RectNdPb mbr = 1;</code>
+       * <code>bytes packedEntryRects = 5;</code>
+       * @return The packedEntryRects.
        */
-      public RectNdPb.Builder getMbrBuilder() {
-
-        onChanged();
-        return getMbrFieldBuilder().getBuilder();
+      @Override
+      public com.google.protobuf.ByteString getPackedEntryRects() {
+        return packedEntryRects_;
       }
       /**
        * <pre>
-       * 节点Rect
+       * 实体Rect，小端序double数组，依次为每个实体的min和max
        * </pre>
        *
-       * <code>.pojo.RectNdPb mbr = 1;</code>
+       * <code>bytes packedEntryRects = 5;</code>
+       * @param value The packedEntryRects to set.
+       * @return This builder for chaining.
        */
-      public RectNdPbOrBuilder getMbrOrBuilder() {
-        if (mbrBuilder_ != null) {
-          return mbrBuilder_.getMessageOrBuilder();
-        } else {
-          return mbr_ == null ?
-              RectNdPb.getDefaultInstance() : mbr_;
-        }
+      public Builder setPackedEntryRects(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+
+        packedEntryRects_ = value;
+        onChanged();
+        return this;
       }
       /**
        * <pre>
-       * 节点Rect
+       * 实体Rect，小端序double数组，依次为每个实体的min和max
        * </pre>
        *
-       * <code>.pojo.RectNdPb mbr = 1;</code>
+       * <code>bytes packedEntryRects = 5;</code>
+       * @return This builder for chaining.
        */
-      private com.google.protobuf.SingleFieldBuilderV3<
-          RectNdPb, RectNdPb.Builder, RectNdPbOrBuilder>
-          getMbrFieldBuilder() {
-        if (mbrBuilder_ == null) {
-          mbrBuilder_ = new com.google.protobuf.SingleFieldBuilderV3<
-              RectNdPb, RectNdPb.Builder, RectNdPbOrBuilder>(
-                  getMbr(),
-                  getParentForChildren(),
-                  isClean());
-          mbr_ = null;
-        }
-        return mbrBuilder_;
+      public Builder clearPackedEntryRects() {
+
+        packedEntryRects_ = getDefaultInstance().getPackedEntryRects();
+        onChanged();
+        return this;
       }
 
-      private java.util.List<RectNdPb> entryRects_ =
-        java.util.Collections.emptyList();
-      private void ensureEntryRectsIsMutable() {
-        if (!((bitField0_ & 0x00000001) != 0)) {
-          entryRects_ = new java.util.ArrayList<RectNdPb>(entryRects_);
-          bitField0_ |= 0x00000001;
+      private java.util.List<com.google.protobuf.ByteString> entryFeatures_ = java.util.Collections.emptyList();
+      private void ensureEntryFeaturesIsMutable() {
+        if (!((bitField0_ & 0x00000002) != 0)) {
+          entryFeatures_ = new java.util.ArrayList<com.google.protobuf.ByteString>(entryFeatures_);
+          bitField0_ |= 0x00000002;
          }
       }
-
-      private com.google.protobuf.RepeatedFieldBuilderV3<
-          RectNdPb, RectNdPb.Builder, RectNdPbOrBuilder> entryRectsBuilder_;
-
       /**
        * <pre>
-       * 实体Rect
+       * 实体，每个实体单独序列化，查询时只解析命中的实体
        * </pre>
        *
-       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       * <code>repeated bytes entryFeatures = 6;</code>
+       * @return A list containing the entryFeatures.
        */
-      public java.util.List<RectNdPb> getEntryRectsList() {
-        if (entryRectsBuilder_ == null) {
-          return java.util.Collections.unmodifiableList(entryRects_);
-        } else {
-          return entryRectsBuilder_.getMessageList();
-        }
+      public java.util.List<com.google.protobuf.ByteString>
+          getEntryFeaturesList() {
+        return ((bitField0_ & 0x00000002) != 0) ?
+                 java.util.Collections.unmodifiableList(entryFeatures_) : entryFeatures_;
       }
       /**
        * <pre>
-       * 实体Rect
+       * 实体，每个实体单独序列化，查询时只解析命中的实体
        * </pre>
        *
-       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       * <code>repeated bytes entryFeatures = 6;</code>
+       * @return The count of entryFeatures.
        */
-      public int getEntryRectsCount() {
-        if (entryRectsBuilder_ == null) {
-          return entryRects_.size();
-        } else {
-          return entryRectsBuilder_.getCount();
-        }
+      public int getEntryFeaturesCount() {
+        return entryFeatures_.size();
       }
       /**
        * <pre>
-       * 实体Rect
+       * 实体，每个实体单独序列化，查询时只解析命中的实体
        * </pre>
        *
-       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       * <code>repeated bytes entryFeatures = 6;</code>
+       * @param index The index of the element to return.
+       * @return The entryFeatures at the given index.
        */
-      public RectNdPb getEntryRects(int index) {
-        if (entryRectsBuilder_ == null) {
-          return entryRects_.get(index);
-        } else {
-          return entryRectsBuilder_.getMessage(index);
-        }
+      public com.google.protobuf.ByteString getEntryFeatures(int index) {
+        return entryFeatures_.get(index);
       }
       /**
        * <pre>
-       * 实体Rect
+       * 实体，每个实体单独序列化，查询时只解析命中的实体
        * </pre>
        *
-       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       * <code>repeated bytes entryFeatures = 6;</code>
+       * @param index The index to set the value at.
+       * @param value The entryFeatures to set.
+       * @return This builder for chaining.
        */
-      public Builder setEntryRects(
-          int index, RectNdPb value) {
-        if (entryRectsBuilder_ == null) {
-          if (value == null) {
-            throw new NullPointerException();
-          }
-          ensureEntryRectsIsMutable();
-          entryRects_.set(index, value);
-          onChanged();
-        } else {
-          entryRectsBuilder_.setMessage(index, value);
-        }
+      public Builder setEntryFeatures(
+          int index, com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  ensureEntryFeaturesIsMutable();
+        entryFeatures_.set(index, value);
+        onChanged();
         return this;
       }
       /**
        * <pre>
-       * 实体Rect
+       * 实体，每个实体单独序列化，查询时只解析命中的实体
        * </pre>
        *
-       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       * <code>repeated bytes entryFeatures = 6;</code>
+       * @param value The entryFeatures to add.
+       * @return This builder for chaining.
        */
-      public Builder setEntryRects(
-          int index, RectNdPb.Builder builderForValue) {
-        if (entryRectsBuilder_ == null) {
-          ensureEntryRectsIsMutable();
-          entryRects_.set(index, builderForValue.build());
-          onChanged();
-        } else {
-          entryRectsBuilder_.setMessage(index, builderForValue.build());
-        }
+      public Builder addEntryFeatures(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  ensureEntryFeaturesIsMutable();
+        entryFeatures_.add(value);
+        onChanged();
         return this;
       }
       /**
        * <pre>
-       * 实体Rect
+       * 实体，每个实体单独序列化，查询时只解析命中的实体
        * </pre>
        *
-       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       * <code>repeated bytes entryFeatures = 6;</code>
+       * @param values The entryFeatures to add.
+       * @return This builder for chaining.
        */
-      public Builder addEntryRects(RectNdPb value) {
-        if (entryRectsBuilder_ == null) {
-          if (value == null) {
-            throw new NullPointerException();
-          }
-          ensureEntryRectsIsMutable();
-          entryRects_.add(value);
-          onChanged();
-        } else {
-          entryRectsBuilder_.addMessage(value);
-        }
+      public Builder addAllEntryFeatures(
+          Iterable<? extends com.google.protobuf.ByteString> values) {
+        ensureEntryFeaturesIsMutable();
+        com.google.protobuf.AbstractMessageLite.Builder.addAll(
+            values, entryFeatures_);
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 实体，每个实体单独序列化，查询时只解析命中的实体
+       * </pre>
+       *
+       * <code>repeated bytes entryFeatures = 6;</code>
+       * @return This builder for chaining.
+       */
+      public Builder clearEntryFeatures() {
+        entryFeatures_ = java.util.Collections.emptyList();
+        bitField0_ = (bitField0_ & ~0x00000002);
+        onChanged();
         return this;
       }
+
+      private com.google.protobuf.Internal.LongList entryIds_ = emptyLongList();
+      private void ensureEntryIdsIsMutable() {
+        if (!((bitField0_ & 0x00000004) != 0)) {
+          entryIds_ = mutableCopy(entryIds_);
+          bitField0_ |= 0x00000004;
+         }
+      }
       /**
        * <pre>
-       * 实体Rect
+       * 实体id，要素独立存储在features列族时使用
        * </pre>
        *
-       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       * <code>repeated fixed64 entryIds = 7;</code>
+       * @return A list containing the entryIds.
        */
-      public Builder addEntryRects(
-          int index, RectNdPb value) {
-        if (entryRectsBuilder_ == null) {
-          if (value == null) {
-            throw new NullPointerException();
-          }
-          ensureEntryRectsIsMutable();
-          entryRects_.add(index, value);
-          onChanged();
-        } else {
-          entryRectsBuilder_.addMessage(index, value);
-        }
-        return this;
+      public java.util.List<Long>
+          getEntryIdsList() {
+        return ((bitField0_ & 0x00000004) != 0) ?
+                 java.util.Collections.unmodifiableList(entryIds_) : entryIds_;
       }
       /**
        * <pre>
-       * 实体Rect
+       * 实体id，要素独立存储在features列族时使用
        * </pre>
        *
-       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       * <code>repeated fixed64 entryIds = 7;</code>
+       * @return The count of entryIds.
        */
-      public Builder addEntryRects(
-          RectNdPb.Builder builderForValue) {
-        if (entryRectsBuilder_ == null) {
-          ensureEntryRectsIsMutable();
-          entryRects_.add(builderForValue.build());
-          onChanged();
-        } else {
-          entryRectsBuilder_.addMessage(builderForValue.build());
-        }
-        return this;
+      public int getEntryIdsCount() {
+        return entryIds_.size();
       }
       /**
        * <pre>
-       * 实体Rect
+       * 实体id，要素独立存储在features列族时使用
        * </pre>
        *
-       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       * <code>repeated fixed64 entryIds = 7;</code>
+       * @param index The index of the element to return.
+       * @return The entryIds at the given index.
        */
-      public Builder addEntryRects(
-          int index, RectNdPb.Builder builderForValue) {
-        if (entryRectsBuilder_ == null) {
-          ensureEntryRectsIsMutable();
-          entryRects_.add(index, builderForValue.build());
-          onChanged();
-        } else {
-          entryRectsBuilder_.addMessage(index, builderForValue.build());
-        }
-        return this;
+      public long getEntryIds(int index) {
+        return entryIds_.getLong(index);
       }
       /**
        * <pre>
-       * 实体Rect
+       * 实体id，要素独立存储在features列族时使用
        * </pre>
        *
-       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       * <code>repeated fixed64 entryIds = 7;</code>
+       * @param index The index to set the value at.
+       * @param value The entryIds to set.
+       * @return This builder for chaining.
        */
-      public Builder addAllEntryRects(
-          Iterable<? extends RectNdPb> values) {
-        if (entryRectsBuilder_ == null) {
-          ensureEntryRectsIsMutable();
-          com.google.protobuf.AbstractMessageLite.Builder.addAll(
-              values, entryRects_);
-          onChanged();
-        } else {
-          entryRectsBuilder_.addAllMessages(values);
-        }
+      public Builder setEntryIds(
+          int index, long value) {
+        ensureEntryIdsIsMutable();
+        entryIds_.setLong(index, value);
+        onChanged();
         return this;
       }
       /**
        * <pre>
-       * 实体Rect
+       * 实体id，要素独立存储在features列族时使用
        * </pre>
        *
-       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       * <code>repeated fixed64 entryIds = 7;</code>
+       * @param value The entryIds to add.
+       * @return This builder for chaining.
        */
-      public Builder clearEntryRects() {
-        if (entryRectsBuilder_ == null) {
-          entryRects_ = java.util.Collections.emptyList();
-          bitField0_ = (bitField0_ & ~0x00000001);
-          onChanged();
-        } else {
-          entryRectsBuilder_.clear();
-        }
+      public Builder addEntryIds(long value) {
+        ensureEntryIdsIsMutable();
+        entryIds_.addLong(value);
+        onChanged();
         return this;
       }
       /**
        * <pre>
-       * 实体Rect
+       * 实体id，要素独立存储在features列族时使用
        * </pre>
        *
-       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       * <code>repeated fixed64 entryIds = 7;</code>
+       * @param values The entryIds to add.
+       * @return This builder for chaining.
        */
-      public Builder removeEntryRects(int index) {
-        if (entryRectsBuilder_ == null) {
-          ensureEntryRectsIsMutable();
-          entryRects_.remove(index);
-          onChanged();
-        } else {
-          entryRectsBuilder_.remove(index);
-        }
+      public Builder addAllEntryIds(
+          Iterable<? extends Long> values) {
+        ensureEntryIdsIsMutable();
+        com.google.protobuf.AbstractMessageLite.Builder.addAll(
+            values, entryIds_);
+        onChanged();
         return this;
       }
       /**
        * <pre>
-       * 实体Rect
+       * 实体id，要素独立存储在features列族时使用
        * </pre>
        *
-       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       * <code>repeated fixed64 entryIds = 7;</code>
+       * @return This builder for chaining.
        */
-      public RectNdPb.Builder getEntryRectsBuilder(
-          int index) {
-        return getEntryRectsFieldBuilder().getBuilder(index);
+      public Builder clearEntryIds() {
+        entryIds_ = emptyLongList();
+        bitField0_ = (bitField0_ & ~0x00000004);
+        onChanged();
+        return this;
+      }
+
+      private com.google.protobuf.LazyStringList entryKeys_ = com.google.protobuf.LazyStringArrayList.EMPTY;
+      private void ensureEntryKeysIsMutable() {
+        if (!((bitField0_ & 0x00000008) != 0)) {
+          entryKeys_ = new com.google.protobuf.LazyStringArrayList(entryKeys_);
+          bitField0_ |= 0x00000008;
+         }
       }
       /**
        * <pre>
-       * 实体Rect
+       * 数据的featureKey，配置了featureKeyFunction时记录
        * </pre>
        *
-       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       * <code>repeated string entryKeys = 8;</code>
+       * @return A list containing the entryKeys.
        */
-      public RectNdPbOrBuilder getEntryRectsOrBuilder(
-          int index) {
-        if (entryRectsBuilder_ == null) {
-          return entryRects_.get(index);  } else {
-          return entryRectsBuilder_.getMessageOrBuilder(index);
-        }
+      public com.google.protobuf.ProtocolStringList
+          getEntryKeysList() {
+        return entryKeys_.getUnmodifiableView();
       }
       /**
        * <pre>
-       * 实体Rect
+       * 数据的featureKey，配置了featureKeyFunction时记录
        * </pre>
        *
-       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       * <code>repeated string entryKeys = 8;</code>
+       * @return The count of entryKeys.
        */
-      public java.util.List<? extends RectNdPbOrBuilder>
-           getEntryRectsOrBuilderList() {
-        if (entryRectsBuilder_ != null) {
-          return entryRectsBuilder_.getMessageOrBuilderList();
-        } else {
-          return java.util.Collections.unmodifiableList(entryRects_);
-        }
+      public int getEntryKeysCount() {
+        return entryKeys_.size();
       }
       /**
        * <pre>
-       * 实体Rect
+       * 数据的featureKey，配置了featureKeyFunction时记录
        * </pre>
        *
-       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       * <code>repeated string entryKeys = 8;</code>
+       * @param index The index of the element to return.
+       * @return The entryKeys at the given index.
        */
-      public RectNdPb.Builder addEntryRectsBuilder() {
-        return getEntryRectsFieldBuilder().addBuilder(
-            RectNdPb.getDefaultInstance());
+      public String getEntryKeys(int index) {
+        return entryKeys_.get(index);
       }
       /**
        * <pre>
-       * 实体Rect
+       * 数据的featureKey，配置了featureKeyFunction时记录
        * </pre>
        *
-       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       * <code>repeated string entryKeys = 8;</code>
+       * @param index The index of the value to return.
+       * @return The bytes of the entryKeys at the given index.
        */
-      public RectNdPb.Builder addEntryRectsBuilder(
-          int index) {
-        return getEntryRectsFieldBuilder().addBuilder(
-            index, RectNdPb.getDefaultInstance());
+      public com.google.protobuf.ByteString
+          getEntryKeysBytes(int index) {
+        return entryKeys_.getByteString(index);
       }
       /**
        * <pre>
-       * 实体Rect
+       * 数据的featureKey，配置了featureKeyFunction时记录
        * </pre>
        *
-       * <code>repeated .pojo.RectNdPb entryRects = 2;</code>
+       * <code>repeated string entryKeys = 8;</code>
+       * @param index The index to set the value at.
+       * @param value The entryKeys to set.
+       * @return This builder for chaining.
        */
-      public java.util.List<RectNdPb.Builder>
-           getEntryRectsBuilderList() {
-        return getEntryRectsFieldBuilder().getBuilderList();
+      public Builder setEntryKeys(
+          int index, String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  ensureEntryKeysIsMutable();
+        entryKeys_.set(index, value);
+        onChanged();
+        return this;
       }
-      private com.google.protobuf.RepeatedFieldBuilderV3<
-          RectNdPb, RectNdPb.Builder, RectNdPbOrBuilder>
-          getEntryRectsFieldBuilder() {
-        if (entryRectsBuilder_ == null) {
-          entryRectsBuilder_ = new com.google.protobuf.RepeatedFieldBuilderV3<
-              RectNdPb, RectNdPb.Builder, RectNdPbOrBuilder>(
-                  entryRects_,
-                  ((bitField0_ & 0x00000001) != 0),
-                  getParentForChildren(),
-                  isClean());
-          entryRects_ = null;
-        }
-        return entryRectsBuilder_;
+      /**
+       * <pre>
+       * 数据的featureKey，配置了featureKeyFunction时记录
+       * </pre>
+       *
+       * <code>repeated string entryKeys = 8;</code>
+       * @param value The entryKeys to add.
+       * @return This builder for chaining.
+       */
+      public Builder addEntryKeys(
+          String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  ensureEntryKeysIsMutable();
+        entryKeys_.add(value);
+        onChanged();
+        return this;
       }
-
-      private com.google.protobuf.ByteString entries_ = com.google.protobuf.ByteString.EMPTY;
       /**
        * <pre>
-       * 实体
+       * 数据的featureKey，配置了featureKeyFunction时记录
        * </pre>
        *
-       * <code>bytes entries = 3;</code>
-       * @return The entries.
+       * <code>repeated string entryKeys = 8;</code>
+       * @param values The entryKeys to add.
+       * @return This builder for chaining.
        */
-      @Override
-      public com.google.protobuf.ByteString getEntries() {
-        return entries_;
+      public Builder addAllEntryKeys(
+          Iterable<String> values) {
+        ensureEntryKeysIsMutable();
+        com.google.protobuf.AbstractMessageLite.Builder.addAll(
+            values, entryKeys_);
+        onChanged();
+        return this;
       }
       /**
        * <pre>
-       * 实体
+       * 数据的featureKey，配置了featureKeyFunction时记录
        * </pre>
        *
-       * <code>bytes entries = 3;</code>
-       * @param value The entries to set.
+       * <code>repeated string entryKeys = 8;</code>
        * @return This builder for chaining.
        */
-      public Builder setEntries(com.google.protobuf.ByteString value) {
-        if (value == null) {
-    throw new NullPointerException();
-  }
-
-        entries_ = value;
+      public Builder clearEntryKeys() {
+        entryKeys_ = com.google.protobuf.LazyStringArrayList.EMPTY;
+        bitField0_ = (bitField0_ & ~0x00000008);
         onChanged();
         return this;
       }
       /**
        * <pre>
-       * 实体
+       * 数据的featureKey，配置了featureKeyFunction时记录
        * </pre>
        *
-       * <code>bytes entries = 3;</code>
+       * <code>repeated string entryKeys = 8;</code>
+       * @param value The bytes of the entryKeys to add.
        * @return This builder for chaining.
        */
-      public Builder clearEntries() {
-
-        entries_ = getDefaultInstance().getEntries();
+      public Builder addEntryKeysBytes(
+          com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  checkByteStringIsUtf8(value);
+        ensureEntryKeysIsMutable();
+        entryKeys_.add(value);
         onChanged();
         return this;
       }
@@ -3119,6 +5238,66 @@ public final class RocksRtreePb {
      * @return The mMax.
      */
     int getMMax();
+
+    /**
+     * <pre>
+     * 已预留的叶子节点id上限，重新打开树后从此值之后继续分配
+     * </pre>
+     *
+     * <code>int64 leafIdLimit = 4;</code>
+     * @return The leafIdLimit.
+     */
+    long getLeafIdLimit();
+
+    /**
+     * <pre>
+     * 已预留的非叶子节点id上限，重新打开树后从此值之后继续分配
+     * </pre>
+     *
+     * <code>int64 branchIdLimit = 5;</code>
+     * @return The branchIdLimit.
+     */
+    long getBranchIdLimit();
+
+    /**
+     * <pre>
+     * 存储格式版本，0为节点id用字符串、Rect用RectNdPb的旧格式，1为节点id用long、Rect用小端序double数组的紧凑格式
+     * </pre>
+     *
+     * <code>int32 formatVersion = 6;</code>
+     * @return The formatVersion.
+     */
+    int getFormatVersion();
+
+    /**
+     * <pre>
+     * 根节点id，格式版本1使用
+     * </pre>
+     *
+     * <code>fixed64 rootNodeId = 7;</code>
+     * @return The rootNodeId.
+     */
+    long getRootNodeId();
+
+    /**
+     * <pre>
+     * 要素是否独立存储在features列族中，为false时要素存储在叶子节点中
+     * </pre>
+     *
+     * <code>bool separateFeatures = 8;</code>
+     * @return The separateFeatures.
+     */
+    boolean getSeparateFeatures();
+
+    /**
+     * <pre>
+     * 已预留的实体id上限，要素独立存储时使用
+     * </pre>
+     *
+     * <code>int64 entryIdLimit = 9;</code>
+     * @return The entryIdLimit.
+     */
+    long getEntryIdLimit();
   }
   /**
    * <pre>
@@ -3170,20 +5349,50 @@ public final class RocksRtreePb {
             case 0:
               done = true;
               break;
-            case 10: {
-              String s = input.readStringRequireUtf8();
+            case 10: {
+              String s = input.readStringRequireUtf8();
+
+              rootId_ = s;
+              break;
+            }
+            case 16: {
+
+              mMin_ = input.readInt32();
+              break;
+            }
+            case 24: {
+
+              mMax_ = input.readInt32();
+              break;
+            }
+            case 32: {
+
+              leafIdLimit_ = input.readInt64();
+              break;
+            }
+            case 40: {
+
+              branchIdLimit_ = input.readInt64();
+              break;
+            }
+            case 48: {
+
+              formatVersion_ = input.readInt32();
+              break;
+            }
+            case 57: {
 
-              rootId_ = s;
+              rootNodeId_ = input.readFixed64();
               break;
             }
-            case 16: {
+            case 64: {
 
-              mMin_ = input.readInt32();
+              separateFeatures_ = input.readBool();
               break;
             }
-            case 24: {
+            case 72: {
 
-              mMax_ = input.readInt32();
+              entryIdLimit_ = input.readInt64();
               break;
             }
             default: {
@@ -3296,6 +5505,96 @@ public final class RocksRtreePb {
       return mMax_;
     }
 
+    public static final int LEAFIDLIMIT_FIELD_NUMBER = 4;
+    private long leafIdLimit_;
+    /**
+     * <pre>
+     * 已预留的叶子节点id上限，重新打开树后从此值之后继续分配
+     * </pre>
+     *
+     * <code>int64 leafIdLimit = 4;</code>
+     * @return The leafIdLimit.
+     */
+    @Override
+    public long getLeafIdLimit() {
+      return leafIdLimit_;
+    }
+
+    public static final int BRANCHIDLIMIT_FIELD_NUMBER = 5;
+    private long branchIdLimit_;
+    /**
+     * <pre>
+     * 已预留的非叶子节点id上限，重新打开树后从此值之后继续分配
+     * </pre>
+     *
+     * <code>int64 branchIdLimit = 5;</code>
+     * @return The branchIdLimit.
+     */
+    @Override
+    public long getBranchIdLimit() {
+      return branchIdLimit_;
+    }
+
+    public static final int FORMATVERSION_FIELD_NUMBER = 6;
+    private int formatVersion_;
+    /**
+     * <pre>
+     * 存储格式版本，0为节点id用字符串、Rect用RectNdPb的旧格式，1为节点id用long、Rect用小端序double数组的紧凑格式
+     * </pre>
+     *
+     * <code>int32 formatVersion = 6;</code>
+     * @return The formatVersion.
+     */
+    @Override
+    public int getFormatVersion() {
+      return formatVersion_;
+    }
+
+    public static final int ROOTNODEID_FIELD_NUMBER = 7;
+    private long rootNodeId_;
+    /**
+     * <pre>
+     * 根节点id，格式版本1使用
+     * </pre>
+     *
+     * <code>fixed64 rootNodeId = 7;</code>
+     * @return The rootNodeId.
+     */
+    @Override
+    public long getRootNodeId() {
+      return rootNodeId_;
+    }
+
+    public static final int SEPARATEFEATURES_FIELD_NUMBER = 8;
+    private boolean separateFeatures_;
+    /**
+     * <pre>
+     * 要素是否独立存储在features列族中，为false时要素存储在叶子节点中
+     * </pre>
+     *
+     * <code>bool separateFeatures = 8;</code>
+     * @return The separateFeatures.
+     */
+    @Override
+    public boolean getSeparateFeatures() {
+      return separateFeatures_;
+    }
+
+    public static final int ENTRYIDLIMIT_FIELD_NUMBER = 9;
+    private long entryIdLimit_;
+    /**
+     * <pre>
+     * 已预留的实体id上限，要素独立存储时使用
+     * </pre>
+     *
+     * <code>int64 entryIdLimit = 9;</code>
+     * @return The entryIdLimit.
+     */
+    @Override
+    public long getEntryIdLimit() {
+      return entryIdLimit_;
+    }
+
     private byte memoizedIsInitialized = -1;
     @Override
     public final boolean isInitialized() {
@@ -3319,6 +5618,24 @@ public final class RocksRtreePb {
       if (mMax_ != 0) {
         output.writeInt32(3, mMax_);
       }
+      if (leafIdLimit_ != 0L) {
+        output.writeInt64(4, leafIdLimit_);
+      }
+      if (branchIdLimit_ != 0L) {
+        output.writeInt64(5, branchIdLimit_);
+      }
+      if (formatVersion_ != 0) {
+        output.writeInt32(6, formatVersion_);
+      }
+      if (rootNodeId_ != 0L) {
+        output.writeFixed64(7, rootNodeId_);
+      }
+      if (separateFeatures_ != false) {
+        output.writeBool(8, separateFeatures_);
+      }
+      if (entryIdLimit_ != 0L) {
+        output.writeInt64(9, entryIdLimit_);
+      }
       unknownFields.writeTo(output);
     }
 
@@ -3339,6 +5656,30 @@ public final class RocksRtreePb {
         size += com.google.protobuf.CodedOutputStream
           .computeInt32Size(3, mMax_);
       }
+      if (leafIdLimit_ != 0L) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt64Size(4, leafIdLimit_);
+      }
+      if (branchIdLimit_ != 0L) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt64Size(5, branchIdLimit_);
+      }
+      if (formatVersion_ != 0) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(6, formatVersion_);
+      }
+      if (rootNodeId_ != 0L) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeFixed64Size(7, rootNodeId_);
+      }
+      if (separateFeatures_ != false) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBoolSize(8, separateFeatures_);
+      }
+      if (entryIdLimit_ != 0L) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt64Size(9, entryIdLimit_);
+      }
       size += unknownFields.getSerializedSize();
       memoizedSize = size;
       return size;
@@ -3360,6 +5701,18 @@ public final class RocksRtreePb {
           != other.getMMin()) return false;
       if (getMMax()
           != other.getMMax()) return false;
+      if (getLeafIdLimit()
+          != other.getLeafIdLimit()) return false;
+      if (getBranchIdLimit()
+          != other.getBranchIdLimit()) return false;
+      if (getFormatVersion()
+          != other.getFormatVersion()) return false;
+      if (getRootNodeId()
+          != other.getRootNodeId()) return false;
+      if (getSeparateFeatures()
+          != other.getSeparateFeatures()) return false;
+      if (getEntryIdLimit()
+          != other.getEntryIdLimit()) return false;
       if (!unknownFields.equals(other.unknownFields)) return false;
       return true;
     }
@@ -3377,6 +5730,23 @@ public final class RocksRtreePb {
       hash = (53 * hash) + getMMin();
       hash = (37 * hash) + MMAX_FIELD_NUMBER;
       hash = (53 * hash) + getMMax();
+      hash = (37 * hash) + LEAFIDLIMIT_FIELD_NUMBER;
+      hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+          getLeafIdLimit());
+      hash = (37 * hash) + BRANCHIDLIMIT_FIELD_NUMBER;
+      hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+          getBranchIdLimit());
+      hash = (37 * hash) + FORMATVERSION_FIELD_NUMBER;
+      hash = (53 * hash) + getFormatVersion();
+      hash = (37 * hash) + ROOTNODEID_FIELD_NUMBER;
+      hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+          getRootNodeId());
+      hash = (37 * hash) + SEPARATEFEATURES_FIELD_NUMBER;
+      hash = (53 * hash) + com.google.protobuf.Internal.hashBoolean(
+          getSeparateFeatures());
+      hash = (37 * hash) + ENTRYIDLIMIT_FIELD_NUMBER;
+      hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+          getEntryIdLimit());
       hash = (29 * hash) + unknownFields.hashCode();
       memoizedHashCode = hash;
       return hash;
@@ -3520,6 +5890,18 @@ public final class RocksRtreePb {
 
         mMax_ = 0;
 
+        leafIdLimit_ = 0L;
+
+        branchIdLimit_ = 0L;
+
+        formatVersion_ = 0;
+
+        rootNodeId_ = 0L;
+
+        separateFeatures_ = false;
+
+        entryIdLimit_ = 0L;
+
         return this;
       }
 
@@ -3549,6 +5931,12 @@ public final class RocksRtreePb {
         result.rootId_ = rootId_;
         result.mMin_ = mMin_;
         result.mMax_ = mMax_;
+        result.leafIdLimit_ = leafIdLimit_;
+        result.branchIdLimit_ = branchIdLimit_;
+        result.formatVersion_ = formatVersion_;
+        result.rootNodeId_ = rootNodeId_;
+        result.separateFeatures_ = separateFeatures_;
+        result.entryIdLimit_ = entryIdLimit_;
         onBuilt();
         return result;
       }
@@ -3607,6 +5995,24 @@ public final class RocksRtreePb {
         if (other.getMMax() != 0) {
           setMMax(other.getMMax());
         }
+        if (other.getLeafIdLimit() != 0L) {
+          setLeafIdLimit(other.getLeafIdLimit());
+        }
+        if (other.getBranchIdLimit() != 0L) {
+          setBranchIdLimit(other.getBranchIdLimit());
+        }
+        if (other.getFormatVersion() != 0) {
+          setFormatVersion(other.getFormatVersion());
+        }
+        if (other.getRootNodeId() != 0L) {
+          setRootNodeId(other.getRootNodeId());
+        }
+        if (other.getSeparateFeatures() != false) {
+          setSeparateFeatures(other.getSeparateFeatures());
+        }
+        if (other.getEntryIdLimit() != 0L) {
+          setEntryIdLimit(other.getEntryIdLimit());
+        }
         this.mergeUnknownFields(other.unknownFields);
         onChanged();
         return this;
@@ -3817,6 +6223,264 @@ public final class RocksRtreePb {
         onChanged();
         return this;
       }
+
+      private long leafIdLimit_ ;
+      /**
+       * <pre>
+       * 已预留的叶子节点id上限，重新打开树后从此值之后继续分配
+       * </pre>
+       *
+       * <code>int64 leafIdLimit = 4;</code>
+       * @return The leafIdLimit.
+       */
+      @Override
+      public long getLeafIdLimit() {
+        return leafIdLimit_;
+      }
+      /**
+       * <pre>
+       * 已预留的叶子节点id上限，重新打开树后从此值之后继续分配
+       * </pre>
+       *
+       * <code>int64 leafIdLimit = 4;</code>
+       * @param value The leafIdLimit to set.
+       * @return This builder for chaining.
+       */
+      public Builder setLeafIdLimit(long value) {
+
+        leafIdLimit_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 已预留的叶子节点id上限，重新打开树后从此值之后继续分配
+       * </pre>
+       *
+       * <code>int64 leafIdLimit = 4;</code>
+       * @return This builder for chaining.
+       */
+      public Builder clearLeafIdLimit() {
+
+        leafIdLimit_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      private long branchIdLimit_ ;
+      /**
+       * <pre>
+       * 已预留的非叶子节点id上限，重新打开树后从此值之后继续分配
+       * </pre>
+       *
+       * <code>int64 branchIdLimit = 5;</code>
+       * @return The branchIdLimit.
+       */
+      @Override
+      public long getBranchIdLimit() {
+        return branchIdLimit_;
+      }
+      /**
+       * <pre>
+       * 已预留的非叶子节点id上限，重新打开树后从此值之后继续分配
+       * </pre>
+       *
+       * <code>int64 branchIdLimit = 5;</code>
+       * @param value The branchIdLimit to set.
+       * @return This builder for chaining.
+       */
+      public Builder setBranchIdLimit(long value) {
+
+        branchIdLimit_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 已预留的非叶子节点id上限，重新打开树后从此值之后继续分配
+       * </pre>
+       *
+       * <code>int64 branchIdLimit = 5;</code>
+       * @return This builder for chaining.
+       */
+      public Builder clearBranchIdLimit() {
+
+        branchIdLimit_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      private int formatVersion_ ;
+      /**
+       * <pre>
+       * 存储格式版本，0为节点id用字符串、Rect用RectNdPb的旧格式，1为节点id用long、Rect用小端序double数组的紧凑格式
+       * </pre>
+       *
+       * <code>int32 formatVersion = 6;</code>
+       * @return The formatVersion.
+       */
+      @Override
+      public int getFormatVersion() {
+        return formatVersion_;
+      }
+      /**
+       * <pre>
+       * 存储格式版本，0为节点id用字符串、Rect用RectNdPb的旧格式，1为节点id用long、Rect用小端序double数组的紧凑格式
+       * </pre>
+       *
+       * <code>int32 formatVersion = 6;</code>
+       * @param value The formatVersion to set.
+       * @return This builder for chaining.
+       */
+      public Builder setFormatVersion(int value) {
+
+        formatVersion_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 存储格式版本，0为节点id用字符串、Rect用RectNdPb的旧格式，1为节点id用long、Rect用小端序double数组的紧凑格式
+       * </pre>
+       *
+       * <code>int32 formatVersion = 6;</code>
+       * @return This builder for chaining.
+       */
+      public Builder clearFormatVersion() {
+
+        formatVersion_ = 0;
+        onChanged();
+        return this;
+      }
+
+      private long rootNodeId_ ;
+      /**
+       * <pre>
+       * 根节点id，格式版本1使用
+       * </pre>
+       *
+       * <code>fixed64 rootNodeId = 7;</code>
+       * @return The rootNodeId.
+       */
+      @Override
+      public long getRootNodeId() {
+        return rootNodeId_;
+      }
+      /**
+       * <pre>
+       * 根节点id，格式版本1使用
+       * </pre>
+       *
+       * <code>fixed64 rootNodeId = 7;</code>
+       * @param value The rootNodeId to set.
+       * @return This builder for chaining.
+       */
+      public Builder setRootNodeId(long value) {
+
+        rootNodeId_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 根节点id，格式版本1使用
+       * </pre>
+       *
+       * <code>fixed64 rootNodeId = 7;</code>
+       * @return This builder for chaining.
+       */
+      public Builder clearRootNodeId() {
+
+        rootNodeId_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      private boolean separateFeatures_ ;
+      /**
+       * <pre>
+       * 要素是否独立存储在features列族中，为false时要素存储在叶子节点中
+       * </pre>
+       *
+       * <code>bool separateFeatures = 8;</code>
+       * @return The separateFeatures.
+       */
+      @Override
+      public boolean getSeparateFeatures() {
+        return separateFeatures_;
+      }
+      /**
+       * <pre>
+       * 要素是否独立存储在features列族中，为false时要素存储在叶子节点中
+       * </pre>
+       *
+       * <code>bool separateFeatures = 8;</code>
+       * @param value The separateFeatures to set.
+       * @return This builder for chaining.
+       */
+      public Builder setSeparateFeatures(boolean value) {
+
+        separateFeatures_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 要素是否独立存储在features列族中，为false时要素存储在叶子节点中
+       * </pre>
+       *
+       * <code>bool separateFeatures = 8;</code>
+       * @return This builder for chaining.
+       */
+      public Builder clearSeparateFeatures() {
+
+        separateFeatures_ = false;
+        onChanged();
+        return this;
+      }
+
+      private long entryIdLimit_ ;
+      /**
+       * <pre>
+       * 已预留的实体id上限，要素独立存储时使用
+       * </pre>
+       *
+       * <code>int64 entryIdLimit = 9;</code>
+       * @return The entryIdLimit.
+       */
+      @Override
+      public long getEntryIdLimit() {
+        return entryIdLimit_;
+      }
+      /**
+       * <pre>
+       * 已预留的实体id上限，要素独立存储时使用
+       * </pre>
+       *
+       * <code>int64 entryIdLimit = 9;</code>
+       * @param value The entryIdLimit to set.
+       * @return This builder for chaining.
+       */
+      public Builder setEntryIdLimit(long value) {
+
+        entryIdLimit_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * 已预留的实体id上限，要素独立存储时使用
+       * </pre>
+       *
+       * <code>int64 entryIdLimit = 9;</code>
+       * @return This builder for chaining.
+       */
+      public Builder clearEntryIdLimit() {
+
+        entryIdLimit_ = 0L;
+        onChanged();
+        return this;
+      }
       @Override
       public final Builder setUnknownFields(
           final com.google.protobuf.UnknownFieldSet unknownFields) {
@@ -3900,14 +6564,23 @@ public final class RocksRtreePb {
   static {
     String[] descriptorData = {
       "\n\033definition/RocksRtree.proto\022\004pojo\"$\n\010R" +
-      "ectNdPb\022\013\n\003min\030\001 \003(\001\022\013\n\003max\030\002 \003(\001\"9\n\010Bra" +
-      "nchPb\022\033\n\003mbr\030\001 \001(\0132\016.pojo.RectNdPb\022\020\n\010ch" +
-      "ildIds\030\002 \003(\t\"Z\n\006LeafPb\022\033\n\003mbr\030\001 \001(\0132\016.po" +
-      "jo.RectNdPb\022\"\n\nentryRects\030\002 \003(\0132\016.pojo.R" +
-      "ectNdPb\022\017\n\007entries\030\003 \001(\014\"5\n\007RTreePb\022\016\n\006r" +
-      "ootId\030\001 \001(\t\022\014\n\004mMin\030\002 \001(\005\022\014\n\004mMax\030\003 \001(\005B" +
-      "5\n%org.wowtools.giscat.vector.rocksrtree" +
-      "B\014RocksRtreePbb\006proto3"
+      "ectNdPb\022\013\n\003min\030\001 \003(\001\022\013\n\003max\030\002 \003(\001\"\270\001\n\010Br" +
+      "anchPb\022\033\n\003mbr\030\001 \001(\0132\016.pojo.RectNdPb\022\020\n\010c" +
+      "hildIds\030\002 \003(\t\022\024\n\014childNodeIds\030\003 \003(\006\022\021\n\tp" +
+      "ackedMbr\030\004 \001(\014\022\027\n\017packedChildMbrs\030\005 \001(\014\022" +
+      "!\n\tchildMbrs\030\006 \003(\0132\016.pojo.RectNdPb\022\030\n\020ch" +
+      "ildEntryCounts\030\007 \003(\005\"\303\001\n\006LeafPb\022\033\n\003mbr\030\001" +
+      " \001(\0132\016.pojo.RectNdPb\022\"\n\nentryRects\030\002 \003(\013" +
+      "2\016.pojo.RectNdPb\022\017\n\007entries\030\003 \001(\014\022\021\n\tpac" +
+      "kedMbr\030\004 \001(\014\022\030\n\020packedEntryRects\030\005 \001(\014\022\025" +
+      "\n\rentryFeatures\030\006 \003(\014\022\020\n\010entryIds\030\007 \003(\006\022\021\n\tentryKeys\030\010 \003(\t\"" +
+      "\274\001\n\007RTreePb\022\016\n\006rootId\030\001 \001(\t\022\014\n\004mMin\030\002 \001(" +
+      "\005\022\014\n\004mMax\030\003 \001(\005\022\023\n\013leafIdLimit\030\004 \001(\003\022\025\n\r" +
+      "branchIdLimit\030\005 \001(\003\022\025\n\rformatVersion\030\006 \001" +
+      "(\005\022\022\n\nrootNodeId\030\007 \001(\006\022\030\n\020separateFeatur" +
+      "es\030\010 \001(\010\022\024\n\014entryIdLimit\030\t \001(\003B5\n%org.wo" +
+      "wtools.giscat.vector.rocksrtreeB\014RocksRt" +
+      "reePbb\006proto3"
     };
     descriptor = com.google.protobuf.Descriptors.FileDescriptor
       .internalBuildGeneratedFileFrom(descriptorData,
@@ -3924,19 +6597,19 @@ public final class RocksRtreePb {
     internal_static_pojo_BranchPb_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_pojo_BranchPb_descriptor,
-        new String[] { "Mbr", "ChildIds", });
+        new String[] { "Mbr", "ChildIds", "ChildNodeIds", "PackedMbr", "PackedChildMbrs", "ChildMbrs", "ChildEntryCounts", });
     internal_static_pojo_LeafPb_descriptor =
       getDescriptor().getMessageTypes().get(2);
     internal_static_pojo_LeafPb_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_pojo_LeafPb_descriptor,
-        new String[] { "Mbr", "EntryRects", "Entries", });
+        new String[] { "Mbr", "EntryRects", "Entries", "PackedMbr", "PackedEntryRects", "EntryFeatures", "EntryIds", "EntryKeys", });
     internal_static_pojo_RTreePb_descriptor =
       getDescriptor().getMessageTypes().get(3);
     internal_static_pojo_RTreePb_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_pojo_RTreePb_descriptor,
-        new String[] { "RootId", "MMin", "MMax", });
+        new String[] { "RootId", "MMin", "MMax", "LeafIdLimit", "BranchIdLimit", "FormatVersion", "RootNodeId", "SeparateFeatures", "EntryIdLimit", });
   }
 
   // @@protoc_insertion_point(outer_class_scope)
@@ -0,0 +1,120 @@
+/*
+ *
+ *  * Copyright (c) 2022- "giscat (https://github.com/codingmiao/giscat)"
+ *  *
+ *  * 本项目采用自定义版权协议，在不同行业使用时有不同约束，详情参阅：
+ *  *
+ *  * https://github.com/codingmiao/giscat/blob/main/LICENSE
+ *
+ */
+
+package org.wowtools.giscat.vector.rocksrtree;
+
+import org.jetbrains.annotations.NotNull;
+import org.locationtech.jts.geom.Geometry;
+import org.wowtools.giscat.vector.pojo.Feature;
+import org.wowtools.giscat.vector.util.analyse.Bbox;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 时空索引工具，三维矩形的前两个维度为geometry的外接矩形，第三个维度为时间(毫秒时间戳)。
+ * 用法示例:
+ * <pre>
+ *  TreeBuilder.TreeBuilderConfig config = new TreeBuilder.TreeBuilderConfig();
+ *  config.featureRectNdFunction = SpaceTime.rectFunction("time");
+ *  // 1度与1小时相当
+ *  config.dimensionScales = SpaceTime.dimensionScales(1, 3600_000);
+ *  ...
+ *  rTree.intersects(SpaceTime.rect(xmin, ymin, xmax, ymax, t1, t2), consumer, tx);
+ * </pre>
+ *
+ * @author liuyu
+ * @date 2023/4/20
+ */
+public final class SpaceTime {
+
+    private SpaceTime() {
+    }
+
+    /**
+     * 构造取时空矩形的featureRectNdFunction，时间为时刻
+     *
+     * @param timeProperty 时间属性名，属性值为毫秒时间戳(Number)或Date
+     * @return featureRectNdFunction
+     */
+    public static Function<Feature, RectNd> rectFunction(@NotNull String timeProperty) {
+        return rectFunction(timeProperty, timeProperty);
+    }
+
+    /**
+     * 构造取时空矩形的featureRectNdFunction，时间为时段
+     *
+     * @param startTimeProperty 开始时间属性名，属性值为毫秒时间戳(Number)或Date
+     * @param endTimeProperty   结束时间属性名，属性值为毫秒时间戳(Number)或Date
+     * @return featureRectNdFunction
+     */
+    public static Function<Feature, RectNd> rectFunction(@NotNull String startTimeProperty, @NotNull String endTimeProperty) {
+        return (feature) -> {
+            Bbox bbox = new Bbox(feature.getGeometry());
+            Map<String, Object> properties = feature.getProperties();
+            if (null == properties) {
+                throw new RuntimeException("要素没有时间属性 " + startTimeProperty);
+            }
+            double startTime = toTime(properties.get(startTimeProperty), startTimeProperty);
+            double endTime = startTimeProperty.equals(endTimeProperty) ? startTime : toTime(properties.get(endTimeProperty), endTimeProperty);
+            return new RectNd(new double[]{bbox.xmin, bbox.ymin, startTime}, new double[]{bbox.xmax, bbox.ymax, endTime});
+        };
+    }
+
+    private static double toTime(Object value, String property) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        }
+        throw new RuntimeException("时间属性" + property + "的值不是毫秒时间戳或Date: " + value);
+    }
+
+    /**
+     * 构造时空查询范围
+     *
+     * @param xmin      xmin
+     * @param ymin      ymin
+     * @param xmax      xmax
+     * @param ymax      ymax
+     * @param startTime 开始时间，毫秒时间戳
+     * @param endTime   结束时间，毫秒时间戳
+     * @return 查询范围
+     */
+    public static RectNd rect(double xmin, double ymin, double xmax, double ymax, long startTime, long endTime) {
+        return new RectNd(new double[]{xmin, ymin, startTime}, new double[]{xmax, ymax, endTime});
+    }
+
+    /**
+     * 以geometry的外接矩形构造时空查询范围
+     *
+     * @param geometry  geometry
+     * @param startTime 开始时间，毫秒时间戳
+     * @param endTime   结束时间，毫秒时间戳
+     * @return 查询范围
+     */
+    public static RectNd rect(@NotNull Geometry geometry, long startTime, long endTime) {
+        Bbox bbox = new Bbox(geometry);
+        return rect(bbox.xmin, bbox.ymin, bbox.xmax, bbox.ymax, startTime, endTime);
+    }
+
+    /**
+     * 构造时空索引各维度的单位尺度，用于TreeBuilderConfig.dimensionScales
+     *
+     * @param spaceScale 空间的单位尺度，与geometry坐标单位一致
+     * @param timeScale  与spaceScale相当的时长，毫秒
+     * @return dimensionScales
+     */
+    public static double[] dimensionScales(double spaceScale, double timeScale) {
+        return new double[]{spaceScale, spaceScale, timeScale};
+    }
+}
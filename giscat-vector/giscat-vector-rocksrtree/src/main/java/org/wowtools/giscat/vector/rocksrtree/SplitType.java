@@ -0,0 +1,29 @@
+/*
+ *
+ *  * Copyright (c) 2022- "giscat (https://github.com/codingmiao/giscat)"
+ *  *
+ *  * 本项目采用自定义版权协议，在不同行业使用时有不同约束，详情参阅：
+ *  *
+ *  * https://github.com/codingmiao/giscat/blob/main/LICENSE
+ *
+ */
+
+package org.wowtools.giscat.vector.rocksrtree;
+
+/**
+ * 逐条插入数据时的插入策略
+ *
+ * @author liuyu
+ * @date 2023/4/17
+ */
+public enum SplitType {
+    /**
+     * 叶子节点溢出时沿跨度最大的轴按中心点排序后对半分裂，插入快
+     */
+    AXIAL,
+    /**
+     * R*树策略：选择子节点时优先考虑重叠的增量；叶子节点第一次溢出时取出离中心最远的一部分数据重新插入，
+     * 再次溢出时按边长之和选择分裂轴、按重叠和面积选择分裂位置。插入稍慢，节点之间的重叠更少，查询时访问的节点更少
+     */
+    RSTAR
+}
@@ -48,6 +48,16 @@ public class Stats {
     private int[] branchesAtDepth = new int[1000];
     private int[] leavesAtDepth = new int[1000];
 
+    /**
+     * 各非叶子节点的子节点数之和
+     */
+    private long branchChildCount = 0;
+
+    /**
+     * 各非叶子节点重叠率之和
+     */
+    private double overlapRatioSum = 0;
+
     public void print(PrintStream out) {
         out.println("m=" + minFill + " M=" + maxFill);
         out.println("   Branches (" + branchCount + " total)");
@@ -67,6 +77,8 @@ public class Stats {
         }
         out.printf("\n   Leaf Fill Percentage: %.2f%%\n", getLeafFillPercentage());
         out.printf("   Entries per Leaf: %.2f\n", getEntriesPerLeaf());
+        out.printf("   Branch Fill Percentage: %.2f%%\n", getBranchFillPercentage());
+        out.printf("   Overlap Ratio: %.4f\n", getOverlapRatio());
         out.println("   Max Depth: " + maxDepth);
         out.println();
     }
@@ -80,6 +92,23 @@ public class Stats {
     }
 
 
+    /**
+     * @return 非叶子节点的平均填充率(百分比)
+     */
+    public float getBranchFillPercentage() {
+        return branchCount == 0 ? 0 : (branchChildCount * 100.0f) / ((long) branchCount * maxFill);
+    }
+
+    /**
+     * 非叶子节点的平均重叠率。一个节点的重叠率为其子节点外接矩形两两重叠部分的面积之和与该节点外接矩形面积的比值，
+     * 越小说明查询时需要同时进入的子节点越少。各维度同比例缩放时比值不变，因此不同量纲的维度不需要归一化
+     *
+     * @return 平均重叠率，没有非叶子节点时为0
+     */
+    public double getOverlapRatio() {
+        return branchCount == 0 ? 0 : overlapRatioSum / branchCount;
+    }
+
     public void setMaxFill(int maxFill) {
         this.maxFill = maxFill;
     }
@@ -122,4 +151,18 @@ public class Stats {
         branchCount++;
         branchesAtDepth[depth]++;
     }
+
+    /**
+     * 统计一个非叶子节点的子节点
+     *
+     * @param childNum 子节点数
+     * @param overlap  子节点外接矩形两两重叠部分的面积之和
+     * @param area     节点外接矩形的面积，为0时重叠率按0计
+     */
+    public void countBranchChildren(int childNum, double overlap, double area) {
+        branchChildCount += childNum;
+        if (area > 0) {
+            overlapRatioSum += overlap / area;
+        }
+    }
 }
@@ -0,0 +1,128 @@
+/*
+ *
+ *  * Copyright (c) 2022- "giscat (https://github.com/codingmiao/giscat)"
+ *  *
+ *  * 本项目采用自定义版权协议，在不同行业使用时有不同约束，详情参阅：
+ *  *
+ *  * https://github.com/codingmiao/giscat/blob/main/LICENSE
+ *
+ */
+
+package org.wowtools.giscat.vector.rocksrtree;
+
+import org.jetbrains.annotations.NotNull;
+import org.rocksdb.Snapshot;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 跨RTreeStore中多棵树的事务，通过RTreeStore.newTx()或newReadOnlyTx()获得。
+ * 读写事务中各棵树的修改写入同一个WriteBatch，commit时按树名顺序获取各棵树的写锁后一次写入，对其它事务同时可见；
+ * 各棵树的读写事务在首次getTx时开始并持有该树的读锁，其中任一棵树在此之后被其它事务修改时commit抛出TransactionConflictException，所有树都不写入。
+ * 只读事务中各棵树读取同一个快照
+ *
+ * @author liuyu
+ * @date 2023/4/24
+ */
+public class StoreTransaction implements AutoCloseable {
+
+    private final RTreeStore store;
+
+    private final boolean readOnly;
+
+    private final WriteBatch batch;
+
+    private final WriteOptions writeOpt;
+
+    private final Snapshot snapshot;
+
+    /**
+     * 各棵树的事务，key为树名
+     */
+    private final Map<String, TreeTransaction> txs = new LinkedHashMap<>();
+
+    private boolean commited = false;
+
+    protected StoreTransaction(RTreeStore store, boolean readOnly) {
+        this.store = store;
+        this.readOnly = readOnly;
+        if (readOnly) {
+            snapshot = store.getDb().getSnapshot();
+            batch = null;
+            writeOpt = null;
+        } else {
+            snapshot = null;
+            batch = new WriteBatch();
+            writeOpt = new WriteOptions().setDisableWAL(store.isLoadMode());
+        }
+    }
+
+    /**
+     * 获取一棵树在本事务中的事务，用于RTree的各种操作。树需要已通过RTreeStore.openTree打开
+     *
+     * @param treeName 树名
+     * @return 树的事务，不要单独commit或close，随本事务一起提交和关闭
+     */
+    public synchronized TreeTransaction getTx(@NotNull String treeName) {
+        TreeTransaction tx = txs.get(treeName);
+        if (null == tx) {
+            if (commited) {
+                throw new RuntimeException("事务已经提交过一次了");
+            }
+            TreeBuilder tree = store.getTree(treeName);
+            if (null == tree) {
+                throw new RuntimeException("树未打开 " + treeName);
+            }
+            tx = readOnly ? tree.newReadOnlyTx(snapshot) : tree.newTx(batch);
+            txs.put(treeName, tx);
+        }
+        return tx;
+    }
+
+    /**
+     * @return 是否为只读事务
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * 提交各棵树的修改
+     */
+    public synchronized void commit() {
+        if (commited) {
+            throw new RuntimeException("事务已经提交过一次了");
+        }
+        commited = true;
+        if (readOnly) {
+            return;
+        }
+        store.commit(writeOpt, batch, txs.values());
+    }
+
+    /**
+     * 回滚各棵树的修改
+     */
+    public synchronized void rollback() {
+        for (TreeTransaction tx : txs.values()) {
+            tx.rollback();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        for (TreeTransaction tx : txs.values()) {
+            tx.close();
+        }
+        txs.clear();
+        if (readOnly) {
+            store.getDb().releaseSnapshot(snapshot);
+        } else {
+            batch.close();
+            writeOpt.close();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ *
+ *  * Copyright (c) 2022- "giscat (https://github.com/codingmiao/giscat)"
+ *  *
+ *  * 本项目采用自定义版权协议，在不同行业使用时有不同约束，详情参阅：
+ *  *
+ *  * https://github.com/codingmiao/giscat/blob/main/LICENSE
+ *
+ */
+
+package org.wowtools.giscat.vector.rocksrtree;
+
+/**
+ * 读写事务提交冲突：事务开始后同一棵树上有其它读写事务先提交了修改，本事务基于的节点已过期，提交会覆盖对方的修改。
+ * 抛出时本事务的修改没有写入，关闭事务后在新的事务中重做即可
+ *
+ * @author liuyu
+ * @date 2023/4/25
+ */
+public class TransactionConflictException extends RuntimeException {
+
+    public TransactionConflictException(String message) {
+        super(message);
+    }
+}
@@ -41,10 +41,10 @@ import org.wowtools.giscat.vector.pojo.FeatureCollection;
 import org.wowtools.giscat.vector.util.analyse.Bbox;
 
 import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.concurrent.locks.ReadWriteLock;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
 
@@ -56,58 +56,113 @@ import static org.wowtools.giscat.vector.rocksrtree.RTree.TreeDbKey;
 @Slf4j
 public class TreeBuilder implements Closeable {
 
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * 节点id按块预留，每用完一块才需要把新的上限随树信息一起持久化
+     */
+    private static final long idBlockSize = 1024;
+
     private long leafIdIndex = 0;
+    private long leafIdLimit = 0;
+    private long savedLeafIdLimit = 0;
 
     private long branchIdIndex = 0;
+    private long branchIdLimit = 0;
+    private long savedBranchIdLimit = 0;
+
+    private long entryIdIndex = 0;
+    private long entryIdLimit = 0;
+    private long savedEntryIdLimit = 0;
 
     protected final int mMin;
     protected final int mMax;
 
+    protected final SplitType splitType;
+
+    /**
+     * 各维度的单位尺度，为空时各维度同等对待
+     */
+    private final @Nullable double[] dimensionScales;
+
+    /**
+     * 新建的树使用的存储格式版本
+     */
+    protected static final int currentFormatVersion = 1;
+
+    /**
+     * 存储格式版本，已有的树沿用其创建时的版本，见RTreePb.formatVersion
+     */
+    protected final int formatVersion;
+
     private final int cache1Size;
+
+    /**
+     * 树所在的RTreeStore，独立使用时为TreeBuilder自己持有的RTreeStore
+     */
+    private final RTreeStore store;
+
+    /**
+     * 树名，独立使用时为null
+     */
+    private final @Nullable String name;
+
     private final RocksDB db;
 
+    /**
+     * 存储树节点、featureKey索引和树信息的列族
+     */
+    private final ColumnFamilyHandle nodeColumnFamily;
+
+    /**
+     * 独立存储要素的列族，要素存储在叶子节点中时为null
+     */
+    private final @Nullable ColumnFamilyHandle featureColumnFamily;
+
+    /**
+     * 要素是否独立存储在features列族中，已有的树沿用其创建时的设置，见RTreePb.separateFeatures
+     */
+    protected final boolean separateFeatures;
+
     private final RTree rTree;
 
-    protected String rootId;
+    protected long rootId = NodeId.none;
+
+    /**
+     * 本树提交修改的次数，只在写锁内修改。读写事务开始时记录，提交时比较以发现并发的读写事务之间的冲突
+     */
+    protected long commitVersion;
 
     private final Function<Feature, RectNd> featureRectNdFunction;
 
-    private final Map<String, ProtoAble> protoAbleCaches2;
+    private final @Nullable Function<Feature, String> featureKeyFunction;
 
-    private static Options buildDefaultRocksDbOptions() {
-        Options options = new Options();
-        final Filter bloomFilter = new BloomFilter(10);
-        final Statistics stats = new Statistics();
-        final RateLimiter rateLimiter = new RateLimiter(10000000, 10000, 10);
+    /**
+     * featureKey索引在rocksdb中的key前缀
+     */
+    private static final String featureIndexKeyPrefix = "K";
 
-        options.setCreateIfMissing(true)
-                .setStatistics(stats)
-                .setWriteBufferSize(8 * SizeUnit.KB)
-                .setMaxWriteBufferNumber(3)
-                .setMaxBackgroundJobs(10)
-                .setCompressionType(CompressionType.SNAPPY_COMPRESSION)
-                .setCompactionStyle(CompactionStyle.UNIVERSAL);
+    private final NodeCache protoAbleCaches2;
 
-        final BlockBasedTableConfig table_options = new BlockBasedTableConfig();
-        Cache cache = new LRUCache(512, 6);
-        table_options.setBlockCache(cache)
-                .setFilterPolicy(bloomFilter)
-                .setBlockSizeDeviation(5)
-                .setBlockRestartInterval(10)
-                .setCacheIndexAndFilterBlocks(true)
-                .setBlockCacheCompressed(new LRUCache(512, 10));
-        options.setTableFormatConfig(table_options);
-        options.setRateLimiter(rateLimiter);
-        return options;
-    }
+    private final @Nullable MetricsListener metricsListener;
 
+    /**
+     * 读写事务持有读锁，提交时持有写锁。每棵树一个锁，一棵树上未提交的读写事务不影响其它树的提交
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
     public static final class TreeBuilderConfig {
         /**
-         * rocksdb配置参数
+         * rocksdb配置参数，为空时使用rocksDbProfile对应的内置配置。
+         * 本参数及rocksDbProfile、blockCacheSize、nodeColumnFamilyOptions、featureColumnFamilyOptions只对独立使用的TreeBuilder生效，
+         * 通过RTreeStore.openTree打开的树使用RTreeStoreConfig中的配置
          */
         public @Nullable Options options;
+
+        /**
+         * 内置的rocksdb配置方案，按读写负载选择，对options、nodeColumnFamilyOptions、featureColumnFamilyOptions中为空的部分生效
+         *
+         * @see RocksDbProfile
+         */
+        public RocksDbProfile rocksDbProfile = RocksDbProfile.MIXED;
         /**
          * 每个非叶子节点最少有几个子节点
          */
@@ -118,10 +173,42 @@ public class TreeBuilder implements Closeable {
         public int mMax = 64;
 
         /**
-         * 缓存的节点数，数值越大从磁盘读数据的概率越小，但越吃内存
+         * 逐条插入数据时的插入策略，只影响之后插入的数据，不需要与建树时一致
+         *
+         * @see SplitType
+         */
+        public SplitType splitType = SplitType.AXIAL;
+
+        /**
+         * 各维度的单位尺度，分裂节点选择分裂轴、比较边长之和时，各维度的跨度先除以此值再比较，
+         * 使量纲不同的维度(如经纬度和毫秒时间戳)可以相互比较，否则数值范围大的维度会主导分裂。
+         * 例如用经纬度和毫秒时间戳建立时空索引，希望1度与1小时相当时:
+         * <pre>
+         *  new double[]{1, 1, 3600_000}
+         * </pre>
+         * 为空时各维度同等对待；数组长度小于维度数时，多出的维度尺度为1。只影响之后插入的数据，不需要与建树时一致
+         *
+         * @see SpaceTime
+         */
+        public @Nullable double[] dimensionScales;
+
+        /**
+         * 缓存的节点数上限，与cacheByteSize同时生效，数值越大从磁盘读数据的概率越小，但越吃内存
          */
         public int cacheSize = 100000;
 
+        /**
+         * 节点缓存最多占用的堆内存字节数，按节点解析后的对象估算，与cacheSize同时生效，先达到的上限触发淘汰。
+         * 节点大小差异大(如叶子节点中存储了较大的geometry)时，按字节数限制比按节点数更容易控制内存。0表示不按字节数限制
+         */
+        public long cacheByteSize = 128 * SizeUnit.MB;
+
+        /**
+         * 内置的rocksdb配置使用的块缓存(堆外内存)字节数，节点和要素的数据块、索引和过滤器块共用这一个缓存。
+         * 只对内置配置生效，自行设置了options、nodeColumnFamilyOptions或featureColumnFamilyOptions时，相应部分使用其中配置的块缓存
+         */
+        public long blockCacheSize = 256 * SizeUnit.MB;
+
         /**
          * 如何取得feature的外接矩形，可以从geometry或属性入手进行构建，例如，默认值是取二维矩形范围:
          * <pre>
@@ -132,6 +219,42 @@ public class TreeBuilder implements Closeable {
          * </pre>
          */
         public @Nullable Function<Feature, RectNd> featureRectNdFunction;
+
+        /**
+         * 如何取得feature的唯一标识(featureKey)，配置后会在rocksdb中维护featureKey到叶子节点的索引，从而支持按featureKey删除和修改。
+         * 例如取属性中的id:
+         * <pre>
+         *  (feature) -&gt; String.valueOf(feature.getProperties().get("id"))
+         * </pre>
+         * 为空时不维护索引，也不能删除和修改。对已有数据的树开启时，已有数据不在索引中，需要重新装载
+         */
+        public @Nullable Function<Feature, String> featureKeyFunction;
+
+        /**
+         * 是否把要素独立存储在features列族中。开启后树节点和要素分属两个列族，各自使用独立的块缓存、压缩和布隆过滤器配置，
+         * 遍历树时只读取体积小的节点，要素在命中后才批量读取，适合geometry较大的数据。
+         * 只对新建的树生效，已有的树沿用其创建时的设置
+         */
+        public boolean separateFeatures = false;
+
+        /**
+         * 存储树节点的列族(default列族)的配置参数，为空时，若要素独立存储则使用内置的配置，否则使用options中的配置
+         */
+        public @Nullable ColumnFamilyOptions nodeColumnFamilyOptions;
+
+        /**
+         * 存储要素的features列族的配置参数，为空时使用内置的配置
+         */
+        public @Nullable ColumnFamilyOptions featureColumnFamilyOptions;
+
+        /**
+         * 运行指标监听器，接收查询访问的节点数和耗时、两级缓存命中、rocksdb读取耗时和字节数、提交的批大小和耗时等实时指标，
+         * 可使用内置的MetricsRecorder汇总。为空时不采集指标
+         *
+         * @see MetricsListener
+         * @see MetricsRecorder
+         */
+        public @Nullable MetricsListener metricsListener;
     }
 
 
@@ -143,24 +266,66 @@ public class TreeBuilder implements Closeable {
      * @see TreeBuilderConfig
      */
     public TreeBuilder(@NotNull String dir, @Nullable TreeBuilderConfig config) {
+        this(openStore(dir, config), null, config);
+    }
+
+    /**
+     * 打开独立使用的TreeBuilder持有的RTreeStore，树存储在default列族中，磁盘上的结构与单独一棵树时一致
+     */
+    private static RTreeStore openStore(String dir, @Nullable TreeBuilderConfig config) {
         if (null == config) {
             config = new TreeBuilderConfig();
         }
-        Options options = config.options;
-        if (null == options) {
-            options = buildDefaultRocksDbOptions();
+        checkConfig(config);
+        RTreeStore.RTreeStoreConfig storeConfig = new RTreeStore.RTreeStoreConfig();
+        storeConfig.options = config.options;
+        storeConfig.rocksDbProfile = config.rocksDbProfile;
+        storeConfig.blockCacheSize = config.blockCacheSize;
+        storeConfig.writeBufferBudget = 0;
+        storeConfig.nodeColumnFamilyOptions = config.nodeColumnFamilyOptions;
+        storeConfig.featureColumnFamilyOptions = config.featureColumnFamilyOptions;
+        return new RTreeStore(dir, storeConfig, config.separateFeatures);
+    }
+
+    private static void checkConfig(TreeBuilderConfig config) {
+        if (null != config.dimensionScales) {
+            for (double scale : config.dimensionScales) {
+                if (!(scale > 0)) {
+                    throw new RuntimeException("dimensionScales必须大于0 " + Arrays.toString(config.dimensionScales));
+                }
+            }
         }
-        try {
-            db = RocksDB.open(options, dir);
-        } catch (RocksDBException e) {
-            throw new RuntimeException(e);
+        if (config.cacheByteSize < 0) {
+            throw new RuntimeException("cacheByteSize不能小于0");
         }
+    }
+
+    /**
+     * 在RTreeStore中打开一棵树，见RTreeStore.openTree
+     *
+     * @param store  RTreeStore
+     * @param name   树名，为null时为独立使用的TreeBuilder，树存储在default列族中，关闭时一并关闭store
+     * @param config rtree的配置信息
+     */
+    TreeBuilder(@NotNull RTreeStore store, @Nullable String name, @Nullable TreeBuilderConfig config) {
+        if (null == config) {
+            config = new TreeBuilderConfig();
+        }
+        checkConfig(config);
+        this.store = store;
+        this.name = name;
+        db = store.getDb();
+        if (null == name) {
+            store.setStandaloneTree(this);
+        }
+        nodeColumnFamily = store.nodeColumnFamily(name, config.separateFeatures);
         byte[] bytes;
         try {
-            bytes = db.get(TreeDbKey);
+            bytes = db.get(nodeColumnFamily, TreeDbKey);
         } catch (RocksDBException e) {
             throw new RuntimeException(e);
         }
+        ColumnFamilyHandle featureHandle = store.featureColumnFamily(name, false);
 
         if (null == bytes) {
             if (config.mMin < 2) {
@@ -173,6 +338,11 @@ public class TreeBuilder implements Closeable {
             }
             mMin = config.mMin;
             mMax = config.mMax;
+            formatVersion = currentFormatVersion;
+            separateFeatures = config.separateFeatures;
+            if (separateFeatures && null == featureHandle) {
+                featureHandle = store.featureColumnFamily(name, true);
+            }
         } else {
             RocksRtreePb.RTreePb pbTree;
             try {
@@ -182,10 +352,31 @@ public class TreeBuilder implements Closeable {
             }
             mMin = pbTree.getMMin();
             mMax = pbTree.getMMax();
-            log.debug("rtree已存在，使用已有值 mMin {} mMax {}", mMin, mMax);
-            rootId = pbTree.getRootId();
+            formatVersion = pbTree.getFormatVersion();
+            separateFeatures = pbTree.getSeparateFeatures();
+            log.debug("rtree已存在，使用已有值 mMin {} mMax {} formatVersion {} separateFeatures {}", mMin, mMax, formatVersion, separateFeatures);
+            if (separateFeatures && null == featureHandle) {
+                throw new RuntimeException("要素独立存储的树缺少要素列族");
+            }
+            rootId = getRootId(pbTree);
+            if (pbTree.getLeafIdLimit() > 0 || pbTree.getBranchIdLimit() > 0) {
+                // 上次预留的id块可能未用完，直接从上限之后分配，保证不与已有节点冲突
+                leafIdLimit = pbTree.getLeafIdLimit();
+                branchIdLimit = pbTree.getBranchIdLimit();
+            } else if (NodeId.none != rootId) {
+                // 旧版本的树没有记录id上限，扫描一次已有节点
+                log.info("rtree中未记录节点id上限，扫描已有节点");
+                leafIdLimit = scanMaxId('L');
+                branchIdLimit = scanMaxId('B');
+            }
+            leafIdIndex = savedLeafIdLimit = leafIdLimit;
+            branchIdIndex = savedBranchIdLimit = branchIdLimit;
+            entryIdIndex = savedEntryIdLimit = entryIdLimit = pbTree.getEntryIdLimit();
         }
+        featureColumnFamily = separateFeatures ? featureHandle : null;
 
+        splitType = null == config.splitType ? SplitType.AXIAL : config.splitType;
+        dimensionScales = null == config.dimensionScales ? null : config.dimensionScales.clone();
         rTree = new RTree(this);
         if (null == config.featureRectNdFunction) {
             featureRectNdFunction = (feature) -> {
@@ -195,22 +386,15 @@ public class TreeBuilder implements Closeable {
         } else {
             featureRectNdFunction = config.featureRectNdFunction;
         }
+        featureKeyFunction = config.featureKeyFunction;
 
         if (config.cacheSize < 128) {
             log.warn("cacheSize过小，调整为128");
             config.cacheSize = 128;
         }
-        final int cacheSize = config.cacheSize;
         cache1Size = config.cacheSize / 10;
-
-        protoAbleCaches2 = new LinkedHashMap(cacheSize, 0.75f, true) {
-            private static final long serialVersionUID = 1L;
-
-            @Override
-            protected boolean removeEldestEntry(Map.Entry eldest) {
-                return size() > cacheSize;
-            }
-        };
+        protoAbleCaches2 = new NodeCache(config.cacheSize, config.cacheByteSize, db.getLatestSequenceNumber());
+        metricsListener = config.metricsListener;
     }
 
     public RTree getRTree() {
@@ -219,12 +403,419 @@ public class TreeBuilder implements Closeable {
 
     protected RectNd buildFeatureRect(Feature feature) {
         RectNd rectNd = featureRectNdFunction.apply(feature);
-        rectNd.feature = feature;
+        rectNd.setFeature(feature);
+        if (hasFeatureKey()) {
+            rectNd.featureKey = getFeatureKey(feature);
+        }
         return rectNd;
     }
 
+    /**
+     * @return 是否配置了featureKeyFunction
+     */
+    protected boolean hasFeatureKey() {
+        return null != featureKeyFunction;
+    }
+
+    /**
+     * 获取feature的唯一标识
+     *
+     * @param feature feature
+     * @return featureKey
+     */
+    protected String getFeatureKey(Feature feature) {
+        if (null == featureKeyFunction) {
+            throw new RuntimeException("未配置featureKeyFunction，无法按featureKey操作数据");
+        }
+        String key = featureKeyFunction.apply(feature);
+        if (null == key) {
+            throw new RuntimeException("featureKeyFunction返回了空值 " + feature);
+        }
+        return key;
+    }
+
+    /**
+     * @param featureKey featureKey
+     * @return featureKey索引在rocksdb中的key
+     */
+    protected static byte[] featureIndexKey(String featureKey) {
+        return (featureIndexKeyPrefix + featureKey).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 批量装载数据，按Sort-Tile-Recursive(STR)规则排序后自底向上构建一棵填充率接近100%的树，比逐条add快很多。
+     * 所有数据会先读入内存排序，数据量超出内存时请在外部排好序后使用bulkLoadSorted。
+     * 只能对空树使用。配置了featureKeyFunction时数据中有重复的featureKey会抛出异常，树仍为空。
+     *
+     * @param features 要素
+     */
+    public void bulkLoad(@NotNull Iterator<Feature> features) {
+        ArrayList<RectNd> rectList = new ArrayList<>();
+        while (features.hasNext()) {
+            rectList.add(buildFeatureRect(features.next()));
+        }
+        if (rectList.isEmpty()) {
+            return;
+        }
+        RectNd[] rects = rectList.toArray(new RectNd[0]);
+        rectList = null;
+        BulkLoader.strSort(rects, 0, rects.length, 0, rects[0].getNDim(), mMax, (r) -> r);
+        bulkLoad(Arrays.asList(rects).iterator(), true);
+    }
+
+    /**
+     * 批量装载已按空间顺序(如希尔伯特曲线编码、z-order编码)排好序的数据，按输入顺序依次打包成节点，
+     * 数据不会整体读入内存，适合超大数据量的装载。
+     * 只能对空树使用。配置了featureKeyFunction时数据中有重复的featureKey会抛出异常，树仍为空。
+     *
+     * @param features 排好序的要素
+     */
+    public void bulkLoadSorted(@NotNull Iterator<Feature> features) {
+        bulkLoad(new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return features.hasNext();
+            }
+
+            @Override
+            public RectNd next() {
+                return buildFeatureRect(features.next());
+            }
+        }, false);
+    }
+
+    private void bulkLoad(Iterator<RectNd> rects, boolean str) {
+        lock.writeLock().lock();
+        try {
+            if (NodeId.none != rootId) {
+                throw new RuntimeException("树中已有数据，无法批量装载");
+            }
+            long root;
+            try {
+                root = new BulkLoader(this, db).load(rects, str);
+            } catch (RuntimeException e) {
+                clearFailedLoad();
+                throw e;
+            }
+            if (NodeId.none != root) {
+                commitVersion++;
+                protoAbleCaches2.clear();
+                protoAbleCaches2.setSyncedSeq(db.getLatestSequenceNumber());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 批量装载失败时树仍为空，删除已分批写入的节点、featureKey索引和要素
+     */
+    private void clearFailedLoad() {
+        try (WriteOptions writeOpt = new WriteOptions().setDisableWAL(isLoadMode()); WriteBatch batch = new WriteBatch()) {
+            try (RocksIterator iterator = db.newIterator(nodeColumnFamily)) {
+                for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                    if (!Arrays.equals(TreeDbKey, iterator.key())) {
+                        batch.delete(nodeColumnFamily, iterator.key());
+                    }
+                }
+            }
+            if (null != featureColumnFamily) {
+                try (RocksIterator iterator = db.newIterator(featureColumnFamily)) {
+                    for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                        batch.delete(featureColumnFamily, iterator.key());
+                    }
+                }
+            }
+            db.write(writeOpt, batch);
+        } catch (RocksDBException e) {
+            log.warn("清理批量装载失败写入的数据出错", e);
+        }
+    }
+
+    /**
+     * 重新打包树：读出全部数据，按STR规则构建一棵填充率接近100%的新树，新树的节点写入后，
+     * 在一次写入中切换根节点、删除旧节点，最后对节点列族做一次全量压缩清理旧数据。
+     * 适用于长期逐条增删后叶子节点填充率低、外接矩形重叠多的树。
+     * 执行期间持有写锁，读写事务的创建和提交会等待；只读事务不受影响，切换前创建的只读事务仍读取旧树。
+     * 所有数据会读入内存排序，要素独立存储时只读入外接矩形和实体id(配置了featureKeyFunction时，旧版本写入的未记录featureKey的数据还需读入要素以重建索引)
+     *
+     * @return 重新打包前后的统计信息
+     */
+    public RepackResult optimize() {
+        long t = System.currentTimeMillis();
+        Stats before;
+        lock.writeLock().lock();
+        try {
+            ArrayList<RectNd> rects = new ArrayList<>();
+            ArrayList<Long> nodeIds = new ArrayList<>();
+            try (TreeTransaction tx = newReadOnlyTx()) {
+                before = rTree.collectStats(tx);
+                if (NodeId.none == rootId) {
+                    return new RepackResult(before, before, System.currentTimeMillis() - t);
+                }
+                collectNodes(getNode(rootId, tx), rects, nodeIds, tx);
+                if (hasFeatureKey()) {
+                    loadFeatures(rects, true, tx);
+                }
+            }
+            RectNd[] arr = rects.toArray(new RectNd[0]);
+            rects = null;
+            if (arr.length > 0) {
+                BulkLoader.strSort(arr, 0, arr.length, 0, arr[0].getNDim(), mMax, (r) -> r);
+            }
+            try (WriteOptions writeOpt = new WriteOptions().setDisableWAL(isLoadMode()); WriteBatch batch = new WriteBatch()) {
+                // 新节点使用新的id，写入过程中不影响旧树；featureKey索引、旧节点的删除和根节点的切换一起写入
+                long newRootId = new BulkLoader(this, db).build(Arrays.asList(arr).iterator(), true, batch);
+                for (long nodeId : nodeIds) {
+                    batch.delete(nodeColumnFamily, nodeKey(nodeId));
+                }
+                RocksRtreePb.RTreePb treePb = rTree.toPb(newRootId);
+                batch.put(nodeColumnFamily, TreeDbKey, treePb.toByteArray());
+                db.write(writeOpt, batch);
+                rootId = newRootId;
+                commitVersion++;
+                onTreeSaved(treePb);
+            } catch (RocksDBException e) {
+                throw new RuntimeException(e);
+            }
+            protoAbleCaches2.clear();
+            protoAbleCaches2.setSyncedSeq(db.getLatestSequenceNumber());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // 要素没有变化，只压缩节点列族
+        try {
+            db.compactRange(nodeColumnFamily);
+        } catch (RocksDBException e) {
+            throw new RuntimeException(e);
+        }
+        Stats after;
+        try (TreeTransaction tx = newReadOnlyTx()) {
+            after = rTree.collectStats(tx);
+        }
+        return new RepackResult(before, after, System.currentTimeMillis() - t);
+    }
+
+    /**
+     * 把树重新打包到一个新的目录中：读出全部数据，按STR规则批量装载为一棵新树并做一次全量压缩，原树不受影响。
+     * 读取的是调用时的快照，不阻塞原树的读写。所有数据会读入内存排序
+     *
+     * @param targetDir 新树的存储路径，其中不能已有数据
+     * @param config    新树的配置信息，为空时沿用本树的mMin、mMax、分裂策略、要素存储方式和各function
+     * @return 重新打包前后的统计信息
+     */
+    public RepackResult repack(@NotNull String targetDir, @Nullable TreeBuilderConfig config) {
+        long t = System.currentTimeMillis();
+        if (null == config) {
+            config = new TreeBuilderConfig();
+            config.mMin = mMin;
+            config.mMax = mMax;
+            config.splitType = splitType;
+            config.dimensionScales = dimensionScales;
+            config.featureRectNdFunction = featureRectNdFunction;
+            config.featureKeyFunction = featureKeyFunction;
+            config.separateFeatures = separateFeatures;
+        }
+        Stats before;
+        ArrayList<RectNd> rects = new ArrayList<>();
+        try (TreeTransaction tx = newReadOnlyTx()) {
+            before = rTree.collectStats(tx);
+            rTree.forEach(rects::add, tx);
+            loadFeatures(rects, false, tx);
+        }
+        Stats after;
+        try (TreeBuilder target = new TreeBuilder(targetDir, config)) {
+            Iterator<RectNd> iterator = rects.iterator();
+            target.bulkLoad(new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Feature next() {
+                    return iterator.next().getFeature();
+                }
+            });
+            // 装载模式下finishLoad中已做过全量压缩
+            boolean loadMode = target.isLoadMode();
+            target.finishLoad();
+            if (!loadMode) {
+                target.compact();
+            }
+            try (TreeTransaction tx = target.newReadOnlyTx()) {
+                after = target.rTree.collectStats(tx);
+            }
+        }
+        return new RepackResult(before, after, System.currentTimeMillis() - t);
+    }
+
+    /**
+     * 遍历树，收集全部数据和节点id
+     */
+    private void collectNodes(Node node, ArrayList<RectNd> rects, ArrayList<Long> nodeIds, TreeTransaction tx) {
+        nodeIds.add(node.id);
+        if (node.isLeaf()) {
+            node.forEach(rects::add, tx);
+        } else {
+            Branch branch = (Branch) node;
+            for (int i = 0; i < branch.size(); i++) {
+                collectNodes(getNode(branch.getChildId(i), tx), rects, nodeIds, tx);
+            }
+        }
+    }
+
+    /**
+     * 要素独立存储时，分批从features列族读取要素，读取到的数据替换列表中的原数据
+     *
+     * @param missingKeyOnly 是否只读取未记录featureKey的数据
+     */
+    private void loadFeatures(ArrayList<RectNd> rects, boolean missingKeyOnly, TreeTransaction tx) {
+        RectNd[] chunk = new RectNd[1024];
+        int[] positions = new int[chunk.length];
+        int n = 0;
+        for (int i = 0; i < rects.size(); i++) {
+            if (missingKeyOnly && null != rects.get(i).featureKey) {
+                continue;
+            }
+            chunk[n] = rects.get(i);
+            positions[n] = i;
+            n++;
+            if (n == chunk.length) {
+                tx.loadFeatures(chunk, n);
+                for (int k = 0; k < n; k++) {
+                    rects.set(positions[k], chunk[k]);
+                }
+                n = 0;
+            }
+        }
+        if (n > 0) {
+            tx.loadFeatures(chunk, n);
+            for (int k = 0; k < n; k++) {
+                rects.set(positions[k], chunk[k]);
+            }
+        }
+    }
+
+    /**
+     * 对节点列族和要素列族做全量压缩
+     */
+    private void compact() {
+        try {
+            db.compactRange(nodeColumnFamily);
+            if (null != featureColumnFamily) {
+                db.compactRange(featureColumnFamily);
+            }
+        } catch (RocksDBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return 是否处于装载模式，装载模式下写入不记WAL
+     */
+    protected boolean isLoadMode() {
+        return store.isLoadMode();
+    }
+
+    /**
+     * 结束装载，从装载模式切换到服务模式：把内存中的数据刷到磁盘，全量压缩，
+     * 再开启自动压缩、恢复L0文件数限制、缩小写缓冲，之后的写入重新记WAL。
+     * 只对RocksDbProfile.BULK_LOAD方案打开的树生效，其它方案调用时直接返回。
+     * 树在RTreeStore中时对整个RTreeStore生效，见RTreeStore.finishLoad
+     *
+     * @see RocksDbProfile#BULK_LOAD
+     */
+    public void finishLoad() {
+        store.finishLoad();
+    }
+
+    /**
+     * 获得一个读写事务，事务中的修改(包括根节点的变化)在提交后才对之后开启的事务可见。
+     * 读写事务持有本树的读锁，提交时短暂持有写锁，未关闭的读写事务会推迟本树其它事务的提交，只做查询时应使用newReadOnlyTx。
+     * 同一线程在同一棵树上同时持有多个读写事务时，提交会报错而不是死锁。
+     * 多个线程在同一棵树上同时打开的读写事务，先提交的生效，之后提交的事务如果有修改会抛出TransactionConflictException，需关闭后在新的事务中重做。用完后需要close
+     *
+     * @return 读写事务
+     */
     public TreeTransaction newTx() {
-        return new TreeTransaction(db, this, cache1Size, protoAbleCaches2, lock);
+        return newTx(null);
+    }
+
+    /**
+     * @param sharedBatch StoreTransaction中各棵树共用的WriteBatch，为null时事务单独提交
+     */
+    TreeTransaction newTx(@Nullable WriteBatch sharedBatch) {
+        return new TreeTransaction(db, this, cache1Size, protoAbleCaches2, lock, sharedBatch);
+    }
+
+    /**
+     * 获得一个组提交写入器，多个线程提交的写操作由一个写入线程分批在同一个事务中执行并提交，用完后需要close
+     *
+     * @param maxBatchSize   一个批次最多包含几个写操作
+     * @param maxDelayMillis 批次中第一个写操作最多等待多少毫秒后提交
+     * @return 组提交写入器
+     */
+    public GroupCommitWriter newGroupCommitWriter(int maxBatchSize, long maxDelayMillis) {
+        return new GroupCommitWriter(this, maxBatchSize, maxDelayMillis);
+    }
+
+    /**
+     * 获得一个只读事务，只读事务不加锁，读取的是事务创建时的快照，适合多线程并发查询。
+     * 只读事务不能用于add等修改操作，用完后需要close
+     *
+     * @return 只读事务
+     */
+    public TreeTransaction newReadOnlyTx() {
+        return newReadOnlyTx(null);
+    }
+
+    /**
+     * @param sharedSnapshot StoreTransaction中各棵树共用的快照，为null时使用自己的快照
+     */
+    TreeTransaction newReadOnlyTx(@Nullable Snapshot sharedSnapshot) {
+        return new TreeTransaction(db, this, cache1Size, protoAbleCaches2, sharedSnapshot);
+    }
+
+    /**
+     * 获取缓存统计信息
+     *
+     * @return 缓存统计信息
+     */
+    public CacheStats getCacheStats() {
+        return store.getCacheStats(protoAbleCaches2);
+    }
+
+    /**
+     * @return 运行指标监听器，未配置时为null
+     */
+    protected @Nullable MetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    protected ReentrantReadWriteLock getLock() {
+        return lock;
+    }
+
+    /**
+     * @return 树名，独立使用时为null
+     */
+    protected @Nullable String getName() {
+        return name;
+    }
+
+    /**
+     * 把rocksdb的统计信息(ticker、直方图)交给运行指标监听器，可定时调用以上报块缓存命中、读写字节数、写停顿等指标。
+     * 未配置metricsListener或rocksdb未配置Statistics时不做处理
+     */
+    public void reportRocksDbStatistics() {
+        if (null == metricsListener) {
+            return;
+        }
+        Statistics statistics = store.getStatistics();
+        if (null != statistics) {
+            metricsListener.onRocksDbStatistics(statistics);
+        }
     }
 
     protected void clearCache() {
@@ -232,17 +823,145 @@ public class TreeBuilder implements Closeable {
 //        leafMap.clear();
     }
 
-    protected Branch newBranch(TreeTransaction tx) {
+    /**
+     * @param id 节点id
+     * @return 节点在rocksdb中的key
+     */
+    protected byte[] nodeKey(long id) {
+        if (formatVersion >= 1) {
+            return NodeId.toBytes(id);
+        } else {
+            return NodeId.toLegacy(id).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * @return 存储树节点的列族
+     */
+    protected ColumnFamilyHandle getNodeColumnFamily() {
+        return nodeColumnFamily;
+    }
+
+    /**
+     * @return 独立存储要素的列族，要素存储在叶子节点中时为null
+     */
+    protected @Nullable ColumnFamilyHandle getFeatureColumnFamily() {
+        return featureColumnFamily;
+    }
+
+    /**
+     * @param entryId 实体id
+     * @return 要素在features列族中的key
+     */
+    protected static byte[] entryKey(long entryId) {
+        return NodeId.toBytes(entryId);
+    }
+
+    /**
+     * @param key 节点在rocksdb中的key
+     * @return 节点id
+     */
+    protected long parseNodeKey(byte[] key) {
+        if (formatVersion >= 1) {
+            return NodeId.fromBytes(key);
+        } else {
+            return NodeId.fromLegacy(key);
+        }
+    }
+
+    /**
+     * @param treePb 树信息
+     * @return 根节点id，空树返回NodeId.none
+     */
+    protected long getRootId(RocksRtreePb.RTreePb treePb) {
+        if (formatVersion >= 1) {
+            return treePb.getRootNodeId();
+        } else {
+            return treePb.getRootId().isEmpty() ? NodeId.none : NodeId.fromLegacy(treePb.getRootId());
+        }
+    }
+
+    /**
+     * 扫描已有节点的最大序号
+     */
+    private long scanMaxId(char type) {
+        long max = 0;
+        byte[] prefix = new byte[]{(byte) type};
+        try (RocksIterator iterator = db.newIterator(nodeColumnFamily)) {
+            for (iterator.seek(prefix); iterator.isValid(); iterator.next()) {
+                byte[] key = iterator.key();
+                if (key[0] != type) {
+                    break;
+                }
+                max = Math.max(max, NodeId.seq(parseNodeKey(key)));
+            }
+        }
+        return max;
+    }
+
+    protected synchronized long nextBranchId() {
         branchIdIndex++;
-        String branchId = "B" + branchIdIndex;
+        if (branchIdIndex > branchIdLimit) {
+            branchIdLimit = branchIdIndex + idBlockSize - 1;
+        }
+        return NodeId.branch(branchIdIndex);
+    }
+
+    protected synchronized long nextLeafId() {
+        leafIdIndex++;
+        if (leafIdIndex > leafIdLimit) {
+            leafIdLimit = leafIdIndex + idBlockSize - 1;
+        }
+        return NodeId.leaf(leafIdIndex);
+    }
+
+    protected synchronized long nextEntryId() {
+        entryIdIndex++;
+        if (entryIdIndex > entryIdLimit) {
+            entryIdLimit = entryIdIndex + idBlockSize - 1;
+        }
+        return entryIdIndex;
+    }
+
+    protected synchronized long getLeafIdLimit() {
+        return leafIdLimit;
+    }
+
+    protected synchronized long getBranchIdLimit() {
+        return branchIdLimit;
+    }
+
+    protected synchronized long getEntryIdLimit() {
+        return entryIdLimit;
+    }
+
+    /**
+     * @return 是否有新预留的id块尚未持久化
+     */
+    protected synchronized boolean isIdLimitChanged() {
+        return leafIdLimit != savedLeafIdLimit || branchIdLimit != savedBranchIdLimit || entryIdLimit != savedEntryIdLimit;
+    }
+
+    /**
+     * 树信息写入rocksdb后，记录已持久化的id上限
+     *
+     * @param treePb 已写入的树信息
+     */
+    protected synchronized void onTreeSaved(RocksRtreePb.RTreePb treePb) {
+        savedLeafIdLimit = Math.max(savedLeafIdLimit, treePb.getLeafIdLimit());
+        savedBranchIdLimit = Math.max(savedBranchIdLimit, treePb.getBranchIdLimit());
+        savedEntryIdLimit = Math.max(savedEntryIdLimit, treePb.getEntryIdLimit());
+    }
+
+    protected Branch newBranch(TreeTransaction tx) {
+        long branchId = nextBranchId();
         Branch node = new Branch(this, branchId);
         tx.put(branchId, node);
         return node;
     }
 
     protected Leaf newLeaf(TreeTransaction tx) {
-        leafIdIndex++;
-        String leafId = "L" + leafIdIndex;
+        long leafId = nextLeafId();
         Leaf node = new Leaf(this, leafId);
         tx.put(leafId, node);
 //        leafMap.put(nodeIdIndex, node);
@@ -251,20 +970,19 @@ public class TreeBuilder implements Closeable {
         return node;
     }
 
-    protected Branch getBranch(String branchId, TreeTransaction tx) {
+    protected Branch getBranch(long branchId, TreeTransaction tx) {
         return tx.get(Branch.class, branchId);
     }
 
-    protected Leaf getLeaf(String leafId, TreeTransaction tx) {
+    protected Leaf getLeaf(long leafId, TreeTransaction tx) {
         return tx.get(Leaf.class, leafId);
     }
 
 
-    protected Node getNode(String nodeId, TreeTransaction tx) {
-        char type = nodeId.charAt(0);
-        if ('L' == type) {
+    protected Node getNode(long nodeId, TreeTransaction tx) {
+        if (NodeId.isLeaf(nodeId)) {
             return getLeaf(nodeId, tx);
-        } else if ('B' == type) {
+        } else if (NodeId.isBranch(nodeId)) {
             return getBranch(nodeId, tx);
         } else {
             return null;
@@ -281,6 +999,33 @@ public class TreeBuilder implements Closeable {
         return t;
     }
 
+    /**
+     * 获取维度的单位尺度
+     *
+     * @param d 维度
+     * @return 单位尺度，未配置时为1
+     */
+    protected double getDimensionScale(int d) {
+        return null == dimensionScales || d >= dimensionScales.length ? 1 : dimensionScales[d];
+    }
+
+    /**
+     * 按各维度的单位尺度归一化后的边长之和，分裂和选择子节点时用来比较矩形的形状
+     *
+     * @param r 矩形
+     * @return 边长之和
+     */
+    protected double perimeter(RectNd r) {
+        if (null == dimensionScales) {
+            return r.perimeter();
+        }
+        double p = 0;
+        for (int d = 0; d < r.getNDim(); d++) {
+            p += r.getRange(d) / getDimensionScale(d);
+        }
+        return p * Math.pow(2, r.getNDim());
+    }
+
     /**
      * Build a bounding rectangle for given points (min and max, usually)
      *
@@ -293,7 +1038,14 @@ public class TreeBuilder implements Closeable {
     }
 
 
+    /**
+     * 关闭树，独立使用时一并关闭rocksdb；树在RTreeStore中时rocksdb随RTreeStore关闭
+     */
     public void close() {
-        db.close();
+        if (null == name) {
+            store.close();
+        } else {
+            store.onTreeClosed(name);
+        }
     }
 }
@@ -10,22 +10,34 @@
 
 package org.wowtools.giscat.vector.rocksrtree;
 
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnsafeByteOperations;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
+import org.rocksdb.Snapshot;
 import org.rocksdb.WriteBatch;
 import org.rocksdb.WriteOptions;
+import org.jetbrains.annotations.Nullable;
+import org.wowtools.giscat.vector.pojo.converter.ProtoFeatureConverter;
 
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static org.wowtools.giscat.vector.rocksrtree.RTree.TreeDbKey;
 
 /**
- * 操作树的事务
+ * 操作树的事务。
+ * 通过TreeBuilder.newTx()获得的读写事务会持有读锁，提交时短暂持有写锁，事务开始后本树已有其它修改提交时抛出TransactionConflictException；
+ * 通过TreeBuilder.newReadOnlyTx()获得的只读事务不加锁，基于rocksdb快照读取，多线程查询时互不阻塞。
+ * 通过StoreTransaction获得的事务与同一StoreTransaction中其它树的事务共用WriteBatch或快照，由StoreTransaction提交和关闭
  *
  * @author liuyu
  * @date 2023/3/27
@@ -34,7 +46,7 @@ public class TreeTransaction implements AutoCloseable {
 
     private static final byte[] nullBytes = new byte[0];
 
-    private static final ProtoAble nullProtoAble = new ProtoAble(null, null) {
+    private static final ProtoAble nullProtoAble = new ProtoAble(null, NodeId.none) {
         @Override
         public void fill(byte[] bytes) {
 
@@ -44,156 +56,704 @@ public class TreeTransaction implements AutoCloseable {
         protected byte[] toBytes() {
             return nullBytes;
         }
+
+        @Override
+        protected ProtoAble copy() {
+            return this;
+        }
+
+        @Override
+        protected int estimateHeapSize() {
+            return 32;
+        }
     };
 
     private final RocksDB db;
     private final WriteOptions writeOpt;
     private final WriteBatch batch;
 
-    private final HashMap<String, ProtoAble> txAdded = new HashMap<>();
-    private final HashSet<String> txDeleted = new HashSet<>();
+    private final HashMap<Long, ProtoAble> txAdded = new HashMap<>();
+    private final HashSet<Long> txDeleted = new HashSet<>();
+    /**
+     * 事务中变化的featureKey索引，value为叶子节点id，为null表示删除
+     */
+    private final HashMap<String, Long> txFeatureIndex = new HashMap<>();
+    /**
+     * 事务中变化的独立存储的要素，key为实体id，value为null表示删除
+     */
+    private final HashMap<Long, RectNd> txFeatures = new HashMap<>();
+
+    /**
+     * R*树策略中，当前这次插入是否已经做过强制重新插入
+     */
+    private boolean reinsertUsed;
+    /**
+     * 等待强制重新插入的数据
+     */
+    private final ArrayList<RectNd> reinsertEntries = new ArrayList<>();
 
     private final TreeBuilder builder;
 
-    private final String treeRootId;
+    /**
+     * 事务开始时的根节点id，只读事务为快照中的根节点
+     */
+    private final long treeRootId;
+
+    /**
+     * 事务中修改后的根节点id，提交后才对其它事务可见
+     */
+    private long rootId;
 
-    private final ReadWriteLock lock;
+    private final ReentrantReadWriteLock lock;
 
     private boolean commited = false;
 
+    private final boolean readOnly;
+
+    private final Snapshot snapshot;
+
+    private final ReadOptions readOpt;
+
+    /**
+     * WriteBatch或快照是否与StoreTransaction中其它树的事务共用，共用时由StoreTransaction提交和释放
+     */
+    private final boolean shared;
+
+    /**
+     * 本次提交需要保存的树信息，树信息没有变化时为null
+     */
+    private RocksRtreePb.RTreePb treePb;
+
+    /**
+     * 事务开始时rocksdb的序列号，只读事务为快照的序列号
+     */
+    private final long startSeq;
+
+    /**
+     * 读写事务开始时本树的TreeBuilder.commitVersion
+     */
+    private final long startVersion;
+
+    /**
+     * 二级缓存为所有事务共享，其中的对象不可修改；一级缓存为事务私有，读写事务从二级缓存取到的对象会复制一份放入一级缓存
+     */
+    private final NodeCache protoAbleCaches2;
+    private final Map<Long, ProtoAble> protoAbleCaches1;
+
+    /**
+     * 运行指标监听器，未配置时为null，各处先判断null再计时
+     */
+    private final @Nullable MetricsListener metrics;
+
+    /**
+     * 构造读写事务
+     *
+     * @param sharedBatch 与其它树的事务共用的WriteBatch，为null时使用自己的WriteBatch
+     */
+    protected TreeTransaction(RocksDB db, TreeBuilder builder, int cache1Size, NodeCache protoAbleCaches2, ReentrantReadWriteLock lock, @Nullable WriteBatch sharedBatch) {
+        protoAbleCaches1 = newCache1(cache1Size);
+        this.db = db;
+        this.builder = builder;
+        metrics = builder.getMetricsListener();
+        this.protoAbleCaches2 = protoAbleCaches2;
+        shared = null != sharedBatch;
+        if (shared) {
+            writeOpt = null;
+            batch = sharedBatch;
+        } else {
+            writeOpt = new WriteOptions().setDisableWAL(builder.isLoadMode());
+            batch = new WriteBatch();
+        }
+        this.lock = lock;
+        lock.readLock().lock();
+        // 持有读锁期间不会有其它事务提交，事务内读到的数据都对应这个序列号
+        startSeq = db.getLatestSequenceNumber();
+        startVersion = builder.commitVersion;
+        treeRootId = builder.rootId;
+        rootId = treeRootId;
+        readOnly = false;
+        snapshot = null;
+        readOpt = null;
+    }
 
-    //TODO 一二级缓存设计考虑
-    private final Map<String, ProtoAble> protoAbleCaches2;
-    private final Map<String, ProtoAble> protoAbleCaches1;
+    /**
+     * 构造只读事务
+     *
+     * @param sharedSnapshot 与其它树的事务共用的快照，为null时创建自己的快照
+     */
+    protected TreeTransaction(RocksDB db, TreeBuilder builder, int cache1Size, NodeCache protoAbleCaches2, @Nullable Snapshot sharedSnapshot) {
+        // 只读事务可以被并行流等多个线程同时使用
+        protoAbleCaches1 = Collections.synchronizedMap(newCache1(cache1Size));
+        this.db = db;
+        this.builder = builder;
+        metrics = builder.getMetricsListener();
+        this.protoAbleCaches2 = protoAbleCaches2;
+        writeOpt = null;
+        batch = null;
+        lock = null;
+        readOnly = true;
+        shared = null != sharedSnapshot;
+        snapshot = shared ? sharedSnapshot : db.getSnapshot();
+        readOpt = new ReadOptions().setSnapshot(snapshot);
+        startSeq = snapshot.getSequenceNumber();
+        startVersion = 0;
+        // 能拿到读锁说明本树没有正在写入的提交，快照之前本树的提交都已更新到缓存，其它树的提交不影响本树的缓存
+        ReentrantReadWriteLock treeLock = builder.getLock();
+        if (treeLock.readLock().tryLock()) {
+            try {
+                protoAbleCaches2.setSyncedSeq(startSeq);
+            } finally {
+                treeLock.readLock().unlock();
+            }
+        }
+        byte[] bytes;
+        try {
+            bytes = db.get(builder.getNodeColumnFamily(), readOpt, TreeDbKey);
+        } catch (RocksDBException e) {
+            close();
+            throw new RuntimeException(e);
+        }
+        long rootId = NodeId.none;
+        if (null != bytes) {
+            try {
+                rootId = builder.getRootId(RocksRtreePb.RTreePb.parseFrom(bytes));
+            } catch (InvalidProtocolBufferException e) {
+                close();
+                throw new RuntimeException(e);
+            }
+        }
+        treeRootId = rootId;
+        this.rootId = rootId;
+    }
 
-    protected TreeTransaction(RocksDB db, TreeBuilder builder, int cache1Size, Map<String, ProtoAble> protoAbleCaches2, ReadWriteLock lock) {
-        protoAbleCaches1 = new LinkedHashMap(cache1Size, 0.75f, true) {
+    private static Map<Long, ProtoAble> newCache1(int cache1Size) {
+        return new LinkedHashMap<>(cache1Size, 0.75f, true) {
             private static final long serialVersionUID = 1L;
 
             @Override
-            protected boolean removeEldestEntry(Map.Entry eldest) {
+            protected boolean removeEldestEntry(Map.Entry<Long, ProtoAble> eldest) {
                 return size() > cache1Size;
             }
         };
-        this.db = db;
-        this.builder = builder;
-        this.protoAbleCaches2 = protoAbleCaches2;
-        writeOpt = new WriteOptions();
-        batch = new WriteBatch();
-        treeRootId = builder.rootId;
-        this.lock = lock;
-        lock.readLock().lock();
     }
 
-    protected void put(String key, ProtoAble value) {
+    /**
+     * @return 是否为只读事务
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * @return 本事务看到的根节点id，只读事务为快照中的根节点，读写事务包含本事务中的修改，空树时为NodeId.none
+     */
+    protected long rootId() {
+        return rootId;
+    }
+
+    protected void setRootId(long rootId) {
+        if (readOnly) {
+            throw new RuntimeException("只读事务不能修改数据");
+        }
+        this.rootId = rootId;
+    }
+
+    protected void put(long key, ProtoAble value) {
+        if (readOnly) {
+            throw new RuntimeException("只读事务不能修改数据");
+        }
         txDeleted.remove(key);
         txAdded.put(key, value);
     }
 
 
-    protected void remove(String key) {
+    protected void remove(long key) {
+        if (readOnly) {
+            throw new RuntimeException("只读事务不能修改数据");
+        }
         txAdded.remove(key);
         txDeleted.add(key);
     }
 
 
-    protected <T extends ProtoAble> T get(Class<T> t, String key) {
-        if (txDeleted.contains(key)) {
-            return null;
+    /**
+     * 记录数据所在的叶子节点，未配置featureKeyFunction时不记录
+     *
+     * @param t      数据
+     * @param leafId 叶子节点id
+     */
+    protected void putFeatureIndex(RectNd t, long leafId) {
+        if (builder.hasFeatureKey()) {
+            txFeatureIndex.put(getFeatureKey(t), leafId);
         }
-        T txb = (T) txAdded.get(key);
-        if (null != txb) {
-            return txb;
+    }
+
+    /**
+     * @param t 数据
+     * @return 数据的featureKey，叶子节点中未记录时(旧版本写入的数据)读取要素计算
+     */
+    protected String getFeatureKey(RectNd t) {
+        return null != t.featureKey ? t.featureKey : builder.getFeatureKey(loadFeature(t).getFeature());
+    }
+
+    protected void removeFeatureIndex(String featureKey) {
+        txFeatureIndex.put(featureKey, null);
+    }
+
+    /**
+     * 开始插入一条数据，重置强制重新插入的状态
+     */
+    protected void beginInsert() {
+        reinsertUsed = false;
+        reinsertEntries.clear();
+    }
+
+    /**
+     * 叶子节点溢出时申请强制重新插入，一次插入过程中只允许一次，之后的溢出直接分裂
+     *
+     * @return 是否允许
+     */
+    protected boolean tryReinsert() {
+        if (reinsertUsed) {
+            return false;
         }
-        ProtoAble cache;
-        cache = protoAbleCaches1.get(key);
-        if (null != cache) {
-            if (cache == nullProtoAble) {
-                return null;
-            } else {
-                return (T) cache;
-            }
+        reinsertUsed = true;
+        return true;
+    }
+
+    protected void addReinsertEntry(RectNd t) {
+        reinsertEntries.add(t);
+    }
+
+    /**
+     * 取出等待强制重新插入的数据
+     *
+     * @return 数据
+     */
+    protected ArrayList<RectNd> takeReinsertEntries() {
+        ArrayList<RectNd> res = new ArrayList<>(reinsertEntries);
+        reinsertEntries.clear();
+        return res;
+    }
+
+    /**
+     * 新增数据时为其分配实体id，提交时把要素写入features列族，要素存储在叶子节点中时不做处理
+     *
+     * @param t 数据
+     */
+    protected void putFeature(RectNd t) {
+        if (builder.separateFeatures) {
+            t.entryId = builder.nextEntryId();
+            txFeatures.put(t.entryId, t);
         }
+    }
 
-        cache = protoAbleCaches2.get(key);
-        if (null != cache) {
-            if (cache == nullProtoAble) {
-                return null;
-            } else {
-                return (T) cache;
+    /**
+     * 删除数据时，提交时从features列族中删除其要素
+     *
+     * @param t 数据
+     */
+    protected void removeFeature(RectNd t) {
+        if (builder.separateFeatures && 0 != t.entryId) {
+            txFeatures.put(t.entryId, null);
+        }
+    }
+
+    /**
+     * 把命中的数据替换为复制出的对象，要素在复制出的对象上解析；要素独立存储时从features列族中批量读取。不修改节点中被共享的对象
+     *
+     * @param rects 数据
+     * @param n     数组中前几个数据需要读取
+     */
+    protected void loadFeatures(RectNd[] rects, int n) {
+        RectNd.detachFeatures(rects, n);
+        if (!builder.separateFeatures) {
+            return;
+        }
+        ArrayList<byte[]> keys = new ArrayList<>(n);
+        int[] positions = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (!rects[i].hasFeature()) {
+                positions[keys.size()] = i;
+                keys.add(TreeBuilder.entryKey(rects[i].entryId));
+            }
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<ColumnFamilyHandle> handles = Collections.nCopies(keys.size(), builder.getFeatureColumnFamily());
+        List<byte[]> values;
+        long start = null == metrics ? 0 : System.nanoTime();
+        try {
+            values = readOnly ? db.multiGetAsList(readOpt, handles, keys) : db.multiGetAsList(handles, keys);
+        } catch (RocksDBException e) {
+            throw new RuntimeException(e);
+        }
+        if (null != metrics) {
+            metrics.onFeatureRead(values.size(), byteSize(values), System.nanoTime() - start);
+        }
+        for (int i = 0; i < values.size(); i++) {
+            RectNd rect = rects[positions[i]];
+            byte[] value = values.get(i);
+            if (null == value) {
+                throw new RuntimeException("features列族中缺少要素 " + rect.entryId);
             }
+            rects[positions[i]] = rect.withFeatureBytes(UnsafeByteOperations.unsafeWrap(value));
         }
+    }
 
+    /**
+     * 读取单个数据的要素
+     *
+     * @param rect 数据
+     * @return 可以取得要素的数据
+     * @see #loadFeatures(RectNd[], int)
+     */
+    protected RectNd loadFeature(RectNd rect) {
+        RectNd[] rects = new RectNd[]{rect};
+        loadFeatures(rects, 1);
+        return rects[0];
+    }
 
+    /**
+     * 查询featureKey对应数据所在的叶子节点
+     *
+     * @param featureKey featureKey
+     * @return 叶子节点id，不存在时返回NodeId.none
+     */
+    protected long getFeatureLeafId(String featureKey) {
+        if (txFeatureIndex.containsKey(featureKey)) {
+            Long leafId = txFeatureIndex.get(featureKey);
+            return null == leafId ? NodeId.none : leafId;
+        }
         byte[] bytes;
         try {
-            bytes = db.get(key.getBytes(StandardCharsets.UTF_8));
+            byte[] key = TreeBuilder.featureIndexKey(featureKey);
+            bytes = readOnly ? db.get(builder.getNodeColumnFamily(), readOpt, key) : db.get(builder.getNodeColumnFamily(), key);
+        } catch (RocksDBException e) {
+            throw new RuntimeException(e);
+        }
+        return null == bytes ? NodeId.none : builder.parseNodeKey(bytes);
+    }
+
+    protected <T extends ProtoAble> T get(Class<T> t, long key) {
+        ProtoAble cache = getCached(key);
+        if (null == cache) {
+            byte[] bytes;
+            long start = null == metrics ? 0 : System.nanoTime();
+            try {
+                byte[] dbKey = builder.nodeKey(key);
+                bytes = readOnly ? db.get(builder.getNodeColumnFamily(), readOpt, dbKey) : db.get(builder.getNodeColumnFamily(), dbKey);
+            } catch (RocksDBException e) {
+                throw new RuntimeException(e);
+            }
+            if (null != metrics) {
+                metrics.onNodeRead(1, null == bytes ? 0 : bytes.length, System.nanoTime() - start);
+            }
+            cache = onLoaded(t, key, bytes);
+        }
+        return cache == nullProtoAble ? null : (T) cache;
+    }
+
+    /**
+     * 批量获取节点，缓存中没有的节点通过一次multiGet从rocksdb读取
+     *
+     * @param ids  节点id
+     * @param from 起始位置
+     * @param n    获取几个节点
+     * @return 节点，不存在的节点为null
+     */
+    protected Node[] getNodes(long[] ids, int from, int n) {
+        Node[] nodes = new Node[n];
+        int[] missPositions = new int[n];
+        ArrayList<byte[]> missKeys = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            long key = ids[from + i];
+            ProtoAble cache = getCached(key);
+            if (null == cache) {
+                missPositions[missKeys.size()] = i;
+                missKeys.add(builder.nodeKey(key));
+            } else if (cache != nullProtoAble) {
+                nodes[i] = (Node) cache;
+            }
+        }
+        if (missKeys.isEmpty()) {
+            return nodes;
+        }
+        List<byte[]> values;
+        long start = null == metrics ? 0 : System.nanoTime();
+        try {
+            List<ColumnFamilyHandle> handles = Collections.nCopies(missKeys.size(), builder.getNodeColumnFamily());
+            values = readOnly ? db.multiGetAsList(readOpt, handles, missKeys) : db.multiGetAsList(handles, missKeys);
         } catch (RocksDBException e) {
             throw new RuntimeException(e);
         }
+        if (null != metrics) {
+            metrics.onNodeRead(values.size(), byteSize(values), System.nanoTime() - start);
+        }
+        for (int k = 0; k < values.size(); k++) {
+            int i = missPositions[k];
+            long key = ids[from + i];
+            ProtoAble cache = onLoaded(NodeId.isLeaf(key) ? Leaf.class : Branch.class, key, values.get(k));
+            if (cache != nullProtoAble) {
+                nodes[i] = (Node) cache;
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * 从事务内的修改和缓存中取对象
+     *
+     * @param key key
+     * @return 对象，未缓存时返回null，已知不存在时返回nullProtoAble
+     */
+    private ProtoAble getCached(long key) {
+        if (txDeleted.contains(key)) {
+            return nullProtoAble;
+        }
+        ProtoAble cache = txAdded.get(key);
+        if (null == cache) {
+            cache = protoAbleCaches1.get(key);
+        }
+        if (null != cache) {
+            if (null != metrics) {
+                metrics.onCacheHit(MetricsListener.txCache);
+            }
+            return cache;
+        }
+
+        // 先读已同步的序列号再取缓存项，反过来时可能取到旧值后恰好有提交更新完缓存，旧值被误认为已同步
+        long syncedSeq = protoAbleCaches2.getSyncedSeq();
+        NodeCache.Entry entry = protoAbleCaches2.get(key);
+        // 只读事务不能使用快照之后才提交的值，也不能使用尚未同步完快照中已提交数据的缓存
+        if (null != entry && (!readOnly || (entry.seq <= startSeq && startSeq <= syncedSeq))) {
+            cache = entry.value;
+            if (!readOnly) {
+                cache = cache.copy();
+            }
+            protoAbleCaches1.put(key, cache);
+            protoAbleCaches2.recordHit();
+            if (null != metrics) {
+                metrics.onCacheHit(MetricsListener.sharedCache);
+            }
+            return cache;
+        }
+        protoAbleCaches2.recordMiss();
+        if (null != metrics) {
+            metrics.onCacheMiss();
+        }
+        return null;
+    }
+
+    private static long byteSize(List<byte[]> values) {
+        long size = 0;
+        for (byte[] value : values) {
+            if (null != value) {
+                size += value.length;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 解析从rocksdb读到的对象并放入缓存
+     *
+     * @param t     对象类型
+     * @param key   key
+     * @param bytes 读到的值，为null表示不存在
+     * @return 对象，不存在时返回nullProtoAble
+     */
+    private ProtoAble onLoaded(Class<? extends ProtoAble> t, long key, byte[] bytes) {
+        ProtoAble cache;
         if (null == bytes) {
-            protoAbleCaches1.put(key, nullProtoAble);
-            return null;
+            cache = nullProtoAble;
         } else {
-            txb = ProtoAble.fromBytes(t, builder, key, bytes);
-            protoAbleCaches1.put(key, txb);
-            return txb;
+            cache = ProtoAble.fromBytes(t, builder, key, bytes);
         }
-
+        protoAbleCaches1.put(key, cache);
+        if (readOnly) {
+            // 只读事务不修改对象，直接共享给其它事务
+            protoAbleCaches2.putIfLatest(key, cache, startSeq, db::getLatestSequenceNumber);
+        }
+        return cache;
     }
 
 
     public void commit() {
+        if (readOnly) {
+            commited = true;
+            return;
+        }
+        if (shared) {
+            throw new RuntimeException("StoreTransaction中的事务需要通过StoreTransaction提交");
+        }
+        checkCommitLock();
+        long start = null == metrics ? 0 : System.nanoTime();
+        prepareCommit();
+        lock.writeLock().lock();
+        try {
+            checkConflict();
+            db.write(writeOpt, batch);
+            onCommitted(db.getLatestSequenceNumber());
+        } catch (RocksDBException e) {
+            throw new RuntimeException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        reportCommit(start);
+    }
+
+    /**
+     * 读锁不能升级为写锁，当前线程还持有本树其它读写事务的读锁时，提交会一直等待自己，直接报错
+     */
+    protected void checkCommitLock() {
+        if (!commited && lock.getReadHoldCount() > 1) {
+            throw new RuntimeException("当前线程还持有同一棵树上未关闭的其它读写事务，提交会死锁，请先提交或关闭其它事务");
+        }
+    }
+
+    protected TreeBuilder getBuilder() {
+        return builder;
+    }
+
+    /**
+     * 把提交的批大小和耗时交给运行指标监听器，未配置时不做处理
+     *
+     * @param startNanos 开始提交时的System.nanoTime()
+     */
+    protected void reportCommit(long startNanos) {
+        if (null != metrics) {
+            metrics.onCommit(batch.count(), batch.getDataSize(), System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * 把事务中的修改写入WriteBatch并释放读锁，之后由调用者持有写锁写入rocksdb并调用onCommitted
+     */
+    protected void prepareCommit() {
         if (commited) {
             throw new RuntimeException("事务已经提交过一次了");
         }
         commited = true;
+        ColumnFamilyHandle nodeColumnFamily = builder.getNodeColumnFamily();
         try {
-            for (Map.Entry<String, ProtoAble> e : txAdded.entrySet()) {
-                batch.put(e.getKey().getBytes(StandardCharsets.UTF_8), e.getValue().toBytes());
+            // 先写要素，叶子节点序列化时会释放新数据的要素
+            for (Map.Entry<Long, RectNd> e : txFeatures.entrySet()) {
+                byte[] key = TreeBuilder.entryKey(e.getKey());
+                if (null == e.getValue()) {
+                    batch.delete(builder.getFeatureColumnFamily(), key);
+                } else {
+                    batch.put(builder.getFeatureColumnFamily(), key, ProtoFeatureConverter.feature2Proto(e.getValue().getFeature()));
+                }
             }
-            for (String k : txDeleted) {
-                batch.delete(k.getBytes(StandardCharsets.UTF_8));
+            for (Map.Entry<Long, ProtoAble> e : txAdded.entrySet()) {
+                // 放入事务后未被修改的对象与rocksdb中的一致，不需要序列化和写入
+                if (e.getValue().isDirty()) {
+                    if (builder.hasFeatureKey() && e.getValue() instanceof Leaf) {
+                        ((Leaf) e.getValue()).loadFeatureKeys(this);
+                    }
+                    batch.put(nodeColumnFamily, builder.nodeKey(e.getKey()), e.getValue().toBytes());
+                }
             }
-            if (null == treeRootId || !treeRootId.equals(builder.rootId)) {
-                //rtree发生过变化，存储一次rtree
-                batch.put(TreeDbKey, builder.getRTree().toBytes());
+            for (long k : txDeleted) {
+                batch.delete(nodeColumnFamily, builder.nodeKey(k));
             }
-            lock.readLock().unlock();
-            lock.writeLock().lock();
-            try {
-                db.write(writeOpt, batch);
-                protoAbleCaches2.putAll(txAdded);
-                for (String s : txDeleted) {
-                    protoAbleCaches2.remove(s);
+            for (Map.Entry<String, Long> e : txFeatureIndex.entrySet()) {
+                byte[] key = TreeBuilder.featureIndexKey(e.getKey());
+                if (null == e.getValue()) {
+                    batch.delete(nodeColumnFamily, key);
+                } else {
+                    batch.put(nodeColumnFamily, key, builder.nodeKey(e.getValue()));
                 }
-            } finally {
-                lock.writeLock().unlock();
+            }
+            if (NodeId.none == treeRootId || treeRootId != rootId || builder.isIdLimitChanged()) {
+                //rtree发生过变化或预留了新的id块，存储一次rtree
+                treePb = builder.getRTree().toPb(rootId);
+                batch.put(nodeColumnFamily, TreeDbKey, treePb.toByteArray());
             }
         } catch (RocksDBException e) {
             throw new RuntimeException(e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return 事务中是否修改了本树
+     */
+    private boolean hasChanges() {
+        return !txAdded.isEmpty() || !txDeleted.isEmpty() || !txFeatureIndex.isEmpty() || !txFeatures.isEmpty() || null != treePb;
+    }
+
+    /**
+     * 在写锁内、写入rocksdb之前检查事务开始后本树是否有其它读写事务提交了修改。
+     * 两个事务各自复制了开始时的节点，后提交的一方写入会覆盖先提交一方的节点和根节点，造成数据丢失和节点引用不一致
+     */
+    protected void checkConflict() {
+        if (builder.commitVersion != startVersion && hasChanges()) {
+            throw new TransactionConflictException("事务开始后树已被其它事务修改，请关闭本事务后在新的事务中重做");
         }
     }
 
+    /**
+     * 修改写入rocksdb后，在写锁内更新根节点和缓存
+     *
+     * @param seq 写入后的rocksdb序列号
+     */
+    protected void onCommitted(long seq) {
+        // 新的根节点在写入rocksdb后才对之后开启的事务可见
+        builder.rootId = rootId;
+        if (hasChanges()) {
+            builder.commitVersion++;
+        }
+        if (null != treePb) {
+            builder.onTreeSaved(treePb);
+        }
+        for (Map.Entry<Long, ProtoAble> e : txAdded.entrySet()) {
+            e.getValue().markClean();
+            protoAbleCaches2.put(e.getKey(), e.getValue(), seq);
+        }
+        for (long s : txDeleted) {
+            protoAbleCaches2.remove(s);
+        }
+        protoAbleCaches2.setSyncedSeq(seq);
+    }
+
     public void rollback() {
+        rootId = treeRootId;
         txAdded.clear();
         txDeleted.clear();
+        txFeatureIndex.clear();
+        txFeatures.clear();
+        reinsertEntries.clear();
         protoAbleCaches1.clear();
     }
 
 
     @Override
     public void close() {
+        if (readOnly) {
+            readOpt.close();
+            if (!shared) {
+                db.releaseSnapshot(snapshot);
+            }
+            return;
+        }
         if (!commited) {
             lock.readLock().unlock();
-            if (protoAbleCaches1.size() > 0) {
-                lock.writeLock().lock();
-                protoAbleCaches2.putAll(protoAbleCaches1);
-                lock.writeLock().unlock();
+            // 被修改过的对象不能放入二级缓存
+            for (Map.Entry<Long, ProtoAble> e : protoAbleCaches1.entrySet()) {
+                long key = e.getKey();
+                if (!txAdded.containsKey(key) && !txDeleted.contains(key)) {
+                    protoAbleCaches2.putIfLatest(key, e.getValue(), startSeq, db::getLatestSequenceNumber);
+                }
             }
         }
-        batch.close();
-        writeOpt.close();
+        if (!shared) {
+            batch.close();
+            writeOpt.close();
+        }
     }
 
 
@@ -0,0 +1,122 @@
+package org.wowtools.giscat.vector.rocksrtree;
+
+import org.junit.Assert;
+import org.wowtools.giscat.vector.pojo.Feature;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 批量装载后count、intersects的结果与暴力计算的结果一致，装载后的树可继续增删；featureKey重复时装载失败且树仍为空
+ *
+ * @author liuyu
+ * @date 2023/4/25
+ */
+public class BulkLoadTest extends RTreeTestBase {
+
+    private static TreeBuilder.TreeBuilderConfig config(boolean featureKey, boolean separateFeatures) {
+        TreeBuilder.TreeBuilderConfig config = featureKey ? config(4, 16) : new TreeBuilder.TreeBuilderConfig();
+        config.mMin = 4;
+        config.mMax = 16;
+        config.separateFeatures = separateFeatures;
+        return config;
+    }
+
+    /**
+     * @return 按外接矩形最小x排序的数据，作为bulkLoadSorted的输入
+     */
+    private static List<Feature> sortByX(Map<Long, Feature> features) {
+        List<Feature> sorted = new ArrayList<>(features.values());
+        sorted.sort(Comparator.comparingDouble((Feature f) -> f.getGeometry().getEnvelopeInternal().getMinX()));
+        return sorted;
+    }
+
+    private void checkLoad(boolean sorted, boolean featureKey, boolean separateFeatures) {
+        Random random = new Random(sorted ? 1 : 2);
+        Map<Long, Feature> live = randomFeatures(0, 5000, true, random);
+        String path = new File(dir, sorted + "_" + featureKey + "_" + separateFeatures).getPath();
+        TreeBuilder.TreeBuilderConfig config = config(featureKey, separateFeatures);
+        try (TreeBuilder builder = new TreeBuilder(path, config)) {
+            if (sorted) {
+                builder.bulkLoadSorted(sortByX(live).iterator());
+            } else {
+                builder.bulkLoad(live.values().iterator());
+            }
+            checkQueries(builder, live, random);
+            Map<Long, Feature> more = randomFeatures(10000, 1000, true, random);
+            addAll(builder, more.values(), 500);
+            live.putAll(more);
+            checkQueries(builder, live, random);
+        }
+        try (TreeBuilder builder = new TreeBuilder(path, config)) {
+            checkQueries(builder, live, random);
+            if (featureKey) {
+                try (TreeTransaction tx = builder.newTx()) {
+                    for (long id = 0; id < 5000; id += 3) {
+                        Assert.assertTrue(builder.getRTree().remove(String.valueOf(id), tx));
+                        live.remove(id);
+                    }
+                    tx.commit();
+                }
+                checkQueries(builder, live, random);
+            }
+        }
+    }
+
+    @org.junit.Test
+    public void testBulkLoad() {
+        checkLoad(false, false, false);
+        checkLoad(false, true, false);
+        checkLoad(false, true, true);
+        checkLoad(false, false, true);
+    }
+
+    @org.junit.Test
+    public void testBulkLoadSorted() {
+        checkLoad(true, false, false);
+        checkLoad(true, true, false);
+        checkLoad(true, true, true);
+        checkLoad(true, false, true);
+    }
+
+    private void checkDuplicateKey(boolean sorted, boolean separateFeatures) {
+        Random random = new Random(3);
+        // 数据量足够大，出现重复前已有节点分批写入rocksdb
+        Map<Long, Feature> live = randomPoints(0, 40000, random);
+        List<Feature> input = sorted ? sortByX(live) : new ArrayList<>(live.values());
+        input.add(point(7, 500, 500));
+        String path = new File(dir, "duplicate_" + sorted + "_" + separateFeatures).getPath();
+        try (TreeBuilder builder = new TreeBuilder(path, config(true, separateFeatures))) {
+            try {
+                if (sorted) {
+                    builder.bulkLoadSorted(input.iterator());
+                } else {
+                    builder.bulkLoad(input.iterator());
+                }
+                Assert.fail("重复的featureKey应该被拒绝");
+            } catch (RuntimeException e) {
+                // expected
+            }
+            // 树仍为空，重新装载后失败装载中的featureKey可以正常添加，没有残留的索引
+            checkQueries(builder, new LinkedHashMap<>(), random);
+            Map<Long, Feature> some = randomPoints(0, 1000, random);
+            builder.bulkLoad(some.values().iterator());
+            Map<Long, Feature> more = randomPoints(1000, 1000, random);
+            addAll(builder, more.values(), 1000);
+            some.putAll(more);
+            checkQueries(builder, some, random);
+        }
+    }
+
+    @org.junit.Test
+    public void testDuplicateKey() {
+        checkDuplicateKey(false, false);
+        checkDuplicateKey(true, false);
+        checkDuplicateKey(true, true);
+    }
+}
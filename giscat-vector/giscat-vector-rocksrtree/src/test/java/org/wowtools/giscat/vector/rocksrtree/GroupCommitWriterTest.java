@@ -0,0 +1,210 @@
+package org.wowtools.giscat.vector.rocksrtree;
+
+import org.junit.Assert;
+import org.wowtools.giscat.vector.pojo.Feature;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 组提交写入器：多线程写入分批提交，批次失败后逐个重试，close时执行完队列中的写操作，与其它读写事务并发写入时数据不丢失
+ *
+ * @author liuyu
+ * @date 2023/4/25
+ */
+public class GroupCommitWriterTest extends RTreeTestBase {
+
+    private static void awaitAll(List<CompletableFuture<Boolean>> futures) throws Exception {
+        for (CompletableFuture<Boolean> future : futures) {
+            Assert.assertTrue(future.get(30, TimeUnit.SECONDS));
+        }
+    }
+
+    @org.junit.Test
+    public void testBatching() throws Exception {
+        Random random = new Random(1);
+        Map<Long, Feature> live = randomPoints(0, 2000, random);
+        AtomicInteger commits = new AtomicInteger();
+        TreeBuilder.TreeBuilderConfig config = config(4, 16);
+        config.metricsListener = new MetricsListener() {
+            @Override
+            public void onCommit(int batchCount, long batchBytes, long costNanos) {
+                commits.incrementAndGet();
+            }
+        };
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config)) {
+            List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+            try (GroupCommitWriter writer = builder.newGroupCommitWriter(100, 50)) {
+                ExecutorService executor = Executors.newFixedThreadPool(4);
+                List<Future<List<CompletableFuture<Boolean>>>> submitted = new ArrayList<>();
+                List<Feature> features = new ArrayList<>(live.values());
+                for (int t = 0; t < 4; t++) {
+                    List<Feature> part = features.subList(t * 500, t * 500 + 500);
+                    submitted.add(executor.submit(() -> {
+                        List<CompletableFuture<Boolean>> list = new ArrayList<>();
+                        for (Feature feature : part) {
+                            list.add(writer.add(feature));
+                        }
+                        return list;
+                    }));
+                }
+                for (Future<List<CompletableFuture<Boolean>>> f : submitted) {
+                    futures.addAll(f.get());
+                }
+                executor.shutdown();
+                awaitAll(futures);
+            }
+            // 2000个写操作合并成少量批次提交
+            Assert.assertTrue("提交次数 " + commits.get(), commits.get() <= 200);
+            checkQueries(builder, live, random);
+        }
+    }
+
+    @org.junit.Test
+    public void testRetryAfterFailedBatch() throws Exception {
+        Random random = new Random(2);
+        Map<Long, Feature> live = randomPoints(0, 200, random);
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config(4, 16))) {
+            addAll(builder, live.values(), 200);
+            Map<Long, Feature> more = randomPoints(1000, 100, random);
+            List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+            CompletableFuture<Boolean> duplicate;
+            CompletableFuture<Boolean> removed;
+            CompletableFuture<Boolean> missing;
+            // 延迟足够长，以下写操作在同一批次中
+            try (GroupCommitWriter writer = builder.newGroupCommitWriter(1000, 500)) {
+                for (Feature feature : more.values()) {
+                    futures.add(writer.add(feature));
+                }
+                duplicate = writer.add(point(5, 1, 1));
+                removed = writer.remove("6");
+                missing = writer.remove("nope");
+            }
+            // 重复的featureKey导致整批失败，逐个重试后只有这一个失败
+            awaitAll(futures);
+            try {
+                duplicate.get();
+                Assert.fail("重复的featureKey应该被拒绝");
+            } catch (ExecutionException e) {
+                // expected
+            }
+            Assert.assertTrue(removed.get());
+            Assert.assertFalse(missing.get());
+            live.putAll(more);
+            live.remove(6L);
+            checkQueries(builder, live, random);
+        }
+    }
+
+    @org.junit.Test
+    public void testCloseDrainsQueue() throws Exception {
+        Random random = new Random(3);
+        Map<Long, Feature> live = randomPoints(0, 3000, random);
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config(4, 16))) {
+            List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+            GroupCommitWriter writer = builder.newGroupCommitWriter(50, 20);
+            for (Feature feature : live.values()) {
+                futures.add(writer.add(feature));
+            }
+            writer.close();
+            // close返回时队列中的写操作都已提交
+            for (CompletableFuture<Boolean> future : futures) {
+                Assert.assertTrue(future.isDone());
+                Assert.assertTrue(future.get());
+            }
+            CompletableFuture<Boolean> afterClose = writer.add(point(99999, 1, 1));
+            Assert.assertTrue(afterClose.isCompletedExceptionally());
+            checkQueries(builder, live, random);
+        }
+    }
+
+    /**
+     * 写入线程被阻塞、队列已满时，等待放入队列的提交线程不妨碍close，close后以异常完成
+     */
+    @org.junit.Test
+    public void testCloseWithBlockedSubmitter() throws Exception {
+        Random random = new Random(4);
+        Map<Long, Feature> live = new ConcurrentHashMap<>();
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config(4, 16))) {
+            GroupCommitWriter writer = builder.newGroupCommitWriter(1, 0);
+            List<CompletableFuture<Boolean>> queued = new ArrayList<>();
+            CompletableFuture<Boolean> blocked;
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            // 未关闭的读写事务持有读锁，写入线程提交时拿不到写锁
+            TreeTransaction holder = builder.newTx();
+            try {
+                // 1个在写入线程中，4个在队列中
+                for (long id = 0; id < 5; id++) {
+                    Feature feature = point(id, random.nextDouble() * 1000, random.nextDouble() * 1000);
+                    live.put(id, feature);
+                    queued.add(writer.add(feature));
+                }
+                Future<CompletableFuture<Boolean>> submitting = executor.submit(() -> writer.add(point(5, 1, 1)));
+                Thread.sleep(300);
+                Assert.assertFalse(submitting.isDone());
+                Future<?> closing = executor.submit(writer::close);
+                blocked = submitting.get(5, TimeUnit.SECONDS);
+                Assert.assertTrue(blocked.isCompletedExceptionally());
+                Assert.assertFalse(closing.isDone());
+            } finally {
+                holder.close();
+            }
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+            awaitAll(queued);
+            checkQueries(builder, live, random);
+        }
+    }
+
+    /**
+     * 其它线程同时用newTx写入，冲突时双方各自重做，数据不丢失
+     */
+    @org.junit.Test
+    public void testConcurrentTxWriter() throws Exception {
+        Random random = new Random(5);
+        Map<Long, Feature> byWriter = randomPoints(0, 2000, random);
+        Map<Long, Feature> byTx = randomPoints(100000, 2000, random);
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config(4, 16))) {
+            List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+            try (GroupCommitWriter writer = builder.newGroupCommitWriter(50, 5)) {
+                ExecutorService executor = Executors.newSingleThreadExecutor();
+                Future<?> txWriter = executor.submit(() -> {
+                    List<Feature> features = new ArrayList<>(byTx.values());
+                    for (int i = 0; i < features.size(); i += 20) {
+                        while (true) {
+                            try (TreeTransaction tx = builder.newTx()) {
+                                for (Feature feature : features.subList(i, i + 20)) {
+                                    builder.getRTree().add(feature, tx);
+                                }
+                                tx.commit();
+                                break;
+                            } catch (TransactionConflictException e) {
+                                // 重做
+                            }
+                        }
+                    }
+                    return null;
+                });
+                for (Feature feature : byWriter.values()) {
+                    futures.add(writer.add(feature));
+                }
+                txWriter.get();
+                executor.shutdown();
+                awaitAll(futures);
+            }
+            Map<Long, Feature> live = new ConcurrentHashMap<>(byWriter);
+            live.putAll(byTx);
+            checkQueries(builder, live, random);
+        }
+    }
+}
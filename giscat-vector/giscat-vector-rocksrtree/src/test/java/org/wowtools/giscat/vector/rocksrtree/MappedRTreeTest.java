@@ -0,0 +1,95 @@
+package org.wowtools.giscat.vector.rocksrtree;
+
+import org.junit.Assert;
+import org.wowtools.giscat.vector.pojo.Feature;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 导出MappedRTree后，查询结果与导出前的RTree及暴力计算的结果一致
+ *
+ * @author liuyu
+ * @date 2023/4/25
+ */
+public class MappedRTreeTest extends RTreeTestBase {
+
+    private static TreeBuilder build(File sub, Iterable<Feature> features, boolean separateFeatures) {
+        TreeBuilder.TreeBuilderConfig config = new TreeBuilder.TreeBuilderConfig();
+        config.separateFeatures = separateFeatures;
+        TreeBuilder builder = new TreeBuilder(new File(sub, "db").getPath(), config);
+        try (TreeTransaction tx = builder.newTx()) {
+            for (Feature feature : features) {
+                builder.getRTree().add(feature, tx);
+            }
+            tx.commit();
+        }
+        return builder;
+    }
+
+    private static Set<Long> ids(MappedRTree mappedRTree, RectNd rect) {
+        Set<Long> ids = new HashSet<>();
+        mappedRTree.intersects(rect, (feature) -> {
+            Assert.assertTrue("重复返回", ids.add(((Number) feature.getProperties().get("id")).longValue()));
+            return true;
+        });
+        return ids;
+    }
+
+    private void checkRoundTrip(int num, boolean separateFeatures, int nodeSize) {
+        Random random = new Random(num);
+        Map<Long, Feature> features = randomFeatures(0, num, true, random);
+        File sub = new File(dir, num + "_" + separateFeatures + "_" + nodeSize);
+        String file = new File(dir, sub.getName() + ".grt").getPath();
+        try (TreeBuilder builder = build(sub, features.values(), separateFeatures)) {
+            new MappedRTreeWriter(builder, nodeSize).write(file);
+            MappedRTree mappedRTree = new MappedRTree(file);
+            Assert.assertEquals(num, mappedRTree.getFeatureCount());
+            Assert.assertEquals(2, mappedRTree.getNDim());
+            try (TreeTransaction tx = builder.newReadOnlyTx()) {
+                for (int i = 0; i < 100; i++) {
+                    double x = random.nextDouble() * 1000;
+                    double y = random.nextDouble() * 1000;
+                    double w = random.nextDouble() * 150;
+                    RectNd rect = new RectNd(new double[]{x, y}, new double[]{x + w, y + w});
+                    Set<Long> expected = bruteForce(features, rect);
+                    Assert.assertEquals(expected, ids(builder.getRTree(), rect, tx));
+                    Assert.assertEquals(expected, ids(mappedRTree, rect));
+                    Assert.assertEquals(expected.size(), mappedRTree.count(rect));
+                }
+            }
+            RectNd all = new RectNd(new double[]{-1, -1}, new double[]{1100, 1100});
+            Assert.assertEquals(num, ids(mappedRTree, all).size());
+            Assert.assertEquals(num, mappedRTree.count(all));
+            // consumer返回false时停止遍历
+            int[] n = new int[1];
+            mappedRTree.intersects(all, (feature) -> ++n[0] < 5);
+            Assert.assertEquals(Math.min(5, num), n[0]);
+        }
+    }
+
+    @org.junit.Test
+    public void testRoundTrip() {
+        checkRoundTrip(5000, false, MappedRTree.defaultNodeSize);
+    }
+
+    @org.junit.Test
+    public void testRoundTripSeparateFeatures() {
+        checkRoundTrip(5000, true, MappedRTree.defaultNodeSize);
+    }
+
+    @org.junit.Test
+    public void testSmallNodeSize() {
+        checkRoundTrip(1000, false, 2);
+        checkRoundTrip(777, true, 3);
+    }
+
+    @org.junit.Test
+    public void testEmptyAndSingle() {
+        checkRoundTrip(0, false, MappedRTree.defaultNodeSize);
+        checkRoundTrip(1, true, MappedRTree.defaultNodeSize);
+    }
+}
@@ -0,0 +1,67 @@
+package org.wowtools.giscat.vector.rocksrtree;
+
+import org.junit.Assert;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.util.SizeUnit;
+import org.wowtools.giscat.vector.pojo.Feature;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 节点缓存默认按字节数限制容量，字节数按节点解析后的对象估算
+ *
+ * @author liuyu
+ * @date 2023/4/25
+ */
+public class NodeCacheTest extends RTreeTestBase {
+
+    @org.junit.Test
+    public void testEstimateHeapSize() {
+        Random random = new Random(1);
+        Map<Long, Feature> live = randomFeatures(0, 3000, true, random);
+        try (RTreeStore store = new RTreeStore(dir.getPath(), null)) {
+            TreeBuilder builder = store.openTree("t", config(4, 16));
+            addAll(builder, live.values(), 3000);
+            int leafNum = 0;
+            try (RocksIterator iterator = store.getDb().newIterator(builder.getNodeColumnFamily())) {
+                for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                    byte[] key = iterator.key();
+                    long id = 8 == key.length ? NodeId.fromBytes(key) : NodeId.none;
+                    byte[] bytes = iterator.value();
+                    if (NodeId.isLeaf(id)) {
+                        Leaf leaf = ProtoAble.fromBytes(Leaf.class, builder, id, bytes);
+                        // 解析后每个数据至少有一个RectNd、两个PointNd和两个double数组，比序列化后大得多
+                        Assert.assertTrue(leaf.estimateHeapSize() >= bytes.length + leaf.size() * RectNd.heapSize(2));
+                        leafNum++;
+                    } else if (NodeId.isBranch(id)) {
+                        Branch branch = ProtoAble.fromBytes(Branch.class, builder, id, bytes);
+                        Assert.assertTrue(branch.estimateHeapSize() >= bytes.length + branch.size() * RectNd.heapSize(2));
+                    }
+                }
+            }
+            Assert.assertTrue(leafNum > 0);
+        }
+    }
+
+    @org.junit.Test
+    public void testByteBudget() {
+        Assert.assertEquals(128 * SizeUnit.MB, new TreeBuilder.TreeBuilderConfig().cacheByteSize);
+
+        Random random = new Random(2);
+        Map<Long, Feature> live = randomPoints(0, 20000, random);
+        long budget = 2 * SizeUnit.MB;
+        TreeBuilder.TreeBuilderConfig config = config(4, 16);
+        config.cacheSize = 1000000;
+        config.cacheByteSize = budget;
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config)) {
+            addAll(builder, live.values(), 2000);
+            checkQueries(builder, live, random);
+            CacheStats stats = builder.getCacheStats();
+            // 只按节点数不会淘汰，淘汰是字节数上限触发的；每段至少保留刚放入的一个节点，允许少量超出
+            Assert.assertTrue(stats.getNodeEvictionCount() > 0);
+            Assert.assertTrue(stats.toString(), stats.getNodeByteSize() <= budget + budget / 10);
+            Assert.assertTrue(stats.toString(), stats.getNodeByteSize() > budget / 2);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package org.wowtools.giscat.vector.rocksrtree;
+
+import com.google.protobuf.ByteString;
+import org.junit.Assert;
+import org.locationtech.jts.geom.Envelope;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksIterator;
+import org.wowtools.giscat.vector.pojo.Feature;
+import org.wowtools.giscat.vector.pojo.FeatureCollection;
+import org.wowtools.giscat.vector.pojo.converter.ProtoFeatureConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 存储格式兼容性：旧版本写入的格式版本0(字符串节点id)的树打开后沿用旧格式读写，新建的树使用格式版本1，重新打开后数据不变
+ *
+ * @author liuyu
+ * @date 2023/4/25
+ */
+public class RTreeFormatCompatibilityTest extends RTreeTestBase {
+
+    private static void add(TreeBuilder builder, Map<Long, Feature> features) {
+        addAll(builder, features.values(), Integer.MAX_VALUE);
+    }
+
+    private static RocksRtreePb.RectNdPb rectPb(Envelope envelope) {
+        return RocksRtreePb.RectNdPb.newBuilder()
+                .addMin(envelope.getMinX()).addMin(envelope.getMinY())
+                .addMax(envelope.getMaxX()).addMax(envelope.getMaxY())
+                .build();
+    }
+
+    /**
+     * 按旧版本(没有格式版本、节点id上限和featureKey索引)的存储格式逐条写入一棵树：
+     * 树信息只有rootId、mMin、mMax，节点key为"L"/"B"加序号的字符串，
+     * 非叶子节点只记录子节点id，叶子节点的实体整体序列化为一个FeatureCollection
+     */
+    private static void writeLegacyTree(String dir, Map<Long, Feature> features, int mMin, int mMax) throws Exception {
+        List<Feature> sorted = new ArrayList<>(features.values());
+        sorted.sort(Comparator.comparingDouble((Feature f) -> f.getGeometry().getEnvelopeInternal().getMinX()));
+        try (Options options = new Options().setCreateIfMissing(true); RocksDB db = RocksDB.open(options, dir)) {
+            List<String> ids = new ArrayList<>();
+            List<Envelope> mbrs = new ArrayList<>();
+            for (int i = 0; i < sorted.size(); i += mMax) {
+                List<Feature> entries = sorted.subList(i, Math.min(i + mMax, sorted.size()));
+                RocksRtreePb.LeafPb.Builder leafPb = RocksRtreePb.LeafPb.newBuilder();
+                Envelope mbr = new Envelope();
+                for (Feature feature : entries) {
+                    Envelope envelope = feature.getGeometry().getEnvelopeInternal();
+                    leafPb.addEntryRects(rectPb(envelope));
+                    mbr.expandToInclude(envelope);
+                }
+                FeatureCollection fc = new FeatureCollection();
+                fc.setFeatures(new ArrayList<>(entries));
+                leafPb.setEntries(ByteString.copyFrom(ProtoFeatureConverter.featureCollection2Proto(fc)));
+                leafPb.setMbr(rectPb(mbr));
+                String id = "L" + (ids.size() + 1);
+                db.put(id.getBytes(StandardCharsets.UTF_8), leafPb.build().toByteArray());
+                ids.add(id);
+                mbrs.add(mbr);
+            }
+            int branchId = 0;
+            while (ids.size() > 1) {
+                List<String> parentIds = new ArrayList<>();
+                List<Envelope> parentMbrs = new ArrayList<>();
+                for (int i = 0; i < ids.size(); i += mMax) {
+                    RocksRtreePb.BranchPb.Builder branchPb = RocksRtreePb.BranchPb.newBuilder();
+                    Envelope mbr = new Envelope();
+                    for (int j = i; j < Math.min(i + mMax, ids.size()); j++) {
+                        branchPb.addChildIds(ids.get(j));
+                        mbr.expandToInclude(mbrs.get(j));
+                    }
+                    branchPb.setMbr(rectPb(mbr));
+                    String id = "B" + (++branchId);
+                    db.put(id.getBytes(StandardCharsets.UTF_8), branchPb.build().toByteArray());
+                    parentIds.add(id);
+                    parentMbrs.add(mbr);
+                }
+                ids = parentIds;
+                mbrs = parentMbrs;
+            }
+            db.put(RTree.TreeDbKey, RocksRtreePb.RTreePb.newBuilder().setRootId(ids.get(0)).setMMin(mMin).setMMax(mMax).build().toByteArray());
+        }
+    }
+
+    private static RocksRtreePb.RTreePb readTreePb(RocksDB db) throws Exception {
+        return RocksRtreePb.RTreePb.parseFrom(db.get(RTree.TreeDbKey));
+    }
+
+    /**
+     * @return 节点key的个数，key不符合格式时断言失败
+     */
+    private static int checkNodeKeys(RocksDB db, boolean legacy) {
+        int n = 0;
+        try (RocksIterator iterator = db.newIterator()) {
+            for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                byte[] key = iterator.key();
+                if (key[0] != 'L' && key[0] != 'B') {
+                    // 树信息和featureKey索引
+                    continue;
+                }
+                if (legacy) {
+                    String s = new String(key, StandardCharsets.UTF_8);
+                    Assert.assertTrue("旧格式的节点key应为字符串 " + s, s.matches("[LB][0-9]+"));
+                } else {
+                    Assert.assertEquals(8, key.length);
+                }
+                n++;
+            }
+        }
+        return n;
+    }
+
+    @org.junit.Test
+    public void testLegacyFormat() throws Exception {
+        // 600条数据、38个叶子节点，3层
+        Random random = new Random(1);
+        Map<Long, Feature> live = randomFeatures(0, 600, true, random);
+        writeLegacyTree(dir.getPath(), live, 4, 16);
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config(4, 16))) {
+            Assert.assertEquals(0, builder.formatVersion);
+            checkQueries(builder, live, random);
+            Map<Long, Feature> more = randomFeatures(10000, 2000, true, random);
+            add(builder, more);
+            live.putAll(more);
+            checkQueries(builder, live, random);
+        }
+
+        try (Options options = new Options(); RocksDB db = RocksDB.open(options, dir.getPath())) {
+            RocksRtreePb.RTreePb treePb = readTreePb(db);
+            Assert.assertEquals(0, treePb.getFormatVersion());
+            Assert.assertNotNull(db.get(treePb.getRootId().getBytes(StandardCharsets.UTF_8)));
+            Assert.assertTrue(checkNodeKeys(db, true) > 0);
+            // 更早的版本没有记录节点id上限，重新打开时需要扫描已有节点
+            db.put(RTree.TreeDbKey, treePb.toBuilder().setLeafIdLimit(0).setBranchIdLimit(0).build().toByteArray());
+        }
+
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config(4, 16))) {
+            Assert.assertEquals(0, builder.formatVersion);
+            checkQueries(builder, live, random);
+            Map<Long, Feature> more = randomPoints(20000, 2000, random);
+            add(builder, more);
+            live.putAll(more);
+            // 旧版本写入的数据没有featureKey索引，只有被改写过的叶子节点中的数据补上了索引，重新打包后全部数据都有索引
+            builder.optimize();
+            checkQueries(builder, live, random);
+            try (TreeTransaction tx = builder.newTx()) {
+                for (long id = 0; id < 300; id++) {
+                    Assert.assertTrue(builder.getRTree().remove(String.valueOf(id), tx));
+                    live.remove(id);
+                }
+                for (long id = 10000; id < 10500; id++) {
+                    Assert.assertTrue(builder.getRTree().remove(String.valueOf(id), tx));
+                    live.remove(id);
+                }
+                tx.commit();
+            }
+            checkQueries(builder, live, random);
+        }
+
+        try (Options options = new Options(); RocksDB db = RocksDB.open(options, dir.getPath())) {
+            Assert.assertEquals(0, readTreePb(db).getFormatVersion());
+            checkNodeKeys(db, true);
+        }
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config(4, 16))) {
+            checkQueries(builder, live, random);
+        }
+    }
+
+    @org.junit.Test
+    public void testCurrentFormat() throws Exception {
+        Random random = new Random(2);
+        Map<Long, Feature> live = randomPoints(0, 3000, random);
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config(4, 16))) {
+            Assert.assertEquals(TreeBuilder.currentFormatVersion, builder.formatVersion);
+            add(builder, live);
+        }
+        try (Options options = new Options(); RocksDB db = RocksDB.open(options, dir.getPath())) {
+            RocksRtreePb.RTreePb treePb = readTreePb(db);
+            Assert.assertEquals(1, treePb.getFormatVersion());
+            Assert.assertNotNull(db.get(NodeId.toBytes(treePb.getRootNodeId())));
+            Assert.assertTrue(checkNodeKeys(db, false) > 0);
+        }
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config(4, 16))) {
+            checkQueries(builder, live, random);
+            try (TreeTransaction tx = builder.newTx()) {
+                for (long id = 0; id < 3000; id += 3) {
+                    Assert.assertTrue(builder.getRTree().remove(String.valueOf(id), tx));
+                    live.remove(id);
+                }
+                tx.commit();
+            }
+            checkQueries(builder, live, random);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package org.wowtools.giscat.vector.rocksrtree;
+
+import org.junit.Assert;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksIterator;
+import org.wowtools.giscat.vector.pojo.Feature;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按featureKey删除、修改数据后，检查count、intersects的结果与实际数据一致，被删除的节点从rocksdb中清理
+ *
+ * @author liuyu
+ * @date 2023/4/25
+ */
+public class RTreeRemoveUpdateTest extends RTreeTestBase {
+
+    private static int nodeKeyCount(RTreeStore store, TreeBuilder builder) {
+        int n = 0;
+        try (RocksIterator iterator = store.getDb().newIterator(builder.getNodeColumnFamily())) {
+            for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    @org.junit.Test
+    public void testRemove() {
+        Random random = new Random(1);
+        Map<Long, Feature> live = randomPoints(0, 3000, random);
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config(4, 16))) {
+            addAll(builder, live.values(), 500);
+            List<Long> ids = new ArrayList<>(live.keySet());
+            Collections.shuffle(ids, random);
+            for (int k = 0; k < 2000; k += 250) {
+                try (TreeTransaction tx = builder.newTx()) {
+                    for (int i = k; i < k + 250; i++) {
+                        Assert.assertTrue(builder.getRTree().remove(String.valueOf(ids.get(i)), tx));
+                        live.remove(ids.get(i));
+                    }
+                    Assert.assertFalse(builder.getRTree().remove(String.valueOf(ids.get(k)), tx));
+                    Assert.assertFalse(builder.getRTree().remove("nope", tx));
+                    tx.commit();
+                }
+                checkQueries(builder, live, random);
+            }
+        }
+    }
+
+    @org.junit.Test
+    public void testUpdate() {
+        Random random = new Random(2);
+        Map<Long, Feature> live = randomPoints(0, 2000, random);
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config(16, 64))) {
+            addAll(builder, live.values(), 1000);
+            try (TreeTransaction tx = builder.newTx()) {
+                for (long id = 0; id < 1000; id++) {
+                    Feature feature = point(id, random.nextDouble() * 1000, random.nextDouble() * 1000);
+                    builder.getRTree().update(feature, tx);
+                    live.put(id, feature);
+                }
+                // 不存在的数据直接添加
+                Feature feature = point(5000, 500, 500);
+                builder.getRTree().update(feature, tx);
+                live.put(5000L, feature);
+                tx.commit();
+            }
+            checkQueries(builder, live, random);
+        }
+        // 重新打开后featureKey索引仍然有效
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config(16, 64))) {
+            try (TreeTransaction tx = builder.newTx()) {
+                for (long id = 0; id < 2000; id += 2) {
+                    Assert.assertTrue(builder.getRTree().remove(String.valueOf(id), tx));
+                    live.remove(id);
+                }
+                tx.commit();
+            }
+            checkQueries(builder, live, random);
+        }
+    }
+
+    @org.junit.Test
+    public void testDuplicateKey() {
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config(4, 16))) {
+            try (TreeTransaction tx = builder.newTx()) {
+                builder.getRTree().add(point(1, 1, 1), tx);
+                tx.commit();
+            }
+            try (TreeTransaction tx = builder.newTx()) {
+                try {
+                    builder.getRTree().add(point(1, 2, 2), tx);
+                    Assert.fail("重复的featureKey应该被拒绝");
+                } catch (RuntimeException e) {
+                    // expected
+                }
+                // 同一事务中先删除再添加是允许的
+                Assert.assertTrue(builder.getRTree().remove("1", tx));
+                builder.getRTree().add(point(1, 3, 3), tx);
+                tx.commit();
+            }
+            Map<Long, Feature> live = new HashMap<>();
+            live.put(1L, point(1, 3, 3));
+            checkQueries(builder, live, new Random(3));
+        }
+    }
+
+    @org.junit.Test
+    public void testRemoveAllCleansNodes() {
+        Random random = new Random(4);
+        Map<Long, Feature> live = randomPoints(0, 3000, random);
+        try (RTreeStore store = new RTreeStore(dir.getPath(), null)) {
+            TreeBuilder builder = store.openTree("t", config(3, 8));
+            addAll(builder, live.values(), 300);
+            List<Long> ids = new ArrayList<>(live.keySet());
+            Collections.shuffle(ids, random);
+            for (int k = 0; k < ids.size(); k += 500) {
+                try (TreeTransaction tx = builder.newTx()) {
+                    for (int i = k; i < k + 500; i++) {
+                        Assert.assertTrue(builder.getRTree().remove(String.valueOf(ids.get(i)), tx));
+                        live.remove(ids.get(i));
+                    }
+                    tx.commit();
+                }
+                checkQueries(builder, live, random);
+            }
+            // 只剩树信息
+            Assert.assertEquals(1, nodeKeyCount(store, builder));
+        }
+    }
+
+    @org.junit.Test
+    public void testRemoveWithoutReadingFeatures() {
+        Random random = new Random(5);
+        Map<Long, Feature> live = randomPoints(0, 3000, random);
+        AtomicInteger featureReads = new AtomicInteger();
+        TreeBuilder.TreeBuilderConfig config = config(4, 16);
+        config.separateFeatures = true;
+        config.metricsListener = new MetricsListener() {
+            @Override
+            public void onFeatureRead(int featureNum, long bytes, long costNanos) {
+                featureReads.addAndGet(featureNum);
+            }
+        };
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config)) {
+            addAll(builder, live.values(), 500);
+            try (TreeTransaction tx = builder.newTx()) {
+                for (long id = 0; id < 1000; id++) {
+                    Assert.assertTrue(builder.getRTree().remove(String.valueOf(id), tx));
+                    live.remove(id);
+                }
+                for (long id = 1000; id < 1500; id++) {
+                    Feature feature = point(id, random.nextDouble() * 1000, random.nextDouble() * 1000);
+                    builder.getRTree().update(feature, tx);
+                    live.put(id, feature);
+                }
+                tx.commit();
+            }
+            // featureKey随叶子节点存储，节点分裂、删除和修改都不需要读取要素
+            Assert.assertEquals(0, featureReads.get());
+            checkQueries(builder, live, random);
+        }
+        featureReads.set(0);
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config)) {
+            try (TreeTransaction tx = builder.newTx()) {
+                for (long id = 1000; id < 2000; id += 3) {
+                    Assert.assertTrue(builder.getRTree().remove(String.valueOf(id), tx));
+                    live.remove(id);
+                }
+                tx.commit();
+            }
+            Assert.assertEquals(0, featureReads.get());
+            checkQueries(builder, live, random);
+        }
+    }
+
+    /**
+     * 遍历叶子节点，strip为true时去掉featureKey，模拟旧版本写入的数据
+     *
+     * @return 记录了featureKey的叶子节点数
+     */
+    private int leafKeyCount(boolean strip) throws Exception {
+        int n = 0;
+        try (Options options = new Options(); RocksDB db = RocksDB.open(options, dir.getPath());
+             RocksIterator iterator = db.newIterator()) {
+            for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                byte[] key = iterator.key();
+                if (key.length != 8 || !NodeId.isLeaf(NodeId.fromBytes(key))) {
+                    continue;
+                }
+                RocksRtreePb.LeafPb leafPb = RocksRtreePb.LeafPb.parseFrom(iterator.value());
+                if (leafPb.getEntryKeysCount() > 0) {
+                    Assert.assertEquals(leafPb.getEntryFeaturesCount(), leafPb.getEntryKeysCount());
+                    n++;
+                }
+                if (strip) {
+                    db.put(key, leafPb.toBuilder().clearEntryKeys().build().toByteArray());
+                }
+            }
+        }
+        return n;
+    }
+
+    @org.junit.Test
+    public void testLeafWithoutFeatureKeys() throws Exception {
+        Random random = new Random(6);
+        Map<Long, Feature> live = randomPoints(0, 3000, random);
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config(4, 16))) {
+            addAll(builder, live.values(), 1000);
+        }
+        int leafNum = leafKeyCount(true);
+        Assert.assertTrue(leafNum > 0);
+        Assert.assertEquals(0, leafKeyCount(false));
+
+        // 未记录featureKey时读取要素计算，被修改的叶子节点写回时补上featureKey
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config(4, 16))) {
+            try (TreeTransaction tx = builder.newTx()) {
+                for (long id = 0; id < 3000; id += 5) {
+                    Assert.assertTrue(builder.getRTree().remove(String.valueOf(id), tx));
+                    live.remove(id);
+                }
+                Assert.assertFalse(builder.getRTree().remove("0", tx));
+                tx.commit();
+            }
+            checkQueries(builder, live, random);
+        }
+        Assert.assertTrue(leafKeyCount(false) > 0);
+
+        // 重新打包后全部叶子节点都记录了featureKey
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config(4, 16))) {
+            builder.optimize();
+            checkQueries(builder, live, random);
+        }
+        int keyed = leafKeyCount(false);
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config(4, 16))) {
+            try (TreeTransaction tx = builder.newReadOnlyTx()) {
+                Assert.assertEquals(keyed, builder.getRTree().collectStats(tx).getLeafCount());
+            }
+            try (TreeTransaction tx = builder.newTx()) {
+                for (long id = 1; id < 3000; id += 5) {
+                    Assert.assertTrue(builder.getRTree().remove(String.valueOf(id), tx));
+                    live.remove(id);
+                }
+                tx.commit();
+            }
+            checkQueries(builder, live, random);
+        }
+    }
+}
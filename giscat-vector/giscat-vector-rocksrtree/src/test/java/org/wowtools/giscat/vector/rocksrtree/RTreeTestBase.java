@@ -0,0 +1,148 @@
+package org.wowtools.giscat.vector.rocksrtree;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.wowtools.giscat.vector.pojo.Feature;
+import org.wowtools.giscat.vector.rocksrtreetest.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 测试公用的临时目录、随机数据和暴力计算查询结果的对比，数据在1000*1000范围内，属性id为featureKey
+ *
+ * @author liuyu
+ * @date 2023/4/25
+ */
+public abstract class RTreeTestBase {
+
+    protected static final GeometryFactory geometryFactory = new GeometryFactory();
+
+    protected File dir;
+
+    @Before
+    public void before() throws IOException {
+        dir = Files.createTempDirectory("rtree_test").toFile();
+    }
+
+    @After
+    public void after() {
+        Test.deleteFolder(dir);
+    }
+
+    /**
+     * @return 以属性id为featureKey的配置
+     */
+    protected static TreeBuilder.TreeBuilderConfig config(int mMin, int mMax) {
+        TreeBuilder.TreeBuilderConfig config = new TreeBuilder.TreeBuilderConfig();
+        config.mMin = mMin;
+        config.mMax = mMax;
+        config.featureKeyFunction = (feature) -> String.valueOf(feature.getProperties().get("id"));
+        return config;
+    }
+
+    protected static Feature point(long id, double x, double y) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("id", id);
+        return new Feature(geometryFactory.createPoint(new Coordinate(x, y)), properties);
+    }
+
+    protected static Feature box(long id, double x, double y, double w) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("id", id);
+        return new Feature(geometryFactory.toGeometry(new Envelope(x, x + w, y, y + w)), properties);
+    }
+
+    /**
+     * @param from  第一个数据的id
+     * @param num   数据量
+     * @param boxes 为true时每3个数据中有一个是边长不超过20的矩形，其余为点
+     * @return 按id顺序排列的数据，key为id
+     */
+    protected static Map<Long, Feature> randomFeatures(long from, int num, boolean boxes, Random random) {
+        Map<Long, Feature> features = new LinkedHashMap<>();
+        for (long id = from; id < from + num; id++) {
+            double x = random.nextDouble() * 1000;
+            double y = random.nextDouble() * 1000;
+            features.put(id, boxes && id % 3 == 0 ? box(id, x, y, random.nextDouble() * 20) : point(id, x, y));
+        }
+        return features;
+    }
+
+    protected static Map<Long, Feature> randomPoints(long from, int num, Random random) {
+        return randomFeatures(from, num, false, random);
+    }
+
+    /**
+     * 每txSize个数据提交一次
+     */
+    protected static void addAll(TreeBuilder builder, Iterable<Feature> features, int txSize) {
+        TreeTransaction tx = builder.newTx();
+        int n = 0;
+        for (Feature feature : features) {
+            builder.getRTree().add(feature, tx);
+            if (++n % txSize == 0) {
+                tx.commit();
+                tx.close();
+                tx = builder.newTx();
+            }
+        }
+        tx.commit();
+        tx.close();
+    }
+
+    /**
+     * @return 外接矩形与rect相交的数据的id
+     */
+    protected static Set<Long> bruteForce(Map<Long, Feature> live, RectNd rect) {
+        Envelope envelope = new Envelope(rect.getMin().getCoord(0), rect.getMax().getCoord(0), rect.getMin().getCoord(1), rect.getMax().getCoord(1));
+        Set<Long> ids = new HashSet<>();
+        for (Map.Entry<Long, Feature> e : live.entrySet()) {
+            if (envelope.intersects(e.getValue().getGeometry().getEnvelopeInternal())) {
+                ids.add(e.getKey());
+            }
+        }
+        return ids;
+    }
+
+    protected static Set<Long> ids(RTree rTree, RectNd rect, TreeTransaction tx) {
+        Set<Long> ids = new HashSet<>();
+        rTree.intersects(rect, (feature) -> {
+            Assert.assertTrue("重复返回", ids.add(((Number) feature.getProperties().get("id")).longValue()));
+            return true;
+        }, tx);
+        return ids;
+    }
+
+    /**
+     * 数据总数和随机范围查询的count、intersects结果与暴力计算的结果一致
+     */
+    protected static void checkQueries(TreeBuilder builder, Map<Long, Feature> live, Random random) {
+        try (TreeTransaction tx = builder.newReadOnlyTx()) {
+            RTree rTree = builder.getRTree();
+            Assert.assertEquals(live.size(), rTree.getEntryCount(tx));
+            RectNd all = new RectNd(new double[]{-1, -1}, new double[]{1100, 1100});
+            Assert.assertEquals(live.size(), rTree.count(all, tx));
+            for (int i = 0; i < 50; i++) {
+                double x = random.nextDouble() * 900;
+                double y = random.nextDouble() * 900;
+                double w = random.nextDouble() * 200;
+                RectNd rect = new RectNd(new double[]{x, y}, new double[]{x + w, y + w});
+                Set<Long> expected = bruteForce(live, rect);
+                Assert.assertEquals(expected, ids(rTree, rect, tx));
+                Assert.assertEquals(expected.size(), rTree.count(rect, tx));
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.wowtools.giscat.vector.rocksrtree;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wowtools.giscat.vector.pojo.Feature;
+import org.wowtools.giscat.vector.rocksrtreetest.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各rocksdb配置方案批量装载、写入和查询耗时的jmh性能测试，需在真实的rocksdbjni上运行，结果才能用于比较各方案。
+ * 装载数据后关闭并重新打开树，节点缓存较小，查询耗时主要取决于rocksdb的读取；批量装载每次使用新的空目录
+ *
+ * @author liuyu
+ * @date 2023/4/23
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 3)
+@Threads(1)
+@Fork(1)
+@State(value = Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RocksDbProfileJmhTest {
+
+    private static final int num = 200000;
+
+    private static final GeometryFactory geometryFactory = new GeometryFactory();
+
+    @Param(value = {"BULK_LOAD", "READ_MOSTLY", "MIXED", "LOW_MEMORY"})
+    private RocksDbProfile profile;
+
+    private final Random random = new Random(1);
+
+    private File dir;
+
+    private TreeBuilder builder;
+
+    private int nextId = num;
+
+    /**
+     * 批量装载的数据，每次装载都使用同一批数据
+     */
+    private List<Feature> loadFeatures;
+
+    private TreeBuilder.TreeBuilderConfig config() {
+        TreeBuilder.TreeBuilderConfig config = new TreeBuilder.TreeBuilderConfig();
+        config.rocksDbProfile = profile;
+        config.cacheSize = 1000;
+        return config;
+    }
+
+    private Feature randomFeature(int id) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("id", id);
+        return new Feature(geometryFactory.createPoint(new Coordinate(random.nextDouble() * 100, random.nextDouble() * 100)), properties);
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("rtree_profile").toFile();
+        try (TreeBuilder loader = new TreeBuilder(dir.getPath(), config())) {
+            RTree rTree = loader.getRTree();
+            TreeTransaction tx = loader.newTx();
+            for (int i = 0; i < num; i++) {
+                rTree.add(randomFeature(i), tx);
+                if (i % 10000 == 0) {
+                    tx.commit();
+                    tx.close();
+                    tx = loader.newTx();
+                }
+            }
+            tx.commit();
+            tx.close();
+            loader.finishLoad();
+        }
+        // 重新打开，节点缓存为空；BULK_LOAD方案重新打开时仍处于装载模式，切换到服务模式后再测试
+        builder = new TreeBuilder(dir.getPath(), config());
+        builder.finishLoad();
+        loadFeatures = new ArrayList<>(num);
+        for (int i = 0; i < num; i++) {
+            loadFeatures.add(randomFeature(i));
+        }
+    }
+
+    /**
+     * 批量装载的目录，每次调用前新建、调用后删除
+     */
+    @State(value = Scope.Thread)
+    public static class LoadDir {
+        private File dir;
+
+        @Setup(Level.Invocation)
+        public void setup() throws IOException {
+            dir = Files.createTempDirectory("rtree_profile_load").toFile();
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() {
+            Test.deleteFolder(dir);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        builder.close();
+        Test.deleteFolder(dir);
+    }
+
+    @Benchmark
+    public void query(Blackhole blackhole) {
+        double x = random.nextDouble() * 99;
+        double y = random.nextDouble() * 99;
+        try (TreeTransaction tx = builder.newReadOnlyTx()) {
+            builder.getRTree().intersects(new RectNd(new double[]{x, y}, new double[]{x + 1, y + 1}), (feature) -> {
+                blackhole.consume(feature);
+                return true;
+            }, tx);
+        }
+    }
+
+    @Benchmark
+    public void add100(Blackhole blackhole) {
+        try (TreeTransaction tx = builder.newTx()) {
+            RTree rTree = builder.getRTree();
+            for (int i = 0; i < 100; i++) {
+                rTree.add(randomFeature(nextId++), tx);
+            }
+            tx.commit();
+        }
+        blackhole.consume(nextId);
+    }
+
+    /**
+     * 在空目录中批量装载num个点，耗时包含打开、装载、关闭，BULK_LOAD方案还包含finishLoad的全量压缩
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void bulkLoad(LoadDir loadDir) {
+        try (TreeBuilder loader = new TreeBuilder(loadDir.dir.getPath(), config())) {
+            loader.bulkLoad(loadFeatures.iterator());
+            loader.finishLoad();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opt = new OptionsBuilder()
+                .include(RocksDbProfileJmhTest.class.getSimpleName())
+                .result("jmhResult.json")
+                .resultFormat(ResultFormatType.JSON).build();
+        new Runner(opt).run();
+    }
+}
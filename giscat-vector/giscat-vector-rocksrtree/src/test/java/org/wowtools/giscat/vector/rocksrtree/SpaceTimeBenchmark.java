@@ -0,0 +1,119 @@
+package org.wowtools.giscat.vector.rocksrtree;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.wowtools.giscat.vector.pojo.Feature;
+import org.wowtools.giscat.vector.rocksrtreetest.Test;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 对比时空查询的几种方式：二维索引查询后按时间过滤、三维时空索引、按单位尺度归一化的三维时空索引
+ *
+ * @author liuyu
+ * @date 2023/4/20
+ */
+public class SpaceTimeBenchmark {
+
+    private static final long day = 24 * 3600_000L;
+
+    private static final long hour = 3600_000L;
+
+    private static int countVisited(Node node, RectNd rect, TreeBuilder builder, TreeTransaction tx) {
+        int n = 1;
+        if (!node.isLeaf()) {
+            Branch branch = (Branch) node;
+            for (int i = 0; i < branch.size(); i++) {
+                if (rect.intersects(branch.getChildBound(i, tx))) {
+                    n += countVisited(builder.getNode(branch.getChildId(i), tx), rect, builder, tx);
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @param spaceTime 是否建立三维时空索引，否则建立二维索引，查询后按时间过滤
+     * @param scales    各维度的单位尺度
+     */
+    private static void run(String name, String dir, boolean spaceTime, double[] scales, int num, int queryNum) {
+        Test.deleteFolder(new File(dir));
+        TreeBuilder.TreeBuilderConfig config = new TreeBuilder.TreeBuilderConfig();
+        if (spaceTime) {
+            config.featureRectNdFunction = SpaceTime.rectFunction("time");
+        }
+        config.dimensionScales = scales;
+        GeometryFactory geometryFactory = new GeometryFactory();
+        Random random = new Random(1);
+
+        try (TreeBuilder builder = new TreeBuilder(dir, config)) {
+            RTree pTree = builder.getRTree();
+            long t = System.currentTimeMillis();
+            TreeTransaction tx = builder.newTx();
+            for (int i = 0; i < num; i++) {
+                // 车辆轨迹点，30天内的坐标(度)
+                Map<String, Object> properties = new HashMap<>();
+                properties.put("time", (long) (random.nextDouble() * 30 * day));
+                Feature feature = new Feature(geometryFactory.createPoint(new Coordinate(100 + random.nextDouble() * 10, 20 + random.nextDouble() * 10)), properties);
+                pTree.add(feature, tx);
+                if (i % 10000 == 0) {
+                    tx.commit();
+                    tx.close();
+                    tx = builder.newTx();
+                }
+            }
+            tx.commit();
+            tx.close();
+            long addCost = System.currentTimeMillis() - t;
+
+            long visited = 0;
+            long hits = 0;
+            t = System.currentTimeMillis();
+            try (TreeTransaction readTx = builder.newReadOnlyTx()) {
+                Node root = pTree.getRoot(readTx);
+                for (int i = 0; i < queryNum; i++) {
+                    double x = 100 + random.nextDouble() * 9.5;
+                    double y = 20 + random.nextDouble() * 9.5;
+                    long t1 = (long) (random.nextDouble() * 29 * day);
+                    long t2 = t1 + hour;
+                    long[] n = new long[1];
+                    if (spaceTime) {
+                        RectNd rect = SpaceTime.rect(x, y, x + 0.5, y + 0.5, t1, t2);
+                        visited += countVisited(root, rect, builder, readTx);
+                        pTree.intersects(rect, (f) -> {
+                            n[0]++;
+                            return true;
+                        }, readTx);
+                    } else {
+                        RectNd rect = new RectNd(new double[]{x, y}, new double[]{x + 0.5, y + 0.5});
+                        visited += countVisited(root, rect, builder, readTx);
+                        pTree.intersects(rect, (f) -> {
+                            long time = (long) f.getProperties().get("time");
+                            if (time >= t1 && time <= t2) {
+                                n[0]++;
+                            }
+                            return true;
+                        }, readTx);
+                    }
+                    hits += n[0];
+                }
+            }
+            long queryCost = System.currentTimeMillis() - t;
+            System.out.println(name + " add cost " + addCost + " query cost " + queryCost
+                    + " nodes visited per query " + (visited * 1.0 / queryNum) + " hits per query " + (hits * 1.0 / queryNum));
+        }
+    }
+
+    public static void main(String[] args) {
+        String dir = "D:\\_tmp\\1\\rocksrtree_spacetime";
+        int num = 200000;
+        int queryNum = 2000;
+        run("2D + time filter", dir, false, null, num, queryNum);
+        run("3D", dir, true, null, num, queryNum);
+        // 0.1度与1小时相当
+        run("3D scaled", dir, true, SpaceTime.dimensionScales(0.1, hour), num, queryNum);
+    }
+}
@@ -0,0 +1,90 @@
+package org.wowtools.giscat.vector.rocksrtree;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.wowtools.giscat.vector.pojo.Feature;
+import org.wowtools.giscat.vector.rocksrtreetest.Test;
+
+import java.io.File;
+import java.util.Random;
+
+/**
+ * 对比不同插入策略构建出的树，每次查询需要访问的节点数
+ *
+ * @author liuyu
+ * @date 2023/4/17
+ */
+public class SplitTypeBenchmark {
+
+    private static int countVisited(Node node, RectNd rect, TreeBuilder builder, TreeTransaction tx) {
+        int n = 1;
+        if (!node.isLeaf()) {
+            Branch branch = (Branch) node;
+            for (int i = 0; i < branch.size(); i++) {
+                if (rect.intersects(branch.getChildBound(i, tx))) {
+                    n += countVisited(builder.getNode(branch.getChildId(i), tx), rect, builder, tx);
+                }
+            }
+        }
+        return n;
+    }
+
+    private static void run(String dir, SplitType splitType, int num, int queryNum) {
+        Test.deleteFolder(new File(dir));
+        TreeBuilder.TreeBuilderConfig config = new TreeBuilder.TreeBuilderConfig();
+        config.splitType = splitType;
+        GeometryFactory geometryFactory = new GeometryFactory();
+        Random random = new Random(1);
+
+        try (TreeBuilder builder = new TreeBuilder(dir, config)) {
+            RTree pTree = builder.getRTree();
+            long t = System.currentTimeMillis();
+            TreeTransaction tx = builder.newTx();
+            for (int i = 0; i < num; i++) {
+                pTree.add(new Feature(geometryFactory.createPoint(new Coordinate(random.nextDouble() * 1000, random.nextDouble() * 1000))), tx);
+                if (i % 10000 == 0) {
+                    tx.commit();
+                    tx.close();
+                    tx = builder.newTx();
+                }
+            }
+            tx.commit();
+            tx.close();
+            long addCost = System.currentTimeMillis() - t;
+
+            long visited = 0;
+            long hits = 0;
+            t = System.currentTimeMillis();
+            try (TreeTransaction readTx = builder.newReadOnlyTx()) {
+                Node root = pTree.getRoot(readTx);
+                for (int i = 0; i < queryNum; i++) {
+                    double x = random.nextDouble() * 990;
+                    double y = random.nextDouble() * 990;
+                    RectNd rect = new RectNd(new double[]{x, y}, new double[]{x + 10, y + 10});
+                    visited += countVisited(root, rect, builder, readTx);
+                    long[] n = new long[1];
+                    pTree.intersects(rect, (f) -> {
+                        n[0]++;
+                        return true;
+                    }, readTx);
+                    hits += n[0];
+                }
+            }
+            long queryCost = System.currentTimeMillis() - t;
+            Stats stats;
+            try (TreeTransaction readTx = builder.newReadOnlyTx()) {
+                stats = pTree.collectStats(readTx);
+            }
+            System.out.println(splitType + " add cost " + addCost + " query cost " + queryCost
+                    + " nodes visited per query " + (visited * 1.0 / queryNum) + " hits per query " + (hits * 1.0 / queryNum)
+                    + " leaves " + stats.getLeafCount() + " max depth " + stats.getMaxDepth());
+        }
+    }
+
+    public static void main(String[] args) {
+        String dir = "D:\\_tmp\\1\\rocksrtree_split";
+        for (SplitType splitType : SplitType.values()) {
+            run(dir, splitType, 200000, 10000);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package org.wowtools.giscat.vector.rocksrtree;
+
+import org.junit.Assert;
+import org.wowtools.giscat.vector.pojo.Feature;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多个线程同时打开读写事务时，先提交的生效，后提交的抛出TransactionConflictException且不写入任何数据，重做后数据不丢失
+ *
+ * @author liuyu
+ * @date 2023/4/25
+ */
+public class TransactionConflictTest extends RTreeTestBase {
+
+    /**
+     * 两个线程各自打开事务并修改后同时提交
+     *
+     * @return 每个写入者是否冲突
+     */
+    private static boolean[] commitTogether(Writer w1, Writer w2) throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> f1 = executor.submit(() -> w1.write(barrier));
+            Future<Boolean> f2 = executor.submit(() -> w2.write(barrier));
+            return new boolean[]{f1.get(), f2.get()};
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        /**
+         * 修改数据，等待另一个写入者也修改完后提交
+         *
+         * @return 是否冲突
+         */
+        boolean write(CyclicBarrier barrier) throws Exception;
+    }
+
+    private static Writer treeWriter(TreeBuilder builder, Map<Long, Feature> add, List<Long> remove) {
+        return (barrier) -> {
+            try (TreeTransaction tx = builder.newTx()) {
+                for (Feature feature : add.values()) {
+                    builder.getRTree().add(feature, tx);
+                }
+                for (long id : remove) {
+                    Assert.assertTrue(builder.getRTree().remove(String.valueOf(id), tx));
+                }
+                barrier.await();
+                try {
+                    tx.commit();
+                    return false;
+                } catch (TransactionConflictException e) {
+                    return true;
+                }
+            }
+        };
+    }
+
+    @org.junit.Test
+    public void testTwoWriters() throws Exception {
+        Random random = new Random(1);
+        Map<Long, Feature> live = randomPoints(0, 2000, random);
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config(4, 16))) {
+            addAll(builder, live.values(), 2000);
+            for (int round = 0; round < 20; round++) {
+                long from = 10000 + round * 1000;
+                Map<Long, Feature> add1 = randomPoints(from, 100, random);
+                Map<Long, Feature> add2 = randomPoints(from + 500, 100, random);
+                List<Long> remove1 = new ArrayList<>();
+                List<Long> remove2 = new ArrayList<>();
+                for (long id = round * 100; id < round * 100 + 50; id++) {
+                    remove1.add(id);
+                    remove2.add(id + 50);
+                }
+                boolean[] conflicts = commitTogether(treeWriter(builder, add1, remove1), treeWriter(builder, add2, remove2));
+                // 两个事务都基于同一个版本修改，只能有一个生效
+                Assert.assertTrue(conflicts[0] ^ conflicts[1]);
+                Map<Long, Feature> winnerAdd = conflicts[0] ? add2 : add1;
+                List<Long> winnerRemove = conflicts[0] ? remove2 : remove1;
+                live.putAll(winnerAdd);
+                winnerRemove.forEach(live::remove);
+                checkQueries(builder, live, random);
+
+                // 冲突的一方没有写入任何数据，在新的事务中重做
+                Map<Long, Feature> loserAdd = conflicts[0] ? add1 : add2;
+                List<Long> loserRemove = conflicts[0] ? remove1 : remove2;
+                try (TreeTransaction tx = builder.newTx()) {
+                    for (Feature feature : loserAdd.values()) {
+                        builder.getRTree().add(feature, tx);
+                    }
+                    for (long id : loserRemove) {
+                        Assert.assertTrue(builder.getRTree().remove(String.valueOf(id), tx));
+                    }
+                    tx.commit();
+                }
+                live.putAll(loserAdd);
+                loserRemove.forEach(live::remove);
+                checkQueries(builder, live, random);
+            }
+        }
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config(4, 16))) {
+            checkQueries(builder, live, random);
+        }
+    }
+
+    @org.junit.Test
+    public void testNoChangeDoesNotConflict() throws Exception {
+        Random random = new Random(2);
+        Map<Long, Feature> live = randomPoints(0, 500, random);
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config(4, 16))) {
+            addAll(builder, live.values(), 500);
+            Map<Long, Feature> add = randomPoints(1000, 100, random);
+            Writer reader = (barrier) -> {
+                try (TreeTransaction tx = builder.newTx()) {
+                    Assert.assertEquals(500, builder.getRTree().getEntryCount(tx));
+                    barrier.await();
+                    tx.commit();
+                    return false;
+                }
+            };
+            boolean[] conflicts = commitTogether(treeWriter(builder, add, new ArrayList<>()), reader);
+            Assert.assertFalse(conflicts[0]);
+            Assert.assertFalse(conflicts[1]);
+            live.putAll(add);
+            checkQueries(builder, live, random);
+        }
+    }
+
+    @org.junit.Test
+    public void testStoreTransaction() throws Exception {
+        Random random = new Random(3);
+        try (RTreeStore store = new RTreeStore(dir.getPath(), null)) {
+            TreeBuilder a = store.openTree("a", config(4, 16));
+            TreeBuilder b = store.openTree("b", config(4, 16));
+            Map<Long, Feature> liveA = randomPoints(0, 300, random);
+            Map<Long, Feature> liveB = randomPoints(0, 300, random);
+            addAll(a, liveA.values(), 300);
+            addAll(b, liveB.values(), 300);
+            Map<Long, Feature> addA = randomPoints(1000, 50, random);
+            Map<Long, Feature> addB1 = randomPoints(2000, 50, random);
+            Map<Long, Feature> addB2 = randomPoints(3000, 50, random);
+            Writer storeWriter = (barrier) -> {
+                try (StoreTransaction stx = store.newTx()) {
+                    for (Feature feature : addA.values()) {
+                        a.getRTree().add(feature, stx.getTx("a"));
+                    }
+                    for (Feature feature : addB1.values()) {
+                        b.getRTree().add(feature, stx.getTx("b"));
+                    }
+                    barrier.await();
+                    try {
+                        stx.commit();
+                        return false;
+                    } catch (TransactionConflictException e) {
+                        return true;
+                    }
+                }
+            };
+            boolean[] conflicts = commitTogether(storeWriter, treeWriter(b, addB2, new ArrayList<>()));
+            Assert.assertTrue(conflicts[0] ^ conflicts[1]);
+            if (conflicts[0]) {
+                // 只有b树冲突，a树的修改也不能写入
+                liveB.putAll(addB2);
+            } else {
+                liveA.putAll(addA);
+                liveB.putAll(addB1);
+            }
+            checkQueries(a, liveA, random);
+            checkQueries(b, liveB, random);
+        }
+    }
+
+    /**
+     * 多个线程反复增删，冲突时重做，最终数据与各线程成功提交的修改一致
+     */
+    @org.junit.Test
+    public void testConcurrentWritersWithRetry() throws Exception {
+        Map<Long, Feature> live = new ConcurrentHashMap<>();
+        AtomicInteger conflicts = new AtomicInteger();
+        int threadNum = 4;
+        try (TreeBuilder builder = new TreeBuilder(dir.getPath(), config(4, 16))) {
+            ExecutorService executor = Executors.newFixedThreadPool(threadNum);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threadNum; t++) {
+                long base = t * 100000L;
+                Random random = new Random(t);
+                futures.add(executor.submit(() -> {
+                    for (int round = 0; round < 50; round++) {
+                        Map<Long, Feature> add = randomPoints(base + round * 20, 20, random);
+                        List<Long> remove = new ArrayList<>();
+                        if (round > 0) {
+                            for (long id = base + (round - 1) * 20; id < base + (round - 1) * 20 + 5; id++) {
+                                remove.add(id);
+                            }
+                        }
+                        while (true) {
+                            try (TreeTransaction tx = builder.newTx()) {
+                                for (Feature feature : add.values()) {
+                                    builder.getRTree().add(feature, tx);
+                                }
+                                for (long id : remove) {
+                                    Assert.assertTrue(builder.getRTree().remove(String.valueOf(id), tx));
+                                }
+                                tx.commit();
+                                break;
+                            } catch (TransactionConflictException e) {
+                                conflicts.incrementAndGet();
+                            }
+                        }
+                        live.putAll(add);
+                        remove.forEach(live::remove);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+            Assert.assertEquals(threadNum * (50 * 20 - 49 * 5), live.size());
+            checkQueries(builder, live, new Random(4));
+        }
+    }
+}